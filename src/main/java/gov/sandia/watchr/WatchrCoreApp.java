@@ -23,6 +23,7 @@ import gov.sandia.watchr.config.rule.RuleConfig;
 import gov.sandia.watchr.config.rule.RuleConfig.RuleWhen;
 import gov.sandia.watchr.db.DatabaseMetadata;
 import gov.sandia.watchr.db.IDatabase;
+import gov.sandia.watchr.db.IDatabaseSnapshot;
 import gov.sandia.watchr.db.PlotDatabaseSearchCriteria;
 import gov.sandia.watchr.db.impl.AbstractDatabase;
 import gov.sandia.watchr.graph.chartreuse.model.PlotWindowModel;
@@ -235,6 +236,10 @@ public class WatchrCoreApp {
         return dbSubsystem.deletePlotFromDatabase(databaseName, plotName, category);
     }
 
+    public int deleteCategoryFromDatabase(String databaseName, String category) {
+        return dbSubsystem.deleteCategoryFromDatabase(databaseName, category);
+    }
+
     public boolean setNicknameInDatabase(String databaseName, String plotName, String category, String nickname){
         return dbSubsystem.setNicknameInDatabase(databaseName, plotName, category, nickname);
     }
@@ -270,6 +275,10 @@ public class WatchrCoreApp {
     public PlotWindowModel getDatabasePlot(String databaseName, PlotDatabaseSearchCriteria search) {
         return dbSubsystem.searchPlot(databaseName, search);
     }
+
+    public IDatabaseSnapshot getDatabaseSnapshot(String databaseName) {
+        return dbSubsystem.getSnapshot(databaseName);
+    }
     
     public int getFailedPlotsSizeFromDatabase(String databaseName) {
         return dbSubsystem.getFailedPlotsSize(databaseName);
@@ -19,9 +19,11 @@ import gov.sandia.watchr.config.diff.WatchrDiff;
 import gov.sandia.watchr.config.file.IFileReader;
 import gov.sandia.watchr.db.DatabaseMetadata;
 import gov.sandia.watchr.db.IDatabase;
+import gov.sandia.watchr.db.IDatabaseSnapshot;
 import gov.sandia.watchr.db.PlotDatabaseSearchCriteria;
 import gov.sandia.watchr.db.impl.AbstractDatabase;
 import gov.sandia.watchr.db.impl.FileBasedDatabase;
+import gov.sandia.watchr.db.impl.InMemoryDatabase;
 import gov.sandia.watchr.file.WatchrCoreAppFileManifest;
 import gov.sandia.watchr.graph.chartreuse.model.PlotWindowModel;
 import gov.sandia.watchr.log.ILogger;
@@ -84,7 +86,11 @@ public class WatchrCoreAppDatabaseSubsystem {
      *                     {@link IDatabase}.
      * @param args         An arbitary list of arguments for the database connection
      *                     operation. Certain database types may require arguments
-     *                     at the time of initialization.
+     *                     at the time of initialization.  A {@link FileBasedDatabase}
+     *                     requires its root directory as a {@link File}, optionally
+     *                     followed by a {@link Boolean} that opens the database
+     *                     read-only (see {@link FileBasedDatabase#setReadOnly(boolean)}).
+     *                     An {@link InMemoryDatabase} requires no arguments.
      */
     public void connectDatabase(
             String databaseName, Class<? extends IDatabase> databaseType, Object[] args) {
@@ -97,24 +103,31 @@ public class WatchrCoreAppDatabaseSubsystem {
                 Object arg = args[0];
                 if (arg instanceof File) {
                     File rootDir = (File) arg;
-                    connectFileBasedDatabase(databaseName, rootDir);
+                    boolean readOnly = args.length > 1 && Boolean.TRUE.equals(args[1]);
+                    connectFileBasedDatabase(databaseName, rootDir, readOnly);
                 } else {
                     logger.logWarning("Expected File in arg list, but was " + arg.getClass().toGenericString());
                 }
+            } else if (databaseType == InMemoryDatabase.class) {
+                dbCacheMap.put(databaseName, new InMemoryDatabase(logger, fileReader));
+                logger.logDebug("InMemoryDatabase was initialized", CLASSNAME);
             }
         }
     }
 
-    private void connectFileBasedDatabase(String databaseName, File rootDir) {
+    private void connectFileBasedDatabase(String databaseName, File rootDir, boolean readOnly) {
         try {
-            if (!rootDir.exists()) {
+            if (readOnly) {
+                logger.logDebug("Opening database read-only; its folder will not be created or modified", CLASSNAME);
+            } else if (!rootDir.exists()) {
                 boolean success = rootDir.mkdir();
                 logger.logDebug("Successful DB creation? " + (success ? "Yes" : "No"), CLASSNAME);
             } else {
                 logger.logDebug("Folder already exists", CLASSNAME);
             }
 
-            IDatabase db = new FileBasedDatabase(rootDir, logger, fileReader);
+            FileBasedDatabase db = new FileBasedDatabase(rootDir, logger, fileReader);
+            db.setReadOnly(readOnly);
             dbCacheMap.put(databaseName, db);
             db.loadState();
 
@@ -246,6 +259,17 @@ public class WatchrCoreAppDatabaseSubsystem {
         return db.getChildren(search);
     }
 
+    /**
+     * @param dbName The name of the database.
+     * @return A read-only snapshot of the database, or null if the database
+     *         does not exist.  Callers must close the snapshot once they
+     *         have read it.
+     */
+    public IDatabaseSnapshot getSnapshot(String dbName) {
+        IDatabase db = dbCacheMap.get(dbName);
+        return db == null ? null : db.getSnapshot();
+    }
+
 
     /////////////////////
     // MODIFY DATABASE //
@@ -387,6 +411,31 @@ public class WatchrCoreAppDatabaseSubsystem {
         return false;
     }
 
+    /**
+     * Delete every plot in a category from the database, along with their
+     * descendants. This is an irreversible operation.
+     * 
+     * @param databaseName The name of the database to delete from.
+     * @param category     The category to delete.
+     * @return The number of plots that were deleted.
+     */
+    public int deleteCategoryFromDatabase(String databaseName, String category) {
+        logger.logInfo("Attempting to delete plots in category " + category + "...");
+        IDatabase db = dbCacheMap.get(databaseName);
+        if (db != null) {
+            db.setLogger(logger);
+            int deletedCount = db.deletePlotsByCategory(category);
+            logger.logInfo("Deleted " + deletedCount + " plots");
+            if (deletedCount > 0) {
+                logger.logDebug("Saving database state to disk", CLASSNAME);
+                db.saveState();
+            }
+            return deletedCount;
+        }
+        logger.logWarning("Could not find database " + databaseName);
+        return 0;
+    }
+
     /**
      * Clear a database's record of new plots found. This is typically done at the
      * beginning of a new use of Watchr to process a new dataset.
@@ -7,6 +7,7 @@ import java.util.Set;
 
 import gov.sandia.watchr.config.GraphDisplayConfig;
 import gov.sandia.watchr.config.file.IFileReader;
+import gov.sandia.watchr.db.IDatabaseSnapshot;
 import gov.sandia.watchr.db.PlotDatabaseSearchCriteria;
 import gov.sandia.watchr.graph.chartreuse.model.PlotWindowModel;
 import gov.sandia.watchr.graph.library.GraphOperationResult;
@@ -67,6 +68,10 @@ public class WatchrCoreAppGraphSubsystem {
         return parentApp.getDatabaseChildPlots(dbName, search);
     }
 
+    public IDatabaseSnapshot getSnapshot(String dbName) {
+        return parentApp.getDatabaseSnapshot(dbName);
+    }
+
     /**
      * 
      * @return The List of {@link IHtmlGraphRenderer} implementations known to
@@ -12,6 +12,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 import gov.sandia.watchr.config.WatchrConfigError.ErrorLevel;
 import gov.sandia.watchr.config.diff.DiffCategory;
@@ -25,6 +26,8 @@ import gov.sandia.watchr.parse.generators.line.extractors.strategy.AmbiguityStra
 import gov.sandia.watchr.parse.generators.line.extractors.strategy.ExtractionStrategy;
 import gov.sandia.watchr.parse.generators.line.extractors.strategy.ExtractionStrategyFactory;
 import gov.sandia.watchr.parse.generators.line.extractors.strategy.ExtractionStrategyType;
+import gov.sandia.watchr.parse.generators.line.extractors.strategy.ParsedDocumentCache;
+import gov.sandia.watchr.parse.generators.line.extractors.strategy.RegexMatcherCache;
 
 public class HierarchicalExtractor implements IConfig {
 
@@ -45,6 +48,10 @@ public class HierarchicalExtractor implements IConfig {
     private final ILogger logger;
     private final IFileReader fileReader;
 
+    // A new extraction strategy is created for every file, so the patterns
+    // they compile are kept here.  It is not serialized with the config.
+    private transient RegexMatcherCache matcherCache = new RegexMatcherCache();
+
     /////////////////
     // CONSTRUCTOR //
     /////////////////
@@ -140,10 +147,22 @@ public class HierarchicalExtractor implements IConfig {
     /////////////
 
     public List<ExtractionResult> extract(String fileAbsPath) throws WatchrParseException {
+        return extract(fileAbsPath, null);
+    }
+
+    /**
+     * @param fileAbsPath The absolute path of the file to extract from.
+     * @param documentCache The cache of parsed files shared by every extractor
+     * reading the same files, or null to parse the file again.
+     * @return The extraction results.
+     * @throws WatchrParseException Thrown if the file could not be parsed.
+     */
+    public List<ExtractionResult> extract(String fileAbsPath, ParsedDocumentCache documentCache) throws WatchrParseException {
         ExtractionStrategy<?> extractionStrategy =
             ExtractionStrategyFactory.getInstance().create(
-                extractionStrategyType, properties, ambiguityStrategy, logger, fileReader);
-        return extractionStrategy.extract(fileAbsPath);
+                extractionStrategyType, properties, ambiguityStrategy, logger, fileReader, fileAbsPath);
+        extractionStrategy.setMatcherCache(getMatcherCache());
+        return extractionStrategy.extract(fileAbsPath, documentCache);
     }
 
     @Override
@@ -180,6 +199,7 @@ public class HierarchicalExtractor implements IConfig {
             equals = fileConfig.equals(otherExtractor.fileConfig);
             equals = equals && ambiguityStrategy.equals(otherExtractor.ambiguityStrategy);
             equals = equals && properties.equals(otherExtractor.properties);
+            equals = equals && extractionStrategyType == otherExtractor.extractionStrategyType;
         }
         return equals;
     }
@@ -190,6 +210,7 @@ public class HierarchicalExtractor implements IConfig {
         hash = 31 * (hash + fileConfig.hashCode());
         hash = 31 * (hash + ambiguityStrategy.hashCode());
         hash = 31 * (hash + properties.hashCode());
+        hash = 31 * (hash + Objects.hashCode(extractionStrategyType));
         return hash;
     }
 
@@ -202,4 +223,22 @@ public class HierarchicalExtractor implements IConfig {
             logger.log(new WatchrConfigError(ErrorLevel.ERROR, "No extraction strategy set."));
         }
     }
+
+    /////////////
+    // PRIVATE //
+    /////////////
+
+    /**
+     * @return The cache of patterns compiled by this extractor's strategies.
+     * Extractors read from JSON skip field initializers, so their cache is
+     * created here on first use.
+     */
+    private RegexMatcherCache getMatcherCache() {
+        RegexMatcherCache cache = matcherCache;
+        if(cache == null) {
+            cache = new RegexMatcherCache();
+            matcherCache = cache;
+        }
+        return cache;
+    }
 }
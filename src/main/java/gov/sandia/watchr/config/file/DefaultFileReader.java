@@ -1,7 +1,13 @@
 package gov.sandia.watchr.config.file;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
@@ -37,6 +43,16 @@ public class DefaultFileReader implements IFileReader {
         return "";
     }
 
+    @Override
+    public Reader openReader(String absolutePath) throws IOException {
+        return new BufferedReader(new InputStreamReader(new FileInputStream(absolutePath), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public InputStream openInputStream(String absolutePath) throws IOException {
+        return new BufferedInputStream(new FileInputStream(absolutePath));
+    }
+
     @Override
     public void writeToFile(String destinationFileAbsPath, String fileContents) {
         try {
@@ -87,6 +103,18 @@ public class DefaultFileReader implements IFileReader {
         return file.getName();
     }
 
+    @Override
+    public long getSize(String absolutePath) {
+        File file = new File(absolutePath);
+        return file.isFile() ? file.length() : -1L;
+    }
+
+    @Override
+    public long getLastModified(String absolutePath) {
+        File file = new File(absolutePath);
+        return file.exists() ? file.lastModified() : -1L;
+    }
+
     @Override
     public boolean exists(String absolutePath) {
         File file = new File(absolutePath);
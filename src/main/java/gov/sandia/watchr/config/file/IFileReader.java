@@ -1,5 +1,11 @@
 package gov.sandia.watchr.config.file;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import gov.sandia.watchr.log.ILogger;
@@ -25,6 +31,33 @@ public interface IFileReader {
      */
     public String readFromFile(String path);
 
+    /**
+     * Open a file for reading, for callers that read a file as a stream of
+     * characters rather than all at once.  Implementations that cannot stream
+     * a file may rely on this default, which reads the whole file first.
+     * 
+     * @param path The path to the file.
+     * @return A reader for the contents of the file, which the caller must close.
+     * @throws IOException Thrown if the file could not be opened.
+     */
+    public default Reader openReader(String path) throws IOException {
+        return new StringReader(readFromFile(path));
+    }
+
+    /**
+     * Open a file for reading its raw bytes, for callers that read a file as
+     * a stream of bytes rather than all at once.  Implementations that cannot
+     * stream a file may rely on this default, which reads the whole file
+     * first and encodes it as UTF-8.
+     * 
+     * @param path The path to the file.
+     * @return A stream of the file's bytes, which the caller must close.
+     * @throws IOException Thrown if the file could not be opened.
+     */
+    public default InputStream openInputStream(String path) throws IOException {
+        return new ByteArrayInputStream(readFromFile(path).getBytes(StandardCharsets.UTF_8));
+    }
+
     /**
      * Write a String to a file.
      * 
@@ -69,6 +102,29 @@ public interface IFileReader {
      */
     public String getName(String path);
 
+    /**
+     * Implementations that cannot determine a file's size may rely on this
+     * default, which reports the size as unknown.
+     * 
+     * @param path The path to the file.
+     * @return The size of the file in bytes, or -1 if it is unknown.
+     */
+    public default long getSize(String path) {
+        return -1L;
+    }
+
+    /**
+     * Implementations that cannot determine a file's modification time may
+     * rely on this default, which reports the time as unknown.
+     * 
+     * @param path The path to the file.
+     * @return The last modified time of the file in milliseconds since the
+     * epoch, or -1 if it is unknown.
+     */
+    public default long getLastModified(String path) {
+        return -1L;
+    }
+
     /**
      * 
      * @param logger The logger to use.
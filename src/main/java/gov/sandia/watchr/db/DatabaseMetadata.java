@@ -7,6 +7,9 @@
 ******************************************************************************/
 package gov.sandia.watchr.db;
 
+import java.util.HashSet;
+import java.util.Set;
+
 public class DatabaseMetadata {
     
     ////////////
@@ -19,6 +22,33 @@ public class DatabaseMetadata {
     private int failedPlotCount = 0;
     private int newPlotCount = 0;
     private int health = HEALTH_MAX;
+    private String rootPlotUUID = null;
+    private String plotFileFormat = null;
+    private String plotFileLayout = null;
+    private boolean databaseImageEnabled = false;
+    // UUIDs of plots counted by failedPlotCount.  Null for databases written
+    // before failed plots were tracked individually.
+    private Set<String> failedPlotUUIDs = null;
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
+
+    public DatabaseMetadata() {
+        // Fields are initialized above, and overwritten when deserialized.
+    }
+
+    public DatabaseMetadata(DatabaseMetadata copy) {
+        this.plotCount = copy.plotCount;
+        this.failedPlotCount = copy.failedPlotCount;
+        this.newPlotCount = copy.newPlotCount;
+        this.health = copy.health;
+        this.rootPlotUUID = copy.rootPlotUUID;
+        this.plotFileFormat = copy.plotFileFormat;
+        this.plotFileLayout = copy.plotFileLayout;
+        this.databaseImageEnabled = copy.databaseImageEnabled;
+        this.failedPlotUUIDs = copy.failedPlotUUIDs == null ? null : new HashSet<>(copy.failedPlotUUIDs);
+    }
 
     /////////////
     // GETTERS //
@@ -40,6 +70,26 @@ public class DatabaseMetadata {
         return health;
     }
 
+    public String getRootPlotUUID() {
+        return rootPlotUUID;
+    }
+
+    public String getPlotFileFormat() {
+        return plotFileFormat;
+    }
+
+    public String getPlotFileLayout() {
+        return plotFileLayout;
+    }
+
+    public boolean isDatabaseImageEnabled() {
+        return databaseImageEnabled;
+    }
+
+    public Set<String> getFailedPlotUUIDs() {
+        return failedPlotUUIDs;
+    }
+
     /////////////
     // SETTERS //
     /////////////
@@ -59,4 +109,24 @@ public class DatabaseMetadata {
     public void setHealth(int health) {
         this.health = health;
     }
+
+    public void setRootPlotUUID(String rootPlotUUID) {
+        this.rootPlotUUID = rootPlotUUID;
+    }
+
+    public void setPlotFileFormat(String plotFileFormat) {
+        this.plotFileFormat = plotFileFormat;
+    }
+
+    public void setPlotFileLayout(String plotFileLayout) {
+        this.plotFileLayout = plotFileLayout;
+    }
+
+    public void setDatabaseImageEnabled(boolean databaseImageEnabled) {
+        this.databaseImageEnabled = databaseImageEnabled;
+    }
+
+    public void setFailedPlotUUIDs(Set<String> failedPlotUUIDs) {
+        this.failedPlotUUIDs = failedPlotUUIDs;
+    }
 }
@@ -7,8 +7,10 @@
 ******************************************************************************/
 package gov.sandia.watchr.db;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 import gov.sandia.watchr.config.GraphDisplayConfig;
 import gov.sandia.watchr.config.WatchrConfig;
@@ -36,6 +38,7 @@ public interface IDatabase {
     public PlotWindowModel getParent(PlotDatabaseSearchCriteria searchCriteria);
     public PlotWindowModel getRootPlot();
     public boolean hasSeenFile(String fileAbsPath);
+    public IDatabaseSnapshot getSnapshot();
 
     public PlotWindowModel searchPlot(PlotDatabaseSearchCriteria searchCriteria);
     public PlotWindowModel searchAndMakeNewIfMissing(PlotDatabaseSearchCriteria searchCriteria);
@@ -54,14 +57,46 @@ public interface IDatabase {
 
     public PlotWindowModel createRootPlotIfMissing();
     public void addPlot(PlotWindowModel newPlot);
+
+    /**
+     * Must be called before changing a plot that is already in the database,
+     * so that open snapshots keep reading the plot as it was.  Callers must
+     * be synchronized on the plot from this call until they have made their
+     * changes and called {@link #updatePlot(PlotWindowModel, boolean)}.
+     *
+     * @param plot The plot that is about to change.
+     */
+    public void beginPlotUpdate(PlotWindowModel plot);
     public void updatePlot(PlotWindowModel plot, boolean replace);
     public void clearPlotCache();
     public void deletePlot(String plotUUID);
+
+    /**
+     * Deletes many plots at once, along with all of their descendants.  The
+     * plot relationships and metadata are updated once for the whole batch.
+     *
+     * @param plotUUIDs The UUIDs of the plots to delete.
+     * @return The number of plots that were deleted, including descendants.
+     */
+    public int deletePlots(Collection<String> plotUUIDs);
+
+    /**
+     * @param category The category to delete, matched case-insensitively.
+     * @return The number of plots that were deleted, including descendants.
+     */
+    public int deletePlotsByCategory(String category);
+
+    /**
+     * @param namePattern A pattern that the whole name of each plot to delete matches.
+     * @return The number of plots that were deleted, including descendants.
+     */
+    public int deletePlotsByName(Pattern namePattern);
     public void setNickname(String plotUUID, String nickname); 
     public void deleteAll();
     public void setPlotsAsChildren(PlotWindowModel parent, List<PlotWindowModel> childPlots);
     public void setWatchrConfig(WatchrConfig watchrConfig);
     public void updateMetadata();
+    public void recountMetadata();
     
     ////////////////////
     // DISK LOAD/SAVE //
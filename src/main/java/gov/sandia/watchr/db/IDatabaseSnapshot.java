@@ -0,0 +1,48 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2022 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.db;
+
+import java.util.Set;
+
+import gov.sandia.watchr.graph.chartreuse.model.PlotWindowModel;
+
+/**
+ * A read-only view of an {@link IDatabase}, taken with
+ * {@link IDatabase#getSnapshot()}.  The plot hierarchy and metadata are fixed
+ * at the moment the snapshot is taken, and the plots it returns are copies
+ * of the plots as they were at that moment, so a snapshot can be read (for
+ * example, to render graphs) while plots continue to be added to the
+ * database.<br><br>
+ *
+ * Plots returned by a snapshot must not be modified.  While a snapshot is
+ * open, the database copies plots before changing them, so snapshots should
+ * be closed as soon as they have been read.
+ */
+public interface IDatabaseSnapshot extends AutoCloseable {
+
+    /**
+     * @return The number of plot changes the database had published when
+     * this snapshot was taken.  Later snapshots have equal or larger versions.
+     */
+    public long getVersion();
+
+    public DatabaseMetadata getMetadata();
+    public PlotWindowModel getRootPlot();
+    public PlotWindowModel searchPlot(PlotDatabaseSearchCriteria searchCriteria);
+    public PlotWindowModel getParent(PlotDatabaseSearchCriteria searchCriteria);
+    public Set<PlotWindowModel> getChildren(PlotDatabaseSearchCriteria searchCriteria);
+    public Set<PlotWindowModel> getChildren(PlotWindowModel parentPlot, String category);
+    public int getChildrenCount(PlotDatabaseSearchCriteria searchCriteria);
+
+    /**
+     * Releases the plot copies kept for this snapshot.  Plots it has already
+     * returned can still be used, but it cannot be read from again.
+     */
+    @Override
+    public void close();
+}
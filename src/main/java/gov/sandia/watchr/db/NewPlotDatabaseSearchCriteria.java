@@ -2,6 +2,7 @@ package gov.sandia.watchr.db;
 
 import gov.sandia.watchr.config.NameConfig;
 import gov.sandia.watchr.parse.generators.line.extractors.ExtractionResult;
+import gov.sandia.watchr.parse.generators.line.extractors.ExtractionResultCache;
 
 public class NewPlotDatabaseSearchCriteria extends PlotDatabaseSearchCriteria {
 
@@ -9,6 +10,7 @@ public class NewPlotDatabaseSearchCriteria extends PlotDatabaseSearchCriteria {
     private ExtractionResult xResult;
     private ExtractionResult yResult;
     private int resultIndex;
+    private ExtractionResultCache extractionCache;
 
     public NewPlotDatabaseSearchCriteria(String name, String category) {
         super(name, category);
@@ -45,4 +47,12 @@ public class NewPlotDatabaseSearchCriteria extends PlotDatabaseSearchCriteria {
     public void setResultIndex(int resultIndex) {
         this.resultIndex = resultIndex;
     }
+
+    public ExtractionResultCache getExtractionCache() {
+        return extractionCache;
+    }
+
+    public void setExtractionCache(ExtractionResultCache extractionCache) {
+        this.extractionCache = extractionCache;
+    }
 }
@@ -7,17 +7,26 @@
 ******************************************************************************/
 package gov.sandia.watchr.db.impl;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.UUID;
-import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -28,10 +37,12 @@ import gov.sandia.watchr.config.WatchrConfig;
 import gov.sandia.watchr.config.file.IFileReader;
 import gov.sandia.watchr.db.DatabaseMetadata;
 import gov.sandia.watchr.db.IDatabase;
+import gov.sandia.watchr.db.IDatabaseSnapshot;
 import gov.sandia.watchr.db.NewPlotDatabaseSearchCriteria;
 import gov.sandia.watchr.db.PlotDatabaseSearchCriteria;
 import gov.sandia.watchr.graph.chartreuse.PlotToken;
 import gov.sandia.watchr.graph.chartreuse.model.PlotCanvasModel;
+import gov.sandia.watchr.graph.chartreuse.model.PlotRelationshipManager;
 import gov.sandia.watchr.graph.chartreuse.model.PlotTraceChangeListener;
 import gov.sandia.watchr.graph.chartreuse.model.PlotTraceModel;
 import gov.sandia.watchr.graph.chartreuse.model.PlotWindowModel;
@@ -41,6 +52,7 @@ import gov.sandia.watchr.parse.generators.line.extractors.ExtractionResultNameRe
 import gov.sandia.watchr.parse.generators.rule.RuleApplyable;
 import gov.sandia.watchr.parse.generators.rule.RuleTarget;
 import gov.sandia.watchr.util.CommonConstants;
+import gov.sandia.watchr.util.StringUtil;
 import gov.sandia.watchr.WatchrCoreAppDatabaseSubsystem;
 
 public abstract class AbstractDatabase implements IDatabase, RuleApplyable {
@@ -50,18 +62,44 @@ public abstract class AbstractDatabase implements IDatabase, RuleApplyable {
     ////////////
 
     private static final String CLASSNAME = AbstractDatabase.class.getSimpleName();
+    private static final int PLOT_LOCK_STRIPES = 64;
 
     protected WatchrConfig config;
     protected DatabaseMetadata metadata;
 
-    protected Set<String> filenameCache;
+    protected FileFingerprintStore fileCache;
     protected Map<String, Set<String>> parentChildPlots;
+    // Reverse of parentChildPlots (child plot UUID to parent plot UUID).
+    protected Map<String, String> childParentPlots;
 
-    protected List<PlotWindowModel> plots;
+    protected Map<UUID, PlotWindowModel> plots;
+    protected Map<PlotKey, PlotWindowModel> plotsByKey;
+    protected volatile PlotWindowModel cachedRootPlot;
     protected Set<String> dirtyPlotUUIDs;
 
+    // Every snapshot is numbered with a generation when it is taken.  While
+    // any snapshot is open, a writer copies a plot before its first change
+    // since the newest snapshot was taken (see beginPlotUpdate), and keeps the
+    // copy under that snapshot's generation.  A plot's copy under generation
+    // k is its state for every snapshot whose generation is above the next
+    // lower key and at most k.  Plots that are deleted or replaced while
+    // snapshots are open are kept in retiredPlots under the newest generation
+    // at that moment.  Copies are dropped once no open snapshot needs them,
+    // so databases nobody reads from while writing pay nothing for snapshots.
+    protected final Map<String, NavigableMap<Long, PlotWindowModel>> preservedPlots = new ConcurrentHashMap<>();
+    private final NavigableMap<Long, Map<String, PlotWindowModel>> retiredPlots = new TreeMap<>();
+    private final NavigableSet<Long> openSnapshotGenerations = new TreeSet<>();
+    private long snapshotGeneration;
+    private final Object snapshotMonitor = new Object();
+    private final AtomicLong publishedVersion = new AtomicLong();
+
     protected Object plotMonitor = new Object();
     protected Object rootPlotMonitor = new Object();
+    // Searches for plots by name and category are serialized per stripe rather
+    // than database-wide, so that plots can be loaded from disk concurrently.
+    // plotMonitor is only ever held briefly, and is never held while waiting
+    // for a stripe lock.
+    private final Object[] plotKeyLocks;
 
     protected ILogger logger;
     protected IFileReader fileReader;
@@ -77,11 +115,18 @@ public abstract class AbstractDatabase implements IDatabase, RuleApplyable {
     protected AbstractDatabase(ILogger logger, IFileReader fileReader) {
         this.config = new WatchrConfig(logger, fileReader);
         this.metadata = new DatabaseMetadata();
+        this.metadata.setFailedPlotUUIDs(new HashSet<>());
 
-        this.plots = new ArrayList<>();
-        this.dirtyPlotUUIDs = new HashSet<>();
+        this.plots = new ConcurrentHashMap<>();
+        this.plotsByKey = new ConcurrentHashMap<>();
+        this.dirtyPlotUUIDs = ConcurrentHashMap.newKeySet();
         this.parentChildPlots = new HashMap<>();
-        this.filenameCache = new HashSet<>();
+        this.childParentPlots = new HashMap<>();
+        this.fileCache = new FileFingerprintStore();
+        this.plotKeyLocks = new Object[PLOT_LOCK_STRIPES];
+        for(int i = 0; i < plotKeyLocks.length; i++) {
+            plotKeyLocks[i] = new Object();
+        }
 
         setLogger(logger);
         setFileReader(fileReader);
@@ -93,26 +138,15 @@ public abstract class AbstractDatabase implements IDatabase, RuleApplyable {
 
     @Override
     public PlotWindowModel getRootPlot() {
-        synchronized(plotMonitor) {
-            for(int i = 0; i < plots.size(); i++) {
-                PlotWindowModel plot = plots.get(i);
-                if(plot.isRoot()) {
-                    return plot;
-                }
-            }
-        }
-        return null;
+        return cachedRootPlot;
     }   
 
     @Override
     public List<PlotWindowModel> getAllPlots() {
         List<PlotWindowModel> plotsCopy = new ArrayList<>();
-        synchronized(plotMonitor) {
-            for(int i = 0; i < plots.size(); i++) {
-                PlotWindowModel plot = plots.get(i);
-                if(!plot.isRoot()) {
-                    plotsCopy.add(plot);
-                }
+        for(PlotWindowModel plot : plots.values()) {
+            if(!plot.isRoot()) {
+                plotsCopy.add(plot);
             }
         }
         return plotsCopy;
@@ -121,12 +155,9 @@ public abstract class AbstractDatabase implements IDatabase, RuleApplyable {
     @Override
     public List<String> getAllPlotUUIDs() {
         List<String> plotsUUIDList = new ArrayList<>();
-        synchronized(plotMonitor) {
-            for(int i = 0; i < plots.size(); i++) {
-                PlotWindowModel plot = plots.get(i);
-                if(!plot.isRoot()) {
-                    plotsUUIDList.add(plot.getUUID().toString());
-                }
+        for(PlotWindowModel plot : plots.values()) {
+            if(!plot.isRoot()) {
+                plotsUUIDList.add(plot.getUUID().toString());
             }
         }
         return plotsUUIDList;
@@ -154,13 +185,7 @@ public abstract class AbstractDatabase implements IDatabase, RuleApplyable {
             PlotWindowModel childPlot = getPlotByUUID(childUUID);
             if(childPlot != null) {
                 logger.logDebug("Loaded child plot: " + childPlot.getName() + ", " + childPlot.getCategory(), CLASSNAME);
-                boolean categoryMatch =
-                    (StringUtils.isBlank(category) ||
-                     StringUtils.isBlank(childPlot.getCategory()) ||
-                     category.equalsIgnoreCase(WatchrCoreAppDatabaseSubsystem.ALLCATEGORIES) || // all categories handler
-                     childPlot.getCategory().toLowerCase().matches(WatchrCoreAppDatabaseSubsystem.ALLCATEGORIES) || // all categories handler
-                     childPlot.getCategory().toLowerCase().matches(category.toLowerCase())); // Case-insensitive matching
-                if(categoryMatch) {
+                if(isCategoryMatch(childPlot, category)) {
                     logger.logDebug("Category match", CLASSNAME);
                     
                     if(childPlot.isEmpty2D()) {
@@ -222,19 +247,12 @@ public abstract class AbstractDatabase implements IDatabase, RuleApplyable {
     public PlotWindowModel getParent(PlotDatabaseSearchCriteria searchCriteria) {
         PlotWindowModel childPlot = searchPlot(searchCriteria, false);
         if(childPlot != null) {
-            for(Entry<String, Set<String>> entry : parentChildPlots.entrySet()) {
-                String parentUUID = entry.getKey();
-                Set<String> children = new HashSet<>();
-                children.addAll(entry.getValue());
-
-                if(children.contains(childPlot.getUUID().toString())) {
-                    for(int i = 0; i < plots.size(); i++) {
-                        PlotWindowModel plot = plots.get(i);
-                        if(plot.getUUID().toString().equals(parentUUID)) {
-                            return plot;
-                        }
-                    }
-                }
+            String parentUUID;
+            synchronized(plotMonitor) {
+                parentUUID = childParentPlots.get(childPlot.getUUID().toString());
+            }
+            if(parentUUID != null) {
+                return getPlotByUUID(parentUUID);
             }
         }
         return null;
@@ -248,7 +266,7 @@ public abstract class AbstractDatabase implements IDatabase, RuleApplyable {
 
     @Override
     public Set<String> getFilenameCache() {
-        return Collections.unmodifiableSet(filenameCache);
+        return Collections.unmodifiableSet(fileCache.getPaths(logger));
     }
 
     @Override
@@ -263,7 +281,7 @@ public abstract class AbstractDatabase implements IDatabase, RuleApplyable {
 
     @Override
     public boolean hasSeenFile(String fileAbsPath) {
-        return filenameCache.contains(fileReader.getName(fileAbsPath));
+        return fileCache.isSeen(fileAbsPath, fileReader);
     }
 
     @Override
@@ -271,6 +289,32 @@ public abstract class AbstractDatabase implements IDatabase, RuleApplyable {
         return metadata;
     }
 
+    /**
+     * Takes a snapshot of the database.  The snapshot reads each plot as it
+     * was at this moment: until the snapshot is closed, writers copy a plot
+     * before changing it, and the snapshot copies any plot that has not
+     * changed the first time it reads it.  The names and categories of the
+     * plots are recorded when the snapshot is taken, so that the snapshot's
+     * searches never see later changes.
+     */
+    @Override
+    public IDatabaseSnapshot getSnapshot() {
+        synchronized(plotMonitor) {
+            Map<String, Set<String>> parentChildPlotsCopy = new HashMap<>();
+            for(Map.Entry<String, Set<String>> entry : parentChildPlots.entrySet()) {
+                parentChildPlotsCopy.put(entry.getKey(), new LinkedHashSet<>(entry.getValue()));
+            }
+            long generation;
+            synchronized(snapshotMonitor) {
+                generation = ++snapshotGeneration;
+                openSnapshotGenerations.add(generation);
+            }
+            return new DatabaseSnapshot(
+                this, generation, publishedVersion.get(), new DatabaseMetadata(metadata),
+                parentChildPlotsCopy, new HashMap<>(childParentPlots), getPlotKeyIndex());
+        }
+    }
+
     @Override
     public ILogger getLogger() {
         return logger;
@@ -318,20 +362,18 @@ public abstract class AbstractDatabase implements IDatabase, RuleApplyable {
         logger.logDebug("addPlot()", CLASSNAME);
         logger.logDebug("Adding new plot " + newPlot.getName(), CLASSNAME);
         synchronized(plotMonitor) {
-            boolean alreadyContains = false;
-            for(int i = 0; i < plots.size(); i++) {
-                PlotWindowModel checkPlot = plots.get(i);
-                if((checkPlot != null && checkPlot.equals(newPlot)) || (newPlot.isRoot() && getRootPlot() != null)) {
-                    alreadyContains = true;
-                    break;
-                }
-            }
+            boolean alreadyContains =
+                plots.containsKey(newPlot.getUUID()) || (newPlot.isRoot() && cachedRootPlot != null);
 
             if(!alreadyContains) {
-                plots.add(newPlot);
-                if(!dirtyPlotUUIDs.contains(newPlot.getUUID().toString())) {
-                    dirtyPlotUUIDs.add(newPlot.getUUID().toString());
+                if(isNewPlot(newPlot)) {
+                    countNewPlot(newPlot);
+                } else {
+                    countPlotFailure(newPlot);
                 }
+                putPlot(newPlot);
+                dirtyPlotUUIDs.add(newPlot.getUUID().toString());
+                publishPlot(newPlot);
             }
         }
     }    
@@ -361,7 +403,18 @@ public abstract class AbstractDatabase implements IDatabase, RuleApplyable {
 
             for(PlotWindowModel childPlot : childPlotsCopyList) {
                 if(childPlot != null) {
-                    finalChildPlotUUIDsSet.add(childPlot.getUUID().toString());
+                    String childUUID = childPlot.getUUID().toString();
+                    finalChildPlotUUIDsSet.add(childUUID);
+                    String previousParentUUID = childParentPlots.put(childUUID, parent.getUUID().toString());
+                    if(previousParentUUID != null && !previousParentUUID.equals(parent.getUUID().toString())) {
+                        // The child moved to a new parent, so its old parent must let go of it.
+                        Set<String> previousSiblingUUIDs = parentChildPlots.get(previousParentUUID);
+                        if(previousSiblingUUIDs != null && previousSiblingUUIDs.contains(childUUID)) {
+                            Set<String> newSiblingUUIDs = new LinkedHashSet<>(previousSiblingUUIDs);
+                            newSiblingUUIDs.remove(childUUID);
+                            parentChildPlots.put(previousParentUUID, newSiblingUUIDs);
+                        }
+                    }
                 }
             }
             logger.logDebug("Adding " + parent.getName() + " (UUID " + parent.getUUID().toString() + ") to parentChildPlots", CLASSNAME);
@@ -370,23 +423,54 @@ public abstract class AbstractDatabase implements IDatabase, RuleApplyable {
         }
     }
 
+    /**
+     * Copies the plot for the open snapshots that still need its current
+     * state.  Does nothing if no snapshot is open, or if the plot was already
+     * copied since the newest snapshot was taken.
+     */
+    @Override
+    public void beginPlotUpdate(PlotWindowModel plot) {
+        synchronized(plot) {
+            Long newestGeneration;
+            synchronized(snapshotMonitor) {
+                newestGeneration = openSnapshotGenerations.isEmpty() ? null : openSnapshotGenerations.last();
+            }
+            if(newestGeneration != null) {
+                preservePlot(plot, newestGeneration);
+            }
+        }
+    }
+
     @Override
     public void updatePlot(PlotWindowModel plot, boolean replace) {
         dirtyPlotUUIDs.add(plot.getUUID().toString());
+        synchronized(plotMonitor) {
+            if(plots.containsKey(plot.getUUID())) {
+                countPlotFailure(plot);
+            }
+        }
 
         if(replace) {
-            PlotWindowModel foundOriginalPlot = getPlotByUUID(plot.getUUID().toString());
+            PlotWindowModel foundOriginalPlot = getPlotByUUID(plot.getUUID());
             if(foundOriginalPlot != null && foundOriginalPlot != plot) {
                 synchronized(plotMonitor) {
-                    plots.remove(foundOriginalPlot);
-                    plots.add(plot);                    
+                    retirePlot(foundOriginalPlot);
+                    removePlot(foundOriginalPlot);
+                    putPlot(plot);
                 }
             } else {
                 logger.logError(
                     "Tried to update plot in database (UUID " + plot.getUUID() +
                     ", name \"" + plot.getName() + "\") but could not find original copy of plot.");
             }
+        } else if(plotsByKey.get(PlotKey.of(plot)) != plot && plots.get(plot.getUUID()) == plot) {
+            // The plot's name or category changed after it was added, so re-key it.
+            synchronized(plotMonitor) {
+                plotsByKey.values().remove(plot);
+                plotsByKey.putIfAbsent(PlotKey.of(plot), plot);
+            }
         }
+        publishPlot(plot);
     }
 
     @Override
@@ -405,10 +489,81 @@ public abstract class AbstractDatabase implements IDatabase, RuleApplyable {
         deletePlotFromRoot(plotUUID);       
 
         synchronized(plotMonitor) {
-            plots.remove(plotToDelete);
+            retirePlot(plotToDelete);
+            removePlot(plotToDelete);
+            countDeletedPlot(plotToDelete);
         }
+    }
 
-        updateMetadata();
+    @Override
+    public int deletePlots(Collection<String> plotUUIDs) {
+        Set<String> deletedUUIDs;
+        // Open snapshots may still read the deleted plots, so any that are
+        // not in memory are loaded first (without holding plotMonitor), and
+        // kept until they are retired below.
+        Map<String, PlotWindowModel> loadedPlots = new HashMap<>();
+        while(true) {
+            for(String uuid : getUnloadedPlotsToDelete(plotUUIDs, loadedPlots)) {
+                loadedPlots.put(uuid, getPlotByUUID(uuid));
+            }
+
+            synchronized(plotMonitor) {
+                if(!getUnloadedPlotsToDelete(plotUUIDs, loadedPlots).isEmpty()) {
+                    // A snapshot was taken or a plot was evicted while the
+                    // plots were loading, so load the rest.
+                    continue;
+                }
+                deletedUUIDs = collectPlotsToDelete(plotUUIDs);
+                if(deletedUUIDs.isEmpty()) {
+                    return 0;
+                }
+                logger.logDebug("Deleting " + deletedUUIDs.size() + " plots...", CLASSNAME);
+                deletePlotsFromParentChildRelationships(deletedUUIDs);
+
+                String rootPlotUUID = metadata.getRootPlotUUID();
+                Set<String> failedPlotUUIDs = metadata.getFailedPlotUUIDs();
+                int deletedPlotCount = 0;
+                for(String uuid : deletedUUIDs) {
+                    dirtyPlotUUIDs.remove(uuid);
+                    PlotWindowModel plot = plots.get(UUID.fromString(uuid));
+                    if(plot != null) {
+                        retirePlot(plot);
+                        removePlot(plot);
+                    } else if(loadedPlots.get(uuid) != null) {
+                        retirePlot(loadedPlots.get(uuid));
+                    }
+                    if(!uuid.equals(rootPlotUUID) && (plot == null || !plot.isRoot())) {
+                        deletedPlotCount++;
+                        if(failedPlotUUIDs != null) {
+                            failedPlotUUIDs.remove(uuid);
+                        }
+                    }
+                }
+
+                if(deletedUUIDs.contains(rootPlotUUID)) {
+                    metadata.setRootPlotUUID(null);
+                }
+                metadata.setPlotCount(Math.max(0, metadata.getPlotCount() - deletedPlotCount));
+                if(failedPlotUUIDs != null) {
+                    metadata.setFailedPlotCount(failedPlotUUIDs.size());
+                }
+            }
+            break;
+        }
+
+        deletePlotsFromStorage(deletedUUIDs);
+        return deletedUUIDs.size();
+    }
+
+    @Override
+    public int deletePlotsByCategory(String category) {
+        String lowercaseCategory = category == null ? "" : category.toLowerCase();
+        return deletePlots(findPlotUUIDs(key -> key.getCategory().equals(lowercaseCategory)));
+    }
+
+    @Override
+    public int deletePlotsByName(Pattern namePattern) {
+        return deletePlots(findPlotUUIDs(key -> namePattern.matcher(key.getName()).matches()));
     }
 
     @Override 
@@ -420,7 +575,11 @@ public abstract class AbstractDatabase implements IDatabase, RuleApplyable {
         }
 
         logger.logDebug("Preparing to set nickname for plot " + plotToSetNickname.getName() + " with the nickname " + nickname, CLASSNAME);
-        plotToSetNickname.setNickname(nickname);
+        synchronized(plotToSetNickname) {
+            beginPlotUpdate(plotToSetNickname);
+            plotToSetNickname.setNickname(nickname);
+        }
+        publishPlot(plotToSetNickname);
 
         updateMetadata();
     }
@@ -444,17 +603,29 @@ public abstract class AbstractDatabase implements IDatabase, RuleApplyable {
     protected void deletePlotFromDatabaseMetadata(String plotUUID) {
         logger.logDebug("Removing plot from database lookup files...", CLASSNAME);
         dirtyPlotUUIDs.remove(plotUUID);
+        if(plotUUID.equals(metadata.getRootPlotUUID())) {
+            metadata.setRootPlotUUID(null);
+        }
     }
 
     protected void deletePlotFromParentChildRelationships(String plotUUID) {
         logger.logDebug("Removing plot from parent-child relationships...", CLASSNAME);
-        parentChildPlots.remove(plotUUID);
-        for(Entry<String, Set<String>> entry : parentChildPlots.entrySet()) {
-            String parentUUID = entry.getKey();
-            Collection<String> childUUIDs = entry.getValue();
-            if(childUUIDs.contains(plotUUID)) {
-                childUUIDs.remove(plotUUID);
-                parentChildPlots.put(parentUUID, new HashSet<>(childUUIDs));
+        synchronized(plotMonitor) {
+            Set<String> childUUIDs = parentChildPlots.remove(plotUUID);
+            if(childUUIDs != null) {
+                for(String childUUID : childUUIDs) {
+                    childParentPlots.remove(childUUID, plotUUID);
+                }
+            }
+
+            String parentUUID = childParentPlots.remove(plotUUID);
+            if(parentUUID != null) {
+                Set<String> siblingUUIDs = parentChildPlots.get(parentUUID);
+                if(siblingUUIDs != null && siblingUUIDs.contains(plotUUID)) {
+                    Set<String> newSiblingUUIDs = new LinkedHashSet<>(siblingUUIDs);
+                    newSiblingUUIDs.remove(plotUUID);
+                    parentChildPlots.put(parentUUID, newSiblingUUIDs);
+                }
             }
         }
     }
@@ -479,49 +650,76 @@ public abstract class AbstractDatabase implements IDatabase, RuleApplyable {
 
     @Override
     public void deleteAll() {
-        List<String> plotUUIDsToDelete = getAllPlotUUIDs();
-        for(String plotUUID : plotUUIDsToDelete) {
-            deletePlot(plotUUID);
-        }
+        deletePlots(findPlotUUIDs(key -> true));
 
         synchronized(plotMonitor) {
-            plots.clear();
+            clearPlots();
             parentChildPlots.clear();
+            childParentPlots.clear();
             dirtyPlotUUIDs.clear();
+            metadata.setRootPlotUUID(null);
+            setPlotCounts(0, new HashSet<>());
         }
         saveState();
     }
 
     @Override
     public void addFileToCache(String fileAbsPath) {
-        filenameCache.add(fileReader.getName(fileAbsPath));
+        fileCache.add(fileAbsPath, fileReader);
     }    
 
     @Override
     public void removeFileFromCache(String fileAbsPath) {
-        filenameCache.remove(fileReader.getName(fileAbsPath));
+        fileCache.remove(fileAbsPath, fileReader);
     }  
 
+    /**
+     * @param hashContents Whether seen files are recognized by a hash of their
+     * contents, rather than by their last modified time.
+     */
+    public void setHashingFileContents(boolean hashContents) {
+        fileCache.setHashingContents(hashContents);
+    }
+
     @Override
     public void setWatchrConfig(WatchrConfig config) {
         this.config = config;
     }
 
+    /**
+     * Plot counts are maintained incrementally as plots are added, updated
+     * and deleted, so this only brings the failed plot count in line with the
+     * set of failed plots.  Use {@link #recountMetadata()} to repair counts
+     * that have drifted.
+     */
     @Override
     public void updateMetadata() {
-        logger.logDebug("Updating database metadata...", CLASSNAME);
         synchronized(plotMonitor) {
-            int failedCount = 0;
-            int plotCount = plots.size() - 1; // Don't count root plot
+            Set<String> failedPlotUUIDs = metadata.getFailedPlotUUIDs();
+            if(failedPlotUUIDs != null) {
+                metadata.setFailedPlotCount(failedPlotUUIDs.size());
+            }
+        }
+    }
 
-            for(int i = 0; i < plots.size(); i++) {
-                PlotWindowModel plot = plots.get(i);
-                if(plot.isFailing()) {
-                    failedCount++;
+    /**
+     * Recounts the plots and failed plots in the database from scratch.
+     */
+    @Override
+    public void recountMetadata() {
+        logger.logDebug("Recounting database metadata...", CLASSNAME);
+        synchronized(plotMonitor) {
+            Set<String> failedPlotUUIDs = new HashSet<>();
+            int plotCount = 0;
+            for(PlotWindowModel plot : plots.values()) {
+                if(!plot.isRoot()) {
+                    plotCount++;
+                    if(plot.isFailing()) {
+                        failedPlotUUIDs.add(plot.getUUID().toString());
+                    }
                 }
             }
-            metadata.setPlotCount(plotCount);
-            metadata.setFailedPlotCount(failedCount);
+            setPlotCounts(plotCount, failedPlotUUIDs);
         }
     }
 
@@ -539,6 +737,175 @@ public abstract class AbstractDatabase implements IDatabase, RuleApplyable {
     // PROTECTED //
     ///////////////
 
+    /**
+     * @param plot A plot that is about to be added to the in-memory plot maps.
+     * @return True if the plot is not already part of this database (as
+     * opposed to an existing plot being loaded).
+     */
+    protected boolean isNewPlot(PlotWindowModel plot) {
+        return !plots.containsKey(plot.getUUID());
+    }
+
+    /**
+     * Counts a plot that was just added to the database.  Callers must hold
+     * {@code plotMonitor}.
+     */
+    protected void countNewPlot(PlotWindowModel plot) {
+        if(!plot.isRoot()) {
+            metadata.setPlotCount(metadata.getPlotCount() + 1);
+            countPlotFailure(plot);
+        }
+    }
+
+    /**
+     * Updates the failed plot count if a plot has started or stopped failing.
+     * Callers must hold {@code plotMonitor}.
+     */
+    protected void countPlotFailure(PlotWindowModel plot) {
+        Set<String> failedPlotUUIDs = metadata.getFailedPlotUUIDs();
+        if(failedPlotUUIDs != null && !plot.isRoot()) {
+            String uuid = plot.getUUID().toString();
+            boolean changed = plot.isFailing() ? failedPlotUUIDs.add(uuid) : failedPlotUUIDs.remove(uuid);
+            if(changed) {
+                metadata.setFailedPlotCount(failedPlotUUIDs.size());
+            }
+        }
+    }
+
+    /**
+     * Uncounts a plot that was just deleted from the database.  Callers must
+     * hold {@code plotMonitor}.
+     */
+    protected void countDeletedPlot(PlotWindowModel plot) {
+        if(!plot.isRoot()) {
+            metadata.setPlotCount(Math.max(0, metadata.getPlotCount() - 1));
+            Set<String> failedPlotUUIDs = metadata.getFailedPlotUUIDs();
+            if(failedPlotUUIDs != null && failedPlotUUIDs.remove(plot.getUUID().toString())) {
+                metadata.setFailedPlotCount(failedPlotUUIDs.size());
+            }
+        }
+    }
+
+    /**
+     * @param plotUUID The UUID of a plot.
+     * @return Whether the plot is part of this database, whether or not it
+     * is currently held in memory.
+     */
+    protected boolean containsPlot(String plotUUID) {
+        return plots.containsKey(UUID.fromString(plotUUID));
+    }
+
+    /**
+     * Finds plots by name and category, without loading any plots that are
+     * not already in memory.  The root plot is never included.
+     *
+     * @param keyFilter The test that each plot's name and category must pass.
+     * @return The UUIDs of the matching plots.
+     */
+    protected Set<String> findPlotUUIDs(Predicate<PlotKey> keyFilter) {
+        Set<String> uuids = new HashSet<>();
+        synchronized(plotMonitor) {
+            for(PlotWindowModel plot : plots.values()) {
+                if(!plot.isRoot() && keyFilter.test(PlotKey.of(plot))) {
+                    uuids.add(plot.getUUID().toString());
+                }
+            }
+        }
+        return uuids;
+    }
+
+    /**
+     * Indexes the UUIDs of the database's plots by name and category, for
+     * snapshots to search.  Callers must hold {@code plotMonitor}.
+     *
+     * @return A new map from each plot's name and category to its UUID.
+     */
+    protected Map<PlotKey, String> getPlotKeyIndex() {
+        Map<PlotKey, String> keyIndex = new HashMap<>();
+        for(Map.Entry<PlotKey, PlotWindowModel> entry : plotsByKey.entrySet()) {
+            keyIndex.put(entry.getKey(), entry.getValue().getUUID().toString());
+        }
+        return keyIndex;
+    }
+
+    /**
+     * Removes a batch of deleted plots from wherever this database stores
+     * them, once they have been removed from memory and from the plot
+     * relationships.  Does nothing by default.
+     *
+     * @param plotUUIDs The UUIDs of the deleted plots.
+     */
+    protected void deletePlotsFromStorage(Set<String> plotUUIDs) {
+        // Nothing is stored outside of memory.
+    }
+
+    /**
+     * Callers must hold {@code plotMonitor}.
+     */
+    protected void setPlotCounts(int plotCount, Set<String> failedPlotUUIDs) {
+        metadata.setPlotCount(plotCount);
+        metadata.setFailedPlotUUIDs(failedPlotUUIDs);
+        metadata.setFailedPlotCount(failedPlotUUIDs.size());
+    }
+
+    /**
+     * Rebuilds the child-to-parent index from {@link #parentChildPlots}.
+     * Subclasses call this when the parent-child relationships are loaded,
+     * and no valid persisted copy of the index exists.
+     */
+    protected void rebuildChildParentPlots() {
+        synchronized(plotMonitor) {
+            childParentPlots.clear();
+            for(Map.Entry<String, Set<String>> entry : parentChildPlots.entrySet()) {
+                for(String childUUID : entry.getValue()) {
+                    childParentPlots.put(childUUID, entry.getKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The UUIDs of the given plots that exist, and of all of their
+     * descendants.  Callers must hold {@code plotMonitor}.
+     */
+    private Set<String> collectPlotsToDelete(Collection<String> plotUUIDs) {
+        Set<String> deletedUUIDs = new LinkedHashSet<>();
+        Deque<String> pendingUUIDs = new ArrayDeque<>(plotUUIDs);
+        while(!pendingUUIDs.isEmpty()) {
+            String uuid = pendingUUIDs.pop();
+            if(!deletedUUIDs.contains(uuid) && containsPlot(uuid)) {
+                deletedUUIDs.add(uuid);
+                pendingUUIDs.addAll(parentChildPlots.getOrDefault(uuid, Collections.emptySet()));
+            }
+        }
+        return deletedUUIDs;
+    }
+
+    /**
+     * Removes a batch of plots from the parent-child relationships, touching
+     * each surviving parent's list of children only once.  Callers must hold
+     * {@code plotMonitor}.
+     */
+    private void deletePlotsFromParentChildRelationships(Set<String> deletedUUIDs) {
+        Set<String> parentUUIDs = new HashSet<>();
+        for(String uuid : deletedUUIDs) {
+            parentChildPlots.remove(uuid);
+            String parentUUID = childParentPlots.remove(uuid);
+            if(parentUUID != null && !deletedUUIDs.contains(parentUUID)) {
+                parentUUIDs.add(parentUUID);
+            }
+        }
+
+        for(String parentUUID : parentUUIDs) {
+            Set<String> childUUIDs = parentChildPlots.get(parentUUID);
+            if(childUUIDs != null) {
+                Set<String> remainingChildUUIDs = new LinkedHashSet<>(childUUIDs);
+                remainingChildUUIDs.removeAll(deletedUUIDs);
+                parentChildPlots.put(parentUUID, remainingChildUUIDs);
+            }
+        }
+    }
+
     private void setPlotsAsChildren(String parentUUID, Collection<String> childUUIDs) {
         PlotWindowModel parent = getPlotByUUID(parentUUID);
         List<PlotWindowModel> children = new ArrayList<>();
@@ -561,18 +928,23 @@ public abstract class AbstractDatabase implements IDatabase, RuleApplyable {
             logger.logDebug("Look in loaded plot cache first...", CLASSNAME);
             logger.logDebug("Load plot with name \"" + plotName + "\" in category \"" + category + "\".", CLASSNAME);
 
-            synchronized(plotMonitor) {
-                returnedWindowModel = loadPlotFromCache(plotName, category);
-                if(returnedWindowModel == null) {
-                    logger.logDebug("Could not find plot in cache, so load it from disk...", CLASSNAME);
-                    returnedWindowModel = loadPlotUsingInnerFields(plotName, category);
-                }
+            returnedWindowModel = loadPlotFromCache(plotName, category);
+            if(returnedWindowModel == null) {
+                synchronized(getPlotKeyLock(plotName, category)) {
+                    // Another search for the same plot may have loaded or
+                    // created it while this one was waiting for the lock.
+                    returnedWindowModel = loadPlotFromCache(plotName, category);
+                    if(returnedWindowModel == null) {
+                        logger.logDebug("Could not find plot in cache, so load it from disk...", CLASSNAME);
+                        returnedWindowModel = loadPlotUsingInnerFields(plotName, category);
+                    }
 
-                if(returnedWindowModel == null && makeNewIfAbsent) {
-                    logger.logDebug("Could not find plot with name \"" + plotName + "\" in category \"" + category + "\".  Creating a new one...", CLASSNAME);
-                    returnedWindowModel = newPlotFromSearchCriteria(searchCriteria);
-                    if(returnedWindowModel != null) {
-                        addPlot(returnedWindowModel);
+                    if(returnedWindowModel == null && makeNewIfAbsent) {
+                        logger.logDebug("Could not find plot with name \"" + plotName + "\" in category \"" + category + "\".  Creating a new one...", CLASSNAME);
+                        PlotWindowModel newPlot = newPlotFromSearchCriteria(searchCriteria);
+                        if(newPlot != null) {
+                            returnedWindowModel = addPlotIfAbsent(newPlot);
+                        }
                     }
                 }
             }
@@ -580,17 +952,161 @@ public abstract class AbstractDatabase implements IDatabase, RuleApplyable {
         return returnedWindowModel;
     }
 
+    /**
+     * Counts a change to a plot, which later snapshots report in their
+     * version.  Writers call this once they have finished changing the plot.
+     */
+    protected void publishPlot(PlotWindowModel plot) {
+        publishedVersion.incrementAndGet();
+    }
+
+    /**
+     * @param uuid The UUID of a plot.
+     * @param generation The generation of an open snapshot.
+     * @return The plot as it was when the snapshot was taken, or null if it
+     * could not be found.  A plot that no writer has changed since then is
+     * copied from its current state, while synchronized on the plot as
+     * writers are while changing it, and the copy is kept for the other
+     * snapshots that need the same state.
+     */
+    PlotWindowModel getSnapshotPlot(String uuid, long generation) {
+        PlotWindowModel retiredPlot = null;
+        Long retiredGeneration = null;
+        synchronized(snapshotMonitor) {
+            for(Map.Entry<Long, Map<String, PlotWindowModel>> entry : retiredPlots.tailMap(generation, true).entrySet()) {
+                retiredPlot = entry.getValue().get(uuid);
+                if(retiredPlot != null) {
+                    retiredGeneration = entry.getKey();
+                    break;
+                }
+            }
+        }
+
+        NavigableMap<Long, PlotWindowModel> copies = preservedPlots.get(uuid);
+        PlotWindowModel copy = getPreservedCopy(copies, generation, retiredGeneration);
+        if(copy != null) {
+            return copy;
+        }
+
+        PlotWindowModel plot = retiredPlot != null ? retiredPlot : getPlotByUUID(uuid);
+        if(plot != null) {
+            synchronized(plot) {
+                if(retiredPlot == null) {
+                    copy = preservePlot(plot, generation);
+                } else {
+                    // A writer may have copied the plot while this method waited.
+                    copy = getPreservedCopy(preservedPlots.get(uuid), generation, retiredGeneration);
+                    if(copy == null) {
+                        copy = DatabaseSnapshot.copyPlot(plot);
+                    }
+                }
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Releases the plot copies that only a closed snapshot needed.
+     *
+     * @param generation The generation of the closed snapshot.
+     */
+    void closeSnapshot(long generation) {
+        Long oldestGeneration;
+        synchronized(snapshotMonitor) {
+            openSnapshotGenerations.remove(generation);
+            oldestGeneration = openSnapshotGenerations.isEmpty() ? null : openSnapshotGenerations.first();
+            if(oldestGeneration == null) {
+                retiredPlots.clear();
+            } else {
+                retiredPlots.headMap(oldestGeneration, false).clear();
+            }
+        }
+
+        for(Map.Entry<String, NavigableMap<Long, PlotWindowModel>> entry : preservedPlots.entrySet()) {
+            NavigableMap<Long, PlotWindowModel> copies = entry.getValue();
+            synchronized(copies) {
+                if(oldestGeneration == null) {
+                    copies.clear();
+                } else {
+                    copies.headMap(oldestGeneration, false).clear();
+                }
+                if(copies.isEmpty()) {
+                    preservedPlots.remove(entry.getKey(), copies);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Whether any snapshot of this database is open.
+     */
+    protected boolean hasOpenSnapshots() {
+        synchronized(snapshotMonitor) {
+            return !openSnapshotGenerations.isEmpty();
+        }
+    }
+
+    /**
+     * @param plot A plot.
+     * @param category A category, which may be blank, a regular expression,
+     * or the all-categories marker.
+     * @return Whether the plot should be shown for the given category.
+     */
+    static boolean isCategoryMatch(PlotWindowModel plot, String category) {
+        return StringUtils.isBlank(category) ||
+               StringUtils.isBlank(plot.getCategory()) ||
+               category.equalsIgnoreCase(WatchrCoreAppDatabaseSubsystem.ALLCATEGORIES) || // all categories handler
+               plot.getCategory().toLowerCase().matches(WatchrCoreAppDatabaseSubsystem.ALLCATEGORIES) || // all categories handler
+               plot.getCategory().toLowerCase().matches(category.toLowerCase()); // Case-insensitive matching
+    }
+
+    /**
+     * Adds a plot, unless a plot with the same name and category is already
+     * in memory.
+     *
+     * @param newPlot The plot to add.
+     * @return The plot that is in memory once this method returns, which is
+     * either the existing plot or the new one.
+     */
+    protected PlotWindowModel addPlotIfAbsent(PlotWindowModel newPlot) {
+        synchronized(plotMonitor) {
+            PlotWindowModel existingPlot = plotsByKey.get(PlotKey.of(newPlot));
+            if(existingPlot != null) {
+                return existingPlot;
+            }
+            addPlot(newPlot);
+            return newPlot;
+        }
+    }
+
+    /**
+     * @return The lock that serializes searches for plots with the given name
+     * and category.
+     */
+    protected Object getPlotKeyLock(String name, String category) {
+        int hash = new PlotKey(name, category).hashCode();
+        hash ^= (hash >>> 16);
+        return plotKeyLocks[hash & (plotKeyLocks.length - 1)];
+    }
+
     private PlotWindowModel loadPlotFromCache(String name, String category) {
         logger.logDebug("Looking for plot with name " + name + ", and category " + category + ".", CLASSNAME);
-        for(int i = 0; i < plots.size(); i++) {
-            PlotWindowModel plot = plots.get(i);
-            boolean categoryMatch =
-                (StringUtils.isBlank(category) && StringUtils.isBlank(plot.getCategory())) ||
-                plot.getCategory().toLowerCase().matches(category.toLowerCase()); // Case-insensitive matching
+        PlotWindowModel plot = plotsByKey.get(new PlotKey(name, category));
+        if(plot != null) {
+            logger.logDebug("Found plot with name " + name + ", and category matched.", CLASSNAME);
+            plotAccessed(plot);
+            return plot;
+        }
 
-            if(plot.getName().equals(name) && categoryMatch) {
-                logger.logDebug("Found plot with name " + name + ", and category matched.", CLASSNAME);
-                return plot;
+        if(StringUtils.isNotBlank(category) && StringUtil.hasIllegalCharacters(category)) {
+            // The category may be a regular expression, so fall back to pattern matching.
+            String categoryRegex = category.toLowerCase();
+            for(PlotWindowModel checkPlot : plots.values()) {
+                if(checkPlot.getName().equals(name) && checkPlot.getCategory().toLowerCase().matches(categoryRegex)) {
+                    logger.logDebug("Found plot with name " + name + ", and category matched.", CLASSNAME);
+                    plotAccessed(checkPlot);
+                    return checkPlot;
+                }
             }
         }
         return null;
@@ -604,7 +1120,8 @@ public abstract class AbstractDatabase implements IDatabase, RuleApplyable {
             ExtractionResult xResult = newPlotSearchCriteria.getXResult();
             ExtractionResult yResult = newPlotSearchCriteria.getYResult();
             int resultIndex = newPlotSearchCriteria.getResultIndex();
-            ExtractionResultNameResolver nameResolver = new ExtractionResultNameResolver(nameConfig, logger);
+            ExtractionResultNameResolver nameResolver =
+                new ExtractionResultNameResolver(nameConfig, logger, newPlotSearchCriteria.getExtractionCache());
             plotName = nameResolver.getName(xResult, yResult, resultIndex);
         }
         if(plotName != null) {
@@ -615,22 +1132,156 @@ public abstract class AbstractDatabase implements IDatabase, RuleApplyable {
         return null;
     }
 
-    protected PlotWindowModel getPlotByUUID(String uuid) {
+    /**
+     * Keeps a plot that is about to be deleted or replaced for the open
+     * snapshots, which may still read it.  Callers must hold
+     * {@code plotMonitor}, so that no snapshot is taken in between.
+     */
+    private void retirePlot(PlotWindowModel plot) {
+        synchronized(snapshotMonitor) {
+            if(!openSnapshotGenerations.isEmpty()) {
+                retiredPlots
+                    .computeIfAbsent(snapshotGeneration, k -> new HashMap<>())
+                    .putIfAbsent(plot.getUUID().toString(), plot);
+            }
+        }
+    }
+
+    /**
+     * @return The plots to delete that are neither in memory nor in
+     * loadedPlots, if any snapshot is open.
+     */
+    private Set<String> getUnloadedPlotsToDelete(Collection<String> plotUUIDs, Map<String, PlotWindowModel> loadedPlots) {
+        Set<String> unloadedUUIDs = new HashSet<>();
         synchronized(plotMonitor) {
-            for(int i = 0; i < plots.size(); i++) {
-                PlotWindowModel plot = plots.get(i);
-                if(plot.getUUID().toString().equals(uuid)) {
-                    return plot;
+            if(hasOpenSnapshots()) {
+                for(String uuid : collectPlotsToDelete(plotUUIDs)) {
+                    if(!plots.containsKey(UUID.fromString(uuid)) && !loadedPlots.containsKey(uuid)) {
+                        unloadedUUIDs.add(uuid);
+                    }
+                }
+            }
+        }
+        return unloadedUUIDs;
+    }
+
+    /**
+     * Copies a plot for the snapshot with the given generation, unless it was
+     * already copied for that snapshot or a later one.  Callers must be
+     * synchronized on the plot.
+     *
+     * @return The plot's copy for the snapshot.
+     */
+    private PlotWindowModel preservePlot(PlotWindowModel plot, long generation) {
+        String uuid = plot.getUUID().toString();
+        while(true) {
+            NavigableMap<Long, PlotWindowModel> copies = preservedPlots.computeIfAbsent(uuid, k -> new TreeMap<>());
+            synchronized(copies) {
+                // closeSnapshot removes empty maps, so make sure this one
+                // is still in use before anything is added to it.
+                if(preservedPlots.get(uuid) == copies) {
+                    Map.Entry<Long, PlotWindowModel> entry = copies.ceilingEntry(generation);
+                    if(entry != null) {
+                        return entry.getValue();
+                    }
+                    PlotWindowModel copy = DatabaseSnapshot.copyPlot(plot);
+                    copies.put(generation, copy);
+                    return copy;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The copy of a plot for the snapshot with the given generation,
+     * or null if the plot has not changed since then.  Copies made after the
+     * plot was retired belong to its replacement, so they are not used.
+     */
+    private PlotWindowModel getPreservedCopy(
+            NavigableMap<Long, PlotWindowModel> copies, long generation, Long retiredGeneration) {
+        if(copies != null) {
+            synchronized(copies) {
+                Map.Entry<Long, PlotWindowModel> entry = copies.ceilingEntry(generation);
+                if(entry != null && (retiredGeneration == null || entry.getKey() <= retiredGeneration)) {
+                    return entry.getValue();
                 }
             }
         }
         return null;
     }
 
+    protected PlotWindowModel getPlotByUUID(String uuid) {
+        try {
+            return getPlotByUUID(UUID.fromString(uuid));
+        } catch(IllegalArgumentException e) {
+            logger.logWarning("Invalid plot UUID " + uuid);
+        }
+        return null;
+    }
+
+    protected PlotWindowModel getPlotByUUID(UUID uuid) {
+        PlotWindowModel plot = plots.get(uuid);
+        if(plot != null) {
+            plotAccessed(plot);
+        }
+        return plot;
+    }
+
     public void clearPlotCache() {
         synchronized(plotMonitor) {
-            plots.clear();
+            clearPlots();
+        }
+    }
+
+    /**
+     * Called whenever a plot is retrieved from the in-memory plot maps.
+     * Subclasses that bound the number of plots kept in memory can use this
+     * to track recency of use.
+     */
+    protected void plotAccessed(PlotWindowModel plot) {
+        // Do nothing by default.
+    }
+
+    /**
+     * Registers a plot in the in-memory plot maps.  Callers must hold
+     * {@code plotMonitor}.
+     */
+    protected void putPlot(PlotWindowModel plot) {
+        plots.put(plot.getUUID(), plot);
+        PlotRelationshipManager.addWindowModelHierarchy(plot);
+        plotsByKey.putIfAbsent(PlotKey.of(plot), plot);
+        if(plot.isRoot() && cachedRootPlot == null) {
+            cachedRootPlot = plot;
+            metadata.setRootPlotUUID(plot.getUUID().toString());
+        }
+    }
+
+    /**
+     * Removes a plot from the in-memory plot maps.  Callers must hold
+     * {@code plotMonitor}.
+     */
+    protected void removePlot(PlotWindowModel plot) {
+        plots.remove(plot.getUUID());
+        PlotRelationshipManager.removeWindowModelHierarchy(plot);
+        if(!plotsByKey.remove(PlotKey.of(plot), plot)) {
+            plotsByKey.values().remove(plot);
+        }
+        if(cachedRootPlot == plot) {
+            cachedRootPlot = null;
+        }
+    }
+
+    /**
+     * Removes all plots from the in-memory plot maps.  Callers must hold
+     * {@code plotMonitor}.
+     */
+    protected void clearPlots() {
+        for(PlotWindowModel plot : plots.values()) {
+            PlotRelationshipManager.removeWindowModelHierarchy(plot);
         }
+        plots.clear();
+        plotsByKey.clear();
+        cachedRootPlot = null;
     }
 
     protected void setListeners(PlotWindowModel windowModel) {
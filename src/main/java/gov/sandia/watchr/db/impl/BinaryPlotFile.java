@@ -0,0 +1,309 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2022 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.db.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.UUID;
+
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import gov.sandia.watchr.graph.chartreuse.model.PlotTraceModel;
+import gov.sandia.watchr.graph.chartreuse.model.PlotTracePoint;
+import gov.sandia.watchr.graph.chartreuse.model.PlotWindowModel;
+
+/**
+ * Reads and writes {@link PlotWindowModel}s in Watchr's binary plot file
+ * format.<br><br>
+ *
+ * A binary plot file begins with a small header section, which holds the
+ * plot's window, canvas, and trace information as JSON with every trace's
+ * points left out.  The header is followed by one block per trace, and each
+ * trace block stores its points column by column (x, y, z, and point
+ * metadata).  The header can be read without decoding any points.<br><br>
+ *
+ * Layout (version 1; all numbers are big-endian):
+ * <pre>
+ * int     magic number
+ * int     format version
+ * int     header length, followed by the UTF-8 header JSON
+ * for each trace:
+ *     long, long   trace UUID
+ *     int          point count
+ *     for each column:
+ *         entries      int length (-1 for null), followed by UTF-8 bytes
+ * </pre>
+ */
+public final class BinaryPlotFile {
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x57504C54; // "WPLT"
+    private static final int COLUMN_X = 0;
+    private static final int COLUMN_Y = 1;
+    private static final int COLUMN_Z = 2;
+    private static final int COLUMN_METADATA = 3;
+    private static final int COLUMN_COUNT = 4;
+
+    // Points are stored in the column blocks, so they are left out of the header.
+    private static final Gson HEADER_GSON =
+        new GsonBuilder()
+            .setExclusionStrategies(new ExclusionStrategy() {
+                @Override
+                public boolean shouldSkipField(FieldAttributes field) {
+                    return field.getDeclaringClass() == PlotTraceModel.class && field.getName().equals("points");
+                }
+
+                @Override
+                public boolean shouldSkipClass(Class<?> clazz) {
+                    return false;
+                }
+            })
+            .create();
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
+
+    private BinaryPlotFile() {}
+
+    ///////////
+    // WRITE //
+    ///////////
+
+    /**
+     * Writes a plot to an output stream in the binary plot format.  The stream
+     * is flushed but not closed.
+     *
+     * @param plot The plot to write.
+     * @param out The stream to write to.
+     * @throws IOException Thrown if the plot could not be written.
+     */
+    public static void write(PlotWindowModel plot, OutputStream out) throws IOException {
+        DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(out));
+
+        dataOut.writeInt(MAGIC);
+        dataOut.writeInt(VERSION);
+        byte[] header = toHeaderJson(plot).getBytes(StandardCharsets.UTF_8);
+        dataOut.writeInt(header.length);
+        dataOut.write(header);
+
+        for(PlotTraceModel trace : plot.getAllTraceModels()) {
+            List<PlotTracePoint> points = trace.getPoints();
+            dataOut.writeLong(trace.getUUID().getMostSignificantBits());
+            dataOut.writeLong(trace.getUUID().getLeastSignificantBits());
+            dataOut.writeInt(points.size());
+            for(int column = 0; column < COLUMN_COUNT; column++) {
+                for(PlotTracePoint point : points) {
+                    writeEntry(dataOut, encodeColumnValue(point, column));
+                }
+            }
+        }
+        dataOut.flush();
+    }
+
+    //////////
+    // READ //
+    //////////
+
+    /**
+     * Reads a complete plot from a binary plot file, including every point.
+     * The file is read sequentially from start to finish.
+     *
+     * @param in The stream to read from.
+     * @return The plot.
+     * @throws IOException Thrown if the stream is not a valid binary plot file.
+     */
+    public static PlotWindowModel read(InputStream in) throws IOException {
+        DataInputStream dataIn = new DataInputStream(new BufferedInputStream(in));
+        PlotWindowModel plot = deserializeHeader(readHeaderBytes(dataIn));
+        Map<UUID, PlotTraceModel> tracesByUUID = new HashMap<>();
+        for(PlotTraceModel trace : plot.getAllTraceModels()) {
+            tracesByUUID.put(trace.getUUID(), trace);
+        }
+
+        for(int i = 0; i < tracesByUUID.size(); i++) {
+            UUID traceUUID = new UUID(dataIn.readLong(), dataIn.readLong());
+            int pointCount = dataIn.readInt();
+            String[][] columns = new String[COLUMN_COUNT][];
+            for(int column = 0; column < COLUMN_COUNT; column++) {
+                columns[column] = new String[pointCount];
+                for(int j = 0; j < pointCount; j++) {
+                    columns[column][j] = readEntry(dataIn);
+                }
+            }
+
+            PlotTraceModel trace = tracesByUUID.get(traceUUID);
+            if(trace == null) {
+                throw new IOException("Binary plot file refers to unknown trace " + traceUUID);
+            }
+            trace.restorePoints(toPoints(columns, pointCount));
+        }
+        return plot;
+    }
+
+    /**
+     * @param plot A plot.
+     * @return The JSON form of the plot with every trace's points left out,
+     * as stored in the header section of a binary plot file.
+     */
+    public static String toHeaderJson(PlotWindowModel plot) {
+        return HEADER_GSON.toJson(plot);
+    }
+
+    /**
+     * @param headerJson The JSON form of a plot, as returned by
+     * {@link #toHeaderJson(PlotWindowModel)}.
+     * @return The plot, where every trace is empty.
+     * @throws IOException Thrown if the JSON could not be parsed.
+     */
+    public static PlotWindowModel fromHeaderJson(String headerJson) throws IOException {
+        return deserializeHeader(headerJson);
+    }
+
+    /**
+     * Reads the header section of a binary plot file, which is the JSON form
+     * of the plot with every trace's points left out.
+     *
+     * @param file The binary plot file.
+     * @return The header JSON.
+     * @throws IOException Thrown if the file is not a valid binary plot file.
+     */
+    public static String readHeaderJson(File file) throws IOException {
+        try(RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            return new String(readHeaderBytes(raf), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * @param file The file to check.
+     * @return True if the file starts with the binary plot file magic number.
+     */
+    public static boolean isBinaryPlotFile(File file) {
+        try(RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            return raf.length() >= Integer.BYTES && raf.readInt() == MAGIC;
+        } catch(IOException e) {
+            return false;
+        }
+    }
+
+    /////////////
+    // PRIVATE //
+    /////////////
+
+    private static PlotWindowModel deserializeHeader(String headerJson) throws IOException {
+        try {
+            return FileBasedDatabase.PLOT_READER_GSON.fromJson(headerJson, PlotWindowModel.class);
+        } catch(JsonParseException e) {
+            throw new IOException("Could not parse binary plot file header", e);
+        }
+    }
+
+    private static PlotWindowModel deserializeHeader(byte[] header) throws IOException {
+        return deserializeHeader(new String(header, StandardCharsets.UTF_8));
+    }
+
+    private static byte[] readHeaderBytes(DataInput dataIn) throws IOException {
+        if(dataIn.readInt() != MAGIC) {
+            throw new IOException("Not a binary plot file");
+        }
+        int version = dataIn.readInt();
+        if(version != VERSION) {
+            throw new IOException("Unsupported binary plot file version " + version);
+        }
+        byte[] header = new byte[dataIn.readInt()];
+        dataIn.readFully(header);
+        return header;
+    }
+
+    private static String encodeColumnValue(PlotTracePoint point, int column) {
+        switch(column) {
+            case COLUMN_X:
+                return point.x;
+            case COLUMN_Y:
+                return point.y;
+            case COLUMN_Z:
+                return point.z;
+            default:
+                return encodeMetadata(point.metadata);
+        }
+    }
+
+    // Metadata is stored as alternating keys and values, separated by NUL characters.
+    private static String encodeMetadata(Map<String, String> metadata) {
+        if(metadata == null || metadata.isEmpty()) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        for(Entry<String, String> entry : metadata.entrySet()) {
+            sb.append(entry.getKey()).append('\0').append(entry.getValue()).append('\0');
+        }
+        return sb.toString();
+    }
+
+    private static void decodeMetadata(String encoded, Map<String, String> metadata) {
+        if(encoded != null) {
+            String[] tokens = encoded.split("\0", -1);
+            for(int i = 0; i + 1 < tokens.length; i += 2) {
+                metadata.put(tokens[i], tokens[i + 1]);
+            }
+        }
+    }
+
+    private static List<PlotTracePoint> toPoints(String[][] columns, int pointCount) {
+        List<PlotTracePoint> points = new ArrayList<>(pointCount);
+        for(int i = 0; i < pointCount; i++) {
+            PlotTracePoint point = new PlotTracePoint(columns[COLUMN_X][i], columns[COLUMN_Y][i], columns[COLUMN_Z][i]);
+            decodeMetadata(columns[COLUMN_METADATA][i], point.metadata);
+            points.add(point);
+        }
+        return points;
+    }
+
+    private static void writeEntry(DataOutputStream dataOut, String value) throws IOException {
+        if(value == null) {
+            dataOut.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            dataOut.writeInt(bytes.length);
+            dataOut.write(bytes);
+        }
+    }
+
+    private static String readEntry(DataInput dataIn) throws IOException {
+        int length = dataIn.readInt();
+        if(length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        dataIn.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,228 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2022 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.db.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.io.input.CountingInputStream;
+
+/**
+ * Reads and writes database images.  A database image is a single file that
+ * holds a copy of every file needed to open a {@link FileBasedDatabase} (its
+ * metadata, plot index, plot relationships, last configuration, file cache
+ * and plot files), so that the database can be opened by reading one file
+ * rather than many small files.  Plot files are skipped over when the image
+ * is read, and their contents are read from the image later, when each plot
+ * is first needed.<br><br>
+ *
+ * An image also records the length and modification time of "guarded" files,
+ * which change whenever the database is saved or its point log grows.  The
+ * image is only read while every guarded file is unchanged, so an image that
+ * is older than the files it copied is ignored.<br><br>
+ *
+ * Layout (version 1; all numbers are big-endian, and all strings are
+ * modified UTF-8):
+ * <pre>
+ * int     magic number
+ * int     format version
+ * int     guarded file count
+ * for each guarded file:
+ *     string  file name
+ *     long    length (-1 if the file did not exist)
+ *     long    last modified time
+ * for each copied file:
+ *     string  file name
+ *     long    length, followed by the file's contents
+ * string  empty file name, marking the end of the image
+ * </pre>
+ */
+public final class DatabaseImage {
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    public static final String FILE_NAME = "databaseImage.bin";
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x5744424D; // "WDBM"
+    private static final long MISSING = -1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
+
+    private DatabaseImage() {}
+
+    ///////////
+    // WRITE //
+    ///////////
+
+    /**
+     * Writes an image to an output stream.  Files that do not exist are left
+     * out of the image.  The stream is flushed but not closed.
+     *
+     * @param out The stream to write to.
+     * @param guardedFiles The files whose length and modification time must be
+     * unchanged for the image to be read.  They must all be in the directory
+     * that the image is written to.
+     * @param copiedFiles The files to copy into the image.
+     * @throws IOException Thrown if the image could not be written.
+     */
+    public static void write(OutputStream out, List<File> guardedFiles, List<File> copiedFiles) throws IOException {
+        DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+        dataOut.writeInt(MAGIC);
+        dataOut.writeInt(VERSION);
+
+        dataOut.writeInt(guardedFiles.size());
+        for(File file : guardedFiles) {
+            dataOut.writeUTF(file.getName());
+            dataOut.writeLong(file.exists() ? file.length() : MISSING);
+            dataOut.writeLong(file.lastModified());
+        }
+
+        for(File file : copiedFiles) {
+            // Once opened, the file keeps its contents and length even if it
+            // is replaced while it is being copied.
+            try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                long length = channel.size();
+                dataOut.writeUTF(file.getName());
+                dataOut.writeLong(length);
+                long copiedLength = IOUtils.copyLarge(Channels.newInputStream(channel), dataOut, 0, length);
+                if(copiedLength != length) {
+                    throw new IOException(file.getName() + " was shorter than expected.");
+                }
+            } catch(NoSuchFileException e) {
+                // Nothing to copy.
+            }
+        }
+        dataOut.writeUTF("");
+        dataOut.flush();
+    }
+
+    //////////
+    // READ //
+    //////////
+
+    /**
+     * Reads an image, passing each file copied into it to a reader in the
+     * order that the files were written.  Whatever the reader leaves unread of
+     * a file is skipped, rather than read.
+     *
+     * @param imageFile The image to read.
+     * @param fileReader The reader for copied files.
+     * @return True if the image was read, or false if there is no image, or
+     * the image is out of date (in which case no files are passed to the reader).
+     * @throws IOException Thrown if the image or one of its files could not be read.
+     */
+    public static boolean read(File imageFile, CopiedFileReader fileReader) throws IOException {
+        if(!imageFile.exists()) {
+            return false;
+        }
+
+        File rootDir = imageFile.getParentFile();
+        CountingInputStream countingIn = new CountingInputStream(new BufferedInputStream(new FileInputStream(imageFile), BUFFER_SIZE));
+        try(DataInputStream dataIn = new DataInputStream(countingIn)) {
+            if(dataIn.readInt() != MAGIC || dataIn.readInt() != VERSION) {
+                return false;
+            }
+
+            int guardedFileCount = dataIn.readInt();
+            for(int i = 0; i < guardedFileCount; i++) {
+                File guardedFile = new File(rootDir, dataIn.readUTF());
+                long length = dataIn.readLong();
+                long lastModified = dataIn.readLong();
+                boolean exists = guardedFile.exists();
+                if((exists ? guardedFile.length() : MISSING) != length ||
+                        (exists && guardedFile.lastModified() != lastModified)) {
+                    return false;
+                }
+            }
+
+            String fileName;
+            while(!(fileName = dataIn.readUTF()).isEmpty()) {
+                long length = dataIn.readLong();
+                long offset = countingIn.getByteCount();
+                BoundedInputStream contents = new BoundedInputStream(dataIn, length);
+                contents.setPropagateClose(false);
+                fileReader.read(fileName, offset, length, contents);
+                skipToEnd(contents);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Opens one of the files copied into an image, given where
+     * {@link #read(File, CopiedFileReader)} found it.
+     *
+     * @param imageFile The image.
+     * @param offset The position of the file's contents in the image.
+     * @param length The length of the file's contents.
+     * @return A stream of the file's contents, which the caller must close.
+     * @throws IOException Thrown if the image could not be opened.
+     */
+    public static InputStream openCopiedFile(File imageFile, long offset, long length) throws IOException {
+        FileChannel channel = FileChannel.open(imageFile.toPath(), StandardOpenOption.READ);
+        try {
+            channel.position(offset);
+            return new BoundedInputStream(new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE), length);
+        } catch(IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /////////////
+    // PRIVATE //
+    /////////////
+
+    /**
+     * Skips the rest of a stream.  Skipping lets the underlying file seek past
+     * the bytes, where {@link IOUtils#consume(InputStream)} would read them.
+     */
+    private static void skipToEnd(InputStream in) throws IOException {
+        while(in.skip(Long.MAX_VALUE) > 0 || in.read() != -1) {
+            // Keep skipping.
+        }
+    }
+
+    ///////////////////
+    // INNER CLASSES //
+    ///////////////////
+
+    @FunctionalInterface
+    public interface CopiedFileReader {
+        /**
+         * Reads one of the files copied into an image.
+         *
+         * @param fileName The name of the file.
+         * @param offset The position of the file's contents in the image.
+         * @param length The length of the file's contents.
+         * @param contents The file's contents.  The stream does not need to
+         * be read to its end, and closing it has no effect.
+         */
+        void read(String fileName, long offset, long length, InputStream contents) throws IOException;
+    }
+}
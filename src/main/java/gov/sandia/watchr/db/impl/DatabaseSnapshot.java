@@ -0,0 +1,267 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2022 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.db.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.lang3.StringUtils;
+
+import gov.sandia.watchr.db.DatabaseMetadata;
+import gov.sandia.watchr.db.IDatabaseSnapshot;
+import gov.sandia.watchr.db.PlotDatabaseSearchCriteria;
+import gov.sandia.watchr.graph.chartreuse.model.PlotRelationshipManager;
+import gov.sandia.watchr.graph.chartreuse.model.PlotTraceModel;
+import gov.sandia.watchr.graph.chartreuse.model.PlotWindowModel;
+import gov.sandia.watchr.util.CommonConstants;
+import gov.sandia.watchr.util.RGB;
+import gov.sandia.watchr.util.RgbUtil;
+import gov.sandia.watchr.util.StringUtil;
+
+/**
+ * The {@link IDatabaseSnapshot} implementation for {@link AbstractDatabase}.<br><br>
+ *
+ * The plot hierarchy and metadata are copied when the snapshot is taken.
+ * Plots are copied the first time the snapshot reads them, either from the
+ * copies writers made before changing them or from the database (see
+ * {@link AbstractDatabase#getSnapshot()}), and the snapshot returns that same
+ * copy from then on.  Searches by name and
+ * category go through an index of plot UUIDs recorded when the snapshot was
+ * taken, never through the database.
+ */
+public class DatabaseSnapshot implements IDatabaseSnapshot {
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    private final AbstractDatabase db;
+    private final long generation;
+    private final long version;
+    private final DatabaseMetadata metadata;
+    private final Map<String, Set<String>> parentChildPlots;
+    private final Map<String, String> childParentPlots;
+    private final Map<PlotKey, String> plotKeyIndex;
+    // The keys of plotKeyIndex grouped by plot name, for searches that match
+    // any category or a category pattern.
+    private final Map<String, List<PlotKey>> plotKeysByName;
+    private final Map<String, PlotWindowModel> plotCopies;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
+
+    /**
+     * Callers are expected to pass copies of the database's state, which the
+     * snapshot then owns.
+     */
+    DatabaseSnapshot(
+            AbstractDatabase db, long generation, long version, DatabaseMetadata metadata,
+            Map<String, Set<String>> parentChildPlots, Map<String, String> childParentPlots,
+            Map<PlotKey, String> plotKeyIndex) {
+        this.db = db;
+        this.generation = generation;
+        this.version = version;
+        this.metadata = metadata;
+        this.parentChildPlots = parentChildPlots;
+        this.childParentPlots = childParentPlots;
+        this.plotKeyIndex = plotKeyIndex;
+        this.plotKeysByName = new HashMap<>();
+        for(PlotKey key : plotKeyIndex.keySet()) {
+            plotKeysByName.computeIfAbsent(key.getName(), k -> new ArrayList<>()).add(key);
+        }
+        this.plotCopies = new ConcurrentHashMap<>();
+    }
+
+    /////////////
+    // GETTERS //
+    /////////////
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public DatabaseMetadata getMetadata() {
+        return metadata;
+    }
+
+    @Override
+    public PlotWindowModel getRootPlot() {
+        String rootPlotUUID = metadata.getRootPlotUUID();
+        return rootPlotUUID == null ? null : getPlot(rootPlotUUID);
+    }
+
+    @Override
+    public PlotWindowModel searchPlot(PlotDatabaseSearchCriteria searchCriteria) {
+        String uuid = findPlotUUID(searchCriteria.getName(), searchCriteria.getCategory());
+        return uuid == null ? null : getPlot(uuid);
+    }
+
+    @Override
+    public PlotWindowModel getParent(PlotDatabaseSearchCriteria searchCriteria) {
+        PlotWindowModel childPlot = searchPlot(searchCriteria);
+        if(childPlot != null) {
+            String parentUUID = childParentPlots.get(childPlot.getUUID().toString());
+            if(parentUUID != null) {
+                return getPlot(parentUUID);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Set<PlotWindowModel> getChildren(PlotDatabaseSearchCriteria searchCriteria) {
+        PlotWindowModel parentPlot = getPlotForChildSearch(searchCriteria);
+        if(parentPlot != null) {
+            return getChildren(parentPlot, searchCriteria.getCategory());
+        }
+        return new HashSet<>();
+    }
+
+    @Override
+    public Set<PlotWindowModel> getChildren(PlotWindowModel parentPlot, String category) {
+        Set<PlotWindowModel> childPlots = new HashSet<>();
+        Set<String> childUUIDs = parentChildPlots.getOrDefault(parentPlot.getUUID().toString(), Collections.emptySet());
+        for(String childUUID : childUUIDs) {
+            PlotWindowModel childPlot = getPlot(childUUID);
+            if(childPlot != null && AbstractDatabase.isCategoryMatch(childPlot, category)) {
+                if(childPlot.isEmpty2D()) {
+                    childPlots.addAll(getChildren(childPlot, category));
+                } else {
+                    childPlots.add(childPlot);
+                }
+            }
+        }
+        return childPlots;
+    }
+
+    @Override
+    public int getChildrenCount(PlotDatabaseSearchCriteria searchCriteria) {
+        PlotWindowModel parentPlot = getPlotForChildSearch(searchCriteria);
+        if(parentPlot != null) {
+            return parentChildPlots.getOrDefault(parentPlot.getUUID().toString(), Collections.emptySet()).size();
+        }
+        return 0;
+    }
+
+    /////////////
+    // UTILITY //
+    /////////////
+
+    @Override
+    public void close() {
+        if(closed.compareAndSet(false, true)) {
+            db.closeSnapshot(generation);
+        }
+    }
+
+    /**
+     * Makes a copy of a plot that shares no mutable state with the original,
+     * apart from its trace points and filters, which are never modified once
+     * created.  The copy keeps the original's UUIDs.  Trace colors and filters
+     * are copied directly, since the JSON form of a plot loses the alpha
+     * channel of its colors and the parsed form of its filter expressions.
+     *
+     * @param plot The plot to copy.  It must not be modified while it is copied.
+     * @return The copy.
+     */
+    static PlotWindowModel copyPlot(PlotWindowModel plot) {
+        try {
+            PlotWindowModel copy = BinaryPlotFile.fromHeaderJson(BinaryPlotFile.toHeaderJson(plot));
+            List<PlotTraceModel> traces = plot.getAllTraceModels();
+            List<PlotTraceModel> copyTraces = copy.getAllTraceModels();
+            for(int i = 0; i < traces.size() && i < copyTraces.size(); i++) {
+                PlotTraceModel trace = traces.get(i);
+                PlotTraceModel copyTrace = copyTraces.get(i);
+                List<RGB> colors = new ArrayList<>();
+                for(RGB color : trace.getRGBs()) {
+                    colors.add(RgbUtil.copyColor(color));
+                }
+                copyTrace.setColors(colors);
+                copyTrace.setFilterValues(trace.getFilters());
+                copyTrace.restorePoints(trace.getPoints());
+            }
+            // Link the copy to itself, and make sure that lookups by UUID
+            // still find the database's own plot rather than the copy.
+            copy.linkChildModels();
+            PlotRelationshipManager.removeWindowModelHierarchy(copy);
+            return copy;
+        } catch(IOException e) {
+            throw new IllegalStateException("Could not copy plot " + plot.getUUID(), e);
+        }
+    }
+
+    /////////////
+    // PRIVATE //
+    /////////////
+
+    private PlotWindowModel getPlotForChildSearch(PlotDatabaseSearchCriteria searchCriteria) {
+        String plotName = searchCriteria.getName();
+        if(plotName.equals(CommonConstants.ROOT_PATH_ALIAS) || StringUtils.isEmpty(plotName)) {
+            PlotWindowModel rootPlot = getRootPlot();
+            if(rootPlot != null) {
+                return rootPlot;
+            }
+        }
+        return searchPlot(searchCriteria);
+    }
+
+    /**
+     * Finds a plot the same way the database does.  A blank category matches
+     * any category, and a category with characters that cannot appear in a
+     * category is treated as a regular expression.
+     *
+     * @return The UUID of the matching plot, or null if there was no matching
+     * plot when the snapshot was taken.
+     */
+    private String findPlotUUID(String name, String category) {
+        if(StringUtils.isBlank(name)) {
+            return null;
+        }
+        String uuid = plotKeyIndex.get(new PlotKey(name, category));
+        if(uuid == null) {
+            boolean anyCategory = StringUtils.isBlank(category);
+            boolean categoryPattern = !anyCategory && StringUtil.hasIllegalCharacters(category);
+            if(anyCategory || categoryPattern) {
+                String categoryRegex = anyCategory ? null : category.toLowerCase();
+                for(PlotKey key : plotKeysByName.getOrDefault(name, Collections.emptyList())) {
+                    if(anyCategory || key.getCategory().matches(categoryRegex)) {
+                        return plotKeyIndex.get(key);
+                    }
+                }
+            }
+        }
+        return uuid;
+    }
+
+    private PlotWindowModel getPlot(String uuid) {
+        if(closed.get()) {
+            throw new IllegalStateException("The database snapshot has been closed.");
+        }
+        PlotWindowModel copy = plotCopies.get(uuid);
+        if(copy == null) {
+            copy = db.getSnapshotPlot(uuid, generation);
+            if(copy != null) {
+                PlotWindowModel otherCopy = plotCopies.putIfAbsent(uuid, copy);
+                copy = otherCopy != null ? otherCopy : copy;
+            }
+        }
+        return copy;
+    }
+}
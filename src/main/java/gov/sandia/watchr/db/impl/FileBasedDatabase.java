@@ -8,25 +8,72 @@
 package gov.sandia.watchr.db.impl;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonNull;
 import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.unix4j.Unix4j;
 import org.unix4j.line.Line;
@@ -37,6 +84,9 @@ import gov.sandia.watchr.config.WatchrConfig;
 import gov.sandia.watchr.config.derivative.DerivativeLine;
 import gov.sandia.watchr.config.file.IFileReader;
 import gov.sandia.watchr.db.DatabaseMetadata;
+import gov.sandia.watchr.db.PlotDatabaseSearchCriteria;
+import gov.sandia.watchr.db.impl.PlotIndex.PlotIndexEntry;
+import gov.sandia.watchr.db.impl.PointLog.PointLogEntry;
 import gov.sandia.watchr.db.impl.bc.DerivativeLineMarshaller;
 import gov.sandia.watchr.db.impl.bc.FileReaderMarshaller;
 import gov.sandia.watchr.db.impl.bc.GraphDisplayConfigMarshaller;
@@ -44,6 +94,8 @@ import gov.sandia.watchr.db.impl.bc.LoggerMarshaller;
 import gov.sandia.watchr.db.impl.bc.PlotCanvasModelMarshaller;
 import gov.sandia.watchr.graph.chartreuse.model.PlotCanvasModel;
 import gov.sandia.watchr.graph.chartreuse.model.PlotRelationshipManager;
+import gov.sandia.watchr.graph.chartreuse.model.PlotTraceModel;
+import gov.sandia.watchr.graph.chartreuse.model.PlotTracePoint;
 import gov.sandia.watchr.graph.chartreuse.model.PlotWindowModel;
 import gov.sandia.watchr.log.ILogger;
 import gov.sandia.watchr.util.StringUtil;
@@ -56,12 +108,105 @@ public class FileBasedDatabase extends AbstractDatabase {
 
     private static final String CLASSNAME = FileBasedDatabase.class.getSimpleName();
 
+    private static final String FILE_CHILD_PARENT_PLOTS = "childParentPlots.json";
+    private static final String FILE_LEGACY_FILE_CACHE = "fileCache.json";
     private static final String FILE_LAST_CONFIG = "lastConfig.json";
     private static final String FILE_METADATA = "metadata.json";
+    private static final String FILE_PARENT_CHILD_PLOTS = "parentChildPlots.json";
+    private static final String FILE_PLOT_INDEX = "plotIndex.json";
+    private static final String TEMP_FILE_PREFIX = ".";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final long MIN_WRITE_BEHIND_POLL_MILLIS = 10;
+    private static final long MAX_WRITE_BEHIND_POLL_MILLIS = 1000;
+    private static final int PLOT_SAVE_LOCK_STRIPES = 64;
+
+    // Gson instances are thread-safe, so they are built once and shared.
+    // Plots are written with the plain instance, and read back with the
+    // instance that understands older PlotCanvasModel formats.
+    private static final Gson GSON = new GsonBuilder().create();
+    private static final Type CHILD_PARENT_PLOTS_TYPE = new TypeToken<Map<String, String>>(){}.getType();
+    static final Gson PLOT_READER_GSON =
+        new GsonBuilder()
+            .registerTypeAdapter(PlotCanvasModel.class, new PlotCanvasModelMarshaller())
+            .create();
+
+    public static final long UNBOUNDED_PLOT_CACHE = -1;
+    public static final int POINT_LOG_DISABLED = 0;
+    public static final int DEFAULT_POINT_LOG_COMPACTION_THRESHOLD = 10000;
+    public static final long UNBOUNDED_DIRTY_WEIGHT = -1;
 
     protected final File rootDir;
     protected Object fileWriteMonitor = new Object();
 
+    protected final PlotIndex plotIndex = new PlotIndex();
+    protected volatile boolean plotIndexLoaded = false;
+
+    // Whether the plot index may be on disk, and the number of writes that
+    // have made it out of date.  The index file is deleted before a plot file
+    // is created or deleted, so an index file that exists names every plot
+    // file on disk and can be trusted without listing the plot directories.
+    private volatile boolean plotIndexOnDisk = true;
+    private final AtomicLong plotIndexInvalidations = new AtomicLong();
+
+    // Content hashes of plot files as they currently exist on disk, keyed by
+    // plot UUID.  Used to avoid rewriting plots whose contents did not change.
+    protected final Map<String, String> plotContentHashes = new ConcurrentHashMap<>();
+
+    // The in-memory plot cache is bounded by the total number of trace points
+    // it holds.  Plot weights are kept in least-recently-used order, and are
+    // guarded by their own monitor so that cache hits never wait for
+    // plotMonitor.  A plot handed to a writer by searchAndMakeNewIfMissing()
+    // is pinned by the writer's thread until the writer passes it to
+    // updatePlot(), and pinned plots are never evicted.
+    private volatile long plotCacheCapacity = UNBOUNDED_PLOT_CACHE;
+    private final Object plotCacheMonitor = new Object();
+    private final LinkedHashMap<UUID, Integer> plotCacheWeights = new LinkedHashMap<>(16, 0.75f, true);
+    private long plotCacheWeight = 0;
+    private final Map<UUID, Set<Thread>> pinnedPlots = new HashMap<>();
+    private final Set<UUID> evictingPlots = new HashSet<>();
+
+    private volatile int saveThreadCount = Runtime.getRuntime().availableProcessors();
+    private volatile boolean syncOnWrite = false;
+    // When set, the database is read from disk but never writes, moves or
+    // deletes anything there, so its changes are lost when it is discarded.
+    private volatile boolean readOnly = false;
+
+    // Whether a database image may be on disk, and the number of writes that
+    // have made the image out of date.  The image is deleted by the first
+    // write after it was read or written (see invalidateDatabaseImage()).
+    private volatile boolean databaseImageOnDisk = true;
+    private final AtomicLong databaseImageInvalidations = new AtomicLong();
+    // Where the plot files copied into the database image are, keyed by file
+    // name, if loadState() read the image.  Each plot is decoded from the
+    // image when it is first read, until the image is deleted.
+    private final Map<String, DatabaseImageCopy> databaseImagePlotFiles = new ConcurrentHashMap<>();
+
+    private volatile PlotFileFormat plotFileFormat = PlotFileFormat.JSON;
+    private volatile PlotFileLayout plotFileLayout = PlotFileLayout.FLAT;
+
+    // When enabled, point changes to existing plots are appended to the point
+    // log instead of rewriting the plots' files.  Each cached plot's persisted
+    // state (what its file plus its pending log entries contain) is kept, so
+    // that saves can work out which points are new.  The log is off by
+    // default, but a log left by an earlier session is always replayed.
+    protected final PointLog pointLog;
+    private final Map<String, PersistedPlotState> persistedPlotStates = new ConcurrentHashMap<>();
+    private volatile int pointLogCompactionThreshold = POINT_LOG_DISABLED;
+    // Saves of the same plot are serialized (per stripe), so that a plot's
+    // file, its point log entries and its persisted state always agree, even
+    // when an eviction and a compaction save the plot at the same time.
+    private final Object[] plotSaveLocks = newLockStripes(PLOT_SAVE_LOCK_STRIPES);
+
+    // While write-behind is running, dirty plots are written by a background
+    // thread once they stop changing, or once too many unsaved trace points
+    // have built up.  The time each dirty plot last changed is kept so that
+    // idle plots (and the least recently changed plots) can be found.
+    private final Object writeBehindMonitor = new Object();
+    private volatile ScheduledExecutorService writeBehindExecutor;
+    private volatile long writeBehindIdleMillis;
+    private volatile long writeBehindDirtyWeightThreshold = UNBOUNDED_DIRTY_WEIGHT;
+    private final Map<String, Long> dirtyPlotChangeTimes = new ConcurrentHashMap<>();
+
     /////////////////
     // CONSTRUCTOR //
     /////////////////
@@ -69,11 +214,27 @@ public class FileBasedDatabase extends AbstractDatabase {
     public FileBasedDatabase(File rootDir, ILogger logger, IFileReader fileReader) {
         super(logger, fileReader);
         this.rootDir = rootDir;
+        this.pointLog = new PointLog(rootDir);
+        this.fileCache.setFile(new File(rootDir, FileFingerprintStore.FILE_NAME));
+    }
+
+    /**
+     * @param rootDir The database directory.
+     * @param logger The logger.
+     * @param fileReader The file reader.
+     * @param plotCacheCapacity The maximum number of trace points to keep in
+     * memory across all cached plots, or {@link #UNBOUNDED_PLOT_CACHE}.
+     */
+    public FileBasedDatabase(File rootDir, ILogger logger, IFileReader fileReader, long plotCacheCapacity) {
+        this(rootDir, logger, fileReader);
+        this.plotCacheCapacity = plotCacheCapacity;
     }
     
     public FileBasedDatabase(String rootDirAbsPath, ILogger logger, IFileReader fileReader) {
         super(logger, fileReader);
         this.rootDir = new File(rootDirAbsPath);
+        this.pointLog = new PointLog(rootDir);
+        this.fileCache.setFile(new File(rootDir, FileFingerprintStore.FILE_NAME));
     }
 
     //////////////
@@ -82,20 +243,27 @@ public class FileBasedDatabase extends AbstractDatabase {
 
     @Override
     public List<PlotWindowModel> getAllPlots() {
+        // Collect plots as they are loaded, since a bounded plot cache may
+        // evict earlier plots before the whole directory has been read.
+        Map<UUID, PlotWindowModel> allPlots = new LinkedHashMap<>();
         if(rootDir != null && rootDir.exists()) {
-            File[] fileList = rootDir.listFiles();
-            for(File file : fileList) {
-                if(file.getName().startsWith("plot_")) {
-                    String baseName = FilenameUtils.getBaseName(file.getName());
-                    String uuid = baseName.split("_")[1];
-                    PlotWindowModel plot = getPlotByUUID(uuid);
-                    if(plot != null) {
-                        addPlot(plot);
+            // Once loaded, the plot index names every plot on disk, so the
+            // plot directories do not need to be listed again.
+            Set<String> uuids = plotIndexLoaded ? plotIndex.getUUIDs() : getPlotFileUUIDs();
+            for(String uuid : uuids) {
+                PlotWindowModel plot = getPlotByUUID(uuid);
+                if(plot != null) {
+                    addPlot(plot);
+                    if(!plot.isRoot()) {
+                        allPlots.put(plot.getUUID(), plot);
                     }
                 }
             }
         }
-        return super.getAllPlots();
+        for(PlotWindowModel plot : super.getAllPlots()) {
+            allPlots.putIfAbsent(plot.getUUID(), plot);
+        }
+        return new ArrayList<>(allPlots.values());
     }
 
     @Override
@@ -116,37 +284,70 @@ public class FileBasedDatabase extends AbstractDatabase {
         return plot;
     }
 
+    @Override
+    public PlotWindowModel searchAndMakeNewIfMissing(PlotDatabaseSearchCriteria searchCriteria) {
+        PlotWindowModel plot = super.searchAndMakeNewIfMissing(searchCriteria);
+        // The plot may have been evicted before it could be pinned, in which
+        // case it is searched for again.
+        while(plot != null && !pinPlot(plot)) {
+            plot = super.searchAndMakeNewIfMissing(searchCriteria);
+        }
+        return plot;
+    }
+
     @Override
     public void loadState() {
         logger.logDebug("rootDir: " + rootDir, CLASSNAME);
-        logger.logDebug("Looking for root plot...", CLASSNAME);
-        loadRootPlot();
+        if(!readOnly) {
+            deleteTempFiles();
+        }
 
-        logger.logDebug("Reading parent-child plot relationships...", CLASSNAME);
-        readParentChildPlotRelationships();
+        logger.logDebug("Reading point log...", CLASSNAME);
+        pointLog.load(logger);
 
-        logger.logDebug("Reading configuration information...", CLASSNAME);
-        readLastConfiguration();
-        
-        logger.logDebug("Reading file cache...", CLASSNAME);
-        readFileCache();
+        logger.logDebug("Reading database image...", CLASSNAME);
+        if(!readDatabaseImage()) {
+            logger.logDebug("Reading plot index...", CLASSNAME);
+            readPlotIndex();
+
+            logger.logDebug("Reading database metadata...", CLASSNAME);
+            readMetadata();
+
+            logger.logDebug("Reading parent-child plot relationships...", CLASSNAME);
+            readParentChildPlotRelationships();
+            readChildParentPlotRelationships();
 
-        logger.logDebug("Reading database metadata...", CLASSNAME);
-        readMetadata();
+            logger.logDebug("Reading configuration information...", CLASSNAME);
+            readLastConfiguration();
+
+            logger.logDebug("Reading file cache...", CLASSNAME);
+            readFileCache();
+        }
+
+        if(metadata.getFailedPlotUUIDs() == null) {
+            // Databases written before failed plots were tracked individually
+            // are recounted once, after which the counts are kept incrementally.
+            logger.logInfo("Recounting plots in " + FILE_METADATA + "...");
+            recountMetadata();
+        }
+
+        logger.logDebug("Looking for root plot...", CLASSNAME);
+        if(super.getRootPlot() == null) {
+            loadRootPlot();
+        }
     }
 
     @Override
     public PlotWindowModel loadPlotUsingUUID(String uuid) {
-        String expectedName = "plot_" + uuid + ".json";
         if(rootDir != null && rootDir.exists()) {
-            File loadFile = new File(rootDir, expectedName);
+            File loadFile = getPlotFile(uuid);
             if(loadFile.exists()) {
                 PlotWindowModel plot = readPlot(loadFile);
-                addPlot(plot);
-                rebuildPlotRelationships(plot);
-                return plot;
+                if(plot != null) {
+                    return cacheLoadedPlot(plot);
+                }
             } else {
-                logger.logWarning("Could not find file " + expectedName);
+                logger.logWarning("Could not find file " + loadFile.getName());
             }
         }
         
@@ -155,21 +356,57 @@ public class FileBasedDatabase extends AbstractDatabase {
 
     @Override
     public PlotWindowModel loadPlotUsingInnerFields(String name, String category) {
+        if(plotIndexLoaded) {
+            String uuid = plotIndex.find(name, category);
+            if(uuid == null) {
+                // The index covers every plot file on disk, so a miss means the plot does not exist.
+                return null;
+            }
+
+            File loadFile = getPlotFile(uuid);
+            PlotWindowModel plot = loadFile.exists() ? readPlot(loadFile) : null;
+            if(plot != null && plot.getName().equals(name) &&
+                    (StringUtils.isBlank(category) || plot.getCategory().equalsIgnoreCase(category))) {
+                return cacheLoadedPlot(plot);
+            }
+
+            // Repair the entry, so that only this lookup has to search the plot files.
+            logger.logWarning("Plot index entry for " + name + " is out of date. Falling back to a full search...");
+            if(plot != null) {
+                plotIndex.put(uuid, plot.getName(), plot.getCategory());
+            } else {
+                plotIndex.remove(uuid);
+            }
+        }
+        return scanPlotsUsingInnerFields(name, category);
+    }
+
+    protected PlotWindowModel scanPlotsUsingInnerFields(String name, String category) {
         String fullJsonNameField     = StringUtil.escapeRegexCharacters("\"name\":\"" + name + "\",");
         String fullJsonCategoryField = StringUtil.escapeRegexCharacters("\"category\":\"" + category + "\",");
         boolean useCategory = StringUtils.isNotBlank(category);
 
         if(rootDir != null && rootDir.exists()) {
-            for(File file : rootDir.listFiles()) {
-                if(file.getName().startsWith("plot_")) {
+            for(File file : listPlotFiles()) {
+                PlotFileFormat format = getPlotFileFormat(file);
+                if(format == PlotFileFormat.JSON) {
                     List<Line> nameLines     = Unix4j.grep(fullJsonNameField, file).toLineList(); 
                     List<Line> categoryLines = Unix4j.grep(fullJsonCategoryField, file).toLineList(); 
 
                     if(nameLines.size() == 1 && (categoryLines.size() == 1 || !useCategory)) {
                         PlotWindowModel plot = readPlot(file);
-                        addPlot(plot);
-                        rebuildPlotRelationships(plot);
-                        return plot;
+                        if(plot != null) {
+                            return cacheLoadedPlot(plot);
+                        }
+                    }
+                } else if(format == PlotFileFormat.BINARY) {
+                    PlotIndexEntry entry = readPlotIndexEntry(file);
+                    if(entry != null && entry.getName().equals(name) &&
+                            (!useCategory || entry.getCategory().equals(category))) {
+                        PlotWindowModel plot = readPlot(file);
+                        if(plot != null) {
+                            return cacheLoadedPlot(plot);
+                        }
                     }
                 }
             }
@@ -180,45 +417,107 @@ public class FileBasedDatabase extends AbstractDatabase {
     @Override
     public PlotWindowModel loadRootPlot() {
         if(rootDir != null && rootDir.exists()) {
-            for(File file : rootDir.listFiles()) {
-                try {
-                    String fileContents = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
-                    if(fileContents.contains("\"isRoot\":true")) {
-                        PlotWindowModel newRootPlot = readPlot(file);
-                
-                        synchronized(plotMonitor) {
-                            boolean alreadyContains = false;
-                            for(int i = 0; i < plots.size(); i++) {
-                                PlotWindowModel checkPlot = plots.get(i);
-                                if(checkPlot.equals(newRootPlot)) {
-                                    alreadyContains = true;
-                                    break;
-                                }
-                            }
-                
-                            if(!alreadyContains) {
-                                plots.add(newRootPlot);
-                                dirtyPlotUUIDs.add(newRootPlot.getUUID().toString());
-                                rebuildPlotRelationships(newRootPlot);
-                            }
-                        }
+            PlotWindowModel newRootPlot = readRootPlotUsingMetadata();
+            if(newRootPlot == null) {
+                newRootPlot = scanForRootPlot();
+                if(newRootPlot != null) {
+                    // Databases written before the root UUID was recorded in metadata.json
+                    // are migrated here, so the scan only ever has to happen once.
+                    logger.logDebug("Recording root plot UUID in " + FILE_METADATA, CLASSNAME);
+                    metadata.setRootPlotUUID(newRootPlot.getUUID().toString());
+                    if(!readOnly) {
+                        writeMetadata();
+                    }
+                }
+            }
 
-                        return newRootPlot;
+            if(newRootPlot != null) {
+                synchronized(plotMonitor) {
+                    if(!plots.containsKey(newRootPlot.getUUID())) {
+                        putPlot(newRootPlot);
+                        dirtyPlotUUIDs.add(newRootPlot.getUUID().toString());
+                        rebuildPlotRelationships(newRootPlot);
                     }
-                } catch(IOException e) {
-                    logger.logError("An error occurred deserializing " + file.getName(), e);
                 }
+                evictPlots(newRootPlot);
             }
+            return newRootPlot;
         }
         return null;
     }
 
+    @Override
+    public void addPlot(PlotWindowModel newPlot) {
+        super.addPlot(newPlot);
+        synchronized(plotMonitor) {
+            if(plots.get(newPlot.getUUID()) == newPlot) {
+                plotIndex.put(newPlot.getUUID().toString(), newPlot.getName(), newPlot.getCategory());
+            }
+        }
+        evictPlots(newPlot);
+        plotChanged(newPlot);
+    }
+
+    @Override
+    public void updatePlot(PlotWindowModel plot, boolean replace) {
+        if(!replace) {
+            synchronized(plotMonitor) {
+                if(!plots.containsKey(plot.getUUID()) && plotIndex.contains(plot.getUUID().toString())) {
+                    // The caller is still holding a plot that was evicted from the plot cache.
+                    putPlot(plot);
+                }
+            }
+        }
+        super.updatePlot(plot, replace);
+        synchronized(plotMonitor) {
+            if(plots.get(plot.getUUID()) == plot) {
+                // Writers change a plot before passing it here, so this is
+                // the only place that a cached plot's weight changes.
+                weighPlot(plot);
+            }
+        }
+        evictPlots(plot);
+        unpinPlot(plot);
+        plotChanged(plot);
+    }
+
     @Override
     public void deletePlot(String plotUUID) {
         super.deletePlot(plotUUID);
+        plotIndex.remove(plotUUID);
+        plotContentHashes.remove(plotUUID);
+        persistedPlotStates.remove(plotUUID);
+        pointLog.discard(plotUUID);
 
-        String deleteFileName = "plot_" + plotUUID + ".json";
-        File deleteFile = new File(rootDir, deleteFileName);
+        if(!readOnly) {
+            deletePlotFiles(plotUUID, null);
+        }
+    }
+
+    /**
+     * Deletes every stored copy of a plot, in any format and any layout,
+     * except for the given file.
+     *
+     * @param plotUUID The UUID of the plot.
+     * @param keepFile The file to keep, or null to delete every copy.
+     */
+    protected void deletePlotFiles(String plotUUID, File keepFile) {
+        invalidateDatabaseImage();
+        if(keepFile == null) {
+            invalidatePlotIndex();
+        }
+        for(PlotFileLayout layout : PlotFileLayout.values()) {
+            for(PlotFileFormat format : PlotFileFormat.values()) {
+                File plotFile = getPlotFile(plotUUID, layout, format);
+                if(!plotFile.equals(keepFile)) {
+                    deletePlotFile(plotFile, keepFile == null && layout == plotFileLayout);
+                }
+            }
+        }
+    }
+
+    private void deletePlotFile(File deleteFile, boolean logIfMissing) {
+        String deleteFileName = deleteFile.getName();
         if(deleteFile.exists()) {
             try {
                 Files.delete(Paths.get(deleteFile.toURI()));
@@ -226,7 +525,7 @@ public class FileBasedDatabase extends AbstractDatabase {
             } catch(IOException e) {
                 logger.logError("Could not delete file " + deleteFileName, e);
             }
-        } else {
+        } else if(logIfMissing && deleteFile.getName().endsWith(plotFileFormat.getExtension())) {
             logger.logInfo(deleteFileName + " is missing or was previously deleted.");
         }
     }
@@ -250,196 +549,1856 @@ public class FileBasedDatabase extends AbstractDatabase {
 
     @Override
     public void saveState() {
+        if(readOnly) {
+            logger.logDebug("Database is read-only, so nothing was saved.", CLASSNAME);
+            return;
+        }
         synchronized(fileWriteMonitor) {
+            invalidateDatabaseImage();
             writePlots();
+            if(pointLogCompactionThreshold > POINT_LOG_DISABLED &&
+                    pointLog.getEntryCount() >= pointLogCompactionThreshold) {
+                compactPointLog();
+            }
+
+            // Manifest files are written only after every plot file is in place,
+            // so they never refer to plots that do not exist on disk.
+            writePlotIndex();
             writeParentChildPlotRelationships();
+            writeChildParentPlotRelationships();
             writeLastConfiguration();
             writeFileCache();
             writeMetadata();
+
+            if(isDatabaseImageEnabled()) {
+                writeDatabaseImage();
+            }
         }
     }
 
-    ///////////////
-    // PROTECTED //
-    ///////////////
+    @Override
+    public void recountMetadata() {
+        logger.logDebug("Recounting database metadata...", CLASSNAME);
+        Set<String> failedPlotUUIDs = new HashSet<>();
+        Set<String> countedPlotUUIDs = new HashSet<>();
+        for(String uuid : getPlotFileUUIDs()) {
+            // Prefer the in-memory copy, since it may have unsaved changes.
+            PlotWindowModel plot = super.getPlotByUUID(uuid);
+            if(plot == null) {
+                plot = readPlot(getPlotFile(uuid), false);
+            }
+            if(plot != null && !plot.isRoot()) {
+                countedPlotUUIDs.add(uuid);
+                if(plot.isFailing()) {
+                    failedPlotUUIDs.add(uuid);
+                }
+            }
+        }
 
-    public void readPlots() {
-        if(rootDir != null && rootDir.exists()) {
-            for(File file : rootDir.listFiles()) {
-                if(file.getName().startsWith("plot_")) {
-                    PlotWindowModel deszPlot = readPlot(file);
-                    if(deszPlot != null) {
-                        addPlot(deszPlot);
-                        rebuildPlotRelationships(deszPlot);
-                        setListeners(deszPlot);
-                    }
+        synchronized(plotMonitor) {
+            for(PlotWindowModel plot : plots.values()) {
+                String uuid = plot.getUUID().toString();
+                if(!plot.isRoot() && countedPlotUUIDs.add(uuid) && plot.isFailing()) {
+                    failedPlotUUIDs.add(uuid);
                 }
             }
+            setPlotCounts(countedPlotUUIDs.size(), failedPlotUUIDs);
         }
     }
 
-    public PlotWindowModel readPlot(File plotFile) {
-        try(BufferedReader bufferedReader = new BufferedReader(new FileReader(plotFile))) {
-            Gson gson =
-                new GsonBuilder()
-                    .registerTypeAdapter(PlotCanvasModel.class, new PlotCanvasModelMarshaller())
-                    .create();
-            return gson.fromJson(bufferedReader, PlotWindowModel.class); 
-        } catch(IOException e) {
-            logger.logError("An error occurred deserializing " + plotFile.getName(), e);
+    @Override
+    protected boolean containsPlot(String plotUUID) {
+        return super.containsPlot(plotUUID) || plotIndex.contains(plotUUID);
+    }
+
+    @Override
+    protected Set<String> findPlotUUIDs(Predicate<PlotKey> keyFilter) {
+        Set<String> uuids = super.findPlotUUIDs(keyFilter);
+        // Plots in memory were matched above, and may have been renamed since
+        // they were indexed, so only the index entries of other plots are used.
+        String rootPlotUUID = metadata.getRootPlotUUID();
+        for(Map.Entry<String, PlotIndexEntry> entry : plotIndex.getEntries().entrySet()) {
+            String uuid = entry.getKey();
+            PlotIndexEntry indexEntry = entry.getValue();
+            if(!uuid.equals(rootPlotUUID) && !super.containsPlot(uuid) &&
+                    keyFilter.test(new PlotKey(indexEntry.getName(), indexEntry.getCategory()))) {
+                uuids.add(uuid);
+            }
         }
-        return null;
+        return uuids;
     }
 
-    @SuppressWarnings("unchecked")
-    protected void readParentChildPlotRelationships() {
-        File file = new File(rootDir, "parentChildPlots.json");
-        if(file.exists()) {
-            GsonBuilder builder = new GsonBuilder(); 
-            Gson gson = builder.create(); 
-            try(BufferedReader bufferedReader = new BufferedReader(new FileReader(file))) {
-                parentChildPlots.clear();
-                Map<String, Set<String>> deszMap = gson.fromJson(bufferedReader, Map.class); 
-                parentChildPlots.putAll(deszMap);
-            } catch(IOException e) {
-                logger.logError("An error occurred deserializing parentChildPlots.json", e);
+    @Override
+    protected Map<PlotKey, String> getPlotKeyIndex() {
+        Map<PlotKey, String> keyIndex = super.getPlotKeyIndex();
+        // As above, plots in memory are indexed by their current names.
+        for(Map.Entry<String, PlotIndexEntry> entry : plotIndex.getEntries().entrySet()) {
+            String uuid = entry.getKey();
+            PlotIndexEntry indexEntry = entry.getValue();
+            if(!super.containsPlot(uuid)) {
+                keyIndex.putIfAbsent(new PlotKey(indexEntry.getName(), indexEntry.getCategory()), uuid);
             }
         }
+        return keyIndex;
     }
 
-    protected void readLastConfiguration() {
-        File file = new File(rootDir, FILE_LAST_CONFIG);
+    @Override
+    protected void deletePlotsFromStorage(Set<String> plotUUIDs) {
+        for(String plotUUID : plotUUIDs) {
+            plotIndex.remove(plotUUID);
+            plotContentHashes.remove(plotUUID);
+            persistedPlotStates.remove(plotUUID);
+            pointLog.discard(plotUUID);
+        }
 
-        if(file.exists()) {
-            Gson gson = null;
-            try {
-                gson = new GsonBuilder()
-                    .registerTypeAdapter(DerivativeLine.class, new DerivativeLineMarshaller())
-                    .registerTypeAdapter(ILogger.class, new LoggerMarshaller())
-                    .registerTypeAdapter(IFileReader.class, new FileReaderMarshaller())
-                    .registerTypeAdapter(GraphDisplayConfig.class, new GraphDisplayConfigMarshaller(logger))
-                    .create();
-            } catch(JsonParseException e) {
-                logger.logError("An error occurred deserializing categories.json", e);
+        if(!readOnly) {
+            forEachInParallel(new ArrayList<>(plotUUIDs), plotUUID -> deletePlotFiles(plotUUID, null), "deleting plot files");
+        }
+    }
+
+    @Override
+    protected boolean isNewPlot(PlotWindowModel plot) {
+        return super.isNewPlot(plot) && !plotIndex.contains(plot.getUUID().toString());
+    }
+
+    @Override
+    protected void plotAccessed(PlotWindowModel plot) {
+        if(plotCacheCapacity < 0) {
+            return;
+        }
+        synchronized(plotCacheMonitor) {
+            // Looking up a plot's weight marks it as the most recently used plot.
+            plotCacheWeights.get(plot.getUUID());
+        }
+    }
+
+    @Override
+    protected void putPlot(PlotWindowModel plot) {
+        super.putPlot(plot);
+        // Callers hold plotMonitor, so plots are evicted once they release it.
+        weighPlot(plot);
+    }
+
+    @Override
+    protected void removePlot(PlotWindowModel plot) {
+        super.removePlot(plot);
+        persistedPlotStates.remove(plot.getUUID().toString());
+        synchronized(plotCacheMonitor) {
+            Integer weight = plotCacheWeights.remove(plot.getUUID());
+            if(weight != null) {
+                plotCacheWeight -= weight;
             }
+        }
+    }
 
-            if(gson != null) {
-                try(BufferedReader bufferedReader = new BufferedReader(new FileReader(file))) {
-                    config = gson.fromJson(bufferedReader, WatchrConfig.class);
-                } catch(IOException e) {
-                    logger.logError("An error occurred deserializing categories.json", e);
+    @Override
+    protected void clearPlots() {
+        super.clearPlots();
+        persistedPlotStates.clear();
+        synchronized(plotCacheMonitor) {
+            plotCacheWeights.clear();
+            plotCacheWeight = 0;
+        }
+    }
+
+    /////////////
+    // GETTERS //
+    /////////////
+
+    public long getPlotCacheCapacity() {
+        return plotCacheCapacity;
+    }
+
+    public long getPlotCacheWeight() {
+        synchronized(plotCacheMonitor) {
+            return plotCacheWeight;
+        }
+    }
+
+    public int getSaveThreadCount() {
+        return saveThreadCount;
+    }
+
+    public boolean getSyncOnWrite() {
+        return syncOnWrite;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    public boolean isDatabaseImageEnabled() {
+        return metadata.isDatabaseImageEnabled();
+    }
+
+    public int getPointLogCompactionThreshold() {
+        return pointLogCompactionThreshold;
+    }
+
+    public boolean isWriteBehindRunning() {
+        synchronized(writeBehindMonitor) {
+            return writeBehindExecutor != null;
+        }
+    }
+
+    /////////////
+    // SETTERS //
+    /////////////
+
+    /**
+     * Set the maximum number of trace points to keep in memory across all
+     * cached plots.  Least-recently-used plots are evicted when the capacity
+     * is exceeded.  Dirty plots are written to disk before being evicted, and
+     * any evicted plot is re-read from disk the next time it is requested.
+     *
+     * @param plotCacheCapacity The capacity, or {@link #UNBOUNDED_PLOT_CACHE}.
+     */
+    public void setPlotCacheCapacity(long plotCacheCapacity) {
+        this.plotCacheCapacity = plotCacheCapacity;
+        evictPlots(null);
+    }
+
+    /**
+     * Set the maximum number of threads used to write plot files during
+     * {@link #saveState()}.
+     *
+     * @param saveThreadCount The number of threads (at least 1).
+     */
+    public void setSaveThreadCount(int saveThreadCount) {
+        this.saveThreadCount = Math.max(1, saveThreadCount);
+    }
+
+    /**
+     * Set whether files written by this database are forced to the storage
+     * device before being moved into place.  This makes saves durable across
+     * power loss, at the cost of slower writes.
+     *
+     * @param syncOnWrite Whether to fsync each file.
+     */
+    public void setSyncOnWrite(boolean syncOnWrite) {
+        this.syncOnWrite = syncOnWrite;
+    }
+
+    /**
+     * Set whether this database leaves its directory untouched.  A read-only
+     * database loads plots from disk as usual, but keeps every change in
+     * memory: {@link #saveState()} does nothing, deleted plots keep their
+     * files, and changed plots are never evicted from the plot cache.
+     *
+     * @param readOnly Whether to never write to disk.
+     */
+    public void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Set whether {@link #saveState()} finishes by writing a database image
+     * ({@value DatabaseImage#FILE_NAME}), a single file holding a copy of every
+     * file needed to open this database.  While the image is up to date,
+     * {@link #loadState()} reads it from start to end instead of reading each
+     * file separately, and loads every plot it holds into the plot cache (up
+     * to the cache's capacity).  Writing the image doubles the disk space the
+     * database uses.  The choice is recorded in {@value #FILE_METADATA}.
+     *
+     * @param databaseImageEnabled Whether to write a database image.
+     */
+    public void setDatabaseImageEnabled(boolean databaseImageEnabled) {
+        metadata.setDatabaseImageEnabled(databaseImageEnabled);
+    }
+
+    /**
+     * Set the number of point log entries that triggers a compaction at the
+     * end of {@link #saveState()}.  Compaction rewrites every plot with pending
+     * log entries, and then deletes the log.<br><br>
+     *
+     * The point log ships disabled, so by default {@link #saveState()} still
+     * rewrites every changed plot's file in full.  Callers that save often
+     * and mostly add points should enable it;
+     * {@link #DEFAULT_POINT_LOG_COMPACTION_THRESHOLD} is a reasonable
+     * threshold to enable it with.
+     *
+     * @param pointLogCompactionThreshold The number of entries, or
+     * {@link #POINT_LOG_DISABLED} to always rewrite changed plots in full.
+     */
+    public void setPointLogCompactionThreshold(int pointLogCompactionThreshold) {
+        this.pointLogCompactionThreshold = Math.max(POINT_LOG_DISABLED, pointLogCompactionThreshold);
+    }
+
+    /**
+     * Start writing dirty plots to disk in the background, rather than leaving
+     * every change until the next {@link #saveState()}.  A dirty plot is written
+     * once it has not changed for the idle interval.  If the dirty plots held
+     * in memory have more trace points in total than the threshold, the least
+     * recently changed plots are written straight away, until they do not.<br><br>
+     *
+     * Only plot files (and the point log) are written in the background.
+     * {@link #saveState()} must still be called to write the plot index, plot
+     * relationships and metadata.  Plots are written while holding their own
+     * monitor, so callers that change a plot while synchronized on it never
+     * have a half-finished change written.
+     *
+     * @param idleMillis How long a plot must go unchanged before it is written.
+     * @param dirtyWeightThreshold The number of unsaved trace points that
+     * triggers writing plots before they are idle, or {@link #UNBOUNDED_DIRTY_WEIGHT}.
+     */
+    public void startWriteBehind(long idleMillis, long dirtyWeightThreshold) {
+        if(readOnly) {
+            logger.logWarning("Cannot write plots in the background in a read-only database.");
+            return;
+        }
+        synchronized(writeBehindMonitor) {
+            stopWriteBehind();
+            this.writeBehindIdleMillis = Math.max(0, idleMillis);
+            this.writeBehindDirtyWeightThreshold = dirtyWeightThreshold;
+
+            // Poll often enough to notice idle plots promptly, and to keep the
+            // number of unsaved points near the threshold.
+            long pollMillis = Math.min(MAX_WRITE_BEHIND_POLL_MILLIS, Math.max(MIN_WRITE_BEHIND_POLL_MILLIS, writeBehindIdleMillis / 2));
+            writeBehindExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "watchr-write-behind-" + rootDir.getName());
+                thread.setDaemon(true);
+                return thread;
+            });
+            writeBehindExecutor.scheduleWithFixedDelay(() -> {
+                try {
+                    flushIdlePlots();
+                } catch(RuntimeException e) {
+                    logger.logError("An error occurred writing plots in the background", e);
                 }
-            }
+            }, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+            logger.logDebug("Started writing plots in the background.", CLASSNAME);
+        }
+    }
 
-            if(config != null && config.getFilterConfig() == null) {
-                config.setFilterConfig(new DataFilterConfig(WatchrConfig.START_PATH, logger));
+    /**
+     * Stop writing dirty plots in the background, waiting for any write that
+     * is in progress to finish.  Plots that are still dirty are written by the
+     * next {@link #saveState()}.  Callers must not hold a plot's monitor, since
+     * the write in progress may be waiting for it.
+     */
+    public void stopWriteBehind() {
+        synchronized(writeBehindMonitor) {
+            if(writeBehindExecutor == null) {
+                return;
+            }
+            writeBehindExecutor.shutdown();
+            try {
+                if(!writeBehindExecutor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    logger.logWarning("Timed out waiting for background plot writes to finish.");
+                }
+            } catch(InterruptedException e) {
+                logger.logError("Interrupted while waiting for background plot writes to finish", e);
+                Thread.currentThread().interrupt();
             }
+            writeBehindExecutor = null;
+            dirtyPlotChangeTimes.clear();
+            logger.logDebug("Stopped writing plots in the background.", CLASSNAME);
         }
     }
 
-    @SuppressWarnings("unchecked")
-    protected void readFileCache() {
-        File file = new File(rootDir, "fileCache.json");
-        if(file.exists()) {
-            GsonBuilder builder = new GsonBuilder(); 
-            Gson gson = builder.create(); 
-            try(BufferedReader bufferedReader = new BufferedReader(new FileReader(file))) {
-                filenameCache.clear();
-                filenameCache.addAll(gson.fromJson(bufferedReader, Set.class)); 
-            } catch(IOException e) {
-                logger.logError("An error occurred deserializing fileCache.json", e);
+    public PlotFileFormat getPlotFileFormat() {
+        return plotFileFormat;
+    }
+
+    /**
+     * Set the format that plots are written in from now on.  Plots are read in
+     * whichever format they were stored in, and a plot stored in another format
+     * is replaced the next time it is written.  The choice is recorded in
+     * {@value #FILE_METADATA}.  Use {@link #convertPlotFiles(PlotFileFormat)} to
+     * rewrite every stored plot immediately.
+     *
+     * @param plotFileFormat The format to write plots in.
+     */
+    public void setPlotFileFormat(PlotFileFormat plotFileFormat) {
+        this.plotFileFormat = plotFileFormat;
+        metadata.setPlotFileFormat(plotFileFormat.name());
+    }
+
+    /**
+     * Rewrite every plot file in this database in the given format, and make
+     * it the format used for future writes.
+     *
+     * @param targetFormat The format to convert to.
+     * @return The number of plot files that were converted.
+     */
+    public int convertPlotFiles(PlotFileFormat targetFormat) {
+        if(readOnly) {
+            logger.logWarning("Cannot convert plot files in a read-only database.");
+            return 0;
+        }
+        int convertedCount = 0;
+        synchronized(fileWriteMonitor) {
+            setPlotFileFormat(targetFormat);
+            if(rootDir != null && rootDir.exists()) {
+                for(File file : listPlotFiles()) {
+                    PlotFileFormat format = getPlotFileFormat(file);
+                    if(format != targetFormat) {
+                        // Prefer the in-memory copy, since it may have unsaved changes.
+                        String uuid = getPlotUUID(file);
+                        PlotWindowModel plot = super.getPlotByUUID(uuid);
+                        if(plot == null) {
+                            plot = readPlot(file);
+                        }
+                        if(plot != null && writePlotWindowModel(plot)) {
+                            dirtyPlotUUIDs.remove(uuid);
+                            convertedCount++;
+                        }
+                    }
+                }
             }
+            writeMetadata();
         }
+        logger.logInfo("Converted " + convertedCount + " plot files to " + targetFormat + ".");
+        return convertedCount;
     }
 
-    protected void readMetadata() {
-        File file = new File(rootDir, FILE_METADATA);
-        if(file.exists()) {
-            GsonBuilder builder = new GsonBuilder(); 
-            Gson gson = builder.create(); 
-            try(BufferedReader bufferedReader = new BufferedReader(new FileReader(file))) {
-                metadata = gson.fromJson(bufferedReader, DatabaseMetadata.class); 
-            } catch(IOException e) {
-                logger.logError("An error occurred deserializing metadata.json", e);
+    public PlotFileLayout getPlotFileLayout() {
+        return plotFileLayout;
+    }
+
+    /**
+     * Set the directory layout that plots are written in from now on.  Plots
+     * are read from whichever layout they were stored in, and a plot stored in
+     * another layout is moved the next time it is written.  The choice is
+     * recorded in {@value #FILE_METADATA}.  Use
+     * {@link #migratePlotFileLayout(PlotFileLayout)} to move every stored plot
+     * immediately.
+     *
+     * @param plotFileLayout The layout to write plots in.
+     */
+    public void setPlotFileLayout(PlotFileLayout plotFileLayout) {
+        this.plotFileLayout = plotFileLayout;
+        metadata.setPlotFileLayout(plotFileLayout.name());
+    }
+
+    /**
+     * Move every plot file in this database into the given layout, and make it
+     * the layout used for future writes.  Files are renamed rather than
+     * rewritten, one at a time, so a migration that is interrupted leaves every
+     * plot readable and can simply be run again.
+     *
+     * @param targetLayout The layout to migrate to.
+     * @return The number of plot files that were moved.
+     */
+    public int migratePlotFileLayout(PlotFileLayout targetLayout) {
+        if(readOnly) {
+            logger.logWarning("Cannot migrate plot files in a read-only database.");
+            return 0;
+        }
+        int movedCount = 0;
+        synchronized(fileWriteMonitor) {
+            invalidateDatabaseImage();
+            setPlotFileLayout(targetLayout);
+            if(rootDir != null && rootDir.exists()) {
+                for(File file : listPlotFiles()) {
+                    File destinationFile = getPlotFile(getPlotUUID(file), targetLayout, getPlotFileFormat(file));
+                    if(!destinationFile.equals(file)) {
+                        try {
+                            Files.createDirectories(destinationFile.getParentFile().toPath());
+                            moveFile(file.toPath(), destinationFile.toPath());
+                            movedCount++;
+                        } catch(IOException e) {
+                            logger.logError("Could not move " + file.getName() + " to " + targetLayout + " layout", e);
+                        }
+                    }
+                }
+                if(targetLayout == PlotFileLayout.FLAT) {
+                    deleteEmptyShardDirectories();
+                }
             }
+            writeMetadata();
         }
+        logger.logInfo("Moved " + movedCount + " plot files to the " + targetLayout + " layout.");
+        return movedCount;
     }
 
-    protected void rebuildPlotRelationships(PlotWindowModel windowModel) {
-        PlotRelationshipManager.addWindowModel(windowModel);
-        for(PlotCanvasModel canvasModel : windowModel.getCanvasModels()) {
-            if(canvasModel != null) {
-                PlotRelationshipManager.addCanvasModel(canvasModel);
+    /**
+     * Fold every pending point log entry into its plot's file, and then delete
+     * the point log.
+     *
+     * @return The number of plot files that were rewritten.
+     */
+    public int compactPointLog() {
+        if(readOnly) {
+            logger.logWarning("Cannot compact " + PointLog.FILE_NAME + " in a read-only database.");
+            return 0;
+        }
+        int compactedCount = 0;
+        synchronized(fileWriteMonitor) {
+            // Plots evicted from the plot cache may append to the log while it
+            // is being folded.  Each plot's saves are serialized, and the log is
+            // only deleted if no entries were appended after being folded.
+            for(String uuid : pointLog.getPendingPlotUUIDs()) {
+                // Prefer the in-memory copy, since it may have unsaved changes.
+                PlotWindowModel plot = super.getPlotByUUID(uuid);
+                if(plot == null) {
+                    File plotFile = getPlotFile(uuid);
+                    if(!plotFile.exists()) {
+                        pointLog.discard(uuid);
+                        continue;
+                    }
+                    plot = readPlot(plotFile);
+                }
+
+                if(plot == null || !writePlotWindowModel(plot)) {
+                    logger.logWarning("Could not fold " + PointLog.FILE_NAME + " into the file for plot " + uuid +
+                        ". The log will be compacted during a later save.");
+                    return compactedCount;
+                }
+                compactedCount++;
+            }
+
+            try {
+                if(!pointLog.clearIfFolded()) {
+                    logger.logDebug("Entries were added to " + PointLog.FILE_NAME + " while it was being compacted. " +
+                        "They will be compacted during a later save.", CLASSNAME);
+                }
+            } catch(IOException e) {
+                logger.logError("Could not delete " + PointLog.FILE_NAME, e);
             }
         }
+        logger.logDebug("Compacted " + PointLog.FILE_NAME + " into " + compactedCount + " plot files.", CLASSNAME);
+        return compactedCount;
     }
 
-    protected void writePlots() {
-        for(String dirtyPlotUUID : dirtyPlotUUIDs) {
-            PlotWindowModel plot = getPlotByUUID(dirtyPlotUUID);
-            if(plot != null) {
-                writePlotWindowModel(plot);
+    ///////////////
+    // PROTECTED //
+    ///////////////
+
+    protected static String getPlotFileName(String uuid, PlotFileFormat format) {
+        return "plot_" + uuid + format.getExtension();
+    }
+
+    /**
+     * @param uuid The UUID of a plot.
+     * @return The file the plot is stored in.  If the plot is not stored in
+     * any format, the file it would be written to is returned.
+     */
+    protected File getPlotFile(String uuid) {
+        File plotFile = getPlotFile(uuid, plotFileLayout, plotFileFormat);
+        if(!plotFile.exists()) {
+            for(PlotFileLayout layout : PlotFileLayout.values()) {
+                for(PlotFileFormat format : PlotFileFormat.values()) {
+                    File otherPlotFile = getPlotFile(uuid, layout, format);
+                    if((layout != plotFileLayout || format != plotFileFormat) && otherPlotFile.exists()) {
+                        return otherPlotFile;
+                    }
+                }
             }
         }
+        return plotFile;
+    }
+
+    protected File getPlotFile(String uuid, PlotFileLayout layout, PlotFileFormat format) {
+        return new File(layout.getDirectory(rootDir, uuid), getPlotFileName(uuid, format));
     }
 
-    protected void writePlotWindowModel(PlotWindowModel plotWindowModel) {
-        GsonBuilder builder = new GsonBuilder(); 
-        Gson gson = builder.create(); 
-        String destinationFileName = "plot_" + plotWindowModel.getUUID() + ".json";
-        File destinationFile = new File(rootDir, destinationFileName);
-        logger.logDebug("Writing " + destinationFileName + " to disk...", CLASSNAME);
+    /**
+     * @param plotFile A plot file.
+     * @return The UUID of the plot stored in the file.
+     */
+    protected static String getPlotUUID(File plotFile) {
+        return FilenameUtils.getBaseName(plotFile.getName()).split("_")[1];
+    }
 
-        try(FileWriter writer = new FileWriter(destinationFile)) {
-            writer.write(gson.toJson(plotWindowModel));   
-        } catch(IOException e) {
-            logger.logError("An error occurred serializing " + destinationFileName, e);
+    /**
+     * Lists the plot files in the database, in either layout.
+     *
+     * @return Every plot file in the database directory and its shard directories.
+     */
+    protected List<File> listPlotFiles() {
+        List<File> plotFiles = new ArrayList<>();
+        if(rootDir != null && rootDir.exists()) {
+            for(File directory : getPlotDirectories()) {
+                File[] fileList = directory.listFiles();
+                if(fileList != null) {
+                    for(File file : fileList) {
+                        if(getPlotFileFormat(file) != null) {
+                            plotFiles.add(file);
+                        }
+                    }
+                }
+            }
         }
+        return plotFiles;
     }
 
-    protected void writeParentChildPlotRelationships() {
-        GsonBuilder builder = new GsonBuilder(); 
-        Gson gson = builder.create(); 
-        String parentChildPlotsFilename = "parentChildPlots.json";
-        File parentChildPlotsFile = new File(rootDir, parentChildPlotsFilename);
-        try(FileWriter writer = new FileWriter(parentChildPlotsFile)) {
-            writer.write(gson.toJson(parentChildPlots));   
-        } catch(IOException e) {
-            logger.logError("An error occurred serializing " + parentChildPlotsFilename, e);
+    /**
+     * @return The database directory, followed by every shard directory that exists.
+     */
+    private List<File> getPlotDirectories() {
+        List<File> directories = new ArrayList<>();
+        directories.add(rootDir);
+        File[] shardDirs = PlotFileLayout.getShardParentDirectory(rootDir).listFiles(File::isDirectory);
+        if(shardDirs != null) {
+            Collections.addAll(directories, shardDirs);
         }
+        return directories;
     }
 
-    protected void writeLastConfiguration() {
-        GsonBuilder builder = new GsonBuilder(); 
-        Gson gson = builder.create(); 
-        File configFile = new File(rootDir, FILE_LAST_CONFIG);
-        try(FileWriter writer = new FileWriter(configFile)) {
-            writer.write(gson.toJson(config));   
-        } catch(IOException e) {
-            logger.logError("An error occurred serializing " + FILE_LAST_CONFIG, e);
+    private void deleteEmptyShardDirectories() {
+        File shardParentDir = PlotFileLayout.getShardParentDirectory(rootDir);
+        File[] shardDirs = shardParentDir.listFiles(File::isDirectory);
+        if(shardDirs != null) {
+            for(File shardDir : shardDirs) {
+                String[] contents = shardDir.list();
+                if(contents != null && contents.length == 0 && !shardDir.delete()) {
+                    logger.logWarning("Could not delete empty directory " + shardDir.getName());
+                }
+            }
+        }
+        String[] contents = shardParentDir.list();
+        if(contents != null && contents.length == 0 && !shardParentDir.delete()) {
+            logger.logWarning("Could not delete empty directory " + shardParentDir.getName());
         }
     }
 
-    protected void writeMetadata() {
-        GsonBuilder builder = new GsonBuilder(); 
-        Gson gson = builder.create(); 
-        File metadataFile = new File(rootDir, FILE_METADATA);
-        try(FileWriter writer = new FileWriter(metadataFile)) {
-            writer.write(gson.toJson(metadata));   
-        } catch(IOException e) {
-            logger.logError("An error occurred serializing " + FILE_METADATA, e);
+    /**
+     * @param file A file in the database directory.
+     * @return The format of the plot stored in the file, or null if the file
+     * is not a plot file.
+     */
+    protected static PlotFileFormat getPlotFileFormat(File file) {
+        String fileName = file.getName();
+        return fileName.startsWith("plot_") ? PlotFileFormat.fromFileName(fileName) : null;
+    }
+
+    protected void readPlotFileFormatFromMetadata() {
+        String formatName = metadata.getPlotFileFormat();
+        if(StringUtils.isNotBlank(formatName)) {
+            try {
+                plotFileFormat = PlotFileFormat.valueOf(formatName);
+            } catch(IllegalArgumentException e) {
+                logger.logWarning("Unknown plot file format " + formatName + " in " + FILE_METADATA);
+            }
+        } else {
+            metadata.setPlotFileFormat(plotFileFormat.name());
         }
-    }     
+    }
+
+    protected void readPlotFileLayoutFromMetadata() {
+        String layoutName = metadata.getPlotFileLayout();
+        if(StringUtils.isNotBlank(layoutName)) {
+            try {
+                plotFileLayout = PlotFileLayout.valueOf(layoutName);
+            } catch(IllegalArgumentException e) {
+                logger.logWarning("Unknown plot file layout " + layoutName + " in " + FILE_METADATA);
+            }
+        } else {
+            metadata.setPlotFileLayout(plotFileLayout.name());
+        }
+    }
+
+    public void readPlots() {
+        for(File file : listPlotFiles()) {
+            PlotWindowModel deszPlot = readPlot(file);
+            if(deszPlot != null) {
+                addPlot(deszPlot);
+                rebuildPlotRelationships(deszPlot);
+                setListeners(deszPlot);
+            }
+        }
+    }
+
+    public PlotWindowModel readPlot(File plotFile) {
+        return readPlot(plotFile, true);
+    }
+
+    /**
+     * @param plotFile The plot file to read.
+     * @param trackPersistedState Whether the plot will be cached, in which
+     * case its persisted state is recorded so that later saves can append its
+     * point changes to the point log.
+     * @return The plot, or null if it could not be read.
+     */
+    protected PlotWindowModel readPlot(File plotFile, boolean trackPersistedState) {
+        DatabaseImageCopy imageCopy = databaseImagePlotFiles.remove(plotFile.getName());
+        if(imageCopy != null) {
+            File imageFile = new File(rootDir, DatabaseImage.FILE_NAME);
+            try(InputStream in = DatabaseImage.openCopiedFile(imageFile, imageCopy.offset, imageCopy.length)) {
+                PlotWindowModel plot = readPlot(in, getPlotFileFormat(plotFile), plotFile.getName(), trackPersistedState);
+                if(plot != null) {
+                    return plot;
+                }
+            } catch(IOException e) {
+                logger.logDebug("Could not read " + plotFile.getName() + " from " + DatabaseImage.FILE_NAME +
+                    ". Reading the plot file instead...", CLASSNAME);
+            }
+        }
+
+        try(InputStream in = new FileInputStream(plotFile)) {
+            return readPlot(in, getPlotFileFormat(plotFile), plotFile.getName(), trackPersistedState);
+        } catch(IOException e) {
+            logger.logError("An error occurred deserializing " + plotFile.getName(), e);
+        }
+        return null;
+    }
+
+    /**
+     * @param in The contents of a plot file.  The stream is read to its end,
+     * but not closed.
+     * @param format The format of the plot file.
+     * @param plotFileName The name of the plot file.
+     * @param trackPersistedState See {@link #readPlot(File, boolean)}.
+     * @return The plot, or null if it could not be read.
+     */
+    protected PlotWindowModel readPlot(InputStream in, PlotFileFormat format, String plotFileName, boolean trackPersistedState) {
+        MessageDigest digest = newContentDigest();
+        try {
+            DigestInputStream digestStream = new DigestInputStream(in, digest);
+            PlotWindowModel plot;
+            if(format == PlotFileFormat.BINARY) {
+                plot = BinaryPlotFile.read(digestStream);
+            } else {
+                BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(digestStream, Charset.defaultCharset()));
+                plot = PLOT_READER_GSON.fromJson(PLOT_READER_GSON.newJsonReader(bufferedReader), PlotWindowModel.class);
+            }
+
+            if(plot != null) {
+                // Consume any trailing content so the digest covers the whole file.
+                byte[] buffer = new byte[8192];
+                while(digestStream.read(buffer) != -1) {
+                    // Keep reading.
+                }
+                String uuid = plot.getUUID().toString();
+                String contentHash = Base64.getEncoder().encodeToString(digest.digest());
+                plotContentHashes.put(uuid, contentHash);
+
+                int replayedCount = pointLog.replay(plot, contentHash);
+                if(replayedCount > 0) {
+                    logger.logDebug("Replayed " + replayedCount + " point log entries onto " + plotFileName, CLASSNAME);
+                }
+                if(trackPersistedState && pointLogCompactionThreshold > POINT_LOG_DISABLED) {
+                    persistedPlotStates.put(uuid, new PersistedPlotState(plot));
+                }
+            }
+            return plot;
+        } catch(IOException | JsonParseException e) {
+            logger.logError("An error occurred deserializing " + plotFileName, e);
+        }
+        return null;
+    }
+
+    protected void readParentChildPlotRelationships() {
+        File file = new File(rootDir, FILE_PARENT_CHILD_PLOTS);
+        if(file.exists()) {
+            try(BufferedReader bufferedReader = new BufferedReader(new FileReader(file))) {
+                readParentChildPlotRelationships(bufferedReader);
+            } catch(IOException e) {
+                logger.logError("An error occurred deserializing " + FILE_PARENT_CHILD_PLOTS, e);
+            }
+        }
+    }
+
+    protected void readParentChildPlotRelationships(Reader reader) {
+        Type relationshipsType = new TypeToken<Map<String, LinkedHashSet<String>>>(){}.getType();
+        parentChildPlots.clear();
+        Map<String, Set<String>> deszMap = GSON.fromJson(reader, relationshipsType);
+        if(deszMap != null) {
+            parentChildPlots.putAll(deszMap);
+        }
+    }
+
+    /**
+     * Reads the child-to-parent index.  The index is rebuilt from the
+     * parent-child relationships if it is missing (as it is for databases
+     * written before the index existed) or does not match them.
+     */
+    protected void readChildParentPlotRelationships() {
+        File file = new File(rootDir, FILE_CHILD_PARENT_PLOTS);
+        Map<String, String> deszMap = null;
+        if(file.exists()) {
+            try(BufferedReader bufferedReader = new BufferedReader(new FileReader(file))) {
+                deszMap = GSON.fromJson(bufferedReader, CHILD_PARENT_PLOTS_TYPE);
+            } catch(IOException | JsonParseException e) {
+                logger.logError("An error occurred deserializing " + FILE_CHILD_PARENT_PLOTS, e);
+            }
+        }
+        setChildParentPlotRelationships(deszMap);
+    }
+
+    protected void readChildParentPlotRelationships(Reader reader) {
+        setChildParentPlotRelationships(GSON.fromJson(reader, CHILD_PARENT_PLOTS_TYPE));
+    }
+
+    private void setChildParentPlotRelationships(Map<String, String> deszMap) {
+        if(deszMap != null && matchesParentChildPlots(deszMap)) {
+            synchronized(plotMonitor) {
+                childParentPlots.clear();
+                childParentPlots.putAll(deszMap);
+            }
+        } else {
+            logger.logDebug(FILE_CHILD_PARENT_PLOTS + " is missing or out of date. Rebuilding...", CLASSNAME);
+            rebuildChildParentPlots();
+        }
+    }
+
+    protected void readLastConfiguration() {
+        File file = new File(rootDir, FILE_LAST_CONFIG);
+
+        if(file.exists()) {
+            try(BufferedReader bufferedReader = new BufferedReader(new FileReader(file))) {
+                readLastConfiguration(bufferedReader);
+            } catch(IOException e) {
+                logger.logError("An error occurred deserializing categories.json", e);
+            }
+        }
+    }
+
+    protected void readLastConfiguration(Reader reader) {
+        Gson gson = null;
+        try {
+            gson = new GsonBuilder()
+                .registerTypeAdapter(DerivativeLine.class, new DerivativeLineMarshaller())
+                .registerTypeAdapter(ILogger.class, new LoggerMarshaller())
+                .registerTypeAdapter(IFileReader.class, new FileReaderMarshaller())
+                .registerTypeAdapter(GraphDisplayConfig.class, new GraphDisplayConfigMarshaller(logger))
+                .create();
+        } catch(JsonParseException e) {
+            logger.logError("An error occurred deserializing categories.json", e);
+        }
+
+        if(gson != null) {
+            config = gson.fromJson(reader, WatchrConfig.class);
+        }
+
+        if(config != null && config.getFilterConfig() == null) {
+            config.setFilterConfig(new DataFilterConfig(WatchrConfig.START_PATH, logger));
+        }
+    }
+
+    protected void readFileCache() {
+        fileCache.load(logger);
+
+        // Databases written before file fingerprints were recorded kept a
+        // plain list of file names.  Those names are carried over as legacy
+        // records, and the old file is deleted once they have been written.
+        File legacyFile = new File(rootDir, FILE_LEGACY_FILE_CACHE);
+        if(legacyFile.exists()) {
+            try(BufferedReader bufferedReader = new BufferedReader(new FileReader(legacyFile))) {
+                String[] names = GSON.fromJson(bufferedReader, String[].class);
+                if(names != null) {
+                    for(String name : names) {
+                        fileCache.addLegacyName(name);
+                    }
+                }
+            } catch(IOException | JsonParseException e) {
+                logger.logError("An error occurred deserializing " + FILE_LEGACY_FILE_CACHE, e);
+            }
+        }
+    }
+
+    protected PlotWindowModel readRootPlotUsingMetadata() {
+        String rootPlotUUID = metadata.getRootPlotUUID();
+        if(StringUtils.isNotBlank(rootPlotUUID)) {
+            File rootPlotFile = getPlotFile(rootPlotUUID);
+            if(rootPlotFile.exists()) {
+                PlotWindowModel rootPlot = readPlot(rootPlotFile);
+                if(rootPlot != null && rootPlot.isRoot()) {
+                    return rootPlot;
+                }
+            }
+            logger.logWarning("Root plot " + rootPlotUUID + " recorded in " + FILE_METADATA + " could not be read.");
+            metadata.setRootPlotUUID(null);
+        }
+        return null;
+    }
+
+    protected PlotWindowModel scanForRootPlot() {
+        for(File file : listPlotFiles()) {
+            try {
+                String fileContents = getPlotFileFormat(file) == PlotFileFormat.BINARY ?
+                    BinaryPlotFile.readHeaderJson(file) :
+                    FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+                if(fileContents.contains("\"isRoot\":true")) {
+                    return readPlot(file);
+                }
+            } catch(IOException e) {
+                logger.logError("An error occurred deserializing " + file.getName(), e);
+            }
+        }
+        return null;
+    }
+
+    protected void readMetadata() {
+        File file = new File(rootDir, FILE_METADATA);
+        if(file.exists()) {
+            try(BufferedReader bufferedReader = new BufferedReader(new FileReader(file))) {
+                readMetadata(bufferedReader);
+            } catch(IOException e) {
+                logger.logError("An error occurred deserializing metadata.json", e);
+            }
+        }
+    }
+
+    protected void readMetadata(Reader reader) {
+        DatabaseMetadata deszMetadata = GSON.fromJson(reader, DatabaseMetadata.class);
+        if(deszMetadata != null) {
+            metadata = deszMetadata;
+            readPlotFileFormatFromMetadata();
+            readPlotFileLayoutFromMetadata();
+        }
+    }
+
+    /**
+     * Reads the plot index.  The index is rebuilt from the plot files if it is
+     * missing, which it is whenever plot files were created or deleted after
+     * it was last written.
+     */
+    protected void readPlotIndex() {
+        File file = new File(rootDir, FILE_PLOT_INDEX);
+        boolean indexRead = false;
+        if(file.exists()) {
+            try(BufferedReader bufferedReader = new BufferedReader(new FileReader(file))) {
+                readPlotIndex(bufferedReader);
+                indexRead = true;
+            } catch(IOException | JsonParseException e) {
+                logger.logError("An error occurred deserializing " + FILE_PLOT_INDEX, e);
+                plotIndex.clear();
+            }
+        }
+
+        if(!indexRead) {
+            logger.logInfo("Plot index is missing or out of date. Rebuilding...");
+            rebuildPlotIndex(getPlotFileUUIDs());
+        }
+        plotIndexOnDisk = indexRead;
+        plotIndexLoaded = true;
+    }
+
+    protected void readPlotIndex(Reader reader) {
+        Type indexType = new TypeToken<Map<String, PlotIndexEntry>>(){}.getType();
+        Map<String, PlotIndexEntry> deszIndex = GSON.fromJson(reader, indexType);
+        plotIndex.clear();
+        if(deszIndex != null) {
+            plotIndex.putAll(deszIndex);
+        }
+    }
+
+    protected void rebuildPlotIndex(Set<String> plotFileUUIDs) {
+        plotIndex.clear();
+        for(String uuid : plotFileUUIDs) {
+            PlotIndexEntry entry = readPlotIndexEntry(getPlotFile(uuid));
+            if(entry != null) {
+                plotIndex.put(uuid, entry.getName(), entry.getCategory());
+            }
+        }
+    }
+
+    /**
+     * Read only the name and category fields from a serialized plot.  These fields
+     * are written before the plot's canvas models, so the remainder of the file
+     * (typically the vast majority of it) is never parsed.
+     * 
+     * @param plotFile The plot file to read.
+     * @return The name and category of the plot, or null if they could not be read.
+     */
+    protected PlotIndexEntry readPlotIndexEntry(File plotFile) {
+        try(JsonReader reader = getPlotFileFormat(plotFile) == PlotFileFormat.BINARY ?
+                new JsonReader(new StringReader(BinaryPlotFile.readHeaderJson(plotFile))) :
+                new JsonReader(new BufferedReader(new FileReader(plotFile)))) {
+            String name = null;
+            String category = null;
+            reader.beginObject();
+            while(reader.hasNext() && (name == null || category == null)) {
+                String fieldName = reader.nextName();
+                if(reader.peek() == JsonToken.STRING && fieldName.equals("name")) {
+                    name = reader.nextString();
+                } else if(reader.peek() == JsonToken.STRING && fieldName.equals("category")) {
+                    category = reader.nextString();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            if(name != null) {
+                return new PlotIndexEntry(name, category);
+            }
+        } catch(IOException | IllegalStateException e) {
+            logger.logError("An error occurred reading the plot index entry for " + plotFile.getName(), e);
+        }
+        return null;
+    }
+
+    protected Set<String> getPlotFileUUIDs() {
+        Set<String> uuids = new HashSet<>();
+        for(File file : listPlotFiles()) {
+            uuids.add(getPlotUUID(file));
+        }
+        return uuids;
+    }
+
+    /**
+     * Adds a plot that was just read from disk to the in-memory plot maps.
+     * Plots are read without holding {@code plotMonitor}, so another thread
+     * may have loaded the same plot in the meantime, in which case its copy
+     * is kept and returned instead.
+     *
+     * @param plot The plot that was read.
+     * @return The copy of the plot that is in memory.
+     */
+    protected PlotWindowModel cacheLoadedPlot(PlotWindowModel plot) {
+        synchronized(plotMonitor) {
+            PlotWindowModel existingPlot = plots.get(plot.getUUID());
+            if(existingPlot != null) {
+                return existingPlot;
+            }
+            addPlot(plot);
+        }
+        rebuildPlotRelationships(plot);
+        evictPlots(plot);
+        return plot;
+    }
+
+    protected void rebuildPlotRelationships(PlotWindowModel windowModel) {
+        windowModel.linkChildModels();
+        PlotRelationshipManager.addWindowModelHierarchy(windowModel);
+    }
+
+    protected void writePlots() {
+        List<PlotWindowModel> plotsToWrite = new ArrayList<>();
+        for(String dirtyPlotUUID : new ArrayList<>(dirtyPlotUUIDs)) {
+            // Only plots held in memory can have unsaved changes.
+            PlotWindowModel plot = super.getPlotByUUID(dirtyPlotUUID);
+
+            // Clear the dirty flag before serializing, so that changes made while
+            // the plot is being written mark it dirty again.
+            dirtyPlotUUIDs.remove(dirtyPlotUUID);
+            if(plot != null) {
+                plotsToWrite.add(plot);
+            }
+        }
+
+        forEachInParallel(plotsToWrite, this::writeDirtyPlot, "writing plots to disk");
+    }
+
+    /**
+     * Performs an action on each item, using up to {@link #getSaveThreadCount()}
+     * threads, and waits for every action to finish.
+     *
+     * @param items The items to act on.
+     * @param action The action, which must be safe to run concurrently.
+     * @param activity A description of the actions, for error messages.
+     */
+    protected <T> void forEachInParallel(List<T> items, Consumer<T> action, String activity) {
+        int threadCount = Math.min(saveThreadCount, items.size());
+        if(threadCount <= 1) {
+            for(T item : items) {
+                action.accept(item);
+            }
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for(T item : items) {
+                    futures.add(executor.submit(() -> action.accept(item)));
+                }
+                for(Future<?> future : futures) {
+                    future.get();
+                }
+            } catch(InterruptedException e) {
+                logger.logError("Interrupted while " + activity, e);
+                Thread.currentThread().interrupt();
+            } catch(ExecutionException e) {
+                logger.logError("An error occurred " + activity, e);
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Writes the dirty plots that have been idle for the write-behind interval.
+     * If the dirty plots hold more trace points than the write-behind threshold,
+     * the least recently changed plots are written as well, until they do not.
+     */
+    protected void flushIdlePlots() {
+        long now = System.currentTimeMillis();
+        dirtyPlotChangeTimes.keySet().retainAll(dirtyPlotUUIDs);
+
+        List<PlotWindowModel> dirtyPlots = new ArrayList<>();
+        Map<PlotWindowModel, Long> changeTimes = new IdentityHashMap<>();
+        long dirtyWeight = 0;
+        for(String dirtyPlotUUID : new ArrayList<>(dirtyPlotUUIDs)) {
+            // Only plots held in memory can have unsaved changes.  Look them up
+            // directly, so that background writes do not count as plot accesses.
+            PlotWindowModel plot = plots.get(UUID.fromString(dirtyPlotUUID));
+            if(plot != null) {
+                // Plots that were marked dirty by their traces, rather than by
+                // updatePlot(), are first noticed here.
+                Long previousChangeTime = dirtyPlotChangeTimes.putIfAbsent(dirtyPlotUUID, now);
+                dirtyPlots.add(plot);
+                changeTimes.put(plot, previousChangeTime == null ? now : previousChangeTime);
+                dirtyWeight += Math.max(1, plot.getPointCount());
+            }
+        }
+        dirtyPlots.sort(Comparator.comparingLong(changeTimes::get));
+
+        long dirtyWeightThreshold = writeBehindDirtyWeightThreshold;
+        for(PlotWindowModel plot : dirtyPlots) {
+            boolean idle = now - changeTimes.get(plot) >= writeBehindIdleMillis;
+            boolean overThreshold = dirtyWeightThreshold >= 0 && dirtyWeight > dirtyWeightThreshold;
+            if(!idle && !overThreshold) {
+                // Plots are in the order they last changed, so none of the rest are idle either.
+                break;
+            }
+            if(flushPlot(plot)) {
+                dirtyWeight -= Math.max(1, plot.getPointCount());
+            }
+        }
+    }
+
+    /**
+     * Writes a dirty plot on the write-behind thread.
+     *
+     * @return True if the plot was written.
+     */
+    private boolean flushPlot(PlotWindowModel plot) {
+        String uuid = plot.getUUID().toString();
+        synchronized(fileWriteMonitor) {
+            // Writers change a plot while synchronized on it, so holding its
+            // monitor means that only whole changes are written.
+            synchronized(plot) {
+                if(plots.get(plot.getUUID()) != plot || !dirtyPlotUUIDs.remove(uuid)) {
+                    // The plot was evicted, deleted or saved since it was found.
+                    return false;
+                }
+                dirtyPlotChangeTimes.remove(uuid);
+                writeDirtyPlot(plot);
+                if(dirtyPlotUUIDs.contains(uuid)) {
+                    return false;
+                }
+            }
+        }
+        logger.logDebug("Wrote idle plot " + plot.getName() + " in the background.", CLASSNAME);
+        return true;
+    }
+
+    private void writeDirtyPlot(PlotWindowModel plot) {
+        String uuid = plot.getUUID().toString();
+        if(savePlot(plot)) {
+            plotIndex.put(uuid, plot.getName(), plot.getCategory());
+        } else {
+            dirtyPlotUUIDs.add(uuid);
+        }
+    }
+
+    /**
+     * Saves a plot's changes.  If the only changes since the plot was last read
+     * or written are point additions and removals, they are appended to the
+     * point log.  Otherwise, the plot's file is rewritten.
+     *
+     * @param plot The plot to save.
+     * @return True if the plot's changes are on disk.
+     */
+    protected boolean savePlot(PlotWindowModel plot) {
+        if(readOnly) {
+            return false;
+        }
+        synchronized(getPlotSaveLock(plot)) {
+            invalidateDatabaseImage();
+            String uuid = plot.getUUID().toString();
+            PersistedPlotState persistedState = persistedPlotStates.get(uuid);
+            if(pointLogCompactionThreshold > POINT_LOG_DISABLED && persistedState != null && getPlotFile(uuid).exists()) {
+                PersistedPlotState currentState = new PersistedPlotState(plot);
+                List<PointLogEntry> changes = persistedState.getPointChanges(plot, currentState);
+                if(changes != null) {
+                    try {
+                        pointLog.append(changes, syncOnWrite);
+                        persistedPlotStates.put(uuid, currentState);
+                        if(!changes.isEmpty()) {
+                            logger.logDebug("Appended " + changes.size() + " point changes for " + plot.getName() +
+                                " to " + PointLog.FILE_NAME, CLASSNAME);
+                        }
+                        return true;
+                    } catch(IOException e) {
+                        logger.logError("An error occurred appending to " + PointLog.FILE_NAME, e);
+                    }
+                }
+            }
+            return writePlotWindowModel(plot);
+        }
+    }
+
+    /**
+     * Writes a plot to disk, unless the plot's serialized form is identical
+     * to what was last read from or written to its file.
+     *
+     * @param plotWindowModel The plot to write.
+     * @return True if the plot file is up to date.
+     */
+    protected boolean writePlotWindowModel(PlotWindowModel plotWindowModel) {
+        synchronized(getPlotSaveLock(plotWindowModel)) {
+            invalidateDatabaseImage();
+            PlotFileFormat format = plotFileFormat;
+            String uuid = plotWindowModel.getUUID().toString();
+            String destinationFileName = getPlotFileName(uuid, format);
+            File destinationFile = getPlotFile(uuid, plotFileLayout, format);
+            FileContentWriter contentWriter = format == PlotFileFormat.BINARY ?
+                out -> BinaryPlotFile.write(plotWindowModel, out) :
+                out -> writeJson(plotWindowModel, out);
+
+            try {
+                logger.logDebug("Writing " + destinationFileName + " to disk...", CLASSNAME);
+                if(!destinationFile.exists() && !getPlotFile(uuid).exists()) {
+                    invalidatePlotIndex();
+                }
+                if(plotFileLayout != PlotFileLayout.FLAT) {
+                    Files.createDirectories(destinationFile.getParentFile().toPath());
+                }
+                // The plot is hashed as it is written, so it is only serialized once.  The
+                // new file holds every point, so earlier log entries must not be replayed
+                // onto it.  The reset is logged before the file is replaced, with the new
+                // file's hash, so a crash in between cannot leave the log out of step.
+                String unchangedHash = destinationFile.exists() ? plotContentHashes.get(uuid) : null;
+                String contentHash = writeFileAtomically(destinationFile, contentWriter, unchangedHash,
+                    newHash -> pointLog.reset(uuid, newHash, syncOnWrite));
+                if(contentHash.equals(unchangedHash)) {
+                    logger.logDebug(destinationFileName + " is unchanged, skipping.", CLASSNAME);
+                } else {
+                    plotContentHashes.put(uuid, contentHash);
+                    deletePlotFiles(uuid, destinationFile);
+                }
+                pointLog.confirmReset(uuid, contentHash);
+
+                if(pointLogCompactionThreshold > POINT_LOG_DISABLED) {
+                    persistedPlotStates.put(uuid, new PersistedPlotState(plotWindowModel));
+                } else {
+                    persistedPlotStates.remove(uuid);
+                }
+                return true;
+            } catch(IOException e) {
+                plotContentHashes.remove(uuid);
+                logger.logError("An error occurred serializing " + destinationFileName, e);
+            }
+            return false;
+        }
+    }
+
+    protected void writeParentChildPlotRelationships() {
+        File parentChildPlotsFile = new File(rootDir, FILE_PARENT_CHILD_PLOTS);
+        try {
+            writeJsonAtomically(parentChildPlotsFile, parentChildPlots);
+        } catch(IOException e) {
+            logger.logError("An error occurred serializing " + FILE_PARENT_CHILD_PLOTS, e);
+        }
+    }
+
+    protected void writeChildParentPlotRelationships() {
+        File childParentPlotsFile = new File(rootDir, FILE_CHILD_PARENT_PLOTS);
+        try {
+            Map<String, String> childParentPlotsCopy;
+            synchronized(plotMonitor) {
+                childParentPlotsCopy = new HashMap<>(childParentPlots);
+            }
+            writeJsonAtomically(childParentPlotsFile, childParentPlotsCopy);
+        } catch(IOException e) {
+            logger.logError("An error occurred serializing " + FILE_CHILD_PARENT_PLOTS, e);
+        }
+    }
+
+    protected void writeLastConfiguration() {
+        File configFile = new File(rootDir, FILE_LAST_CONFIG);
+        try {
+            writeJsonAtomically(configFile, config);
+        } catch(IOException e) {
+            logger.logError("An error occurred serializing " + FILE_LAST_CONFIG, e);
+        }
+    }
+
+    protected void writeMetadata() {
+        File metadataFile = new File(rootDir, FILE_METADATA);
+        try {
+            writeJsonAtomically(metadataFile, metadata);
+        } catch(IOException e) {
+            logger.logError("An error occurred serializing " + FILE_METADATA, e);
+        }
+    }     
+
+    /**
+     * Writes the plot index.  Plots are added to the index before their files
+     * are first written, so the index is deleted again only if a plot file was
+     * created or deleted while it was being written.
+     */
+    protected void writePlotIndex() {
+        File plotIndexFile = new File(rootDir, FILE_PLOT_INDEX);
+        plotIndexOnDisk = true;
+        long invalidations = plotIndexInvalidations.get();
+        try {
+            writeJsonAtomically(plotIndexFile, plotIndex.getEntries());
+            if(plotIndexInvalidations.get() != invalidations) {
+                Files.deleteIfExists(plotIndexFile.toPath());
+            }
+        } catch(IOException e) {
+            logger.logError("An error occurred serializing " + FILE_PLOT_INDEX, e);
+        }
+    }
 
     protected void writeFileCache() {
-        GsonBuilder builder = new GsonBuilder(); 
-        Gson gson = builder.create();
-        String filenameCacheFilename = "fileCache.json";
-        File filenameCacheFile = new File(rootDir, filenameCacheFilename);
-        try(FileWriter writer = new FileWriter(filenameCacheFile)) {
-            writer.write(gson.toJson(filenameCache));   
+        try {
+            fileCache.flush(syncOnWrite);
+            Files.deleteIfExists(new File(rootDir, FILE_LEGACY_FILE_CACHE).toPath());
+        } catch(IOException e) {
+            logger.logError("An error occurred serializing " + FileFingerprintStore.FILE_NAME, e);
+        }
+    }
+
+    /**
+     * Writes a database image holding every file that {@link #loadState()}
+     * reads, apart from the point log.  The image is guarded by the files that
+     * change whenever the database is saved or the point log grows, and is
+     * deleted again if another write happened while it was being written.
+     */
+    protected void writeDatabaseImage() {
+        File imageFile = new File(rootDir, DatabaseImage.FILE_NAME);
+        List<File> guardedFiles = new ArrayList<>();
+        guardedFiles.add(new File(rootDir, FILE_METADATA));
+        guardedFiles.add(pointLog.getFile());
+        guardedFiles.add(fileCache.getFile());
+
+        // The manifests are copied first, and the plot files (which are skipped
+        // over when the image is read) last.
+        List<File> copiedFiles = new ArrayList<>();
+        copiedFiles.add(new File(rootDir, FILE_METADATA));
+        copiedFiles.add(new File(rootDir, FILE_PLOT_INDEX));
+        copiedFiles.add(new File(rootDir, FILE_PARENT_CHILD_PLOTS));
+        copiedFiles.add(new File(rootDir, FILE_CHILD_PARENT_PLOTS));
+        copiedFiles.add(new File(rootDir, FILE_LAST_CONFIG));
+        copiedFiles.add(fileCache.getFile());
+        copiedFiles.addAll(listPlotFiles());
+
+        databaseImageOnDisk = true;
+        long invalidations = databaseImageInvalidations.get();
+        try {
+            writeFileAtomically(imageFile, out -> DatabaseImage.write(out, guardedFiles, copiedFiles));
+            if(databaseImageInvalidations.get() != invalidations) {
+                Files.deleteIfExists(imageFile.toPath());
+            } else {
+                logger.logDebug("Wrote " + DatabaseImage.FILE_NAME + " with " + copiedFiles.size() + " files.", CLASSNAME);
+            }
         } catch(IOException e) {
-            logger.logError("An error occurred serializing " + filenameCacheFilename, e);
+            logger.logError("An error occurred writing " + DatabaseImage.FILE_NAME, e);
+        }
+    }
+
+    /**
+     * Reads this database's state from its database image, if it has one that
+     * is up to date.  If the image cannot be read, the state is left for the
+     * individual files to replace.
+     *
+     * @return True if the state was read from the image.
+     */
+    protected boolean readDatabaseImage() {
+        try {
+            if(DatabaseImage.read(new File(rootDir, DatabaseImage.FILE_NAME), this::readDatabaseImageFile)) {
+                plotIndexLoaded = true;
+                logger.logDebug("Read database state from " + DatabaseImage.FILE_NAME, CLASSNAME);
+                return true;
+            }
+        } catch(IOException | JsonParseException e) {
+            logger.logError("An error occurred reading " + DatabaseImage.FILE_NAME + ". Reading individual files instead...", e);
+            databaseImagePlotFiles.clear();
+            synchronized(plotMonitor) {
+                clearPlots();
+            }
+        }
+        return false;
+    }
+
+    private void readDatabaseImageFile(String fileName, long offset, long length, InputStream contents) throws IOException {
+        PlotFileFormat plotFormat = getPlotFileFormat(new File(fileName));
+        if(plotFormat != null) {
+            // Plots are only decoded when they are needed (see readPlot(File, boolean)).
+            databaseImagePlotFiles.put(fileName, new DatabaseImageCopy(offset, length));
+        } else if(fileName.equals(FileFingerprintStore.FILE_NAME)) {
+            fileCache.load(IOUtils.toByteArray(contents), logger);
+        } else {
+            Reader reader = new BufferedReader(new InputStreamReader(contents, Charset.defaultCharset()));
+            if(fileName.equals(FILE_METADATA)) {
+                readMetadata(reader);
+            } else if(fileName.equals(FILE_PLOT_INDEX)) {
+                readPlotIndex(reader);
+            } else if(fileName.equals(FILE_PARENT_CHILD_PLOTS)) {
+                readParentChildPlotRelationships(reader);
+            } else if(fileName.equals(FILE_CHILD_PARENT_PLOTS)) {
+                readChildParentPlotRelationships(reader);
+            } else if(fileName.equals(FILE_LAST_CONFIG)) {
+                readLastConfiguration(reader);
+            } else {
+                logger.logWarning("Skipping unknown file " + fileName + " in " + DatabaseImage.FILE_NAME);
+            }
+        }
+    }
+
+    /**
+     * Deletes the plot index before a plot file is created or deleted.
+     */
+    private void invalidatePlotIndex() {
+        plotIndexInvalidations.incrementAndGet();
+        if(plotIndexOnDisk && !readOnly) {
+            plotIndexOnDisk = false;
+            try {
+                Files.deleteIfExists(new File(rootDir, FILE_PLOT_INDEX).toPath());
+            } catch(IOException e) {
+                logger.logError("Could not delete " + FILE_PLOT_INDEX, e);
+            }
+        }
+    }
+
+    /**
+     * Deletes the database image before anything it copied is changed on disk.
+     */
+    private void invalidateDatabaseImage() {
+        databaseImageInvalidations.incrementAndGet();
+        if(!readOnly) {
+            // Plot files may be about to change, so their copies in the image are no longer read.
+            databaseImagePlotFiles.clear();
+        }
+        if(databaseImageOnDisk && !readOnly) {
+            databaseImageOnDisk = false;
+            try {
+                Files.deleteIfExists(new File(rootDir, DatabaseImage.FILE_NAME).toPath());
+            } catch(IOException e) {
+                logger.logError("Could not delete " + DatabaseImage.FILE_NAME, e);
+            }
+        }
+    }
+
+    /**
+     * Serializes an object to a JSON file by streaming it to a temporary file
+     * in the same directory, and then renaming the temporary file over the
+     * destination.  Readers (and a database reopened after a crash) see either
+     * the old or the new contents of the file, but never a partially written file.
+     */
+    protected void writeJsonAtomically(File destinationFile, Object src) throws IOException {
+        writeFileAtomically(destinationFile, out -> writeJson(src, out));
+    }
+
+    /**
+     * Writes a file by streaming it to a temporary file in the same directory,
+     * and then renaming the temporary file over the destination.  The file is
+     * created with the default permissions (so the umask applies), or keeps the
+     * permissions of the file it replaces.
+     */
+    protected void writeFileAtomically(File destinationFile, FileContentWriter contentWriter) throws IOException {
+        writeFileAtomically(destinationFile, contentWriter, null, null, null);
+    }
+
+    /**
+     * Writes a file atomically, as {@link #writeFileAtomically(File, FileContentWriter)}
+     * does, while computing the content hash of what is written.  If the new
+     * contents have the given hash, the temporary file is discarded and the
+     * destination is left untouched.
+     *
+     * @param unchangedHash The content hash of the destination's current
+     * contents, or null to always replace the destination.
+     * @param hashListener Called with the content hash of the new contents
+     * once they are written, before the destination is replaced.  An
+     * exception thrown by the listener leaves the destination untouched.
+     * @return The content hash of the new contents.
+     */
+    protected String writeFileAtomically(
+            File destinationFile, FileContentWriter contentWriter, String unchangedHash,
+            ContentHashListener hashListener) throws IOException {
+        return writeFileAtomically(destinationFile, contentWriter, newContentDigest(), unchangedHash, hashListener);
+    }
+
+    private String writeFileAtomically(
+            File destinationFile, FileContentWriter contentWriter, MessageDigest digest, String unchangedHash,
+            ContentHashListener hashListener) throws IOException {
+        Path destination = destinationFile.toPath();
+        // Each thread gets its own temporary file, in case two threads write the same file.
+        Path tempFile = destination.resolveSibling(
+            TEMP_FILE_PREFIX + destinationFile.getName() + "." + Thread.currentThread().getId() + TEMP_FILE_SUFFIX);
+        try {
+            String contentHash = null;
+            try(FileChannel channel = FileChannel.open(tempFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                OutputStream out = Channels.newOutputStream(channel);
+                contentWriter.write(digest == null ? out : new DigestOutputStream(out, digest));
+                if(digest != null) {
+                    contentHash = Base64.getEncoder().encodeToString(digest.digest());
+                    if(hashListener != null) {
+                        hashListener.hashed(contentHash);
+                    }
+                    if(contentHash.equals(unchangedHash)) {
+                        return contentHash;
+                    }
+                }
+                if(syncOnWrite) {
+                    channel.force(true);
+                }
+            }
+            copyPermissions(destination, tempFile);
+
+            moveFile(tempFile, destination);
+            if(syncOnWrite) {
+                syncDirectory(destination.getParent());
+            }
+            return contentHash;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Gives a file the POSIX permissions of another file, if it exists and
+     * the filesystem has POSIX permissions.
+     */
+    protected static void copyPermissions(Path source, Path destination) throws IOException {
+        if(Files.exists(source) && Files.getFileStore(source).supportsFileAttributeView(PosixFileAttributeView.class)) {
+            Files.setPosixFilePermissions(destination, Files.getPosixFilePermissions(source));
+        }
+    }
+
+    /**
+     * Forces a directory's entries to the storage device, so that files renamed
+     * into it survive power loss.  Platforms that cannot open a directory
+     * (such as Windows) are skipped, since they do not need this.
+     */
+    protected static void syncDirectory(Path directory) {
+        try(FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch(IOException e) {
+            // The platform does not support syncing directories.
+        }
+    }
+
+    /**
+     * Renames a file over a destination, atomically if the filesystem allows it.
+     */
+    protected static void moveFile(Path source, Path destination) throws IOException {
+        try {
+            Files.move(source, destination, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch(AtomicMoveNotSupportedException e) {
+            Files.move(source, destination, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Removes temporary files left behind by a save that was interrupted.
+     */
+    protected void deleteTempFiles() {
+        if(rootDir != null && rootDir.exists()) {
+            List<File> files = new ArrayList<>();
+            for(File directory : getPlotDirectories()) {
+                File[] fileList = directory.listFiles();
+                if(fileList != null) {
+                    Collections.addAll(files, fileList);
+                }
+            }
+            for(File file : files) {
+                String fileName = file.getName();
+                if(fileName.startsWith(TEMP_FILE_PREFIX) && fileName.endsWith(TEMP_FILE_SUFFIX)) {
+                    try {
+                        Files.delete(file.toPath());
+                        logger.logDebug("Deleted leftover temporary file " + fileName, CLASSNAME);
+                    } catch(IOException e) {
+                        logger.logError("Could not delete temporary file " + fileName, e);
+                    }
+                }
+            }
+        }
+    }
+
+    /////////////
+    // PRIVATE //
+    /////////////
+
+    /**
+     * Records when a plot last changed, while write-behind is running.
+     */
+    private void plotChanged(PlotWindowModel plot) {
+        if(writeBehindExecutor != null) {
+            dirtyPlotChangeTimes.put(plot.getUUID().toString(), System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Records the current weight of a cached plot, and marks it as the most
+     * recently used plot.  Callers must hold {@code plotMonitor}.
+     */
+    private void weighPlot(PlotWindowModel plot) {
+        int weight = Math.max(1, plot.getPointCount());
+        synchronized(plotCacheMonitor) {
+            Integer oldWeight = plotCacheWeights.put(plot.getUUID(), weight);
+            plotCacheWeight += weight - (oldWeight == null ? 0 : oldWeight);
+        }
+    }
+
+    /**
+     * Pins a cached plot for the current thread, first waiting for any
+     * eviction of the plot that is in progress to finish.
+     *
+     * @return False if the plot is no longer in the plot cache.
+     */
+    private boolean pinPlot(PlotWindowModel plot) {
+        if(plotCacheCapacity < 0) {
+            return true;
+        }
+        UUID uuid = plot.getUUID();
+        synchronized(plotCacheMonitor) {
+            try {
+                while(evictingPlots.contains(uuid)) {
+                    plotCacheMonitor.wait();
+                }
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if(plots.get(uuid) != plot) {
+                return false;
+            }
+            pinnedPlots.computeIfAbsent(uuid, k -> new HashSet<>()).add(Thread.currentThread());
+            return true;
         }
     }
+
+    /**
+     * Releases the current thread's pin on a plot, if it has one.
+     */
+    private void unpinPlot(PlotWindowModel plot) {
+        synchronized(plotCacheMonitor) {
+            Set<Thread> threads = pinnedPlots.get(plot.getUUID());
+            if(threads != null && threads.remove(Thread.currentThread()) && threads.isEmpty()) {
+                pinnedPlots.remove(plot.getUUID());
+            }
+        }
+    }
+
+    /**
+     * Evicts least-recently-used plots until the plot cache is within its
+     * capacity.  The root plot, the plot currently being accessed and pinned
+     * plots are never evicted.  Victims are chosen while holding the plot
+     * cache's monitor, and dirty victims are written after releasing it, so
+     * nothing waits on disk writes while holding {@code plotMonitor}.  Does
+     * nothing if the caller holds {@code plotMonitor}; such callers evict
+     * plots once they have released it.
+     */
+    private void evictPlots(PlotWindowModel inUsePlot) {
+        if(plotCacheCapacity < 0 || Thread.holdsLock(plotMonitor)) {
+            return;
+        }
+
+        List<PlotWindowModel> victims = new ArrayList<>();
+        synchronized(plotCacheMonitor) {
+            long excessWeight = plotCacheWeight - plotCacheCapacity;
+            Iterator<Map.Entry<UUID, Integer>> iter = plotCacheWeights.entrySet().iterator();
+            while(excessWeight > 0 && iter.hasNext()) {
+                Map.Entry<UUID, Integer> entry = iter.next();
+                PlotWindowModel plot = plots.get(entry.getKey());
+                if(plot == null) {
+                    plotCacheWeight -= entry.getValue();
+                    excessWeight -= entry.getValue();
+                    iter.remove();
+                } else if(plot != inUsePlot && plot != cachedRootPlot &&
+                        !pinnedPlots.containsKey(entry.getKey()) && evictingPlots.add(entry.getKey())) {
+                    // Writers cannot pin the plot until it has been evicted.
+                    victims.add(plot);
+                    excessWeight -= entry.getValue();
+                }
+            }
+        }
+
+        for(PlotWindowModel plot : victims) {
+            try {
+                evictPlot(plot);
+            } finally {
+                synchronized(plotCacheMonitor) {
+                    evictingPlots.remove(plot.getUUID());
+                    plotCacheMonitor.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a plot if it is dirty, and then removes it from the plot cache.
+     * Callers must not hold {@code plotMonitor}.
+     */
+    private void evictPlot(PlotWindowModel plot) {
+        String uuid = plot.getUUID().toString();
+        if(dirtyPlotUUIDs.remove(uuid)) {
+            logger.logDebug("Flushing dirty plot " + plot.getName() + " before evicting it from the plot cache.", CLASSNAME);
+            if(!savePlot(plot)) {
+                // Keep the plot in memory rather than lose its changes.
+                dirtyPlotUUIDs.add(uuid);
+                return;
+            }
+            plotIndex.put(uuid, plot.getName(), plot.getCategory());
+        }
+        synchronized(plotMonitor) {
+            synchronized(plotCacheMonitor) {
+                // A writer that was interrupted while waiting to pin the plot
+                // may have pinned it anyway, and writers that do not pin plots
+                // may have changed it again while it was being written.
+                if(plots.get(plot.getUUID()) == plot && !pinnedPlots.containsKey(plot.getUUID()) &&
+                        !dirtyPlotUUIDs.contains(uuid)) {
+                    removePlot(plot);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The lock that serializes saves of the given plot.
+     */
+    private Object getPlotSaveLock(PlotWindowModel plot) {
+        int hash = plot.getUUID().hashCode();
+        hash ^= (hash >>> 16);
+        return plotSaveLocks[hash & (plotSaveLocks.length - 1)];
+    }
+
+    private static Object[] newLockStripes(int count) {
+        Object[] locks = new Object[count];
+        for(int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
+    }
+
+    private boolean matchesParentChildPlots(Map<String, String> childToParent) {
+        Set<String> childUUIDs = new HashSet<>();
+        for(Set<String> children : parentChildPlots.values()) {
+            childUUIDs.addAll(children);
+        }
+        if(childUUIDs.size() != childToParent.size()) {
+            return false;
+        }
+        for(Map.Entry<String, String> entry : childToParent.entrySet()) {
+            Set<String> children = parentChildPlots.get(entry.getValue());
+            if(children == null || !children.contains(entry.getKey())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static MessageDigest newContentDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch(NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-1.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Streams an object's JSON form to an output stream.  The stream is flushed
+     * but not closed, so that callers can still sync the underlying file.
+     */
+    private static void writeJson(Object src, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, Charset.defaultCharset()));
+        try {
+            JsonWriter jsonWriter = GSON.newJsonWriter(writer);
+            if(src == null) {
+                GSON.toJson(JsonNull.INSTANCE, jsonWriter);
+            } else {
+                GSON.toJson(src, src.getClass(), jsonWriter);
+            }
+            jsonWriter.flush();
+        } catch(JsonIOException e) {
+            throw new IOException(e);
+        }
+    }
+
+    ///////////////////
+    // INNER CLASSES //
+    ///////////////////
+
+    /**
+     * Where a plot file's contents are in the database image.
+     */
+    private static class DatabaseImageCopy {
+
+        private final long offset;
+        private final long length;
+
+        private DatabaseImageCopy(long offset, long length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * The state of a plot as it exists on disk, meaning its file plus its
+     * pending point log entries.  Trace points are compared by identity, since
+     * unchanged points are the same objects that were read or written.
+     */
+    private static class PersistedPlotState {
+
+        private final String headerJson;
+        private final Map<UUID, PlotTracePoint[]> tracePoints = new HashMap<>();
+
+        private PersistedPlotState(PlotWindowModel plot) {
+            this.headerJson = BinaryPlotFile.toHeaderJson(plot);
+            for(PlotTraceModel trace : plot.getAllTraceModels()) {
+                tracePoints.put(trace.getUUID(), trace.getPoints().toArray(new PlotTracePoint[0]));
+            }
+        }
+
+        /**
+         * @return The log entries that turn this state into the current state,
+         * or null if the plot changed in a way that the point log cannot record
+         * (anything other than removing points, and appending new points).
+         */
+        private List<PointLogEntry> getPointChanges(PlotWindowModel plot, PersistedPlotState currentState) {
+            if(!headerJson.equals(currentState.headerJson) || !tracePoints.keySet().equals(currentState.tracePoints.keySet())) {
+                return null;
+            }
+
+            List<PointLogEntry> changes = new ArrayList<>();
+            for(Map.Entry<UUID, PlotTracePoint[]> entry : currentState.tracePoints.entrySet()) {
+                UUID traceUUID = entry.getKey();
+                PlotTracePoint[] oldPoints = tracePoints.get(traceUUID);
+                PlotTracePoint[] newPoints = entry.getValue();
+
+                Set<PlotTracePoint> oldPointSet = Collections.newSetFromMap(new IdentityHashMap<>());
+                Collections.addAll(oldPointSet, oldPoints);
+
+                // Surviving points must keep their order, and new points must follow them.
+                int oldIndex = 0;
+                List<PlotTracePoint> addedPoints = new ArrayList<>();
+                for(PlotTracePoint point : newPoints) {
+                    if(oldPointSet.contains(point)) {
+                        if(!addedPoints.isEmpty()) {
+                            return null;
+                        }
+                        while(oldIndex < oldPoints.length && oldPoints[oldIndex] != point) {
+                            changes.add(PointLogEntry.remove(plot.getUUID(), traceUUID, oldPoints[oldIndex]));
+                            oldIndex++;
+                        }
+                        if(oldIndex == oldPoints.length) {
+                            return null;
+                        }
+                        oldIndex++;
+                    } else {
+                        addedPoints.add(point);
+                    }
+                }
+                for(; oldIndex < oldPoints.length; oldIndex++) {
+                    changes.add(PointLogEntry.remove(plot.getUUID(), traceUUID, oldPoints[oldIndex]));
+                }
+                for(PlotTracePoint point : addedPoints) {
+                    changes.add(PointLogEntry.add(plot.getUUID(), traceUUID, point));
+                }
+            }
+            return changes;
+        }
+    }
+
+    @FunctionalInterface
+    protected interface FileContentWriter {
+        /**
+         * Writes file contents to a stream, and flushes (but does not close) it.
+         */
+        void write(OutputStream out) throws IOException;
+    }
+
+    @FunctionalInterface
+    protected interface ContentHashListener {
+        /**
+         * Receives the content hash of a file that has been written, but has
+         * not yet replaced its destination.
+         */
+        void hashed(String contentHash) throws IOException;
+    }
 }
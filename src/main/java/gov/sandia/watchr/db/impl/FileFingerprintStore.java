@@ -0,0 +1,699 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2022 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.db.impl;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import gov.sandia.watchr.config.file.IFileReader;
+import gov.sandia.watchr.log.ILogger;
+
+/**
+ * Remembers which report files a database has already processed.<br><br>
+ *
+ * Each file is identified by its path and fingerprinted by its size and last
+ * modified time, so a report that is rewritten in place is seen as a new
+ * report.  If content hashing is turned on, a hash of the file's contents is
+ * used in place of the modified time, so that a report whose timestamp changed
+ * without its contents changing (for example, after restoring an archive) is
+ * still recognized.  A file whose contents cannot be read has no fingerprint,
+ * so it is never seen and never remembered.<br><br>
+ *
+ * Only a 64-bit digest of each path and each fingerprint is held in memory,
+ * in a table that costs 16 bytes per file.  The fingerprints themselves are kept in an
+ * append-only log file with one JSON record per line; records are appended
+ * when the store is flushed, and the log is rewritten only when most of its
+ * records have been superseded.<br><br>
+ *
+ * Databases written before fingerprints existed only recorded file names.
+ * Those names are kept as legacy records that match any file with the same
+ * name, as they did before.
+ */
+public class FileFingerprintStore {
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    public static final String FILE_NAME = "fileCache.jsonl";
+
+    private static final Gson GSON = new GsonBuilder().create();
+    private static final long ANY_FINGERPRINT = 0L;
+    private static final long UNKNOWN = -1L;
+    private static final int COMPACTION_MINIMUM_RECORDS = 1000;
+
+    private File logFile;
+    private boolean hashContents = false;
+
+    private final DigestTable seenFiles = new DigestTable();
+    private final List<FileFingerprint> pendingRecords = new ArrayList<>();
+    private int recordCount = 0;
+    private int legacyCount = 0;
+    private boolean endsWithPartialLine = false;
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
+
+    /**
+     * Creates a store that is held only in memory until
+     * {@link #setFile(File)} is called.
+     */
+    public FileFingerprintStore() {
+        this.logFile = null;
+    }
+
+    /////////////
+    // GETTERS //
+    /////////////
+
+    public synchronized File getFile() {
+        return logFile;
+    }
+
+    public synchronized boolean isHashingContents() {
+        return hashContents;
+    }
+
+    /**
+     * @return The number of files currently remembered by the store.
+     */
+    public synchronized int size() {
+        return seenFiles.size();
+    }
+
+    /**
+     * @return The number of records in the log file, including records that
+     * have since been superseded.
+     */
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Checks whether a file has already been seen.  The file's fingerprint is
+     * only computed if the digest table contains its path.
+     *
+     * @param path The path to the file.
+     * @param fileReader The reader used to fingerprint the file.
+     * @return True if the file has been seen and has not changed since.
+     */
+    public synchronized boolean isSeen(String path, IFileReader fileReader) {
+        long pathDigest = pathDigest(path);
+        if(seenFiles.containsKey(pathDigest)) {
+            long fingerprint = seenFiles.get(pathDigest);
+            if(fingerprint == ANY_FINGERPRINT) {
+                return true;
+            }
+            FileFingerprint current = FileFingerprint.of(path, fileReader, hashContents);
+            if(current != null && fingerprint == current.fingerprintDigest()) {
+                return true;
+            }
+        }
+        if(legacyCount > 0) {
+            long nameDigest = nameDigest(getName(path, fileReader));
+            return seenFiles.containsKey(nameDigest);
+        }
+        return false;
+    }
+
+    /**
+     * Reads the paths (or, for legacy records, the names) of every file that
+     * is currently remembered.  Unlike the rest of the store, this loads the
+     * whole set into memory, and should not be used on hot paths.
+     */
+    public synchronized Set<String> getPaths(ILogger logger) {
+        Set<String> paths = new LinkedHashSet<>();
+        if(logFile != null && logFile.exists()) {
+            try(BufferedReader reader = Files.newBufferedReader(logFile.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while((line = reader.readLine()) != null) {
+                    FileFingerprint record = parse(line, logger);
+                    if(record != null) {
+                        collectPath(record, paths);
+                    }
+                }
+            } catch(IOException e) {
+                logger.logError("An error occurred reading " + FILE_NAME, e);
+            }
+        }
+        for(FileFingerprint record : pendingRecords) {
+            collectPath(record, paths);
+        }
+        return paths;
+    }
+
+    /////////////
+    // SETTERS //
+    /////////////
+
+    public synchronized void setFile(File logFile) {
+        this.logFile = logFile;
+    }
+
+    /**
+     * Turns content hashing on or off.  Files remembered under one setting
+     * will be seen as changed under the other, and processed once more.
+     */
+    public synchronized void setHashingContents(boolean hashContents) {
+        this.hashContents = hashContents;
+    }
+
+    /**
+     * Remembers a file.  Nothing is recorded if the file is already remembered
+     * with the same fingerprint, or if its contents could not be hashed.
+     */
+    public synchronized void add(String path, IFileReader fileReader) {
+        FileFingerprint record = FileFingerprint.of(path, fileReader, hashContents);
+        if(record == null) {
+            return;
+        }
+        long pathDigest = record.keyDigest();
+        long fingerprint = record.fingerprintDigest();
+        if(seenFiles.containsKey(pathDigest) && seenFiles.get(pathDigest) == fingerprint) {
+            return;
+        }
+        apply(record);
+        pendingRecords.add(record);
+    }
+
+    /**
+     * Remembers a file by name alone, the way databases did before
+     * fingerprints were recorded.
+     */
+    public synchronized void addLegacyName(String name) {
+        FileFingerprint record = FileFingerprint.legacy(name);
+        if(!seenFiles.containsKey(record.keyDigest())) {
+            apply(record);
+            pendingRecords.add(record);
+        }
+    }
+
+    /**
+     * Forgets a file, along with any legacy record for the file's name.
+     */
+    public synchronized void remove(String path, IFileReader fileReader) {
+        FileFingerprint record = FileFingerprint.removal(path, null);
+        if(seenFiles.containsKey(record.keyDigest())) {
+            apply(record);
+            pendingRecords.add(record);
+        }
+        if(legacyCount > 0) {
+            FileFingerprint legacyRecord = FileFingerprint.removal(null, getName(path, fileReader));
+            if(seenFiles.containsKey(legacyRecord.keyDigest())) {
+                apply(legacyRecord);
+                pendingRecords.add(legacyRecord);
+            }
+        }
+    }
+
+    /////////////
+    // STORAGE //
+    /////////////
+
+    /**
+     * Reads the log file, replacing everything held in memory.  Lines that
+     * cannot be parsed (such as a line left partially written by a crash) are
+     * skipped.
+     */
+    public synchronized void load(ILogger logger) {
+        clearMemory();
+        if(logFile == null || !logFile.exists()) {
+            return;
+        }
+
+        try(BufferedReader reader = Files.newBufferedReader(logFile.toPath(), StandardCharsets.UTF_8)) {
+            readRecords(reader, logger);
+        } catch(IOException e) {
+            logger.logError("An error occurred reading " + FILE_NAME, e);
+        }
+
+        try(RandomAccessFile raf = new RandomAccessFile(logFile, "r")) {
+            if(raf.length() > 0) {
+                raf.seek(raf.length() - 1);
+                endsWithPartialLine = raf.read() != '\n';
+            }
+        } catch(IOException e) {
+            logger.logError("An error occurred reading " + FILE_NAME, e);
+        }
+    }
+
+    /**
+     * Reads a copy of the log file's contents (such as the copy held in a
+     * {@link DatabaseImage}), replacing everything held in memory.  The copy
+     * must match the log file, since later flushes append to the file.
+     */
+    public synchronized void load(byte[] logContents, ILogger logger) {
+        clearMemory();
+        try(BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(logContents), StandardCharsets.UTF_8))) {
+            readRecords(reader, logger);
+        } catch(IOException e) {
+            logger.logError("An error occurred reading " + FILE_NAME, e);
+        }
+        endsWithPartialLine = logContents.length > 0 && logContents[logContents.length - 1] != '\n';
+    }
+
+    /**
+     * Appends every record made since the last flush to the log file, and
+     * compacts the log if most of its records have been superseded.  Does
+     * nothing if the store has no file.
+     *
+     * @param sync Whether to force the records to the storage device before
+     * returning.
+     * @throws IOException Thrown if the records could not be written.
+     */
+    public synchronized void flush(boolean sync) throws IOException {
+        if(logFile == null) {
+            return;
+        }
+        if(recordCount >= COMPACTION_MINIMUM_RECORDS &&
+                recordCount + pendingRecords.size() > 2 * seenFiles.size()) {
+            compact(sync);
+            return;
+        }
+        if(pendingRecords.isEmpty()) {
+            return;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        if(endsWithPartialLine) {
+            // Keep new records off of a line that was left partially written.
+            sb.append('\n');
+        }
+        for(FileFingerprint record : pendingRecords) {
+            sb.append(GSON.toJson(record)).append('\n');
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        try(FileChannel channel = FileChannel.open(
+                logFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while(buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if(sync) {
+                channel.force(true);
+            }
+        }
+        endsWithPartialLine = false;
+        recordCount += pendingRecords.size();
+        pendingRecords.clear();
+    }
+
+    /**
+     * Rewrites the log file so that it only contains the records of files that
+     * are currently remembered.  The new log is streamed out from the old one,
+     * so the records never need to be held in memory all at once.
+     */
+    public synchronized void compact(boolean sync) throws IOException {
+        if(logFile == null) {
+            return;
+        }
+
+        File tempFile = new File(logFile.getParentFile(), "." + FILE_NAME + ".tmp");
+        DigestTable written = new DigestTable();
+        int writtenCount = 0;
+        try(BufferedWriter writer = Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8)) {
+            if(logFile.exists()) {
+                try(BufferedReader reader = Files.newBufferedReader(logFile.toPath(), StandardCharsets.UTF_8)) {
+                    String line;
+                    while((line = reader.readLine()) != null) {
+                        FileFingerprint record = parse(line, null);
+                        if(record != null && isCurrent(record, written)) {
+                            writer.write(GSON.toJson(record));
+                            writer.write('\n');
+                            writtenCount++;
+                        }
+                    }
+                }
+            }
+            for(FileFingerprint record : pendingRecords) {
+                if(isCurrent(record, written)) {
+                    writer.write(GSON.toJson(record));
+                    writer.write('\n');
+                    writtenCount++;
+                }
+            }
+        }
+
+        if(sync) {
+            try(FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+        }
+        try {
+            Files.move(tempFile.toPath(), logFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch(AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        recordCount = writtenCount;
+        pendingRecords.clear();
+        endsWithPartialLine = false;
+    }
+
+    /**
+     * Forgets every file and deletes the log file.
+     */
+    public synchronized void clear() throws IOException {
+        clearMemory();
+        if(logFile != null) {
+            Files.deleteIfExists(logFile.toPath());
+        }
+    }
+
+    /////////////
+    // PRIVATE //
+    /////////////
+
+    private void clearMemory() {
+        seenFiles.clear();
+        pendingRecords.clear();
+        recordCount = 0;
+        legacyCount = 0;
+        endsWithPartialLine = false;
+    }
+
+    private void readRecords(BufferedReader reader, ILogger logger) throws IOException {
+        String line;
+        while((line = reader.readLine()) != null) {
+            FileFingerprint record = parse(line, logger);
+            if(record != null) {
+                apply(record);
+                recordCount++;
+            }
+        }
+    }
+
+    private void apply(FileFingerprint record) {
+        long keyDigest = record.keyDigest();
+        if(record.isRemoval()) {
+            if(seenFiles.remove(keyDigest) && record.path == null) {
+                legacyCount--;
+            }
+            return;
+        }
+
+        boolean isNewKey = !seenFiles.containsKey(keyDigest);
+        seenFiles.put(keyDigest, record.fingerprintDigest());
+        if(isNewKey && record.path == null) {
+            legacyCount++;
+        }
+    }
+
+    /**
+     * A record is current if it is the record that the digest table was built
+     * from, and an identical record has not already been written.
+     */
+    private boolean isCurrent(FileFingerprint record, DigestTable written) {
+        long keyDigest = record.keyDigest();
+        long fingerprint = record.fingerprintDigest();
+        if(record.isRemoval() || !seenFiles.containsKey(keyDigest) || seenFiles.get(keyDigest) != fingerprint) {
+            return false;
+        }
+        if(written.containsKey(keyDigest) && written.get(keyDigest) == fingerprint) {
+            return false;
+        }
+        written.put(keyDigest, fingerprint);
+        return true;
+    }
+
+    private void collectPath(FileFingerprint record, Set<String> paths) {
+        String key = record.path != null ? record.path : record.name;
+        if(record.isRemoval()) {
+            paths.remove(key);
+        } else {
+            paths.add(key);
+        }
+    }
+
+    private static FileFingerprint parse(String line, ILogger logger) {
+        if(line.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            FileFingerprint record = GSON.fromJson(line, FileFingerprint.class);
+            if(record != null && (record.path != null || record.name != null)) {
+                return record;
+            }
+        } catch(JsonParseException e) {
+            // Fall through to the warning below.
+        }
+        if(logger != null) {
+            logger.logWarning("Skipping unreadable record in " + FILE_NAME);
+        }
+        return null;
+    }
+
+    private static String getName(String path, IFileReader fileReader) {
+        return fileReader != null ? fileReader.getName(path) : new File(path).getName();
+    }
+
+    private static long pathDigest(String path) {
+        return digest("path:" + path);
+    }
+
+    private static long nameDigest(String name) {
+        return digest("name:" + name);
+    }
+
+    /**
+     * A 64-bit FNV-1a hash, finished with a mixing step so that similar paths
+     * spread evenly across the digest table.  Never returns
+     * zero, which the digest table reserves for empty slots.
+     */
+    private static long digest(String str) {
+        long hash = 0xcbf29ce484222325L;
+        for(int i = 0; i < str.length(); i++) {
+            hash ^= str.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= (hash >>> 33);
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= (hash >>> 33);
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= (hash >>> 33);
+        return hash == 0L ? 1L : hash;
+    }
+
+    ///////////////////
+    // INNER CLASSES //
+    ///////////////////
+
+    /**
+     * One record in the log file.  A record with a path fingerprints a file;
+     * a record with only a name is a legacy record.  Removal records forget
+     * whichever file or name they refer to.
+     */
+    private static class FileFingerprint {
+
+        private final String path;
+        private final String name;
+        private final Long size;
+        private final Long mtime;
+        private final String hash;
+        private final Boolean removed;
+
+        private FileFingerprint(String path, String name, Long size, Long mtime, String hash, Boolean removed) {
+            this.path = path;
+            this.name = name;
+            this.size = size;
+            this.mtime = mtime;
+            this.hash = hash;
+            this.removed = removed;
+        }
+
+        /**
+         * @return The file's fingerprint, or null if content hashing is on
+         * and the file's contents could not be read.
+         */
+        private static FileFingerprint of(String path, IFileReader fileReader, boolean hashContents) {
+            long size = fileReader != null ? fileReader.getSize(path) : UNKNOWN;
+            if(hashContents && fileReader != null && fileReader.exists(path)) {
+                String hash = hashContents(path, fileReader);
+                return hash == null ? null : new FileFingerprint(path, null, size, null, hash, null);
+            }
+            long mtime = fileReader != null ? fileReader.getLastModified(path) : UNKNOWN;
+            return new FileFingerprint(path, null, size, mtime, null, null);
+        }
+
+        private static FileFingerprint legacy(String name) {
+            return new FileFingerprint(null, name, null, null, null, null);
+        }
+
+        private static FileFingerprint removal(String path, String name) {
+            return new FileFingerprint(path, name, null, null, null, Boolean.TRUE);
+        }
+
+        private boolean isRemoval() {
+            return Boolean.TRUE.equals(removed);
+        }
+
+        private long keyDigest() {
+            return path != null ? pathDigest(path) : nameDigest(name);
+        }
+
+        private long fingerprintDigest() {
+            if(path == null) {
+                return ANY_FINGERPRINT;
+            }
+            long fingerprint = digest(size + ":" + mtime + ":" + hash);
+            return fingerprint == ANY_FINGERPRINT ? 1L : fingerprint;
+        }
+
+        /**
+         * Hashes a file's bytes as they are streamed from the file, so that
+         * large reports are never held in memory.
+         *
+         * @return The hash, or null if the file could not be read.
+         */
+        private static String hashContents(String path, IFileReader fileReader) {
+            MessageDigest messageDigest;
+            try {
+                messageDigest = MessageDigest.getInstance("SHA-1");
+            } catch(NoSuchAlgorithmException e) {
+                // Every Java platform is required to support SHA-1.
+                throw new IllegalStateException(e);
+            }
+
+            try(InputStream in = new DigestInputStream(fileReader.openInputStream(path), messageDigest)) {
+                byte[] buffer = new byte[8192];
+                while(in.read(buffer) != -1) {
+                    // Keep reading.
+                }
+            } catch(IOException e) {
+                return null;
+            }
+            return Base64.getEncoder().encodeToString(messageDigest.digest());
+        }
+    }
+
+    /**
+     * An open-addressing hash table from 64-bit key digests to 64-bit
+     * fingerprint digests, stored in two parallel arrays so that millions of
+     * entries cost 16 bytes apiece rather than several boxed objects.
+     */
+    private static class DigestTable {
+
+        private long[] keys = new long[16];
+        private long[] values = new long[16];
+        private int size = 0;
+
+        private int size() {
+            return size;
+        }
+
+        private boolean containsKey(long key) {
+            return keys[indexOf(key)] == key;
+        }
+
+        private long get(long key) {
+            int index = indexOf(key);
+            return keys[index] == key ? values[index] : ANY_FINGERPRINT;
+        }
+
+        private void put(long key, long value) {
+            int index = indexOf(key);
+            if(keys[index] != key) {
+                keys[index] = key;
+                size++;
+            }
+            values[index] = value;
+            if(size * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+        }
+
+        private boolean remove(long key) {
+            int index = indexOf(key);
+            if(keys[index] != key) {
+                return false;
+            }
+
+            // Shift later entries in the probe sequence back into the gap.
+            int mask = keys.length - 1;
+            int gap = index;
+            int next = (gap + 1) & mask;
+            while(keys[next] != 0L) {
+                int home = slot(keys[next], mask);
+                if(((next - home) & mask) >= ((next - gap) & mask)) {
+                    keys[gap] = keys[next];
+                    values[gap] = values[next];
+                    gap = next;
+                }
+                next = (next + 1) & mask;
+            }
+            keys[gap] = 0L;
+            values[gap] = 0L;
+            size--;
+            return true;
+        }
+
+        private void clear() {
+            keys = new long[16];
+            values = new long[16];
+            size = 0;
+        }
+
+        private int indexOf(long key) {
+            int mask = keys.length - 1;
+            int index = slot(key, mask);
+            while(keys[index] != 0L && keys[index] != key) {
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+
+        private static int slot(long key, int mask) {
+            return (int) (key ^ (key >>> 32)) & mask;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = new long[capacity];
+            values = new long[capacity];
+            int mask = capacity - 1;
+            for(int i = 0; i < oldKeys.length; i++) {
+                if(oldKeys[i] != 0L) {
+                    int index = slot(oldKeys[i], mask);
+                    while(keys[index] != 0L) {
+                        index = (index + 1) & mask;
+                    }
+                    keys[index] = oldKeys[i];
+                    values[index] = oldValues[i];
+                }
+            }
+        }
+    }
+}
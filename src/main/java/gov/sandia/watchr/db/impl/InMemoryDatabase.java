@@ -0,0 +1,76 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2022 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.db.impl;
+
+import gov.sandia.watchr.config.file.IFileReader;
+import gov.sandia.watchr.graph.chartreuse.model.PlotWindowModel;
+import gov.sandia.watchr.log.ILogger;
+
+/**
+ * A database that only exists on the heap.  Nothing is read from or written
+ * to disk, and everything is lost when the database is discarded, which makes
+ * it suitable for throwaway runs (for example, trying out a configuration) and
+ * for measuring ingestion without any file system overhead.
+ */
+public class InMemoryDatabase extends AbstractDatabase {
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    private static final String CLASSNAME = InMemoryDatabase.class.getSimpleName();
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
+
+    public InMemoryDatabase(ILogger logger, IFileReader fileReader) {
+        super(logger, fileReader);
+    }
+
+    //////////////
+    // OVERRIDE //
+    //////////////
+
+    @Override
+    public void loadState() {
+        logger.logDebug("In-memory database has no state to load.", CLASSNAME);
+    }
+
+    @Override
+    public void saveState() {
+        // Every plot is already in its final (and only) location.
+        dirtyPlotUUIDs.clear();
+    }
+
+    /**
+     * Every plot is held in memory, so a plot that is not in memory does not exist.
+     */
+    @Override
+    public PlotWindowModel loadPlotUsingUUID(String uuid) {
+        return null;
+    }
+
+    @Override
+    public PlotWindowModel loadPlotUsingInnerFields(String name, String category) {
+        return null;
+    }
+
+    @Override
+    public PlotWindowModel loadRootPlot() {
+        return cachedRootPlot;
+    }
+
+    /**
+     * The plots in memory are the only copy of the database, so they are never dropped.
+     */
+    @Override
+    public void clearPlotCache() {
+        logger.logDebug("In-memory database keeps its plots when the plot cache is cleared.", CLASSNAME);
+    }
+}
@@ -0,0 +1,44 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2022 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.db.impl;
+
+/**
+ * The on-disk formats that {@link FileBasedDatabase} can store plots in.
+ */
+public enum PlotFileFormat {
+
+    /** Plain JSON, readable by every version of Watchr. */
+    JSON(".json"),
+
+    /** Binary columnar format.  See {@link BinaryPlotFile}. */
+    BINARY(".wplot");
+
+    private final String extension;
+
+    private PlotFileFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @param fileName A file name.
+     * @return The format whose extension matches the file name, or null if
+     * there is no match.
+     */
+    public static PlotFileFormat fromFileName(String fileName) {
+        for(PlotFileFormat format : values()) {
+            if(fileName.endsWith(format.getExtension())) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,56 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2022 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.db.impl;
+
+import java.io.File;
+
+/**
+ * The directory layouts that {@link FileBasedDatabase} can store plot files in.
+ */
+public enum PlotFileLayout {
+
+    /** Every plot file is stored directly in the database directory. */
+    FLAT,
+
+    /**
+     * Plot files are spread across the subdirectories of
+     * {@value #SHARD_PARENT_DIRECTORY}, each named after the first
+     * {@value #SHARD_PREFIX_LENGTH} characters of its plots' UUIDs.  This
+     * keeps directory listings short for databases with very many plots.
+     */
+    SHARDED;
+
+    public static final String SHARD_PARENT_DIRECTORY = "plots";
+    public static final int SHARD_PREFIX_LENGTH = 2;
+
+    /**
+     * @param rootDir The database directory.
+     * @param uuid The UUID of a plot.
+     * @return The directory that the plot's file is stored in under this layout.
+     */
+    public File getDirectory(File rootDir, String uuid) {
+        if(this == SHARDED) {
+            return new File(getShardParentDirectory(rootDir), getShardName(uuid));
+        }
+        return rootDir;
+    }
+
+    /**
+     * @param rootDir The database directory.
+     * @return The directory that holds every shard directory.
+     */
+    public static File getShardParentDirectory(File rootDir) {
+        return new File(rootDir, SHARD_PARENT_DIRECTORY);
+    }
+
+    private static String getShardName(String uuid) {
+        String lowercaseUUID = uuid.toLowerCase();
+        return lowercaseUUID.length() > SHARD_PREFIX_LENGTH ?
+            lowercaseUUID.substring(0, SHARD_PREFIX_LENGTH) : lowercaseUUID;
+    }
+}
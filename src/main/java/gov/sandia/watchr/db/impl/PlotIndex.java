@@ -0,0 +1,151 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2022 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.db.impl;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * A lookup table that maps a plot's name and category to the plot's UUID.
+ * Categories are stored in lowercase, since plot categories are matched
+ * case-insensitively throughout Watchr.<br><br>
+ *
+ * The index is keyed by UUID for serialization purposes (see
+ * {@link #getEntries()}), while name/category lookups go through a secondary
+ * map that is kept up to date whenever entries change.
+ */
+public class PlotIndex {
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    private final Map<String, PlotIndexEntry> entries;
+    private final Map<String, Map<String, String>> nameToCategoryToUUID;
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
+
+    public PlotIndex() {
+        this.entries = new HashMap<>();
+        this.nameToCategoryToUUID = new HashMap<>();
+    }
+
+    /////////////
+    // GETTERS //
+    /////////////
+
+    /**
+     * Find the UUID of a plot using its name and category.  If the provided
+     * category is blank, the first plot found with a matching name is returned,
+     * regardless of category.
+     *
+     * @param name The name of the plot.
+     * @param category The category of the plot.
+     * @return The UUID of the matching plot, or null if the index does not
+     * contain a matching plot.
+     */
+    public synchronized String find(String name, String category) {
+        Map<String, String> categoryToUUID = nameToCategoryToUUID.get(name);
+        if(categoryToUUID != null && !categoryToUUID.isEmpty()) {
+            if(StringUtils.isBlank(category)) {
+                String uuid = categoryToUUID.get("");
+                return uuid != null ? uuid : categoryToUUID.values().iterator().next();
+            }
+            return categoryToUUID.get(category.toLowerCase());
+        }
+        return null;
+    }
+
+    public synchronized boolean contains(String uuid) {
+        return entries.containsKey(uuid);
+    }
+
+    public synchronized Set<String> getUUIDs() {
+        return new HashSet<>(entries.keySet());
+    }
+
+    public synchronized Map<String, PlotIndexEntry> getEntries() {
+        return new HashMap<>(entries);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /////////////
+    // SETTERS //
+    /////////////
+
+    public synchronized void put(String uuid, String name, String category) {
+        remove(uuid);
+        PlotIndexEntry entry = new PlotIndexEntry(name, category);
+        entries.put(uuid, entry);
+        nameToCategoryToUUID
+            .computeIfAbsent(entry.getName(), k -> new HashMap<>())
+            .put(entry.getCategory().toLowerCase(), uuid);
+    }
+
+    public synchronized void putAll(Map<String, PlotIndexEntry> newEntries) {
+        for(Map.Entry<String, PlotIndexEntry> newEntry : newEntries.entrySet()) {
+            PlotIndexEntry entry = newEntry.getValue();
+            if(entry != null) {
+                put(newEntry.getKey(), entry.getName(), entry.getCategory());
+            }
+        }
+    }
+
+    public synchronized void remove(String uuid) {
+        PlotIndexEntry entry = entries.remove(uuid);
+        if(entry != null) {
+            Map<String, String> categoryToUUID = nameToCategoryToUUID.get(entry.getName());
+            if(categoryToUUID != null) {
+                String lowercaseCategory = entry.getCategory().toLowerCase();
+                if(uuid.equals(categoryToUUID.get(lowercaseCategory))) {
+                    categoryToUUID.remove(lowercaseCategory);
+                }
+                if(categoryToUUID.isEmpty()) {
+                    nameToCategoryToUUID.remove(entry.getName());
+                }
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        nameToCategoryToUUID.clear();
+    }
+
+    /////////////////
+    // INNER CLASS //
+    /////////////////
+
+    public static class PlotIndexEntry {
+
+        private final String name;
+        private final String category;
+
+        public PlotIndexEntry(String name, String category) {
+            this.name = name == null ? "" : name;
+            this.category = category == null ? "" : category;
+        }
+
+        public String getName() {
+            return name == null ? "" : name;
+        }
+
+        public String getCategory() {
+            return category == null ? "" : category;
+        }
+    }
+}
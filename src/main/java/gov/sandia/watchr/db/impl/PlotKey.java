@@ -0,0 +1,79 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2022 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.db.impl;
+
+import java.util.Objects;
+
+import gov.sandia.watchr.graph.chartreuse.model.PlotWindowModel;
+
+/**
+ * An immutable (name, category) pair that identifies a plot within a database.
+ * Categories are compared case-insensitively, so the category is stored in
+ * lowercase.
+ */
+public final class PlotKey {
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    private final String name;
+    private final String category;
+    private final int hash;
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
+
+    public PlotKey(String name, String category) {
+        this.name = name == null ? "" : name;
+        this.category = category == null ? "" : category.toLowerCase();
+        this.hash = Objects.hash(this.name, this.category);
+    }
+
+    public static PlotKey of(PlotWindowModel plot) {
+        return new PlotKey(plot.getName(), plot.getCategory());
+    }
+
+    /////////////
+    // GETTERS //
+    /////////////
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    ////////////////
+    // OVERRIDDEN //
+    ////////////////
+
+    @Override
+    public boolean equals(Object other) {
+        if(other == this) {
+            return true;
+        } else if(!(other instanceof PlotKey)) {
+            return false;
+        }
+        PlotKey otherKey = (PlotKey) other;
+        return name.equals(otherKey.name) && category.equals(otherKey.category);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "PlotKey: [" + name + ", " + category + "]";
+    }
+}
@@ -0,0 +1,463 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2022 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.db.impl;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import gov.sandia.watchr.graph.chartreuse.model.PlotTraceModel;
+import gov.sandia.watchr.graph.chartreuse.model.PlotTracePoint;
+import gov.sandia.watchr.graph.chartreuse.model.PlotWindowModel;
+import gov.sandia.watchr.log.ILogger;
+
+/**
+ * An append-only log of point additions and removals, used by
+ * {@link FileBasedDatabase} so that saving a plot with a few new points does
+ * not require rewriting the plot's whole file.<br><br>
+ *
+ * The log is a text file with one JSON entry per line.  An entry either adds
+ * a point to a trace, removes a point from a trace, or resets a plot.  A reset
+ * entry is written just before a plot's file is replaced by a complete
+ * rewrite, and records the content hash of the new file.  If the plot's file
+ * has that hash when it is read, every earlier entry for the plot is already
+ * folded into the file.  Otherwise the rewrite never reached the disk (the
+ * process stopped between writing the reset and replacing the file), and the
+ * earlier entries are still replayed.  The entries that have not been folded
+ * into a plot's file are its pending entries, and they are replayed onto the
+ * plot whenever its file is read.<br><br>
+ *
+ * Replaying an entry is idempotent, so a plot file that already contains some
+ * of its pending entries is still read correctly.
+ */
+public class PointLog {
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    public static final String FILE_NAME = "pointLog.jsonl";
+
+    public enum Operation {
+        ADD,
+        REMOVE,
+        RESET
+    }
+
+    private static final Gson GSON = new GsonBuilder().create();
+
+    private final File logFile;
+    private final Map<String, List<PointLogEntry>> pendingEntries = new HashMap<>();
+    private int entryCount = 0;
+    private boolean endsWithPartialLine = false;
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
+
+    public PointLog(File rootDir) {
+        this.logFile = new File(rootDir, FILE_NAME);
+    }
+
+    /////////////
+    // GETTERS //
+    /////////////
+
+    public File getFile() {
+        return logFile;
+    }
+
+    /**
+     * @return The number of entries in the log file, including entries that
+     * have since been reset.
+     */
+    public synchronized int getEntryCount() {
+        return entryCount;
+    }
+
+    public synchronized boolean hasPendingEntries(String plotUUID) {
+        return pendingEntries.containsKey(plotUUID);
+    }
+
+    public synchronized List<PointLogEntry> getPendingEntries(String plotUUID) {
+        List<PointLogEntry> entries = pendingEntries.get(plotUUID);
+        return entries == null ? Collections.emptyList() : new ArrayList<>(entries);
+    }
+
+    public synchronized Set<String> getPendingPlotUUIDs() {
+        return new HashSet<>(pendingEntries.keySet());
+    }
+
+    ////////////
+    // ACTION //
+    ////////////
+
+    /**
+     * Reads the log file, replacing any entries held in memory.  Lines that
+     * cannot be parsed (such as a line left partially written by a crash) are
+     * skipped.
+     *
+     * @param logger The logger to report unreadable entries to.
+     */
+    public synchronized void load(ILogger logger) {
+        pendingEntries.clear();
+        entryCount = 0;
+        endsWithPartialLine = false;
+        if(!logFile.exists()) {
+            return;
+        }
+
+        try(BufferedReader reader = Files.newBufferedReader(logFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                if(!line.trim().isEmpty()) {
+                    try {
+                        PointLogEntry entry = GSON.fromJson(line, PointLogEntry.class);
+                        if(entry != null && entry.isValid()) {
+                            track(entry);
+                        } else {
+                            logger.logWarning("Skipping incomplete entry in " + FILE_NAME);
+                        }
+                    } catch(JsonParseException e) {
+                        logger.logWarning("Skipping unreadable entry in " + FILE_NAME);
+                    }
+                }
+            }
+        } catch(IOException e) {
+            logger.logError("An error occurred reading " + FILE_NAME, e);
+        }
+
+        try(RandomAccessFile raf = new RandomAccessFile(logFile, "r")) {
+            if(raf.length() > 0) {
+                raf.seek(raf.length() - 1);
+                endsWithPartialLine = raf.read() != '\n';
+            }
+        } catch(IOException e) {
+            logger.logError("An error occurred reading " + FILE_NAME, e);
+        }
+    }
+
+    /**
+     * Appends entries to the end of the log file.
+     *
+     * @param entries The entries to append.
+     * @param sync Whether to force the entries to the storage device before
+     * returning.
+     * @throws IOException Thrown if the entries could not be written.
+     */
+    public synchronized void append(List<PointLogEntry> entries, boolean sync) throws IOException {
+        if(entries.isEmpty()) {
+            return;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        if(endsWithPartialLine) {
+            // Keep new entries off of a line that was left partially written.
+            sb.append('\n');
+        }
+        for(PointLogEntry entry : entries) {
+            sb.append(GSON.toJson(entry)).append('\n');
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        try(FileChannel channel = FileChannel.open(
+                logFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while(buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if(sync) {
+                channel.force(true);
+            }
+        }
+        endsWithPartialLine = false;
+
+        for(PointLogEntry entry : entries) {
+            track(entry);
+        }
+    }
+
+    /**
+     * Records that every pending entry for a plot is folded into the plot file
+     * with the given content hash.  This must be called before the new file
+     * replaces the old one, and followed by {@link #confirmReset(String, String)}
+     * once it has.  Nothing is written if the plot has no pending entries.
+     *
+     * @param plotUUID The plot's UUID.
+     * @param contentHash The content hash of the plot's new file.
+     * @param sync Whether to force the entry to the storage device before
+     * returning.
+     * @throws IOException Thrown if the entry could not be written.
+     */
+    public synchronized void reset(String plotUUID, String contentHash, boolean sync) throws IOException {
+        if(pendingEntries.containsKey(plotUUID)) {
+            append(Collections.singletonList(PointLogEntry.reset(plotUUID, contentHash)), sync);
+        }
+    }
+
+    /**
+     * Forgets the entries for a plot that are folded into its file, now that
+     * the plot's file has the given content hash.
+     *
+     * @param plotUUID The plot's UUID.
+     * @param contentHash The content hash of the plot's file on disk.
+     */
+    public synchronized void confirmReset(String plotUUID, String contentHash) {
+        List<PointLogEntry> entries = pendingEntries.get(plotUUID);
+        if(entries != null) {
+            int foldedCount = getFoldedEntryCount(entries, contentHash);
+            if(foldedCount == entries.size()) {
+                pendingEntries.remove(plotUUID);
+            } else {
+                entries.subList(0, foldedCount).clear();
+            }
+        }
+    }
+
+    /**
+     * Forgets the pending entries for a plot that no longer exists.  The log
+     * file itself is left alone until the next {@link #clear()}.
+     */
+    public synchronized void discard(String plotUUID) {
+        pendingEntries.remove(plotUUID);
+    }
+
+    /**
+     * Deletes the log file.  Callers are responsible for folding every pending
+     * entry into its plot file first.
+     */
+    public synchronized void clear() throws IOException {
+        Files.deleteIfExists(logFile.toPath());
+        pendingEntries.clear();
+        entryCount = 0;
+        endsWithPartialLine = false;
+    }
+
+    /**
+     * Deletes the log file, but only if every entry in it has been folded into
+     * its plot file (that is, no plot has pending entries).  Entries appended
+     * while the log was being compacted are kept for the next compaction.
+     *
+     * @return True if the log file was deleted.
+     */
+    public synchronized boolean clearIfFolded() throws IOException {
+        if(!pendingEntries.isEmpty()) {
+            return false;
+        }
+        clear();
+        return true;
+    }
+
+    /**
+     * Applies a plot's pending entries to the plot, with the same semantics as
+     * {@link PlotTraceModel#add(PlotTracePoint)} and
+     * {@link PlotTraceModel#remove(PlotTracePoint)}.  Each changed trace's
+     * points are indexed once, so replaying is linear in the number of points
+     * and entries.
+     *
+     * @param plot The plot, as read from its file.
+     * @param contentHash The content hash of the plot's file.
+     * @return The number of entries that were applied.
+     */
+    public int replay(PlotWindowModel plot, String contentHash) {
+        String plotUUID = plot.getUUID().toString();
+        List<PointLogEntry> entries = getPendingEntries(plotUUID);
+        if(entries.isEmpty()) {
+            return 0;
+        }
+        int foldedCount = getFoldedEntryCount(entries, contentHash);
+        if(foldedCount > 0) {
+            confirmReset(plotUUID, contentHash);
+        }
+
+        Map<String, PlotTraceModel> traces = new HashMap<>();
+        for(PlotTraceModel trace : plot.getAllTraceModels()) {
+            traces.put(trace.getUUID().toString(), trace);
+        }
+
+        int appliedCount = 0;
+        Map<String, ReplayedTrace> changedTraces = new LinkedHashMap<>();
+        for(PointLogEntry entry : entries.subList(foldedCount, entries.size())) {
+            PlotTraceModel trace = entry.operation == Operation.RESET ? null : traces.get(entry.trace);
+            if(trace != null) {
+                ReplayedTrace replayedTrace =
+                    changedTraces.computeIfAbsent(entry.trace, k -> new ReplayedTrace(trace.getPoints()));
+                if(entry.operation == Operation.ADD) {
+                    replayedTrace.add(entry.point);
+                } else {
+                    replayedTrace.remove(entry.point);
+                }
+                appliedCount++;
+            }
+        }
+        for(Map.Entry<String, ReplayedTrace> changedTrace : changedTraces.entrySet()) {
+            PlotTraceModel trace = traces.get(changedTrace.getKey());
+            List<PlotTracePoint> points = changedTrace.getValue().getPoints();
+            trace.clear();
+            trace.restorePoints(points);
+        }
+        return appliedCount;
+    }
+
+    /////////////
+    // PRIVATE //
+    /////////////
+
+    private void track(PointLogEntry entry) {
+        entryCount++;
+        if(entry.operation == Operation.RESET && entry.hash == null) {
+            // Written without a content hash, so the plot's file is assumed to hold every earlier entry.
+            pendingEntries.remove(entry.plot);
+        } else {
+            pendingEntries.computeIfAbsent(entry.plot, k -> new ArrayList<>()).add(entry);
+        }
+    }
+
+    /**
+     * @return The number of entries, from the start of the list, that are
+     * folded into the plot file with the given content hash.
+     */
+    private static int getFoldedEntryCount(List<PointLogEntry> entries, String contentHash) {
+        for(int i = entries.size() - 1; i >= 0; i--) {
+            PointLogEntry entry = entries.get(i);
+            if(entry.operation == Operation.RESET && entry.hash.equals(contentHash)) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /////////////////
+    // INNER CLASS //
+    /////////////////
+
+    public static class PointLogEntry {
+
+        private final Operation operation;
+        private final String plot;
+        private final String trace;
+        private final PlotTracePoint point;
+        private final String hash;
+
+        private PointLogEntry(Operation operation, String plot, String trace, PlotTracePoint point, String hash) {
+            this.operation = operation;
+            this.plot = plot;
+            this.trace = trace;
+            this.point = point;
+            this.hash = hash;
+        }
+
+        public static PointLogEntry add(UUID plotUUID, UUID traceUUID, PlotTracePoint point) {
+            return new PointLogEntry(Operation.ADD, plotUUID.toString(), traceUUID.toString(), point, null);
+        }
+
+        public static PointLogEntry remove(UUID plotUUID, UUID traceUUID, PlotTracePoint point) {
+            return new PointLogEntry(Operation.REMOVE, plotUUID.toString(), traceUUID.toString(), point, null);
+        }
+
+        public static PointLogEntry reset(String plotUUID, String contentHash) {
+            return new PointLogEntry(Operation.RESET, plotUUID, null, null, contentHash);
+        }
+
+        public Operation getOperation() {
+            return operation;
+        }
+
+        public String getPlotUUID() {
+            return plot;
+        }
+
+        public String getTraceUUID() {
+            return trace;
+        }
+
+        public PlotTracePoint getPoint() {
+            return point;
+        }
+
+        public String getContentHash() {
+            return hash;
+        }
+
+        private boolean isValid() {
+            return operation != null && plot != null &&
+                (operation == Operation.RESET || (trace != null && point != null));
+        }
+    }
+
+    /**
+     * A trace's points while entries are being replayed into them.  Points
+     * are indexed by the coordinates that {@link PlotTracePoint#equals(Object)}
+     * compares, so that adding and removing behave exactly as they do on a
+     * {@link PlotTraceModel}: an add is ignored if an equal point is already
+     * present, and a remove takes out the first equal point.  Removed points
+     * are left as gaps until the points are collected.
+     */
+    private static class ReplayedTrace {
+
+        private final List<PlotTracePoint> points;
+        private final Map<List<String>, Deque<Integer>> positions = new HashMap<>();
+
+        private ReplayedTrace(List<PlotTracePoint> originalPoints) {
+            this.points = new ArrayList<>(originalPoints);
+            for(int i = 0; i < points.size(); i++) {
+                positions.computeIfAbsent(getKey(points.get(i)), k -> new ArrayDeque<>()).add(i);
+            }
+        }
+
+        private void add(PlotTracePoint point) {
+            Deque<Integer> pointPositions = positions.computeIfAbsent(getKey(point), k -> new ArrayDeque<>());
+            if(pointPositions.isEmpty()) {
+                pointPositions.add(points.size());
+                points.add(point);
+            }
+        }
+
+        private void remove(PlotTracePoint point) {
+            Deque<Integer> pointPositions = positions.get(getKey(point));
+            if(pointPositions != null && !pointPositions.isEmpty()) {
+                points.set(pointPositions.poll(), null);
+            }
+        }
+
+        private List<PlotTracePoint> getPoints() {
+            List<PlotTracePoint> remainingPoints = new ArrayList<>(points.size());
+            for(PlotTracePoint point : points) {
+                if(point != null) {
+                    remainingPoints.add(point);
+                }
+            }
+            return remainingPoints;
+        }
+
+        private static List<String> getKey(PlotTracePoint point) {
+            return Arrays.asList(point.x, point.y, point.z);
+        }
+    }
+}
@@ -77,6 +77,9 @@ public class PlotCanvasModel {
 	////////////////////
 	
 	private UUID parentWindowModelUUID;
+	// Set when this canvas is added to its parent, so that most lookups of the
+	// parent need not go through PlotRelationshipManager.  Never serialized.
+	private transient PlotWindowModel parentWindowModel;
 	
 	////////////////////
 	// CHILD ELEMENTS //
@@ -208,6 +211,10 @@ public class PlotCanvasModel {
 	/////////////
 	
 	public PlotWindowModel getParent() {
+		PlotWindowModel parent = parentWindowModel;
+		if(parent != null && parent.getUUID().equals(parentWindowModelUUID)) {
+			return parent;
+		}
 		return PlotRelationshipManager.getWindowModel(parentWindowModelUUID);
 	}
 
@@ -479,6 +486,11 @@ public class PlotCanvasModel {
 		this.parentWindowModelUUID = parentWindowModelUUID;
 	} 
 
+	protected void setParent(PlotWindowModel parentWindowModel) {
+		this.parentWindowModelUUID = parentWindowModel.getUUID();
+		this.parentWindowModel = parentWindowModel;
+	}
+
 	public PlotCanvasModel setName(String name) {
 		this.name = name;
 		return this;
@@ -623,7 +635,7 @@ public class PlotCanvasModel {
 	
 	public void addTraceModel(PlotTraceModel traceModel) {
 		this.traceModels.add(traceModel);
-		traceModel.setParent(uuid);
+		traceModel.setParent(this);
 	}
 	
 	public boolean removeTraceModel(PlotTraceModel traceModel) {
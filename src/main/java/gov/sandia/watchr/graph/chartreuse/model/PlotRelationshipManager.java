@@ -7,63 +7,182 @@
 ******************************************************************************/
 package gov.sandia.watchr.graph.chartreuse.model;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Resolves window and canvas models by UUID, for models that have not yet been
+ * linked directly to their parents (for example, while a model is being
+ * constructed from its parent's UUID, or after it has been deserialized).<br><br>
+ *
+ * Models are indexed by UUID and held weakly, so registering a model never
+ * keeps it in memory.  When several models share a UUID, the first one
+ * registered is returned until it is removed or garbage collected, unless a
+ * database registers its own copy of the plot with
+ * {@link #addWindowModelHierarchy(PlotWindowModel)}.
+ */
 public class PlotRelationshipManager {
-    
-    private static final List<PlotWindowModel> windowModels;
-    private static final List<PlotCanvasModel> canvasModels;
 
-    static {
-        windowModels = new ArrayList<>();
-        canvasModels = new ArrayList<>();
-    }
+    ////////////
+    // FIELDS //
+    ////////////
+
+    private static final Map<UUID, ModelReference<PlotWindowModel>> windowModels = new ConcurrentHashMap<>();
+    private static final Map<UUID, ModelReference<PlotCanvasModel>> canvasModels = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<Object> collectedModels = new ReferenceQueue<>();
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
 
     private PlotRelationshipManager() {}
 
+    /////////////
+    // GETTERS //
+    /////////////
+
     public static PlotWindowModel getWindowModel(UUID windowModelUUID) {
-        synchronized(windowModels) {
-            for(int i = 0; i < windowModels.size(); i++) {
-                PlotWindowModel windowModel = windowModels.get(i);
-                if(windowModel != null && windowModel.getUUID().equals(windowModelUUID)) {
-                    return windowModel;
-                }
+        return get(windowModels, windowModelUUID);
+    }
+
+    public static PlotCanvasModel getCanvasModel(UUID canvasModelUUID) {
+        return get(canvasModels, canvasModelUUID);
+    }
+
+    /**
+     * @return The number of window and canvas models that can currently be resolved.
+     */
+    public static int size() {
+        purgeCollectedModels();
+        return windowModels.size() + canvasModels.size();
+    }
+
+    /////////////
+    // SETTERS //
+    /////////////
+
+    public static void addWindowModel(PlotWindowModel windowModel) {
+        register(windowModels, windowModel.getUUID(), windowModel, false);
+    }
+
+    public static void addCanvasModel(PlotCanvasModel canvasModel) {
+        register(canvasModels, canvasModel.getUUID(), canvasModel, false);
+    }
+
+    /**
+     * Resolves a window model and all of its canvas models (including overlaid
+     * canvases) to these instances, replacing any other models registered
+     * with the same UUIDs.  Databases call this for the plots they hold.
+     *
+     * @param windowModel The window model to add.
+     */
+    public static void addWindowModelHierarchy(PlotWindowModel windowModel) {
+        register(windowModels, windowModel.getUUID(), windowModel, true);
+        for(PlotCanvasModel canvasModel : windowModel.getCanvasModels()) {
+            if(canvasModel != null) {
+                addCanvasModelHierarchy(canvasModel);
             }
         }
-        return null;
     }
 
-    public static void addWindowModel(PlotWindowModel windowModel) {
-        windowModels.add(windowModel);
-    }     
+    /**
+     * Stops resolving a window model and its canvas models (including overlaid
+     * canvases).  Entries that belong to other models with the same UUIDs are
+     * left alone.
+     *
+     * @param windowModel The window model to remove.
+     */
+    public static void removeWindowModelHierarchy(PlotWindowModel windowModel) {
+        unregister(windowModels, windowModel.getUUID(), windowModel);
+        for(PlotCanvasModel canvasModel : windowModel.getCanvasModels()) {
+            if(canvasModel != null) {
+                removeCanvasModelHierarchy(canvasModel);
+            }
+        }
+    }
 
-    public static PlotCanvasModel getCanvasModel(UUID canvasModelUUID) {
-        synchronized(canvasModels) {
-            for(int i = 0; i < canvasModels.size(); i++) {
-                PlotCanvasModel canvasModel = canvasModels.get(i);
-                if(canvasModel != null && canvasModel.getUUID().equals(canvasModelUUID)) {
-                    return canvasModel;
-                }
+    /////////////
+    // PRIVATE //
+    /////////////
+
+    private static <T> T get(Map<UUID, ModelReference<T>> index, UUID uuid) {
+        if(uuid != null) {
+            ModelReference<T> reference = index.get(uuid);
+            if(reference != null) {
+                return reference.get();
             }
         }
         return null;
     }
 
-    public static void addCanvasModel(PlotCanvasModel canvasModel) {
-        synchronized(canvasModels) {
-            boolean foundExistingCanvas = false;
-            for(int i = 0; i < canvasModels.size(); i++) {
-                PlotCanvasModel foundCanvasModel = canvasModels.get(i);
-                if(foundCanvasModel != null && foundCanvasModel.getUUID().equals(canvasModel.getUUID())) {
-                    foundExistingCanvas = true;
-                }
+    private static void addCanvasModelHierarchy(PlotCanvasModel canvasModel) {
+        register(canvasModels, canvasModel.getUUID(), canvasModel, true);
+        for(PlotCanvasModel overlaidCanvasModel : canvasModel.getOverlaidCanvasModels()) {
+            if(overlaidCanvasModel != null) {
+                addCanvasModelHierarchy(overlaidCanvasModel);
             }
+        }
+    }
 
-            if(!foundExistingCanvas) {
-                canvasModels.add(canvasModel);
+    private static void removeCanvasModelHierarchy(PlotCanvasModel canvasModel) {
+        unregister(canvasModels, canvasModel.getUUID(), canvasModel);
+        for(PlotCanvasModel overlaidCanvasModel : canvasModel.getOverlaidCanvasModels()) {
+            if(overlaidCanvasModel != null) {
+                removeCanvasModelHierarchy(overlaidCanvasModel);
             }
         }
     }
+
+    private static <T> void register(Map<UUID, ModelReference<T>> index, UUID uuid, T model, boolean replace) {
+        purgeCollectedModels();
+        if(uuid != null) {
+            index.compute(uuid, (key, existing) -> {
+                T registeredModel = existing == null ? null : existing.get();
+                if(registeredModel == model || (registeredModel != null && !replace)) {
+                    return existing;
+                }
+                return new ModelReference<>(model, key, index);
+            });
+        }
+    }
+
+    private static <T> void unregister(Map<UUID, ModelReference<T>> index, UUID uuid, T model) {
+        if(uuid != null) {
+            index.computeIfPresent(uuid, (key, existing) -> {
+                T registeredModel = existing.get();
+                return registeredModel == null || registeredModel == model ? null : existing;
+            });
+        }
+    }
+
+    private static void purgeCollectedModels() {
+        Reference<?> reference;
+        while((reference = collectedModels.poll()) != null) {
+            ((ModelReference<?>) reference).removeFromIndex();
+        }
+    }
+
+    /**
+     * A weak reference that removes itself from its index once its model has
+     * been garbage collected.
+     */
+    private static class ModelReference<T> extends WeakReference<T> {
+
+        private final UUID uuid;
+        private final Map<UUID, ModelReference<T>> index;
+
+        private ModelReference(T model, UUID uuid, Map<UUID, ModelReference<T>> index) {
+            super(model, collectedModels);
+            this.uuid = uuid;
+            this.index = index;
+        }
+
+        private void removeFromIndex() {
+            index.remove(uuid, this);
+        }
+    }
 }
@@ -78,6 +78,9 @@ public class PlotTraceModel implements RuleApplyable, IFilterable {
 	////////////
 	
 	private UUID parentCanvasModelUUID;
+	// Set when this trace is added to its parent, so that most lookups of the
+	// parent need not go through PlotRelationshipManager.  Never serialized.
+	private transient PlotCanvasModel parentCanvasModel;
 
 	////////////////////////////
 	// WATCHR-SPECIFIC FIELDS //
@@ -168,6 +171,10 @@ public class PlotTraceModel implements RuleApplyable, IFilterable {
 	/////////////
 	
 	public PlotCanvasModel getParent() {
+		PlotCanvasModel parent = parentCanvasModel;
+		if(parent != null && parent.getUUID().equals(parentCanvasModelUUID)) {
+			return parent;
+		}
 		return PlotRelationshipManager.getCanvasModel(parentCanvasModelUUID);
 	}
 
@@ -231,6 +238,10 @@ public class PlotTraceModel implements RuleApplyable, IFilterable {
 	// GETTERS (COMPUTED) //
 	////////////////////////
 
+	public int getPointCount() {
+		return points == null ? 0 : points.size();
+	}
+
 	@SuppressWarnings("unchecked")
 	public List<PlotTracePoint> getPoints(PlotTraceOptions options) {
 		List<PlotTracePoint> returnPoints = new ArrayList<>(points);
@@ -413,6 +424,11 @@ public class PlotTraceModel implements RuleApplyable, IFilterable {
 		this.parentCanvasModelUUID = parentCanvasModelUUID;
 	}
 
+	protected void setParent(PlotCanvasModel parentCanvasModel) {
+		this.parentCanvasModelUUID = parentCanvasModel.getUUID();
+		this.parentCanvasModel = parentCanvasModel;
+	}
+
 	public PlotTraceModel setName(String name) {
 		this.name = name;
 		return this;
@@ -511,6 +527,16 @@ public class PlotTraceModel implements RuleApplyable, IFilterable {
 		}
 	}
 
+	/**
+	 * Adds points without checking for duplicates.  This is intended for
+	 * restoring points that were previously stored by this trace.
+	 * 
+	 * @param restoredPoints The points to append to this trace.
+	 */
+	public void restorePoints(Collection<PlotTracePoint> restoredPoints) {
+		this.points.addAll(restoredPoints);
+	}
+
 	public void remove(PlotTracePoint point) {
 		if(this.points.contains(point)) {
 			this.points.remove(point);
@@ -218,6 +218,30 @@ public class PlotWindowModel {
 	// GETTERS (COMPUTED) //
 	////////////////////////
 	
+	/**
+	 * @return Every trace held by this plot, including the traces on overlaid
+	 * canvases.
+	 */
+	public List<PlotTraceModel> getAllTraceModels() {
+		List<PlotTraceModel> traceModels = new ArrayList<>();
+		for(PlotCanvasModel canvasModel : getCanvasModels()) {
+			addAllTraceModels(canvasModel, traceModels);
+		}
+		return traceModels;
+	}
+
+	/**
+	 * @return The total number of trace points held by this plot, including
+	 * the points on overlaid canvases.
+	 */
+	public int getPointCount() {
+		int pointCount = 0;
+		for(PlotTraceModel traceModel : getAllTraceModels()) {
+			pointCount += traceModel.getPointCount();
+		}
+		return pointCount;
+	}
+
 	public int getRowCount() {
 		return getChildCanvasesAsTable().size();
 	}
@@ -306,8 +330,23 @@ public class PlotWindowModel {
 	
 	public void addCanvasModel(PlotCanvasModel canvasModel) {
 		this.canvasModels.add(canvasModel);
-		canvasModel.setParent(uuid);
+		canvasModel.setParent(this);
+	}
+
+	/**
+	 * Links every canvas and trace in this plot directly to its parent.  Plots
+	 * that were deserialized should call this once, since deserialization
+	 * only restores the parents' UUIDs.
+	 */
+	public void linkChildModels() {
+		for(PlotCanvasModel canvasModel : getCanvasModels()) {
+			if(canvasModel != null) {
+				canvasModel.setParent(this);
+				linkChildModels(canvasModel);
+			}
+		}
 	}
+
 	
 	public boolean removeCanvasModel(PlotCanvasModel canvasModel) {
 		return canvasModels.remove(canvasModel);
@@ -390,6 +429,23 @@ public class PlotWindowModel {
 		return empty;
 	}
 	
+	private static void addAllTraceModels(PlotCanvasModel canvasModel, List<PlotTraceModel> traceModels) {
+		traceModels.addAll(canvasModel.getTraceModels());
+		for(PlotCanvasModel overlaidCanvasModel : canvasModel.getOverlaidCanvasModels()) {
+			addAllTraceModels(overlaidCanvasModel, traceModels);
+		}
+	}
+
+	private void linkChildModels(PlotCanvasModel canvasModel) {
+		for(PlotTraceModel traceModel : canvasModel.getTraceModels()) {
+			traceModel.setParent(canvasModel);
+		}
+		for(PlotCanvasModel overlaidCanvasModel : canvasModel.getOverlaidCanvasModels()) {
+			overlaidCanvasModel.setParent(this);
+			linkChildModels(overlaidCanvasModel);
+		}
+	}
+
 	////////////////
 	// HEURISTICS //
 	////////////////
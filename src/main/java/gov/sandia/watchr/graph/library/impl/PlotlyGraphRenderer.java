@@ -24,6 +24,7 @@ import gov.sandia.watchr.config.GraphDisplayConfig;
 import gov.sandia.watchr.config.GraphDisplayConfig.ExportMode;
 import gov.sandia.watchr.config.GraphDisplayConfig.LeafNodeStrategy;
 import gov.sandia.watchr.config.file.IFileReader;
+import gov.sandia.watchr.db.IDatabaseSnapshot;
 import gov.sandia.watchr.db.PlotDatabaseSearchCriteria;
 import gov.sandia.watchr.graph.HtmlUtil;
 import gov.sandia.watchr.graph.chartreuse.PlotType;
@@ -103,24 +104,32 @@ public class PlotlyGraphRenderer implements IHtmlGraphRenderer {
         String category = copyConfiguration.getDisplayCategory();
         String searchQuery = copyConfiguration.getSearchQuery();
 
-        PlotDatabaseSearchCriteria search = new PlotDatabaseSearchCriteria(parentPlotLocation, category);
+        // Read every plot from one snapshot, so that the page is consistent
+        // even if data is still being added to the database.
         List<PlotWindowModel> plots = new ArrayList<>();
-        plots.addAll(parentSubsystem.getChildPlots(dbName, search));
-        if(plots.isEmpty()) {
-            // If we didn't find any plots, it means we are either at a leaf node with no children, or
-            // the tree is empty.  We need to check the graph configuration to see what to do next.
-            boolean atTheTop = copyConfiguration.getNextPlotDbLocation().equals(CommonConstants.ROOT_PATH_ALIAS);
-            LeafNodeStrategy leafStrategy = copyConfiguration.getLeafNodeStrategy();
-            if(!atTheTop) {
-                if(leafStrategy == LeafNodeStrategy.TRAVEL_UP_TO_PARENT) {
-                    plots.addAll(getParentPlotsIfNoChildren(copyConfiguration));
-                } else if(leafStrategy == LeafNodeStrategy.SHOW_CHILD_ONLY) {
-                    PlotWindowModel thisPlot = parentSubsystem.getPlot(
-                        dbName,
-                        new PlotDatabaseSearchCriteria(parentPlotLocation, category)
-                    );
-                    if(thisPlot != null) {
-                        plots.add(thisPlot);
+        try(IDatabaseSnapshot snapshot = parentSubsystem.getSnapshot(dbName)) {
+            if(snapshot == null) {
+                mainLogger.logWarning(dbName + " database does not exist (watchr-core)");
+                return null;
+            }
+
+            PlotDatabaseSearchCriteria search = new PlotDatabaseSearchCriteria(parentPlotLocation, category);
+            plots.addAll(snapshot.getChildren(search));
+            if(plots.isEmpty()) {
+                // If we didn't find any plots, it means we are either at a leaf node with no children, or
+                // the tree is empty.  We need to check the graph configuration to see what to do next.
+                boolean atTheTop = copyConfiguration.getNextPlotDbLocation().equals(CommonConstants.ROOT_PATH_ALIAS);
+                LeafNodeStrategy leafStrategy = copyConfiguration.getLeafNodeStrategy();
+                if(!atTheTop) {
+                    if(leafStrategy == LeafNodeStrategy.TRAVEL_UP_TO_PARENT) {
+                        plots.addAll(getParentPlotsIfNoChildren(snapshot, copyConfiguration));
+                    } else if(leafStrategy == LeafNodeStrategy.SHOW_CHILD_ONLY) {
+                        PlotWindowModel thisPlot = snapshot.searchPlot(
+                            new PlotDatabaseSearchCriteria(parentPlotLocation, category)
+                        );
+                        if(thisPlot != null) {
+                            plots.add(thisPlot);
+                        }
                     }
                 }
             }
@@ -175,34 +184,40 @@ public class PlotlyGraphRenderer implements IHtmlGraphRenderer {
         String destDirAbsPath) throws UnsupportedEncodingException {
 
         mainLogger.logDebug("exportGraphHtmlByPlot()", CLASSNAME);
-        for(String category : categories) {
-            GraphDisplayConfig plotConfigurationForCategory = new GraphDisplayConfig(configuration);
-            plotConfigurationForCategory.setDisplayCategory(category);
-            String parentPlotLocation = plotConfigurationForCategory.getNextPlotDbLocation();
-
-            mainLogger.logDebug("Location:" + parentPlotLocation + ", category:" + category, CLASSNAME);
-            List<PlotWindowModel> plots = new ArrayList<>(
-                parentSubsystem.getChildPlots(dbName, new PlotDatabaseSearchCriteria(parentPlotLocation, category))
-            );
-            int pageCount = getPageCount(plotConfigurationForCategory, parentPlotLocation, category);
-            mainLogger.logDebug("Page count:" + pageCount, CLASSNAME);
-
-            for(int i = 1; i <= pageCount; i++) {
-                GraphDisplayConfig plotConfigurationForPage = new GraphDisplayConfig(plotConfigurationForCategory);
-                plotConfigurationForPage.setPage(i);
-                mainLogger.logDebug("Rendering " + plots.size() + " plots...", CLASSNAME);
-                for(int j = 0; j < plots.size(); j++) {
-                    PlotWindowModel plot = plots.get(j);
-                    List<PlotWindowModel> singlePlotList = new ArrayList<>();
-                    singlePlotList.add(plot);
-                    GraphOperationResult result = renderPlots(singlePlotList, true, plotConfigurationForPage);
-                    if(StringUtils.isNotBlank(result.getHtml())) {
-                        if(pageCount == i) {
-                            writeHtmlToFile(result.getHtml(), plot.getName(), category, destDirAbsPath);
-                        } else {
-                            writeHtmlToFile(result.getHtml(), plot.getName(), i, category, destDirAbsPath);
+        try(IDatabaseSnapshot snapshot = parentSubsystem.getSnapshot(dbName)) {
+            if(snapshot == null) {
+                mainLogger.logWarning(dbName + " database does not exist (watchr-core)");
+                return;
+            }
+            for(String category : categories) {
+                GraphDisplayConfig plotConfigurationForCategory = new GraphDisplayConfig(configuration);
+                plotConfigurationForCategory.setDisplayCategory(category);
+                String parentPlotLocation = plotConfigurationForCategory.getNextPlotDbLocation();
+
+                mainLogger.logDebug("Location:" + parentPlotLocation + ", category:" + category, CLASSNAME);
+                List<PlotWindowModel> plots = new ArrayList<>(
+                    snapshot.getChildren(new PlotDatabaseSearchCriteria(parentPlotLocation, category))
+                );
+                int pageCount = getPageCount(plotConfigurationForCategory, parentPlotLocation, category);
+                mainLogger.logDebug("Page count:" + pageCount, CLASSNAME);
+
+                for(int i = 1; i <= pageCount; i++) {
+                    GraphDisplayConfig plotConfigurationForPage = new GraphDisplayConfig(plotConfigurationForCategory);
+                    plotConfigurationForPage.setPage(i);
+                    mainLogger.logDebug("Rendering " + plots.size() + " plots...", CLASSNAME);
+                    for(int j = 0; j < plots.size(); j++) {
+                        PlotWindowModel plot = plots.get(j);
+                        List<PlotWindowModel> singlePlotList = new ArrayList<>();
+                        singlePlotList.add(plot);
+                        GraphOperationResult result = renderPlots(singlePlotList, true, plotConfigurationForPage);
+                        if(StringUtils.isNotBlank(result.getHtml())) {
+                            if(pageCount == i) {
+                                writeHtmlToFile(result.getHtml(), plot.getName(), category, destDirAbsPath);
+                            } else {
+                                writeHtmlToFile(result.getHtml(), plot.getName(), i, category, destDirAbsPath);
+                            }
+                            exportGraphChildrenHtml(result, plotConfigurationForPage, category, destDirAbsPath);
                         }
-                        exportGraphChildrenHtml(result, plotConfigurationForPage, category, destDirAbsPath);
                     }
                 }
             }
@@ -409,17 +424,15 @@ public class PlotlyGraphRenderer implements IHtmlGraphRenderer {
     // UTILITY //
     /////////////
 
-    private Set<PlotWindowModel> getParentPlotsIfNoChildren(GraphDisplayConfig graphConfig) {
-        PlotWindowModel parentPlot = parentSubsystem.getParentPlot(
-            dbName,
+    private Set<PlotWindowModel> getParentPlotsIfNoChildren(IDatabaseSnapshot snapshot, GraphDisplayConfig graphConfig) {
+        PlotWindowModel parentPlot = snapshot.getParent(
             new PlotDatabaseSearchCriteria(graphConfig.getLastPlotDbLocation(), graphConfig.getDisplayCategory()));
         if(parentPlot != null) {
             graphConfig.setNextPlotDbLocation(parentPlot.getName());
         } else {
             graphConfig.setNextPlotDbLocation(CommonConstants.ROOT_PATH_ALIAS);
         }
-        return parentSubsystem.getChildPlots(
-            dbName,
+        return snapshot.getChildren(
             new PlotDatabaseSearchCriteria(graphConfig.getNextPlotDbLocation(), graphConfig.getDisplayCategory()));
     }
 
@@ -18,6 +18,7 @@ import gov.sandia.watchr.graph.chartreuse.model.PlotWindowModel;
 import gov.sandia.watchr.parse.WatchrParseException;
 import gov.sandia.watchr.parse.generators.line.DataLineGenerator;
 import gov.sandia.watchr.parse.generators.line.DataLineGeneratorFactory;
+import gov.sandia.watchr.parse.generators.line.extractors.ExtractionResultCache;
 
 public class PlotConfigGenerator extends AbstractGenerator<PlotConfig> {
 
@@ -31,6 +32,7 @@ public class PlotConfigGenerator extends AbstractGenerator<PlotConfig> {
     private final IDatabase db;
     private final List<PlotWindowModel> plots;
     private final List<WatchrDiff<?>> diffs;
+    private final ExtractionResultCache extractionCache;
 
     private DataLineGenerator lineGenerator;
 
@@ -39,11 +41,22 @@ public class PlotConfigGenerator extends AbstractGenerator<PlotConfig> {
     /////////////////
 
     public PlotConfigGenerator(String reportAbsPath, IDatabase db) {
+        this(reportAbsPath, db, new ExtractionResultCache());
+    }
+
+    /**
+     * @param reportAbsPath The report to generate plots from.
+     * @param db The database.
+     * @param extractionCache The cache of extraction results, shared by every
+     * generator that reads the same report.
+     */
+    public PlotConfigGenerator(String reportAbsPath, IDatabase db, ExtractionResultCache extractionCache) {
         super(db.getLogger());
         this.reportAbsPath = reportAbsPath;
         this.db = db;
         this.plots = new ArrayList<>();
         this.diffs = new ArrayList<>();
+        this.extractionCache = extractionCache;
     }
 
     /////////////
@@ -67,7 +80,7 @@ public class PlotConfigGenerator extends AbstractGenerator<PlotConfig> {
         plots.clear();
         for(DataLine line : config.getDataLines()) {
             DataLineGeneratorFactory factory = DataLineGeneratorFactory.getInstance();
-            lineGenerator = factory.create(config, reportAbsPath, db);
+            lineGenerator = factory.create(config, reportAbsPath, db, extractionCache);
             lineGenerator.generate(line, diffs);
             plots.addAll(lineGenerator.getUpdatedPlots());
         }
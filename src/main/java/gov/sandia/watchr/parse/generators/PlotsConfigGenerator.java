@@ -32,6 +32,7 @@ import gov.sandia.watchr.graph.chartreuse.model.PlotTraceModel;
 import gov.sandia.watchr.graph.chartreuse.model.PlotWindowModel;
 import gov.sandia.watchr.log.ILogger;
 import gov.sandia.watchr.parse.WatchrParseException;
+import gov.sandia.watchr.parse.generators.line.extractors.ExtractionResultCache;
 import gov.sandia.watchr.parse.generators.rule.RuleGenerator;
 
 public class PlotsConfigGenerator extends AbstractGenerator<PlotsConfig> {
@@ -96,8 +97,11 @@ public class PlotsConfigGenerator extends AbstractGenerator<PlotsConfig> {
         if(!config.getPointFilterConfig().isBlank()) {
             for(int i = 0; i < plots.size(); i++) {
                 PlotWindowModel plot = plots.get(i);
-                applyFiltersToPlotWindow(plot, config.getPointFilterConfig(), false);
-                db.updatePlot(plot, false);
+                synchronized(plot) {
+                    db.beginPlotUpdate(plot);
+                    applyFiltersToPlotWindow(plot, config.getPointFilterConfig(), false);
+                    db.updatePlot(plot, false);
+                }
             }
         }
 
@@ -129,15 +133,26 @@ public class PlotsConfigGenerator extends AbstractGenerator<PlotsConfig> {
             List<String> reportAbsPaths, List<PlotConfig> plotConfigs) throws WatchrParseException {
         logger.logDebug("PlotsConfigGenerator.generatePlotsFromPlotConfigs()", CLASSNAME);
 
+        // Templates do not depend on the report, so they are only applied once.
+        List<PlotConfig> fullPlotConfigs = new ArrayList<>();
+        for(PlotConfig plotConfig : plotConfigs) {
+            fullPlotConfigs.add(applyTemplateToPlotConfig(plotConfig, plotConfigs));
+        }
+
         List<PlotWindowModel> allPlots = new ArrayList<>();
         for(String reportAbsPath : reportAbsPaths) {
             String fileName = fileReader.getName(reportAbsPath);
             logger.logInfo("Generating plot from report " + fileName);
 
-            for(PlotConfig plotConfig : plotConfigs) {
-                plotConfigGenerator = new PlotConfigGenerator(reportAbsPath, db);
+            // Every plot configuration reads the same report, so the report is
+            // parsed once, each distinct extractor is evaluated once, and the
+            // results are shared until the next report.
+            ExtractionResultCache extractionCache = new ExtractionResultCache();
+            for(int i = 0; i < plotConfigs.size(); i++) {
+                PlotConfig plotConfig = plotConfigs.get(i);
+                plotConfigGenerator = new PlotConfigGenerator(reportAbsPath, db, extractionCache);
                 List<PlotWindowModel> newPlots = 
-                    generatePlotsFromPlotConfig(plotConfigs, plotConfig, fileName);
+                    generatePlotsFromPlotConfig(plotConfig, fullPlotConfigs.get(i), fileName);
                 allPlots.addAll(newPlots);
                 db.addFileToCache(reportAbsPath);
             }
@@ -148,12 +163,10 @@ public class PlotsConfigGenerator extends AbstractGenerator<PlotsConfig> {
     }
 
     private List<PlotWindowModel> generatePlotsFromPlotConfig(
-            List<PlotConfig> plotConfigs, PlotConfig plotConfig, String fileName) throws WatchrParseException {
+            PlotConfig plotConfig, PlotConfig fullPlotConfig, String fileName) throws WatchrParseException {
         logger.logDebug("PlotsConfigGenerator.generate()", CLASSNAME);
         List<PlotWindowModel> newPlots = new ArrayList<>();
 
-        PlotConfig fullPlotConfig = applyTemplateToPlotConfig(plotConfig, plotConfigs);
-
         if(doesFilePassNameFilter(fileName, fullPlotConfig.getFileFilterConfig())) {            
             plotConfigGenerator.generate(fullPlotConfig, diffs);
             newPlots.addAll(plotConfigGenerator.getPlots());
@@ -203,14 +216,21 @@ public class PlotsConfigGenerator extends AbstractGenerator<PlotsConfig> {
 
     protected void applySettingsToNewPlots(List<PlotWindowModel> plots, PlotConfig config) throws WatchrParseException {
         for(PlotWindowModel plot : plots) {
-            if(config.shouldUseLegend() != null) {
-                plot.setLegendVisible(config.shouldUseLegend());
-            }
-            if(!config.getPlotRules().isEmpty()) {
-                applyRulesToPlotWindow(plot, config.getPlotRules());
-            }
-            if(config.getPointFilterConfig() != null) {
-                applyFiltersToPlotWindow(plot, config.getPointFilterConfig(), false);
+            // Plots are changed while synchronized on them, and published once
+            // the changes are done, so that snapshots never see half of them.
+            synchronized(plot) {
+                db.beginPlotUpdate(plot);
+                if(config.shouldUseLegend() != null) {
+                    plot.setLegendVisible(config.shouldUseLegend());
+                }
+                if(!config.getPlotRules().isEmpty()) {
+                    applyRulesToPlotWindow(plot, config.getPlotRules());
+                }
+                if(config.getPointFilterConfig() != null) {
+                    applyFiltersToPlotWindow(plot, config.getPointFilterConfig(), false);
+                }
+                // Rules may have failed or un-failed the plot, which the database counts.
+                db.updatePlot(plot, false);
             }
 
             List<PlotWindowModel> children = new ArrayList<>(db.getChildren(plot, ""));
@@ -223,19 +243,24 @@ public class PlotsConfigGenerator extends AbstractGenerator<PlotsConfig> {
     private void updateExistingPlots(PlotConfig config) throws WatchrParseException {
         Collection<PlotWindowModel> plots = plotConfigToPlotsMap.getOrDefault(config, new ArrayList<>());
         for(PlotWindowModel plot : plots) {
-            // Apply legend
-            if(diffed(config, diffs, DiffCategory.USE_LEGEND)) {
-                plot.setLegendVisible(config.shouldUseLegend());
-            }
+            synchronized(plot) {
+                db.beginPlotUpdate(plot);
 
-            // Apply rules
-            if(diffed(config, diffs, DiffCategory.CONDITION) || diffed(config, diffs, DiffCategory.ACTION)) {
-                applyRulesToPlotWindow(plot, config.getPlotRules());
-            }
+                // Apply legend
+                if(diffed(config, diffs, DiffCategory.USE_LEGEND)) {
+                    plot.setLegendVisible(config.shouldUseLegend());
+                }
+
+                // Apply rules
+                if(diffed(config, diffs, DiffCategory.CONDITION) || diffed(config, diffs, DiffCategory.ACTION)) {
+                    applyRulesToPlotWindow(plot, config.getPlotRules());
+                }
 
-            // Apply filters
-            if(diffed(config, diffs, DiffCategory.POINT_FILTER_CONFIG)) {
-                applyFiltersToPlotWindow(plot, config.getPointFilterConfig(), false);
+                // Apply filters
+                if(diffed(config, diffs, DiffCategory.POINT_FILTER_CONFIG)) {
+                    applyFiltersToPlotWindow(plot, config.getPointFilterConfig(), false);
+                }
+                db.updatePlot(plot, false);
             }
         }
     }
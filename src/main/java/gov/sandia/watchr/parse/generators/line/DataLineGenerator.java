@@ -37,6 +37,7 @@ import gov.sandia.watchr.parse.WatchrParseException;
 import gov.sandia.watchr.parse.generators.AbstractGenerator;
 import gov.sandia.watchr.parse.generators.FilterConfigGenerator;
 import gov.sandia.watchr.parse.generators.line.extractors.ExtractionResult;
+import gov.sandia.watchr.parse.generators.line.extractors.ExtractionResultCache;
 import gov.sandia.watchr.parse.generators.line.extractors.strategy.AmbiguityStrategy;
 import gov.sandia.watchr.util.DateUtil;
 import gov.sandia.watchr.util.RGB;
@@ -53,6 +54,7 @@ public abstract class DataLineGenerator extends AbstractGenerator<DataLine>{
     protected final String reportAbsPath;
     protected final IDatabase db;
     protected final List<PlotWindowModel> updatedPlots;
+    protected ExtractionResultCache extractionCache;
 
     protected DataLine line;
     protected final List<WatchrDiff<?>> diffs;
@@ -77,6 +79,7 @@ public abstract class DataLineGenerator extends AbstractGenerator<DataLine>{
 
         this.updatedPlots = new ArrayList<>();
         this.diffs = new ArrayList<>();
+        this.extractionCache = new ExtractionResultCache();
 
         this.name = plotConfig.getName();
         this.category = plotConfig.getCategory();
@@ -95,6 +98,26 @@ public abstract class DataLineGenerator extends AbstractGenerator<DataLine>{
         return updatedPlots;
     }
 
+    public ExtractionResultCache getExtractionCache() {
+        return extractionCache;
+    }
+
+    /////////////
+    // SETTERS //
+    /////////////
+
+    /**
+     * Set the cache that this generator's extractors take their results from.
+     * Generators that read the same report should share a cache, so that the
+     * report is only parsed once, and each distinct extractor is only
+     * evaluated once.
+     *
+     * @param extractionCache The cache.
+     */
+    public void setExtractionCache(ExtractionResultCache extractionCache) {
+        this.extractionCache = extractionCache;
+    }
+
     //////////////
     // OVERRIDE //
     //////////////
@@ -113,8 +136,8 @@ public abstract class DataLineGenerator extends AbstractGenerator<DataLine>{
             this.line = templateDataLineGenerator.handleDataLineGenerationForTemplate(line);
         }
 
-        List<ExtractionResult> xResults = this.line.getXExtractor().extract(reportAbsPath);
-        List<ExtractionResult> yResults = this.line.getYExtractor().extract(reportAbsPath);
+        List<ExtractionResult> xResults = extractionCache.extract(this.line.getXExtractor(), reportAbsPath);
+        List<ExtractionResult> yResults = extractionCache.extract(this.line.getYExtractor(), reportAbsPath);
         Map<String, ExtractionResult> metadataResults = getMetadataResults();
 
         updatedPlots.clear();
@@ -305,7 +328,7 @@ public abstract class DataLineGenerator extends AbstractGenerator<DataLine>{
     private Map<String, ExtractionResult> getMetadataResults() throws WatchrParseException {
         Map<String, ExtractionResult> metadataResults = new HashMap<>();
         for(MetadataConfig metadata : this.line.getMetadata()) {
-            List<ExtractionResult> results = metadata.getMetadataExtractor().extract(reportAbsPath);
+            List<ExtractionResult> results = extractionCache.extract(metadata.getMetadataExtractor(), reportAbsPath);
             if(results != null && !results.isEmpty()) {
                 // Note: There can be only one valid value for a piece of metadata, so
                 // we only keep the first entry in the list.
@@ -325,21 +348,23 @@ public abstract class DataLineGenerator extends AbstractGenerator<DataLine>{
             List<PlotWindowModel> allPlots = db.getAllPlots();
             for(int i = 0; i < allPlots.size(); i++) {
                 PlotWindowModel windowModel = allPlots.get(i);
+                synchronized(windowModel) {
+                    db.beginPlotUpdate(windowModel);
+                    if(diffed(line, diffs, DiffCategory.DERIVATIVE_LINES)) {
+                        removeDerivativeLines(windowModel);
+                        applyDerivativeLinesToPlot(windowModel, line.getDerivativeLines());
+                    }
 
-                if(diffed(line, diffs, DiffCategory.DERIVATIVE_LINES)) {
-                    removeDerivativeLines(windowModel);
-                    applyDerivativeLinesToPlot(windowModel, line.getDerivativeLines());
-                }
-
-                for(PlotCanvasModel canvasModel : windowModel.getCanvasModels()) {
-                    for(PlotTraceModel traceModel : canvasModel.getNonDerivativeTraceModels()) {
-                        if(diffed(line, diffs, DiffCategory.LINE_COLOR)) {
-                            RGB color = line.getColor();
-                            traceModel.setPrimaryRGB(color == null ? new RGB(0,0,0) : color);
+                    for(PlotCanvasModel canvasModel : windowModel.getCanvasModels()) {
+                        for(PlotTraceModel traceModel : canvasModel.getNonDerivativeTraceModels()) {
+                            if(diffed(line, diffs, DiffCategory.LINE_COLOR)) {
+                                RGB color = line.getColor();
+                                traceModel.setPrimaryRGB(color == null ? new RGB(0,0,0) : color);
+                            }
                         }
                     }
+                    db.updatePlot(windowModel, false);
                 }
-                db.updatePlot(windowModel, false);
             }
         }
     }    
@@ -10,6 +10,7 @@ package gov.sandia.watchr.parse.generators.line;
 import gov.sandia.watchr.config.PlotConfig;
 import gov.sandia.watchr.db.IDatabase;
 import gov.sandia.watchr.graph.chartreuse.PlotType;
+import gov.sandia.watchr.parse.generators.line.extractors.ExtractionResultCache;
 import gov.sandia.watchr.parse.generators.line.impl.AreaPlotDataLineGenerator;
 import gov.sandia.watchr.parse.generators.line.impl.ScatterPlotDataLineGenerator;
 import gov.sandia.watchr.parse.generators.line.impl.TreeMapDataLineGenerator;
@@ -38,4 +39,13 @@ public class DataLineGeneratorFactory {
         }
         return null;
     }
+
+    public DataLineGenerator create(
+            PlotConfig plotConfig, String reportAbsPath, IDatabase db, ExtractionResultCache extractionCache) {
+        DataLineGenerator generator = create(plotConfig, reportAbsPath, db);
+        if(generator != null) {
+            generator.setExtractionCache(extractionCache);
+        }
+        return generator;
+    }
 }
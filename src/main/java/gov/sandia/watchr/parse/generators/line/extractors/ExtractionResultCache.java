@@ -0,0 +1,90 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2022 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.parse.generators.line.extractors;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import gov.sandia.watchr.config.HierarchicalExtractor;
+import gov.sandia.watchr.parse.WatchrParseException;
+import gov.sandia.watchr.parse.generators.line.extractors.strategy.ParsedDocumentCache;
+
+/**
+ * Routes the results of extracting from a report to every generator that
+ * asks for them, so that each distinct extractor is evaluated only once per
+ * report, against a single parse of it.  Extractors are compared by their
+ * configuration, so an extractor that is repeated across many plot and data
+ * line definitions (a common X extractor, for example) is evaluated once no
+ * matter how many definitions use it.<br><br>
+ *
+ * A cache is meant to live only as long as the payload that reads its
+ * reports, and is not thread-safe.
+ */
+public class ExtractionResultCache {
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    private final ParsedDocumentCache documentCache = new ParsedDocumentCache();
+    private final Map<Pair<String, HierarchicalExtractor>, List<ExtractionResult>> results = new HashMap<>();
+
+    /////////////
+    // GETTERS //
+    /////////////
+
+    public ParsedDocumentCache getDocumentCache() {
+        return documentCache;
+    }
+
+    /**
+     * @return The number of extractions whose results are held by this cache.
+     */
+    public int size() {
+        return results.size();
+    }
+
+    /////////////
+    // UTILITY //
+    /////////////
+
+    /**
+     * Returns an extractor's results for a report, extracting them if no
+     * extractor with the same configuration has been evaluated against the
+     * report yet.  Failed extractions are not cached.
+     *
+     * @param extractor The extractor.
+     * @param reportAbsPath The absolute path of the report.
+     * @return The extraction results, in a list that the caller may modify.
+     * @throws WatchrParseException Thrown if the report could not be parsed.
+     */
+    public List<ExtractionResult> extract(HierarchicalExtractor extractor, String reportAbsPath) throws WatchrParseException {
+        Pair<String, HierarchicalExtractor> key = Pair.of(reportAbsPath, extractor);
+        List<ExtractionResult> extractorResults = results.get(key);
+        if(extractorResults == null) {
+            extractorResults = extractor.extract(reportAbsPath, documentCache);
+            if(extractorResults == null) {
+                return null;
+            }
+            results.put(key, extractorResults);
+        }
+
+        // Extraction results are never modified once created, but the lists
+        // holding them may be, so every caller gets its own list.
+        return new ArrayList<>(extractorResults);
+    }
+
+    public void clear() {
+        documentCache.clear();
+        results.clear();
+    }
+}
@@ -24,14 +24,26 @@ public class ExtractionResultNameResolver {
 
     private final NameConfig nameConfig;
     private final ILogger logger;
+    private final ExtractionResultCache extractionCache;
 
     /////////////////
     // CONSTRUCTOR //
     /////////////////
 
     public ExtractionResultNameResolver(NameConfig nameConfig, ILogger logger) {
+        this(nameConfig, logger, null);
+    }
+
+    /**
+     * @param nameConfig The naming configuration.
+     * @param logger The logger.
+     * @param extractionCache The cache of extraction results to use when names
+     * are extracted from reports, or null to always extract them again.
+     */
+    public ExtractionResultNameResolver(NameConfig nameConfig, ILogger logger, ExtractionResultCache extractionCache) {
         this.nameConfig = nameConfig;
         this.logger = logger;
+        this.extractionCache = extractionCache;
     }
 
     ////////////
@@ -148,7 +160,9 @@ public class ExtractionResultNameResolver {
 
         boolean iterate = StringUtils.isNotBlank(nameUseExtractor.getAmbiguityStrategy().getIterateWithOtherExtractor());
 
-        List<ExtractionResult> results = nameUseExtractor.extract(reportAbsPath);
+        List<ExtractionResult> results = extractionCache != null ?
+            extractionCache.extract(nameUseExtractor, reportAbsPath) :
+            nameUseExtractor.extract(reportAbsPath);
         if(resultIndex == -1 && !results.isEmpty()) {
             return results.get(0).getValue();
         } else if(iterate && results.size() > resultIndex) {
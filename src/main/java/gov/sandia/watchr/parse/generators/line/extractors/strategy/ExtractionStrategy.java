@@ -31,6 +31,10 @@ public abstract class ExtractionStrategy<E> {
     protected final ILogger logger;
     protected final IFileReader fileReader;
 
+    // Compiled regular expressions and path stops.  Strategies created by a
+    // HierarchicalExtractor share the extractor's cache.
+    private RegexMatcherCache matcherCache = new RegexMatcherCache();
+
     protected ExtractionStrategy(Map<String, String> properties, AmbiguityStrategy strategy, ILogger logger, IFileReader fileReader) {
         this.properties = new HashMap<>();
         this.properties.putAll(properties);
@@ -52,7 +56,58 @@ public abstract class ExtractionStrategy<E> {
         return stack;
     }
 
-    public abstract List<ExtractionResult> extract(String fileAbsPath) throws WatchrParseException;
+    /**
+     * @param matcherCache The cache to compile regular expressions and path
+     * stops into, in place of this strategy's own cache.
+     */
+    public void setMatcherCache(RegexMatcherCache matcherCache) {
+        this.matcherCache = matcherCache;
+    }
+
+    /**
+     * @see RegexMatcherCache#getMatcher(String)
+     */
+    protected RegexMatcher getMatcher(String regex) {
+        return matcherCache.getMatcher(regex);
+    }
+
+    /**
+     * @see RegexMatcherCache#getStopMatcher(String)
+     */
+    protected RegexMatcher getStopMatcher(String stop) {
+        return matcherCache.getStopMatcher(stop);
+    }
+
+    public List<ExtractionResult> extract(String fileAbsPath) throws WatchrParseException {
+        return extract(fileAbsPath, null);
+    }
+
+    /**
+     * @param fileAbsPath The absolute path of the file to extract from.
+     * @param documentCache The cache to take the parsed file from (or add it
+     * to), or null to always parse the file.
+     * @return The extraction results.
+     * @throws WatchrParseException Thrown if the file could not be parsed.
+     */
+    public List<ExtractionResult> extract(String fileAbsPath, ParsedDocumentCache documentCache) throws WatchrParseException {
+        E root;
+        if(documentCache == null) {
+            root = parse(fileAbsPath);
+        } else {
+            root = documentCache.getDocument(fileAbsPath, getType(), this::parse);
+        }
+        return extractFromRoot(fileAbsPath, root);
+    }
+
+    protected abstract ExtractionStrategyType getType();
+
+    /**
+     * Reads and parses a file.  The parsed file may be shared with other
+     * extraction strategies of the same type, so it must not be modified.
+     */
+    protected abstract E parse(String fileAbsPath) throws WatchrParseException;
+
+    protected abstract List<ExtractionResult> extractFromRoot(String fileAbsPath, E root) throws WatchrParseException;
 
     protected abstract List<ExtractionResult> getNextPathStop(String pathSoFar, Deque<String> remainingStops, E element);
 }
@@ -13,9 +13,21 @@ import gov.sandia.watchr.config.file.IFileReader;
 import gov.sandia.watchr.log.ILogger;
 
 public class ExtractionStrategyFactory {
+
+    /**
+     * Files at least this large are streamed rather than parsed into memory.
+     */
+    public static final long DEFAULT_STREAMING_THRESHOLD = 64L * 1024L * 1024L;
+
+    /**
+     * Turns off streaming, so that files are always parsed into memory.
+     */
+    public static final long STREAMING_DISABLED = -1L;
     
     private static ExtractionStrategyFactory INSTANCE;
 
+    private long streamingThreshold = DEFAULT_STREAMING_THRESHOLD;
+
     public static ExtractionStrategyFactory getInstance() {
         if(INSTANCE == null) {
             INSTANCE = new ExtractionStrategyFactory();
@@ -34,6 +46,39 @@ public class ExtractionStrategyFactory {
         return null;
     }
 
+    /**
+     * Creates the strategy for extracting from a particular file.  This is
+     * the same as {@link #create(ExtractionStrategyType, Map, AmbiguityStrategy, ILogger, IFileReader)},
+     * except that files at or above the streaming threshold are extracted
+     * from with a {@link StreamingXmlExtractionStrategy} or
+     * {@link StreamingJsonExtractionStrategy}, so that they are never held in
+     * memory.
+     */
+    public ExtractionStrategy<?> create(
+            ExtractionStrategyType type, Map<String, String> properties, AmbiguityStrategy strategy,
+            ILogger logger, IFileReader fileReader, String fileAbsPath) {
+        if(shouldStream(fileReader.getSize(fileAbsPath))) {
+            if(type == ExtractionStrategyType.XML) {
+                return new StreamingXmlExtractionStrategy(properties, strategy, logger, fileReader);
+            } else if(type == ExtractionStrategyType.JSON) {
+                return new StreamingJsonExtractionStrategy(properties, strategy, logger, fileReader);
+            }
+        }
+        return create(type, properties, strategy, logger, fileReader);
+    }
+
+    public long getStreamingThreshold() {
+        return streamingThreshold;
+    }
+
+    /**
+     * @param streamingThreshold The size in bytes at which files are
+     * streamed rather than parsed into memory, or {@link #STREAMING_DISABLED}.
+     */
+    public void setStreamingThreshold(long streamingThreshold) {
+        this.streamingThreshold = streamingThreshold;
+    }
+
     public String getExtension(ExtractionStrategyType type) {
         if(type == ExtractionStrategyType.XML) {
             return "xml";
@@ -51,4 +96,11 @@ public class ExtractionStrategyFactory {
         }
         return null;
     }
+
+    private boolean shouldStream(long fileSize) {
+        // Files of unknown size are parsed, as they always have been.
+        return streamingThreshold != STREAMING_DISABLED &&
+               fileSize >= 0 &&
+               fileSize >= streamingThreshold;
+    }
 }
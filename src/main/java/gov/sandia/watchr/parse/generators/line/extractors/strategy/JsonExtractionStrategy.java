@@ -27,7 +27,6 @@ import gov.sandia.watchr.log.ILogger;
 import gov.sandia.watchr.parse.WatchrParseException;
 import gov.sandia.watchr.parse.generators.line.extractors.ExtractionResult;
 import gov.sandia.watchr.parse.generators.line.extractors.ExtractionResultIndexParser;
-import gov.sandia.watchr.util.StringUtil;
 
 public class JsonExtractionStrategy extends ExtractionStrategy<JsonElement> {
 
@@ -53,14 +52,22 @@ public class JsonExtractionStrategy extends ExtractionStrategy<JsonElement> {
     //////////////
 
     @Override
-    public List<ExtractionResult> extract(String fileAbsPath) throws WatchrParseException {
-        this.fileAbsPath = fileAbsPath;
-      
+    protected ExtractionStrategyType getType() {
+        return ExtractionStrategyType.JSON;
+    }
+
+    @Override
+    protected JsonElement parse(String fileAbsPath) {
         String jsonFileContents = fileReader.readFromFile(fileAbsPath);
-        JsonElement root = JsonParser.parseString(jsonFileContents);
+        return JsonParser.parseString(jsonFileContents);
+    }
+
+    @Override
+    protected List<ExtractionResult> extractFromRoot(String fileAbsPath, JsonElement root) {
+        this.fileAbsPath = fileAbsPath;
         Deque<String> stops = getPathStops();
         return getNextPathStop("", stops, root);
-    }     
+    }
 
     @Override
     protected List<ExtractionResult> getNextPathStop(String pathSoFar, Deque<String> remainingStops, JsonElement element) {
@@ -182,7 +189,8 @@ public class JsonExtractionStrategy extends ExtractionStrategy<JsonElement> {
             poppedNextStop = remainingStops.pop();
             nextStop = poppedNextStop;
         }
-        nextStop = StringUtil.convertToRegex(nextStop);
+        RegexMatcher stopMatcher = getStopMatcher(nextStop);
+        nextStop = stopMatcher.getRegex();
 
         boolean indexSyntax =
             indexParser.isIndexSyntax(nextStop) ||
@@ -211,7 +219,7 @@ public class JsonExtractionStrategy extends ExtractionStrategy<JsonElement> {
                 String key = entry.getKey();
                 String newPathSoFar = pathSoFar + "/" + key;
                 JsonElement value = entry.getValue();
-                if(indexSyntax || key.matches(nextStop)) {
+                if(indexSyntax || stopMatcher.matches(key)) {
                     if(remainingStops.isEmpty()) {
                         ExtractionResult result = handleAsTargetValue(value, newPathSoFar);
                         if(result != null || StringUtils.isNotBlank(strategy.getIterateWithOtherExtractor())) {
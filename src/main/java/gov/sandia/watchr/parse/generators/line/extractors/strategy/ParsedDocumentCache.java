@@ -0,0 +1,83 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2022 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.parse.generators.line.extractors.strategy;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import gov.sandia.watchr.parse.WatchrParseException;
+
+/**
+ * Holds the parsed form of each report read while processing one payload, so
+ * that every extractor that reads the same report (the X and Y extractors,
+ * metadata extractors and name extractors) shares a single parse of it.<br><br>
+ *
+ * Documents are keyed by file path and extraction strategy type.  A cache is
+ * meant to live only as long as the payload that reads its reports, and is
+ * not thread-safe.
+ */
+public class ParsedDocumentCache {
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    private final Map<Pair<String, ExtractionStrategyType>, Object> documents = new HashMap<>();
+
+    /////////////
+    // GETTERS //
+    /////////////
+
+    /**
+     * @return The number of parsed documents held by this cache.
+     */
+    public int size() {
+        return documents.size();
+    }
+
+    /////////////
+    // UTILITY //
+    /////////////
+
+    /**
+     * Returns the parsed form of a file, parsing the file if it has not been
+     * parsed yet.  Files that fail to parse are not cached.
+     *
+     * @param fileAbsPath The absolute path of the file.
+     * @param type The type of extraction strategy that reads the file.
+     * @param parser Parses the file.  The same parser type must always be
+     * used for the same extraction strategy type.
+     * @return The parsed file.
+     * @throws WatchrParseException Thrown if the file could not be parsed.
+     */
+    @SuppressWarnings("unchecked")
+    public <D> D getDocument(String fileAbsPath, ExtractionStrategyType type, DocumentParser<D> parser) throws WatchrParseException {
+        Pair<String, ExtractionStrategyType> key = Pair.of(fileAbsPath, type);
+        D document = (D) documents.get(key);
+        if(document == null) {
+            document = parser.parse(fileAbsPath);
+            documents.put(key, document);
+        }
+        return document;
+    }
+
+    public void clear() {
+        documents.clear();
+    }
+
+    ///////////////////
+    // INNER CLASSES //
+    ///////////////////
+
+    @FunctionalInterface
+    public interface DocumentParser<D> {
+        D parse(String fileAbsPath) throws WatchrParseException;
+    }
+}
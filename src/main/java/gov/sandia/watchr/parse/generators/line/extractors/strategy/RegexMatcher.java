@@ -0,0 +1,76 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2022 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.parse.generators.line.extractors.strategy;
+
+import java.util.regex.Pattern;
+
+/**
+ * A regular expression that is compiled once, for matching against many
+ * strings.  Matching is equivalent to {@link String#matches(String)}, except
+ * that expressions without any special characters are compared directly,
+ * without a {@link Pattern}.  Other expressions are compiled the first time
+ * they are matched, so that expressions that are never matched (such as
+ * index syntax in path stops) do not need to be valid.
+ */
+public final class RegexMatcher {
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    private static final Pattern METACHARACTERS = Pattern.compile("[\\\\^$.|?*+()\\[\\]{}]");
+
+    private final String regex;
+    private final boolean literal;
+    // Compiled on first use.  Matchers are shared between threads, and
+    // compiling the same expression twice is harmless.
+    private volatile Pattern pattern;
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
+
+    public RegexMatcher(String regex) {
+        this.regex = regex;
+        this.literal = !METACHARACTERS.matcher(regex).find();
+    }
+
+    /////////////
+    // GETTERS //
+    /////////////
+
+    public String getRegex() {
+        return regex;
+    }
+
+    /**
+     * @return Whether the expression only matches itself.
+     */
+    public boolean isLiteral() {
+        return literal;
+    }
+
+    /////////////
+    // UTILITY //
+    /////////////
+
+    /**
+     * @param str The string to match.
+     * @return Whether the whole string matches the expression.
+     * @throws java.util.regex.PatternSyntaxException Thrown if the expression
+     * is not valid.
+     */
+    public boolean matches(String str) {
+        if(literal) {
+            return regex.equals(str);
+        } else if(pattern == null) {
+            pattern = Pattern.compile(regex);
+        }
+        return pattern.matcher(str).matches();
+    }
+}
@@ -0,0 +1,50 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2022 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.parse.generators.line.extractors.strategy;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import gov.sandia.watchr.util.StringUtil;
+
+/**
+ * Compiled regular expressions and path stops, by their original strings.
+ * A cache can be shared by every {@link ExtractionStrategy} that an extractor
+ * creates, and by threads extracting at the same time.
+ */
+public final class RegexMatcherCache {
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    private final Map<String, RegexMatcher> matchers = new ConcurrentHashMap<>();
+    private final Map<String, RegexMatcher> stopMatchers = new ConcurrentHashMap<>();
+
+    /////////////
+    // GETTERS //
+    /////////////
+
+    /**
+     * @param regex A regular expression.
+     * @return The expression, compiled the first time it is used.
+     */
+    public RegexMatcher getMatcher(String regex) {
+        return matchers.computeIfAbsent(regex, RegexMatcher::new);
+    }
+
+    /**
+     * @param stop A path stop, which may use wildcards (see
+     * {@link StringUtil#convertToRegex(String)}).
+     * @return The stop as a regular expression, compiled the first time it is
+     * used.
+     */
+    public RegexMatcher getStopMatcher(String stop) {
+        return stopMatchers.computeIfAbsent(stop, s -> getMatcher(StringUtil.convertToRegex(s)));
+    }
+}
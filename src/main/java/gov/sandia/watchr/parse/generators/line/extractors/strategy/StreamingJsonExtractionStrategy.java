@@ -0,0 +1,356 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2022 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.parse.generators.line.extractors.strategy;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+
+import gov.sandia.watchr.config.file.IFileReader;
+import gov.sandia.watchr.log.ILogger;
+import gov.sandia.watchr.parse.WatchrParseException;
+import gov.sandia.watchr.parse.generators.line.extractors.ExtractionResult;
+import gov.sandia.watchr.parse.generators.line.extractors.ExtractionResultIndexParser;
+
+/**
+ * Extracts from JSON files in a single pass with a {@link JsonReader}, rather
+ * than parsing the whole file into memory first as {@link JsonExtractionStrategy}
+ * does.  Path stops are followed in the same way, and subtrees that cannot
+ * match are skipped without being built, so only the matched values are ever
+ * held in memory.<br><br>
+ *
+ * When only the first match is wanted and every path stop names a single key
+ * or index, at most one value can match, so reading stops as soon as that
+ * value has been found.<br><br>
+ *
+ * Since array sizes are not known in advance, an index past the end of an
+ * array matches nothing, rather than failing.
+ */
+public class StreamingJsonExtractionStrategy extends ExtractionStrategy<JsonReader> {
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    // Stands in for the size of arrays and objects that have not been read
+    // yet, leaving room to add one to it.
+    private static final int UNKNOWN_SIZE = Integer.MAX_VALUE - 1;
+
+    private String fileAbsPath;
+    private ExtractionResultIndexParser indexParser;
+    private boolean singleMatch;
+    private boolean finished;
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
+
+    public StreamingJsonExtractionStrategy(
+            Map<String, String> properties, AmbiguityStrategy strategy, ILogger logger, IFileReader fileReader) {
+        super(properties, strategy, logger, fileReader);
+        indexParser = new ExtractionResultIndexParser();
+    }
+
+    //////////////
+    // OVERRIDE //
+    //////////////
+
+    /**
+     * The file is read as it is extracted from, so there is never a parsed
+     * file to share through the document cache, which is ignored.
+     */
+    @Override
+    public List<ExtractionResult> extract(String fileAbsPath, ParsedDocumentCache documentCache) throws WatchrParseException {
+        try(JsonReader reader = parse(fileAbsPath)) {
+            return extractFromRoot(fileAbsPath, reader);
+        } catch(IOException e) {
+            throw new WatchrParseException(e);
+        }
+    }
+
+    @Override
+    protected ExtractionStrategyType getType() {
+        return ExtractionStrategyType.JSON;
+    }
+
+    @Override
+    protected JsonReader parse(String fileAbsPath) throws WatchrParseException {
+        try {
+            JsonReader reader = new JsonReader(fileReader.openReader(fileAbsPath));
+            // Accept the same documents as JsonParser.
+            reader.setLenient(true);
+            return reader;
+        } catch(IOException e) {
+            throw new WatchrParseException(e);
+        }
+    }
+
+    @Override
+    protected List<ExtractionResult> extractFromRoot(String fileAbsPath, JsonReader reader) throws WatchrParseException {
+        this.fileAbsPath = fileAbsPath;
+        Deque<String> stops = getPathStops();
+        singleMatch = strategy.shouldGetFirstMatchOnly() && stops.stream().allMatch(this::isSingleStop);
+        finished = false;
+        try {
+            try {
+                reader.peek();
+            } catch(EOFException e) {
+                // An empty file has nothing to extract.
+                return new ArrayList<>();
+            }
+            return readValue("", stops, reader);
+        } catch(IOException e) {
+            throw new WatchrParseException(e);
+        }
+    }
+
+    @Override
+    protected List<ExtractionResult> getNextPathStop(String pathSoFar, Deque<String> remainingStops, JsonReader reader) {
+        try {
+            return readValue(pathSoFar, remainingStops, reader);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /////////////
+    // PRIVATE //
+    /////////////
+
+    /**
+     * Reads the value that the reader is positioned at.  Once the extraction
+     * is finished, the rest of the value is left unread.
+     */
+    private List<ExtractionResult> readValue(String pathSoFar, Deque<String> remainingStops, JsonReader reader) throws IOException {
+        List<ExtractionResult> results = new ArrayList<>();
+
+        if(!remainingStops.isEmpty()) {
+            JsonToken token = reader.peek();
+            if(token == JsonToken.BEGIN_ARRAY) {
+                results.addAll(handleAsArray(remainingStops, reader, pathSoFar));
+            } else if(token == JsonToken.BEGIN_OBJECT) {
+                results.addAll(handleAsObject(remainingStops, reader, pathSoFar));
+            } else {
+                reader.skipValue();
+            }
+        } else {
+            ExtractionResult result = handleAsTargetValue(reader, pathSoFar);
+            if(result != null) {
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+    private List<ExtractionResult> handleAsArray(Deque<String> remainingStops, JsonReader reader, String pathSoFar) throws IOException {
+        List<ExtractionResult> results = new ArrayList<>();
+
+        String nextStop = remainingStops.pop();
+
+        reader.beginArray();
+        if(!strategy.shouldGetFirstMatchOnly()) {
+            if(indexParser.isIndexRangeSyntax(nextStop)) {
+                results.addAll(handleAsArrayAndGetRangeOfElements(remainingStops, nextStop, reader, pathSoFar));
+            } else {
+                results.addAll(handleAsArrayAndGetAllElements(remainingStops, reader, pathSoFar));
+            }
+        } else {
+            results.addAll(handleAsArrayAndGetSingleElement(remainingStops, nextStop, reader, pathSoFar));
+        }
+
+        if(!finished) {
+            while(reader.hasNext()) {
+                reader.skipValue();
+            }
+            reader.endArray();
+        }
+
+        remainingStops.push(nextStop);
+        return results;
+    }
+
+    private List<ExtractionResult> handleAsArrayAndGetRangeOfElements(
+            Deque<String> remainingStops, String nextStop, JsonReader reader, String pathSoFar) throws IOException {
+
+        List<ExtractionResult> results = new ArrayList<>();
+        Pair<Integer, Integer> range = indexParser.getRangeFromIndexRangeSyntax(nextStop, UNKNOWN_SIZE);
+        if(range != null) {
+            int start = range.getLeft();
+            int end   = range.getRight();
+            for(int i = 0; i < end && !finished && reader.hasNext(); i++) {
+                if(i < start) {
+                    reader.skipValue();
+                } else {
+                    List<ExtractionResult> arrayResults = readValue(pathSoFar, remainingStops, reader);
+                    if(arrayResults.isEmpty() && StringUtils.isNotBlank(strategy.getIterateWithOtherExtractor())) {
+                        results.add(null);
+                    } else {
+                        results.addAll(arrayResults);
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private List<ExtractionResult> handleAsArrayAndGetAllElements(
+            Deque<String> remainingStops, JsonReader reader, String pathSoFar) throws IOException {
+        List<ExtractionResult> results = new ArrayList<>();
+        while(!finished && reader.hasNext()) {
+            if(remainingStops.isEmpty()) {
+                ExtractionResult result = handleAsTargetValue(reader, pathSoFar);
+                if(result != null || StringUtils.isNotBlank(strategy.getIterateWithOtherExtractor())) {
+                    results.add(result);
+                }
+            } else {
+                results.addAll(readValue(pathSoFar, remainingStops, reader));
+            }
+        }
+        return results;
+    }
+
+    private List<ExtractionResult> handleAsArrayAndGetSingleElement(
+            Deque<String> remainingStops, String nextStop, JsonReader reader, String pathSoFar) throws IOException {
+        List<ExtractionResult> results = new ArrayList<>();
+
+        if(indexParser.isIndexSyntax(nextStop)) {
+            Integer indexValue = indexParser.getIndexFromIndexSyntax(nextStop);
+            if(indexValue != null) {
+                for(int i = 0; i < indexValue && reader.hasNext(); i++) {
+                    reader.skipValue();
+                }
+                if(reader.hasNext()) {
+                    results.addAll(readValue(pathSoFar, remainingStops, reader));
+                    finished = singleMatch;
+                }
+            }
+        } else if(reader.hasNext()) {
+            List<ExtractionResult> arrayResults = readValue(pathSoFar, remainingStops, reader);
+            if(arrayResults.isEmpty() && StringUtils.isNotBlank(strategy.getIterateWithOtherExtractor())) {
+                results.add(null);
+            } else {
+                results.addAll(arrayResults);
+            }
+            finished = singleMatch;
+        } else {
+            String message = "Given path " + path + ", could not determine where to go next in JSON hierarchy.  " +
+                             "Either provide index syntax (i.e. {1}) to speficy which JSON array element you want, " +
+                             "or configure your Watchr settings to consume all array elements by setting the getFirstMatchOnly " +
+                             "property to false.";
+            logger.logWarning(message);
+        }
+
+        return results;
+    }
+
+    private List<ExtractionResult> handleAsObject(Deque<String> remainingStops, JsonReader reader, String pathSoFar) throws IOException {
+        List<ExtractionResult> results = new ArrayList<>();
+
+        String poppedNextStop = remainingStops.pop();
+        RegexMatcher stopMatcher = getStopMatcher(poppedNextStop);
+        String nextStop = stopMatcher.getRegex();
+
+        boolean indexSyntax =
+            indexParser.isIndexSyntax(nextStop) ||
+            indexParser.isIndexRangeSyntax(nextStop);
+
+        int start = 0;
+        int end = UNKNOWN_SIZE;
+
+        if(indexSyntax) {
+            if(indexParser.isIndexSyntax(nextStop)) {
+                start = indexParser.getIndexFromIndexSyntax(nextStop);
+                end = start + 1;
+            } else { // indexParser.isIndexRangeSyntax(nextStop)
+                Pair<Integer, Integer> range = indexParser.getRangeFromIndexRangeSyntax(nextStop, UNKNOWN_SIZE);
+                if(range != null) {
+                    start = range.getLeft();
+                    end = range.getRight() + 1;
+                }
+            }
+        }
+
+        reader.beginObject();
+        for(int i = 0; !finished && reader.hasNext(); i++) {
+            String key = reader.nextName();
+            if(i >= start && i < end && (indexSyntax || stopMatcher.matches(key))) {
+                String newPathSoFar = pathSoFar + "/" + key;
+                if(remainingStops.isEmpty()) {
+                    ExtractionResult result = handleAsTargetValue(reader, newPathSoFar);
+                    if(result != null || StringUtils.isNotBlank(strategy.getIterateWithOtherExtractor())) {
+                        results.add(result);
+                    }
+                } else {
+                    List<ExtractionResult> childResults = readValue(newPathSoFar, remainingStops, reader);
+                    if(childResults.isEmpty() && StringUtils.isNotBlank(strategy.getIterateWithOtherExtractor())) {
+                        results.add(null);
+                    } else {
+                        results.addAll(childResults);
+                    }
+                }
+                finished = singleMatch;
+            } else {
+                reader.skipValue();
+            }
+        }
+        if(!finished) {
+            reader.endObject();
+        }
+
+        remainingStops.push(poppedNextStop);
+        return results;
+    }
+
+    private ExtractionResult handleAsTargetValue(JsonReader reader, String pathSoFar) throws IOException {
+        if(reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        ExtractionResult result = null;
+        reader.beginObject();
+        while(reader.hasNext()) {
+            String thisKey = reader.nextName();
+            if(result == null && thisKey.equals(key)) {
+                // Only the matched value is built in memory.
+                String value = JsonParser.parseReader(reader).getAsString();
+                result = new ExtractionResult(fileAbsPath, pathSoFar, key, value);
+                if(singleMatch) {
+                    finished = true;
+                    return result;
+                }
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return result;
+    }
+
+    /**
+     * @return Whether a path stop can lead to no more than one value.
+     */
+    private boolean isSingleStop(String stop) {
+        if(indexParser.isIndexSyntax(stop)) {
+            return true;
+        }
+        RegexMatcher stopMatcher = getStopMatcher(stop);
+        return !indexParser.isIndexRangeSyntax(stopMatcher.getRegex()) && stopMatcher.isLiteral();
+    }
+}
@@ -0,0 +1,362 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2022 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.parse.generators.line.extractors.strategy;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+import org.apache.commons.lang3.StringUtils;
+
+import gov.sandia.watchr.config.file.IFileReader;
+import gov.sandia.watchr.config.schema.Keywords;
+import gov.sandia.watchr.log.ILogger;
+import gov.sandia.watchr.parse.WatchrParseException;
+import gov.sandia.watchr.parse.generators.line.extractors.ExtractionResult;
+
+/**
+ * Extracts from XML files in a single pass with an {@link XMLStreamReader},
+ * rather than building a whole DOM first as {@link XmlExtractionStrategy}
+ * does.  Elements and attributes are matched in the same way (including
+ * recursion to child graphs), but only the attributes of the element being
+ * read are held in memory, along with the results found so far.<br><br>
+ *
+ * When only the first match is wanted, reading stops as soon as it has been
+ * found.
+ */
+public class StreamingXmlExtractionStrategy extends ExtractionStrategy<XMLStreamReader> {
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    private static final String CLASSNAME = StreamingXmlExtractionStrategy.class.getSimpleName();
+
+    private String fileAbsPath;
+    private String elementPattern = "";
+    private String pathAttribute = "";
+    private boolean finished;
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
+
+    public StreamingXmlExtractionStrategy(
+            Map<String, String> properties, AmbiguityStrategy strategy,
+            ILogger logger, IFileReader fileReader) {
+        super(properties, strategy, logger, fileReader);
+        this.elementPattern = properties.getOrDefault(Keywords.GET_ELEMENT, "");
+        this.pathAttribute  = properties.getOrDefault(Keywords.GET_PATH_ATTRIBUTE, "");
+    }
+
+    /////////////
+    // GETTERS //
+    /////////////
+
+    public String getElementPattern() {
+        return elementPattern;
+    }
+
+    public String getPathAttribute() {
+        return pathAttribute;
+    }
+
+    //////////////
+    // OVERRIDE //
+    //////////////
+
+    /**
+     * The file is read as it is extracted from, so there is never a parsed
+     * file to share through the document cache, which is ignored.
+     */
+    @Override
+    public List<ExtractionResult> extract(String fileAbsPath, ParsedDocumentCache documentCache) throws WatchrParseException {
+        XMLStreamReader reader = parse(fileAbsPath);
+        try {
+            return extractFromRoot(fileAbsPath, reader);
+        } finally {
+            try {
+                reader.close();
+            } catch(XMLStreamException e) {
+                logger.logDebug("Could not close " + fileAbsPath + ": " + e.getMessage(), CLASSNAME);
+            }
+        }
+    }
+
+    @Override
+    protected ExtractionStrategyType getType() {
+        return ExtractionStrategyType.XML;
+    }
+
+    /**
+     * @return A reader that also closes the file when it is closed.
+     */
+    @Override
+    protected XMLStreamReader parse(String fileAbsPath) throws WatchrParseException {
+        Reader fileContents = null;
+        try {
+            fileContents = fileReader.openReader(fileAbsPath);
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            // Element and attribute names are matched by their full names, as
+            // they are in a DOM that is not namespace aware.
+            factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+
+            final Reader openedFileContents = fileContents;
+            return new StreamReaderDelegate(factory.createXMLStreamReader(fileContents)) {
+                @Override
+                public void close() throws XMLStreamException {
+                    try {
+                        super.close();
+                    } finally {
+                        closeQuietly(openedFileContents, fileAbsPath);
+                    }
+                }
+            };
+        } catch(Exception e) {
+            closeQuietly(fileContents, fileAbsPath);
+            throw new WatchrParseException(e);
+        }
+    }
+
+    @Override
+    protected List<ExtractionResult> extractFromRoot(String fileAbsPath, XMLStreamReader reader) throws WatchrParseException {
+        this.fileAbsPath = fileAbsPath;
+        finished = false;
+        try {
+            int event = reader.next();
+            while(event != XMLStreamConstants.START_ELEMENT) {
+                if(event == XMLStreamConstants.DTD) {
+                    throw new XMLStreamException("DOCTYPE is not allowed in XML files.", reader.getLocation());
+                }
+                event = reader.next();
+            }
+            Deque<String> stops = getPathStops();
+            return readElement("", stops, reader);
+        } catch(Exception e) {
+            throw new WatchrParseException(e);
+        }
+    }
+
+    @Override
+    protected List<ExtractionResult> getNextPathStop(String pathSoFar, Deque<String> remainingStops, XMLStreamReader reader) {
+        try {
+            return readElement(pathSoFar, remainingStops, reader);
+        } catch(XMLStreamException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /////////////
+    // PRIVATE //
+    /////////////
+
+    /**
+     * Reads the element that the reader is positioned at the start of, leaving
+     * the reader at the element's end.  Once the extraction is finished, the
+     * rest of the element is left unread.
+     */
+    private List<ExtractionResult> readElement(String pathSoFar, Deque<String> remainingStops, XMLStreamReader reader) throws XMLStreamException {
+        List<ExtractionResult> results = null;
+        boolean elementRead = false;
+
+        String elementName = getQualifiedName(reader.getPrefix(), reader.getLocalName());
+        String pathAttributeValue = getXmlAttributeValue(reader, pathAttribute);
+        boolean recursive = strategy.shouldRecurseToChildGraphs();
+
+        if((!remainingStops.isEmpty() || recursive) && getMatcher(elementPattern).matches(elementName)) {
+            String nextStop = "*";
+            if(!remainingStops.isEmpty()) {
+                nextStop = remainingStops.pop();
+            }
+            RegexMatcher stopMatcher = getStopMatcher(nextStop);
+            nextStop = stopMatcher.getRegex();
+            if(stopMatcher.matches(pathAttributeValue)) {
+                List<ExtractionResult> nextResults = handleNormalStop(pathSoFar, pathAttributeValue, remainingStops, reader);
+                elementRead = true;
+                if(nextResults != null) {
+                    results = new ArrayList<>();
+                    results.addAll(nextResults);
+                } else {
+                    remainingStops.push(nextStop);
+                }
+            } else {
+                remainingStops.push(nextStop);
+            }
+        }
+
+        if(!elementRead) {
+            skipRestOfElement(reader);
+        }
+        return results;
+    }
+
+    private List<ExtractionResult> handleNormalStop(
+            String path, String pathAttributeValue, Deque<String> remainingStops, XMLStreamReader reader) throws XMLStreamException {
+        List<ExtractionResult> results = null;
+        String keyValue = getXmlAttributeValue(reader, key);
+        if(!remainingStops.isEmpty()) {
+            List<ExtractionResult> childResults = handleChildXmlElement(reader, keyValue, path + "/" + pathAttributeValue, remainingStops);
+            if(childResults != null) {
+                results = new ArrayList<>();
+                results.addAll(childResults);
+            }
+        } else {
+            ExtractionResult childResult = handleLastXmlElement(reader, keyValue, path + "/" + pathAttributeValue, remainingStops);
+            if(childResult != null) {
+                results = new ArrayList<>();
+                results.add(childResult);
+            }
+        }
+        return results;
+    }
+
+    private List<ExtractionResult> handleChildXmlElement(
+            XMLStreamReader reader, String keyValue, String path, Deque<String> remainingStops) throws XMLStreamException {
+        List<ExtractionResult> results = null;
+        boolean firstMatchOnly = strategy.shouldGetFirstMatchOnly();
+
+        int event = reader.next();
+        if(event != XMLStreamConstants.END_ELEMENT) {
+            while(event != XMLStreamConstants.END_ELEMENT) {
+                if(event == XMLStreamConstants.START_ELEMENT) {
+                    List<ExtractionResult> childResults = readElement(path, remainingStops, reader);
+                    if(childResults != null) {
+                        if(results == null) {
+                            results = new ArrayList<>();
+                        }
+                        results.addAll(childResults);
+                    }
+                    if(finished || (firstMatchOnly && results != null && !results.isEmpty())) {
+                        finished = true;
+                        return results;
+                    }
+                }
+                event = reader.next();
+            }
+        } else {
+            // The element has no child nodes at all.
+            results = new ArrayList<>();
+            results.add(handleLastXmlElement(reader, keyValue, path, remainingStops));
+        }
+        return results;
+    }
+
+    /**
+     * The reader may be positioned at the start of the element, or at its
+     * end if the element has no child nodes.
+     */
+    private ExtractionResult handleLastXmlElement(
+            XMLStreamReader reader, String keyValue, String path, Deque<String> remainingStops) throws XMLStreamException {
+        ExtractionResult result = null;
+        boolean recursive = strategy.shouldRecurseToChildGraphs();
+
+        if(recursive) {
+            result = handleXmlElementForRecursiveChildren(reader, keyValue, path, remainingStops);
+        } else {
+            if(StringUtils.isNotBlank(keyValue)) {
+                result = new ExtractionResult(fileAbsPath, path, key, keyValue);
+            }
+            if(reader.isStartElement()) {
+                skipRestOfElement(reader);
+            }
+        }
+
+        return result;
+    }
+
+    private ExtractionResult handleXmlElementForRecursiveChildren(
+            XMLStreamReader reader, String keyValue, String path, Deque<String> remainingStops) throws XMLStreamException {
+        ExtractionResult result = new ExtractionResult(fileAbsPath, path, key, keyValue);
+        List<ExtractionResult> childResults = new ArrayList<>();
+        boolean firstMatchOnly = strategy.shouldGetFirstMatchOnly();
+
+        if(reader.isStartElement()) {
+            int event = reader.next();
+            while(event != XMLStreamConstants.END_ELEMENT) {
+                if(event == XMLStreamConstants.START_ELEMENT) {
+                    List<ExtractionResult> nextResults = readElement(path, remainingStops, reader);
+                    if(nextResults != null) {
+                        childResults.addAll(nextResults);
+                    }
+                    if(finished || firstMatchOnly) {
+                        finished = true;
+                        break;
+                    }
+                }
+                event = reader.next();
+            }
+        }
+        result.getChildren().addAll(childResults);
+
+        return result;
+    }
+
+    /**
+     * Skips to the end of the element that the reader is in, which may be
+     * anywhere from the start of the element to the end of its last child.
+     */
+    private void skipRestOfElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while(depth > 0) {
+            int event = reader.next();
+            if(event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if(event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * When several attributes match, the one whose name sorts first is used,
+     * which is the attribute that a DOM would list first.
+     */
+    private String getXmlAttributeValue(XMLStreamReader reader, String name) {
+        String value = "";
+        if(StringUtils.isNotBlank(name)) {
+            String matchedName = null;
+            for(int i = 0; i < reader.getAttributeCount(); i++) {
+                String attributeName = getQualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i));
+                if(StringUtils.isNotBlank(attributeName) && getMatcher(name).matches(attributeName) &&
+                        (matchedName == null || attributeName.compareTo(matchedName) < 0)) {
+                    matchedName = attributeName;
+                    value = reader.getAttributeValue(i);
+                }
+            }
+        }
+        return value;
+    }
+
+    private String getQualifiedName(String prefix, String localName) {
+        if(StringUtils.isNotEmpty(prefix)) {
+            return prefix + ":" + localName;
+        }
+        return localName;
+    }
+
+    private void closeQuietly(Reader fileContents, String fileAbsPath) {
+        if(fileContents != null) {
+            try {
+                fileContents.close();
+            } catch(IOException e) {
+                logger.logDebug("Could not close " + fileAbsPath + ": " + e.getMessage(), CLASSNAME);
+            }
+        }
+    }
+}
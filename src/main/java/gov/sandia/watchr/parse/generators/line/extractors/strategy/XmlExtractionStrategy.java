@@ -29,7 +29,6 @@ import gov.sandia.watchr.config.schema.Keywords;
 import gov.sandia.watchr.log.ILogger;
 import gov.sandia.watchr.parse.WatchrParseException;
 import gov.sandia.watchr.parse.generators.line.extractors.ExtractionResult;
-import gov.sandia.watchr.util.StringUtil;
 
 public class XmlExtractionStrategy extends ExtractionStrategy<Element> {
     
@@ -70,8 +69,12 @@ public class XmlExtractionStrategy extends ExtractionStrategy<Element> {
     //////////////
 
     @Override
-    public List<ExtractionResult> extract(String fileAbsPath) throws WatchrParseException {
-        this.fileAbsPath = fileAbsPath;
+    protected ExtractionStrategyType getType() {
+        return ExtractionStrategyType.XML;
+    }
+
+    @Override
+    protected Element parse(String fileAbsPath) throws WatchrParseException {
         String fileContents = fileReader.readFromFile(fileAbsPath);
         try {
             DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
@@ -80,8 +83,16 @@ public class XmlExtractionStrategy extends ExtractionStrategy<Element> {
             DocumentBuilder dBuilder = factory.newDocumentBuilder();
             
             Document document = dBuilder.parse(new ByteArrayInputStream(fileContents.getBytes()));
-            Element root = document.getDocumentElement();
+            return document.getDocumentElement();
+        } catch(Exception e) {
+            throw new WatchrParseException(e);
+        }
+    }
 
+    @Override
+    protected List<ExtractionResult> extractFromRoot(String fileAbsPath, Element root) throws WatchrParseException {
+        this.fileAbsPath = fileAbsPath;
+        try {
             Deque<String> stops = getPathStops();
             return getNextPathStop("", stops, root);
         } catch(Exception e) {
@@ -122,13 +133,14 @@ public class XmlExtractionStrategy extends ExtractionStrategy<Element> {
         String pathAttributeValue = getXmlAttributeValue(element.getAttributes(), pathAttribute);
         boolean recursive = strategy.shouldRecurseToChildGraphs();
 
-        if((!remainingStops.isEmpty() || recursive) && elementName.matches(elementPattern) && pathAttributeValue != null) {
+        if((!remainingStops.isEmpty() || recursive) && getMatcher(elementPattern).matches(elementName) && pathAttributeValue != null) {
             String nextStop = "*";
             if(!remainingStops.isEmpty()) {
                 nextStop = remainingStops.pop();
             }
-            nextStop = StringUtil.convertToRegex(nextStop);
-            if(pathAttributeValue.matches(nextStop)) {
+            RegexMatcher stopMatcher = getStopMatcher(nextStop);
+            nextStop = stopMatcher.getRegex();
+            if(stopMatcher.matches(pathAttributeValue)) {
                 List<ExtractionResult> nextResults = handleNormalStop(pathSoFar, pathAttributeValue, remainingStops, element);
                 if(nextResults != null) {
                     results = new ArrayList<>();
@@ -240,7 +252,7 @@ public class XmlExtractionStrategy extends ExtractionStrategy<Element> {
             for(int i = 0; i < attributes.getLength(); i++) {
                 Attr attributeNode = (Attr) attributes.item(i);
                 String attributeName = attributeNode.getName();
-                if(StringUtils.isNotBlank(attributeName) && attributeName.matches(name)) {
+                if(StringUtils.isNotBlank(attributeName) && getMatcher(name).matches(attributeName)) {
                     return attributeNode.getNodeValue();
                 }
             }
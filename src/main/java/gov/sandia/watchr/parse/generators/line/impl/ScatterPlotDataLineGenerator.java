@@ -186,7 +186,7 @@ public class ScatterPlotDataLineGenerator extends DataLineGenerator {
         String plotName = name;
         logger.logDebug("Name: " + plotName, CLASSNAME);
         if(StringUtils.isBlank(plotName)) {
-            ExtractionResultNameResolver nameResolver = new ExtractionResultNameResolver(nameConfig, logger);
+            ExtractionResultNameResolver nameResolver = new ExtractionResultNameResolver(nameConfig, logger, extractionCache);
             plotName = nameResolver.getName(xResult, yResult, iterator);
             if(plotName != null) {
                 logger.logDebug("Name after name resolver: " + plotName, CLASSNAME);
@@ -216,6 +216,7 @@ public class ScatterPlotDataLineGenerator extends DataLineGenerator {
         searchCriteria.setXResult(xResult);
         searchCriteria.setYResult(yResult);
         searchCriteria.setResultIndex(resultIndex);
+        searchCriteria.setExtractionCache(extractionCache);
 
         currentPlotName = searchCriteria.getName();
         currentPlotCategory = searchCriteria.getCategory();
@@ -238,6 +239,7 @@ public class ScatterPlotDataLineGenerator extends DataLineGenerator {
         if(windowModel != null) {
             state = ScatterPlotDataLineGeneratorState.UPDATING;
             synchronized(windowModel) {
+                db.beginPlotUpdate(windowModel);
                 currentPlotName = windowModel.getName();
                 currentPlotCategory = windowModel.getCategory();
 
@@ -294,7 +296,7 @@ public class ScatterPlotDataLineGenerator extends DataLineGenerator {
     private String resolveDataLineName(ExtractionResult xResult, ExtractionResult yResult) {
         String dataLineName = line.getName();
         if(StringUtils.isBlank(dataLineName) && line.getNameConfig() != null) {
-            ExtractionResultNameResolver nameResolver = new ExtractionResultNameResolver(line.getNameConfig(), logger);
+            ExtractionResultNameResolver nameResolver = new ExtractionResultNameResolver(line.getNameConfig(), logger, extractionCache);
             dataLineName = nameResolver.getName(xResult, yResult, -1);
         }
         return dataLineName;
@@ -362,7 +364,7 @@ public class ScatterPlotDataLineGenerator extends DataLineGenerator {
         if(isYRecursive && yResult != null && !yResult.getChildren().isEmpty()) {
             for(int i = 0; i < yResult.getChildren().size(); i++) {
                 ExtractionResult childResult = yResult.getChildren().get(i);
-                ExtractionResultNameResolver nameResolver = new ExtractionResultNameResolver(nameConfig, logger);
+                ExtractionResultNameResolver nameResolver = new ExtractionResultNameResolver(nameConfig, logger, extractionCache);
                 String childPlotName = nameResolver.getChildName(name, childResult, i);
                 logger.logDebug("name: " + name, CLASSNAME);
                 logger.logDebug("childPlotName: " + childPlotName, CLASSNAME);
@@ -375,7 +377,7 @@ public class ScatterPlotDataLineGenerator extends DataLineGenerator {
         } else if(isXRecursive && xResult != null && !xResult.getChildren().isEmpty()) {
             for(int i = 0; i < xResult.getChildren().size(); i++) {
                 ExtractionResult childResult = xResult.getChildren().get(i);
-                ExtractionResultNameResolver nameResolver = new ExtractionResultNameResolver(nameConfig, logger);
+                ExtractionResultNameResolver nameResolver = new ExtractionResultNameResolver(nameConfig, logger, extractionCache);
                 String childPlotName = nameResolver.getChildName(name, childResult, i);
                 logger.logDebug("name: " + name, CLASSNAME);
                 logger.logDebug("childPlotName: " + childPlotName, CLASSNAME);
@@ -107,7 +107,7 @@ public class TreeMapDataLineGenerator extends DataLineGenerator {
     
         String plotName = plotConfig.getName();
         if(StringUtils.isBlank(plotName) && xResult != null) {
-            ExtractionResultNameResolver nameResolver = new ExtractionResultNameResolver(nameConfig, logger);
+            ExtractionResultNameResolver nameResolver = new ExtractionResultNameResolver(nameConfig, logger, extractionCache);
             plotName = nameResolver.determineTargetName(nameConfig, xResult, null, resultIndex);
         }
         if(StringUtils.isBlank(plotName)) {
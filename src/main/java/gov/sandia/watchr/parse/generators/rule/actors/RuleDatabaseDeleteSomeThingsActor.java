@@ -27,23 +27,28 @@ public class RuleDatabaseDeleteSomeThingsActor extends RuleDatabaseActor impleme
         logger.logInfo("Acting upon rule " + RuleAction.DELETE_SOME.toString() + "...");
         List<PlotWindowModel> plots = db.getAllPlots();
         for(PlotWindowModel windowModel : plots) {
-            boolean dataChanged = false;
-            for(PlotCanvasModel canvasModel : windowModel.getCanvasModels()) {
-                for(PlotTraceModel traceModel : canvasModel.getTraceModels()) {
-                    if(plotsToDelete.containsKey(traceModel.getUUID().toString())) {
-                        List<PlotTracePoint> pointsToDelete = plotsToDelete.get(traceModel.getUUID().toString());
-                        if(!pointsToDelete.isEmpty()) {
-                            logger.logDebug("Deleting some data from main trace model of plot " + windowModel.getName(), CLASSNAME);
-                        }
-                        for(PlotTracePoint point : pointsToDelete) {
-                            traceModel.remove(point);
-                            dataChanged = true;
+            synchronized(windowModel) {
+                boolean dataChanged = false;
+                for(PlotCanvasModel canvasModel : windowModel.getCanvasModels()) {
+                    for(PlotTraceModel traceModel : canvasModel.getTraceModels()) {
+                        if(plotsToDelete.containsKey(traceModel.getUUID().toString())) {
+                            List<PlotTracePoint> pointsToDelete = plotsToDelete.get(traceModel.getUUID().toString());
+                            if(!pointsToDelete.isEmpty()) {
+                                logger.logDebug("Deleting some data from main trace model of plot " + windowModel.getName(), CLASSNAME);
+                            }
+                            for(PlotTracePoint point : pointsToDelete) {
+                                if(!dataChanged) {
+                                    db.beginPlotUpdate(windowModel);
+                                }
+                                traceModel.remove(point);
+                                dataChanged = true;
+                            }
                         }
                     }
                 }
-            }
-            if(dataChanged) {
-                db.updatePlot(windowModel, false);
+                if(dataChanged) {
+                    db.updatePlot(windowModel, false);
+                }
             }
         }
     }
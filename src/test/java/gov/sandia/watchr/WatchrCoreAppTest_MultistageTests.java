@@ -101,16 +101,18 @@ public class WatchrCoreAppTest_MultistageTests {
         TestFileUtils.assertLineEquals(exportFileContents, TestFileUtils.LINE_FIRST_PLOT_X, "x: ['2021-04-05T22:21:21'],");
         TestFileUtils.assertLineEquals(exportFileContents, TestFileUtils.LINE_FIRST_PLOT_Y, "y: [1.0],");
 
-        assertEquals(6, dbDir.listFiles().length);
+        assertEquals(8, dbDir.listFiles().length);
 
         List<File> files = Arrays.asList(dbDir.listFiles());
         Collections.sort(files);
-        assertEquals("fileCache.json", files.get(0).getName());
-        assertEquals("lastConfig.json", files.get(1).getName());
-        assertEquals("metadata.json", files.get(2).getName());
-        assertEquals("parentChildPlots.json", files.get(3).getName());
-        assertTrue(files.get(4).getName().startsWith("plot_"));
-        assertTrue(files.get(5).getName().startsWith("plot_"));
+        assertEquals("childParentPlots.json", files.get(0).getName());
+        assertEquals("fileCache.jsonl", files.get(1).getName());
+        assertEquals("lastConfig.json", files.get(2).getName());
+        assertEquals("metadata.json", files.get(3).getName());
+        assertEquals("parentChildPlots.json", files.get(4).getName());
+        assertEquals("plotIndex.json", files.get(5).getName());
+        assertTrue(files.get(6).getName().startsWith("plot_"));
+        assertTrue(files.get(7).getName().startsWith("plot_"));
 
         return app;
     }
@@ -140,16 +142,18 @@ public class WatchrCoreAppTest_MultistageTests {
         TestFileUtils.assertLineEquals(exportFileContents, TestFileUtils.LINE_FIRST_PLOT_X, "x: ['2021-04-05T22:21:21', '2021-04-06T12:21:21'],");
         TestFileUtils.assertLineEquals(exportFileContents, TestFileUtils.LINE_FIRST_PLOT_Y, "y: [1.0, 2.0],");
 
-        assertEquals(6, dbDir.listFiles().length);
+        assertEquals(8, dbDir.listFiles().length);
 
         List<File> files = Arrays.asList(dbDir.listFiles());
         Collections.sort(files);
-        assertEquals("fileCache.json", files.get(0).getName());
-        assertEquals("lastConfig.json", files.get(1).getName());
-        assertEquals("metadata.json", files.get(2).getName());
-        assertEquals("parentChildPlots.json", files.get(3).getName());
-        assertTrue(files.get(4).getName().startsWith("plot_"));
-        assertTrue(files.get(5).getName().startsWith("plot_"));
+        assertEquals("childParentPlots.json", files.get(0).getName());
+        assertEquals("fileCache.jsonl", files.get(1).getName());
+        assertEquals("lastConfig.json", files.get(2).getName());
+        assertEquals("metadata.json", files.get(3).getName());
+        assertEquals("parentChildPlots.json", files.get(4).getName());
+        assertEquals("plotIndex.json", files.get(5).getName());
+        assertTrue(files.get(6).getName().startsWith("plot_"));
+        assertTrue(files.get(7).getName().startsWith("plot_"));
     }
 
     private void testUnitExample_Xml_ThreeDays_UpdateDatabaseCorrectly_Day2_NewApp(String dbName, File dbDir) throws Exception {
@@ -177,16 +181,18 @@ public class WatchrCoreAppTest_MultistageTests {
         TestFileUtils.assertLineEquals(exportFileContents, TestFileUtils.LINE_FIRST_PLOT_X, "x: ['2021-04-05T22:21:21', '2021-04-06T12:21:21'],");
         TestFileUtils.assertLineEquals(exportFileContents, TestFileUtils.LINE_FIRST_PLOT_Y, "y: [1.0, 2.0],");
 
-        assertEquals(6, dbDir.listFiles().length);
+        assertEquals(8, dbDir.listFiles().length);
 
         List<File> files = Arrays.asList(dbDir.listFiles());
         Collections.sort(files);
-        assertEquals("fileCache.json", files.get(0).getName());
-        assertEquals("lastConfig.json", files.get(1).getName());
-        assertEquals("metadata.json", files.get(2).getName());
-        assertEquals("parentChildPlots.json", files.get(3).getName());
-        assertTrue(files.get(4).getName().startsWith("plot_"));
-        assertTrue(files.get(5).getName().startsWith("plot_"));
+        assertEquals("childParentPlots.json", files.get(0).getName());
+        assertEquals("fileCache.jsonl", files.get(1).getName());
+        assertEquals("lastConfig.json", files.get(2).getName());
+        assertEquals("metadata.json", files.get(3).getName());
+        assertEquals("parentChildPlots.json", files.get(4).getName());
+        assertEquals("plotIndex.json", files.get(5).getName());
+        assertTrue(files.get(6).getName().startsWith("plot_"));
+        assertTrue(files.get(7).getName().startsWith("plot_"));
     }
 
     private void testUnitExample_Xml_ThreeDays_UpdateDatabaseCorrectly_Day3(
@@ -216,16 +222,18 @@ public class WatchrCoreAppTest_MultistageTests {
         TestFileUtils.assertLineEquals(
             exportFileContents, TestFileUtils.LINE_FIRST_PLOT_Y, "y: [1.0, 2.0, 3.0],");
 
-        assertEquals(6, dbDir.listFiles().length);
+        assertEquals(8, dbDir.listFiles().length);
 
         List<File> files = Arrays.asList(dbDir.listFiles());
         Collections.sort(files);
-        assertEquals("fileCache.json", files.get(0).getName());
-        assertEquals("lastConfig.json", files.get(1).getName());
-        assertEquals("metadata.json", files.get(2).getName());
-        assertEquals("parentChildPlots.json", files.get(3).getName());
-        assertTrue(files.get(4).getName().startsWith("plot_"));
-        assertTrue(files.get(5).getName().startsWith("plot_"));
+        assertEquals("childParentPlots.json", files.get(0).getName());
+        assertEquals("fileCache.jsonl", files.get(1).getName());
+        assertEquals("lastConfig.json", files.get(2).getName());
+        assertEquals("metadata.json", files.get(3).getName());
+        assertEquals("parentChildPlots.json", files.get(4).getName());
+        assertEquals("plotIndex.json", files.get(5).getName());
+        assertTrue(files.get(6).getName().startsWith("plot_"));
+        assertTrue(files.get(7).getName().startsWith("plot_"));
     }
 
     @After
@@ -1,6 +1,7 @@
 package gov.sandia.watchr.config;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.fail;
 
 import java.io.File;
@@ -308,5 +309,19 @@ public class HierarchicalExtractorTest {
         } catch(URISyntaxException e) {
             fail(e.getMessage());
         }
-    }    
+    }
+
+    @Test
+    public void testEquals_DiffersByStrategyType() {
+        FileConfig fileConfig = new FileConfig("", logger, fileReader);
+        fileConfig.setFileExtension("json");
+        HierarchicalExtractor jsonExtractor = new HierarchicalExtractor(fileConfig, "");
+        jsonExtractor.setPath("performanceReport");
+
+        fileConfig.setFileExtension("xml");
+        HierarchicalExtractor xmlExtractor = new HierarchicalExtractor(fileConfig, "");
+        xmlExtractor.setPath("performanceReport");
+
+        assertNotEquals(jsonExtractor, xmlExtractor);
+    }
 }
\ No newline at end of file
@@ -48,7 +48,7 @@ public class TestDatabase extends AbstractDatabase {
 
     @Override
     public PlotWindowModel loadPlotUsingInnerFields(String name, String category) {
-        for(PlotWindowModel plot : plots) {
+        for(PlotWindowModel plot : plots.values()) {
             if(plot.getName().equals(name) && plot.getCategory().equals(category)) {
                 return plot;
             }
@@ -1,28 +1,40 @@
 package gov.sandia.watchr.db.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.gson.Gson;
+
 import gov.sandia.watchr.config.GraphDisplayConfig;
 import gov.sandia.watchr.config.file.DefaultFileReader;
 import gov.sandia.watchr.config.file.IFileReader;
+import gov.sandia.watchr.db.IDatabaseSnapshot;
 import gov.sandia.watchr.db.PlotDatabaseSearchCriteria;
 import gov.sandia.watchr.db.TestDatabase;
 import gov.sandia.watchr.graph.chartreuse.ChartreuseException;
 import gov.sandia.watchr.graph.chartreuse.PlotToken;
 import gov.sandia.watchr.graph.chartreuse.model.PlotCanvasModel;
+import gov.sandia.watchr.graph.chartreuse.model.PlotRelationshipManager;
 import gov.sandia.watchr.graph.chartreuse.model.PlotTraceModel;
+import gov.sandia.watchr.graph.chartreuse.model.PlotTracePoint;
 import gov.sandia.watchr.graph.chartreuse.model.PlotWindowModel;
 import gov.sandia.watchr.log.StringOutputLogger;
+import gov.sandia.watchr.parse.generators.rule.actors.RulePlotTraceModelFailActor;
 import gov.sandia.watchr.util.CommonConstants;
 
 public class AbstractDatabaseTest {
@@ -122,6 +134,248 @@ public class AbstractDatabaseTest {
         assertEquals(parent, plot1);
     }
 
+    @Test
+    public void testGetParent_AfterDeletingChild() {
+        PlotWindowModel plot1 = new PlotWindowModel("MyParentPlot");
+        PlotWindowModel plot2 = new PlotWindowModel("MyChildPlot1");
+        PlotWindowModel plot3 = new PlotWindowModel("MyChildPlot2");
+        db.addPlot(plot1);
+        db.addPlot(plot2);
+        db.addPlot(plot3);
+
+        List<PlotWindowModel> childPlots = new ArrayList<>();
+        childPlots.add(plot2);
+        childPlots.add(plot3);
+        db.setPlotsAsChildren(plot1, childPlots);
+        assertEquals(plot1.getUUID().toString(), db.childParentPlots.get(plot3.getUUID().toString()));
+
+        db.deletePlot(plot2.getUUID().toString());
+        assertNull(db.childParentPlots.get(plot2.getUUID().toString()));
+        assertEquals(1, db.parentChildPlots.get(plot1.getUUID().toString()).size());
+        assertEquals(plot1, db.getParent(new PlotDatabaseSearchCriteria(plot3.getName(), "")));
+
+        db.deletePlot(plot1.getUUID().toString());
+        assertTrue(db.childParentPlots.isEmpty());
+    }
+
+    @Test
+    public void testSetPlotsAsChildren_MovesChildToNewParent() {
+        PlotWindowModel oldParent = new PlotWindowModel("MyOldParentPlot");
+        PlotWindowModel newParent = new PlotWindowModel("MyNewParentPlot");
+        PlotWindowModel child = new PlotWindowModel("MyChildPlot");
+        db.addPlot(oldParent);
+        db.addPlot(newParent);
+        db.addPlot(child);
+
+        db.setPlotsAsChildren(oldParent, Arrays.asList(child));
+        db.setPlotsAsChildren(newParent, Arrays.asList(child));
+
+        assertTrue(db.parentChildPlots.get(oldParent.getUUID().toString()).isEmpty());
+        assertEquals(1, db.parentChildPlots.get(newParent.getUUID().toString()).size());
+        assertEquals(newParent, db.getParent(new PlotDatabaseSearchCriteria(child.getName(), "")));
+    }
+
+    @Test
+    public void testDeletePlot_RemovesPlotFromRelationshipManager() {
+        PlotWindowModel plot = new PlotWindowModel("MyTestPlot");
+        db.addPlot(plot);
+        assertSame(plot, PlotRelationshipManager.getWindowModel(plot.getUUID()));
+
+        db.deletePlot(plot.getUUID().toString());
+        assertNull(PlotRelationshipManager.getWindowModel(plot.getUUID()));
+    }
+
+    @Test
+    public void testDeletePlots_DeletesDescendantsAndUpdatesRelationships() {
+        PlotWindowModel rootPlot = new PlotWindowModel(CommonConstants.ROOT_PATH_ALIAS);
+        PlotWindowModel parentPlot = new PlotWindowModel("MyParentPlot");
+        PlotWindowModel childPlot = new PlotWindowModel("MyChildPlot");
+        PlotWindowModel otherPlot = new PlotWindowModel("MyOtherPlot");
+        db.addPlot(rootPlot);
+        db.addPlot(parentPlot);
+        db.addPlot(childPlot);
+        db.addPlot(otherPlot);
+        db.setPlotsAsChildren(rootPlot, Arrays.asList(parentPlot, otherPlot));
+        db.setPlotsAsChildren(parentPlot, Arrays.asList(childPlot));
+
+        otherPlot.setBackgroundColor(RulePlotTraceModelFailActor.FAIL_COLOR);
+        childPlot.setBackgroundColor(RulePlotTraceModelFailActor.FAIL_COLOR);
+        db.updatePlot(otherPlot, false);
+        db.updatePlot(childPlot, false);
+        assertEquals(3, db.getMetadata().getPlotCount());
+        assertEquals(2, db.getMetadata().getFailedPlotCount());
+
+        int deletedCount = db.deletePlots(Arrays.asList(parentPlot.getUUID().toString(), "00000000-0000-0000-0000-000000000000"));
+        assertEquals(2, deletedCount);
+        assertEquals(Arrays.asList(otherPlot), db.getAllPlots());
+        assertEquals(1, db.parentChildPlots.get(rootPlot.getUUID().toString()).size());
+        assertNull(db.parentChildPlots.get(parentPlot.getUUID().toString()));
+        assertNull(db.childParentPlots.get(childPlot.getUUID().toString()));
+        assertEquals(1, db.getMetadata().getPlotCount());
+        assertEquals(1, db.getMetadata().getFailedPlotCount());
+        assertSame(rootPlot, db.getRootPlot());
+    }
+
+    @Test
+    public void testDeletePlotsByCategoryAndName() {
+        PlotWindowModel plot1 = new PlotWindowModel("MyTestPlot1");
+        PlotWindowModel plot2 = new PlotWindowModel("MyTestPlot2");
+        PlotWindowModel plot3 = new PlotWindowModel("OtherPlot");
+        plot1.setCategory("Retired");
+        plot2.setCategory("Current");
+        plot3.setCategory("Current");
+        db.addPlot(plot1);
+        db.addPlot(plot2);
+        db.addPlot(plot3);
+
+        assertEquals(1, db.deletePlotsByCategory("RETIRED"));
+        assertNull(db.searchPlot(new PlotDatabaseSearchCriteria("MyTestPlot1", "Retired")));
+
+        assertEquals(1, db.deletePlotsByName(Pattern.compile("MyTest.*")));
+        assertEquals(Arrays.asList(plot3), db.getAllPlots());
+        assertEquals(1, db.getMetadata().getPlotCount());
+    }
+
+    @Test
+    public void testGetSnapshot_IgnoresLaterChanges() {
+        try {
+            PlotWindowModel rootPlot = new PlotWindowModel(CommonConstants.ROOT_PATH_ALIAS);
+            PlotWindowModel plot1 = new PlotWindowModel("MyChildPlot1");
+            PlotCanvasModel canvas = new PlotCanvasModel(plot1.getUUID());
+            PlotTraceModel trace = new PlotTraceModel(canvas.getUUID());
+            trace.add(new PlotTracePoint("1", "1.0"));
+            db.addPlot(rootPlot);
+            db.addPlot(plot1);
+            db.setPlotsAsChildren(rootPlot, Arrays.asList(plot1));
+
+            PlotDatabaseSearchCriteria rootSearch = new PlotDatabaseSearchCriteria(CommonConstants.ROOT_PATH_ALIAS, "");
+            IDatabaseSnapshot snapshot = db.getSnapshot();
+
+            // The snapshot has not read the plot yet, so the writer copies it before changing it.
+            synchronized(plot1) {
+                db.beginPlotUpdate(plot1);
+                trace.add(new PlotTracePoint("2", "2.0"));
+                db.updatePlot(plot1, false);
+            }
+            assertTrue(db.preservedPlots.containsKey(plot1.getUUID().toString()));
+            PlotWindowModel plot2 = new PlotWindowModel("MyChildPlot2");
+            new PlotTraceModel(new PlotCanvasModel(plot2.getUUID()).getUUID()).add(new PlotTracePoint("1", "1.0"));
+            db.addPlot(plot2);
+            db.setPlotsAsChildren(rootPlot, Arrays.asList(plot1, plot2));
+
+            Set<PlotWindowModel> oldChildren = snapshot.getChildren(rootSearch);
+            assertEquals(1, oldChildren.size());
+            PlotWindowModel oldPlot1 = oldChildren.iterator().next();
+            assertNotSame(plot1, oldPlot1);
+            assertEquals(1, oldPlot1.getAllTraceModels().get(0).getPoints().size());
+            assertNull(snapshot.searchPlot(new PlotDatabaseSearchCriteria("MyChildPlot2", "")));
+
+            IDatabaseSnapshot newSnapshot = db.getSnapshot();
+            assertTrue(newSnapshot.getVersion() > snapshot.getVersion());
+            assertEquals(2, newSnapshot.getChildren(rootSearch).size());
+            PlotWindowModel newPlot1 = newSnapshot.searchPlot(new PlotDatabaseSearchCriteria("MyChildPlot1", ""));
+            assertEquals(2, newPlot1.getAllTraceModels().get(0).getPoints().size());
+            assertEquals(rootPlot.getUUID(), newSnapshot.getParent(new PlotDatabaseSearchCriteria("MyChildPlot2", "")).getUUID());
+
+            snapshot.close();
+            newSnapshot.close();
+            assertTrue(db.preservedPlots.isEmpty());
+            try {
+                snapshot.getRootPlot();
+                fail("Closed snapshots cannot be read.");
+            } catch(IllegalStateException e) {
+                // Expected.
+            }
+        } catch(ChartreuseException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testGetSnapshot_SearchesPlotsAsOfSnapshot() {
+        PlotWindowModel plot1 = new PlotWindowModel("MyTestPlot1");
+        plot1.setCategory("Current");
+        db.addPlot(plot1);
+
+        IDatabaseSnapshot snapshot = db.getSnapshot();
+        PlotWindowModel plot2 = new PlotWindowModel("MyTestPlot1");
+        plot2.setCategory("Retired");
+        db.addPlot(plot2);
+
+        assertEquals(plot1.getUUID(), snapshot.searchPlot(new PlotDatabaseSearchCriteria("MyTestPlot1", "CURRENT")).getUUID());
+        assertEquals(plot1.getUUID(), snapshot.searchPlot(new PlotDatabaseSearchCriteria("MyTestPlot1", "")).getUUID());
+        assertEquals(plot1.getUUID(), snapshot.searchPlot(new PlotDatabaseSearchCriteria("MyTestPlot1", "Cur.*")).getUUID());
+        assertNull(snapshot.searchPlot(new PlotDatabaseSearchCriteria("MyTestPlot1", "Retired")));
+        assertNull(snapshot.searchPlot(new PlotDatabaseSearchCriteria("MyTestPlot2", "")));
+        assertNotNull(db.getSnapshot().searchPlot(new PlotDatabaseSearchCriteria("MyTestPlot1", "Retired")));
+    }
+
+    @Test
+    public void testGetSnapshot_KeepsDeletedAndReplacedPlots() {
+        PlotWindowModel plot1 = new PlotWindowModel("MyTestPlot1");
+        PlotWindowModel plot2 = new PlotWindowModel("MyTestPlot2");
+        plot2.setNickname("Before");
+        db.addPlot(plot1);
+        db.addPlot(plot2);
+
+        try(IDatabaseSnapshot snapshot = db.getSnapshot()) {
+            db.deletePlots(Arrays.asList(plot1.getUUID().toString()));
+            PlotWindowModel newPlot2 = DatabaseSnapshot.copyPlot(plot2);
+            newPlot2.setNickname("After");
+            db.updatePlot(newPlot2, true);
+
+            assertNull(db.searchPlot(new PlotDatabaseSearchCriteria("MyTestPlot1", "")));
+            assertEquals(plot1.getUUID(), snapshot.searchPlot(new PlotDatabaseSearchCriteria("MyTestPlot1", "")).getUUID());
+            assertEquals("Before", snapshot.searchPlot(new PlotDatabaseSearchCriteria("MyTestPlot2", "")).getNickname());
+            assertEquals("After", db.getSnapshot().searchPlot(new PlotDatabaseSearchCriteria("MyTestPlot2", "")).getNickname());
+        }
+    }
+
+    @Test
+    public void testMetadataCounts_Incremental() {
+        PlotWindowModel rootPlot = new PlotWindowModel(CommonConstants.ROOT_PATH_ALIAS);
+        PlotWindowModel plot1 = new PlotWindowModel("MyTestPlot1");
+        PlotWindowModel plot2 = new PlotWindowModel("MyTestPlot2");
+        db.addPlot(rootPlot);
+        db.addPlot(plot1);
+        db.addPlot(plot2);
+        db.addPlot(plot2);
+        assertEquals(2, db.getMetadata().getPlotCount());
+        assertEquals(0, db.getMetadata().getFailedPlotCount());
+
+        plot1.setBackgroundColor(RulePlotTraceModelFailActor.FAIL_COLOR);
+        db.updatePlot(plot1, false);
+        assertEquals(1, db.getMetadata().getFailedPlotCount());
+        db.updatePlot(plot1, false);
+        assertEquals(1, db.getMetadata().getFailedPlotCount());
+
+        plot1.setBackgroundColor(RulePlotTraceModelFailActor.NORMAL_COLOR);
+        db.updatePlot(plot1, false);
+        assertEquals(0, db.getMetadata().getFailedPlotCount());
+
+        plot2.setBackgroundColor(RulePlotTraceModelFailActor.FAIL_COLOR);
+        db.updatePlot(plot2, false);
+        db.deletePlot(plot2.getUUID().toString());
+        assertEquals(1, db.getMetadata().getPlotCount());
+        assertEquals(0, db.getMetadata().getFailedPlotCount());
+    }
+
+    @Test
+    public void testRecountMetadata() {
+        PlotWindowModel plot1 = new PlotWindowModel("MyTestPlot1");
+        PlotWindowModel plot2 = new PlotWindowModel("MyTestPlot2");
+        plot2.setBackgroundColor(RulePlotTraceModelFailActor.FAIL_COLOR);
+        db.addPlot(plot1);
+        db.addPlot(plot2);
+
+        db.getMetadata().setPlotCount(100);
+        db.getMetadata().setFailedPlotCount(25);
+        db.recountMetadata();
+        assertEquals(2, db.getMetadata().getPlotCount());
+        assertEquals(1, db.getMetadata().getFailedPlotCount());
+        assertTrue(db.getMetadata().getFailedPlotUUIDs().contains(plot2.getUUID().toString()));
+    }
+
     @Test
     public void testSetListeners_FireChangeListener() {
         try {
@@ -171,4 +425,50 @@ public class AbstractDatabaseTest {
             fail(e.getMessage());
         }
     }
+
+    @Test
+    public void testGetPlotByNameAndCategory_CaseInsensitiveCategory() {
+        PlotWindowModel newPlot = new PlotWindowModel("MyTestPlot");
+        newPlot.setCategory("MyCategory");
+        db.addPlot(newPlot);
+
+        PlotWindowModel retrievedPlot = db.searchPlot(new PlotDatabaseSearchCriteria("MyTestPlot", "mycategory"));
+        assertEquals(newPlot, retrievedPlot);
+    }
+
+    @Test
+    public void testGetPlotByNameAndCategory_RegexCategory() {
+        PlotWindowModel newPlot = new PlotWindowModel("MyTestPlot");
+        newPlot.setCategory("MyCategory");
+        db.addPlot(newPlot);
+
+        PlotWindowModel retrievedPlot = db.searchPlot(new PlotDatabaseSearchCriteria("MyTestPlot", "My.*"));
+        assertEquals(newPlot, retrievedPlot);
+    }
+
+    @Test
+    public void testUpdatePlot_ReplaceKeepsLookupsConsistent() {
+        PlotWindowModel originalPlot = new PlotWindowModel("MyTestPlot");
+        originalPlot.setCategory("MyCategory");
+        db.addPlot(originalPlot);
+
+        Gson gson = new Gson();
+        PlotWindowModel replacementPlot = gson.fromJson(gson.toJson(originalPlot), PlotWindowModel.class);
+        db.updatePlot(replacementPlot, true);
+
+        assertEquals(1, db.getAllPlots().size());
+        assertTrue(replacementPlot == db.searchPlot(new PlotDatabaseSearchCriteria("MyTestPlot", "MyCategory")));
+    }
+
+    @Test
+    public void testGetRootPlot_OnlyOneRootAllowed() {
+        PlotWindowModel rootPlot = new PlotWindowModel(CommonConstants.ROOT_PATH_ALIAS);
+        PlotWindowModel secondRootPlot = new PlotWindowModel(CommonConstants.ROOT_PATH_ALIAS);
+        db.addPlot(rootPlot);
+        db.addPlot(secondRootPlot);
+
+        assertTrue(rootPlot == db.getRootPlot());
+        db.deletePlot(rootPlot.getUUID().toString());
+        assertNull(db.getRootPlot());
+    }
 }
@@ -0,0 +1,97 @@
+package gov.sandia.watchr.db.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import gov.sandia.watchr.graph.chartreuse.ChartreuseException;
+import gov.sandia.watchr.graph.chartreuse.model.PlotCanvasModel;
+import gov.sandia.watchr.graph.chartreuse.model.PlotTraceModel;
+import gov.sandia.watchr.graph.chartreuse.model.PlotTracePoint;
+import gov.sandia.watchr.graph.chartreuse.model.PlotWindowModel;
+
+public class BinaryPlotFileTest {
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    private File plotFile;
+    private PlotWindowModel plot;
+    private PlotTraceModel trace;
+
+    ///////////
+    // SETUP //
+    ///////////
+
+    @Before
+    public void setup() {
+        try {
+            plotFile = Files.createTempFile("BinaryPlotFileTest", ".wplot").toFile();
+            plot = new PlotWindowModel("MyTestPlot");
+            plot.setCategory("MyCategory");
+            PlotCanvasModel canvas = new PlotCanvasModel(plot.getUUID());
+            trace = new PlotTraceModel(canvas.getUUID());
+            for(int i = 0; i < 10; i++) {
+                PlotTracePoint point = new PlotTracePoint(Integer.toString(i), Double.toString(i * 1.5));
+                point.metadata.put("commit", "abc" + i);
+                trace.add(point);
+            }
+
+            try(OutputStream out = new FileOutputStream(plotFile)) {
+                BinaryPlotFile.write(plot, out);
+            }
+        } catch(IOException | ChartreuseException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    //////////
+    // TEST //
+    //////////
+
+    @Test
+    public void testReadWrite() throws IOException {
+        PlotWindowModel readPlot;
+        try(InputStream in = new FileInputStream(plotFile)) {
+            readPlot = BinaryPlotFile.read(in);
+        }
+
+        assertEquals(plot.getUUID(), readPlot.getUUID());
+        assertEquals("MyTestPlot", readPlot.getName());
+        assertEquals("MyCategory", readPlot.getCategory());
+
+        PlotTraceModel readTrace = readPlot.getCanvasModels().get(0).getTraceModels().get(0);
+        assertEquals(trace.getUUID(), readTrace.getUUID());
+        assertEquals(trace.getPoints(), readTrace.getPoints());
+        assertEquals("abc9", readTrace.getPoints().get(9).metadata.get("commit"));
+    }
+
+    @Test
+    public void testReadHeader_NoPoints() throws IOException {
+        PlotWindowModel readPlot = BinaryPlotFile.fromHeaderJson(BinaryPlotFile.readHeaderJson(plotFile));
+        assertEquals("MyTestPlot", readPlot.getName());
+        PlotTraceModel readTrace = readPlot.getCanvasModels().get(0).getTraceModels().get(0);
+        assertEquals(0, readTrace.getPointCount());
+    }
+
+    @Test
+    public void testIsBinaryPlotFile() throws IOException {
+        assertTrue(BinaryPlotFile.isBinaryPlotFile(plotFile));
+
+        File jsonFile = Files.createTempFile("BinaryPlotFileTest", ".json").toFile();
+        assertFalse(BinaryPlotFile.isBinaryPlotFile(jsonFile));
+    }
+}
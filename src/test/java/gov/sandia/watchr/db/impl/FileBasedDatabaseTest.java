@@ -1,5 +1,6 @@
 package gov.sandia.watchr.db.impl;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -9,11 +10,26 @@ import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.apache.commons.io.FileUtils;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -21,8 +37,14 @@ import gov.sandia.watchr.config.GraphDisplayConfig;
 import gov.sandia.watchr.config.WatchrConfig;
 import gov.sandia.watchr.config.file.DefaultFileReader;
 import gov.sandia.watchr.config.file.IFileReader;
+import gov.sandia.watchr.db.PlotDatabaseSearchCriteria;
+import gov.sandia.watchr.graph.chartreuse.ChartreuseException;
+import gov.sandia.watchr.graph.chartreuse.model.PlotCanvasModel;
+import gov.sandia.watchr.graph.chartreuse.model.PlotTraceModel;
+import gov.sandia.watchr.graph.chartreuse.model.PlotTracePoint;
 import gov.sandia.watchr.graph.chartreuse.model.PlotWindowModel;
 import gov.sandia.watchr.log.StringOutputLogger;
+import gov.sandia.watchr.parse.generators.rule.actors.RulePlotTraceModelFailActor;
 import gov.sandia.watchr.util.CommonConstants;
 
 public class FileBasedDatabaseTest {
@@ -126,6 +148,37 @@ public class FileBasedDatabaseTest {
         assertTrue(returnedUUIDs.isEmpty());
     }
 
+    @Test
+    public void testDeletePlotsByCategory_DeletesPlotsThatAreNotInMemory() {
+        PlotWindowModel plot1 = new PlotWindowModel("Plot1");
+        PlotWindowModel plot2 = new PlotWindowModel("Plot2");
+        PlotWindowModel plot3 = new PlotWindowModel("Plot3");
+        plot1.setCategory("Retired");
+        plot2.setCategory("Retired");
+        plot3.setCategory("Current");
+        db.addPlot(new PlotWindowModel(CommonConstants.ROOT_PATH_ALIAS));
+        db.addPlot(plot1);
+        db.addPlot(plot2);
+        db.addPlot(plot3);
+        db.setSaveThreadCount(2);
+        db.saveState();
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.setSaveThreadCount(2);
+        newDb.loadState();
+        assertEquals(2, newDb.deletePlotsByCategory("Retired"));
+        newDb.saveState();
+        assertFalse(new File(rootDir, "plot_" + plot1.getUUID().toString() + ".json").exists());
+        assertFalse(new File(rootDir, "plot_" + plot2.getUUID().toString() + ".json").exists());
+        assertTrue(new File(rootDir, "plot_" + plot3.getUUID().toString() + ".json").exists());
+
+        FileBasedDatabase thirdDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        thirdDb.loadState();
+        assertEquals(1, thirdDb.getMetadata().getPlotCount());
+        assertEquals(2, thirdDb.plotIndex.size());
+        assertNotNull(thirdDb.searchPlot(new PlotDatabaseSearchCriteria("Plot3", "Current")));
+    }
+
     @Test
     public void testReadPlots() {
         PlotWindowModel plot1 = new PlotWindowModel("Plot1");
@@ -159,6 +212,699 @@ public class FileBasedDatabaseTest {
         assertEquals(1, db.plots.size());
     }
 
+    @Test
+    public void testLoadRootPlot_RootUUIDRecordedInMetadata() {
+        PlotWindowModel rootPlot = new PlotWindowModel(CommonConstants.ROOT_PATH_ALIAS);
+        db.addPlot(rootPlot);
+        db.saveState();
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.readMetadata();
+        assertEquals(rootPlot.getUUID().toString(), newDb.getMetadata().getRootPlotUUID());
+        assertEquals(rootPlot, newDb.readRootPlotUsingMetadata());
+    }
+
+    @Test
+    public void testLoadRootPlot_MigrateMetadataWithoutRootUUID() {
+        PlotWindowModel rootPlot = new PlotWindowModel(CommonConstants.ROOT_PATH_ALIAS);
+        db.addPlot(rootPlot);
+        db.saveState();
+
+        // Simulate a database written before the root UUID was recorded.
+        FileBasedDatabase oldDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        oldDb.getMetadata().setRootPlotUUID(null);
+        oldDb.writeMetadata();
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.loadState();
+        assertEquals(rootPlot, newDb.getRootPlot());
+
+        FileBasedDatabase migratedDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        migratedDb.readMetadata();
+        assertEquals(rootPlot.getUUID().toString(), migratedDb.getMetadata().getRootPlotUUID());
+    }
+
+    @Test
+    public void testPlotCache_EvictsLeastRecentlyUsedPlots() {
+        FileBasedDatabase boundedDb = new FileBasedDatabase(rootDir, testLogger, fileReader, 2);
+        PlotWindowModel plot1 = new PlotWindowModel("MyTestPlot1");
+        PlotWindowModel plot2 = new PlotWindowModel("MyTestPlot2");
+        PlotWindowModel plot3 = new PlotWindowModel("MyTestPlot3");
+        boundedDb.addPlot(plot1);
+        boundedDb.addPlot(plot2);
+        boundedDb.addPlot(plot3);
+
+        assertEquals(2, boundedDb.plots.size());
+        assertEquals(2, boundedDb.getPlotCacheWeight());
+        assertFalse(boundedDb.plots.containsKey(plot1.getUUID()));
+        assertFalse(boundedDb.dirtyPlotUUIDs.contains(plot1.getUUID().toString()));
+
+        // The evicted dirty plot should have been flushed to disk.
+        File plotFile = new File(rootDir, "plot_" + plot1.getUUID().toString() + ".json");
+        assertTrue(plotFile.exists());
+
+        PlotWindowModel reloadedPlot = boundedDb.getPlotByUUID(plot1.getUUID().toString());
+        assertEquals(plot1, reloadedPlot);
+        assertEquals(2, boundedDb.plots.size());
+        assertFalse(boundedDb.plots.containsKey(plot2.getUUID()));
+    }
+
+    @Test
+    public void testPlotCache_KeepsPlotsPinnedByWriters() {
+        FileBasedDatabase boundedDb = new FileBasedDatabase(rootDir, testLogger, fileReader, 1);
+        PlotWindowModel plot1 = boundedDb.searchAndMakeNewIfMissing(new PlotDatabaseSearchCriteria("MyTestPlot1", ""));
+        PlotWindowModel plot2 = new PlotWindowModel("MyTestPlot2");
+        boundedDb.addPlot(plot2);
+        assertTrue(boundedDb.plots.containsKey(plot1.getUUID()));
+
+        // Once the writer is done with the plot, it can be evicted again.
+        boundedDb.updatePlot(plot1, false);
+        assertFalse(boundedDb.plots.containsKey(plot2.getUUID()));
+        boundedDb.addPlot(new PlotWindowModel("MyTestPlot3"));
+        assertFalse(boundedDb.plots.containsKey(plot1.getUUID()));
+        assertEquals(plot1, boundedDb.getPlotByUUID(plot1.getUUID().toString()));
+    }
+
+    @Test
+    public void testPlotCache_ShrinkCapacity() {
+        PlotWindowModel plot1 = new PlotWindowModel("MyTestPlot1");
+        PlotWindowModel plot2 = new PlotWindowModel("MyTestPlot2");
+        PlotWindowModel rootPlot = new PlotWindowModel(CommonConstants.ROOT_PATH_ALIAS);
+        db.addPlot(rootPlot);
+        db.addPlot(plot1);
+        db.addPlot(plot2);
+        assertEquals(3, db.plots.size());
+
+        db.setPlotCacheCapacity(0);
+        assertEquals(1, db.plots.size());
+        assertEquals(rootPlot, db.getRootPlot());
+        assertEquals(3, db.getAllPlots().size() + 1);
+    }
+
+    @Test
+    public void testSaveState_ClearsDirtyPlots() {
+        PlotWindowModel plot = new PlotWindowModel("MyTestPlot1");
+        db.addPlot(plot);
+        assertTrue(db.dirtyPlotUUIDs.contains(plot.getUUID().toString()));
+
+        db.saveState();
+        assertTrue(db.dirtyPlotUUIDs.isEmpty());
+    }
+
+    @Test
+    public void testSaveState_SkipUnchangedPlots() {
+        PlotWindowModel plot = new PlotWindowModel("MyTestPlot1");
+        db.addPlot(plot);
+        db.saveState();
+
+        File plotFile = new File(rootDir, "plot_" + plot.getUUID().toString() + ".json");
+        assertTrue(plotFile.setLastModified(0L));
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.loadState();
+        PlotWindowModel readPlot = newDb.searchPlot(new PlotDatabaseSearchCriteria("MyTestPlot1", ""));
+        assertEquals(plot, readPlot);
+        newDb.updatePlot(readPlot, false);
+        newDb.saveState();
+        assertEquals(0L, plotFile.lastModified());
+
+        readPlot.setCategory("MyCategory");
+        newDb.updatePlot(readPlot, false);
+        newDb.saveState();
+        assertTrue(plotFile.lastModified() > 0L);
+    }
+
+    @Test
+    public void testSaveState_WritesPlotsInParallel() {
+        db.setSaveThreadCount(4);
+        List<PlotWindowModel> newPlots = new ArrayList<>();
+        for(int i = 0; i < 20; i++) {
+            PlotWindowModel plot = new PlotWindowModel("MyTestPlot" + i);
+            newPlots.add(plot);
+            db.addPlot(plot);
+        }
+        db.saveState();
+
+        assertTrue(db.dirtyPlotUUIDs.isEmpty());
+        for(PlotWindowModel plot : newPlots) {
+            assertTrue(new File(rootDir, "plot_" + plot.getUUID().toString() + ".json").exists());
+        }
+        for(File file : rootDir.listFiles()) {
+            assertFalse(file.getName().endsWith(".tmp"));
+        }
+    }
+
+    @Test
+    public void testSaveState_KeepsFilePermissions() throws IOException {
+        Assume.assumeTrue(Files.getFileStore(rootDir.toPath()).supportsFileAttributeView(PosixFileAttributeView.class));
+        db.setSyncOnWrite(true);
+        PlotWindowModel plot = new PlotWindowModel("MyTestPlot1");
+        db.addPlot(plot);
+        db.saveState();
+
+        Path plotFile = new File(rootDir, "plot_" + plot.getUUID().toString() + ".json").toPath();
+        Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-r-----");
+        Files.setPosixFilePermissions(plotFile, permissions);
+
+        plot.setCategory("MyCategory");
+        db.updatePlot(plot, false);
+        db.saveState();
+        assertEquals("MyCategory", db.readPlot(plotFile.toFile()).getCategory());
+        assertEquals(permissions, Files.getPosixFilePermissions(plotFile));
+    }
+
+    @Test
+    public void testLoadState_DeletesLeftoverTempFiles() throws IOException {
+        File tempFile = new File(rootDir, ".metadata.json.12345.tmp");
+        assertTrue(tempFile.createNewFile());
+
+        db.loadState();
+        assertFalse(tempFile.exists());
+    }
+
+    @Test
+    public void testReadOnly_LeavesDirectoryUntouched() throws IOException {
+        PlotWindowModel plot1 = new PlotWindowModel("Plot1");
+        db.addPlot(plot1);
+        db.saveState();
+        File tempFile = new File(rootDir, ".metadata.json.12345.tmp");
+        assertTrue(tempFile.createNewFile());
+        List<String> filesBefore = listFileNames(rootDir);
+
+        FileBasedDatabase readOnlyDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        readOnlyDb.setReadOnly(true);
+        readOnlyDb.loadState();
+        assertNotNull(readOnlyDb.getPlotByUUID(plot1.getUUID().toString()));
+
+        readOnlyDb.addPlot(new PlotWindowModel("Plot2"));
+        readOnlyDb.deletePlot(plot1.getUUID().toString());
+        readOnlyDb.saveState();
+        assertEquals(filesBefore, listFileNames(rootDir));
+        assertEquals(1, readOnlyDb.getAllPlots().size());
+    }
+
+    @Test
+    public void testBinaryPlotFileFormat() {
+        db.setPlotFileFormat(PlotFileFormat.BINARY);
+        PlotWindowModel plot = new PlotWindowModel("MyTestPlot1");
+        plot.setCategory("MyCategory");
+        db.addPlot(plot);
+        db.saveState();
+
+        assertTrue(new File(rootDir, "plot_" + plot.getUUID().toString() + ".wplot").exists());
+        assertFalse(new File(rootDir, "plot_" + plot.getUUID().toString() + ".json").exists());
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.loadState();
+        assertEquals(PlotFileFormat.BINARY, newDb.getPlotFileFormat());
+        PlotWindowModel readPlot = newDb.searchPlot(new PlotDatabaseSearchCriteria("MyTestPlot1", "MyCategory"));
+        assertEquals(plot, readPlot);
+    }
+
+    @Test
+    public void testConvertPlotFiles() {
+        PlotWindowModel plot = new PlotWindowModel("MyTestPlot1");
+        db.addPlot(plot);
+        db.saveState();
+        File jsonFile = new File(rootDir, "plot_" + plot.getUUID().toString() + ".json");
+        File binaryFile = new File(rootDir, "plot_" + plot.getUUID().toString() + ".wplot");
+        assertTrue(jsonFile.exists());
+
+        assertEquals(1, db.convertPlotFiles(PlotFileFormat.BINARY));
+        assertFalse(jsonFile.exists());
+        assertTrue(binaryFile.exists());
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.loadState();
+        assertEquals(1, newDb.convertPlotFiles(PlotFileFormat.JSON));
+        assertTrue(jsonFile.exists());
+        assertFalse(binaryFile.exists());
+        assertEquals(plot, newDb.loadPlotUsingUUID(plot.getUUID().toString()));
+    }
+
+    @Test
+    public void testSearchAndMakeNewIfMissing_Concurrent() throws Exception {
+        for(int i = 0; i < 10; i++) {
+            db.addPlot(new PlotWindowModel("ExistingPlot" + i));
+        }
+        db.saveState();
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.loadState();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<PlotWindowModel>> futures = new ArrayList<>();
+            for(int i = 0; i < 400; i++) {
+                String name = (i % 2 == 0 ? "ExistingPlot" : "NewPlot") + (i / 2 % 10);
+                futures.add(executor.submit(() ->
+                    newDb.searchAndMakeNewIfMissing(new PlotDatabaseSearchCriteria(name, ""))));
+            }
+
+            Map<String, PlotWindowModel> plotsByName = new HashMap<>();
+            for(Future<PlotWindowModel> future : futures) {
+                PlotWindowModel plot = future.get();
+                assertNotNull(plot);
+                PlotWindowModel otherPlot = plotsByName.putIfAbsent(plot.getName(), plot);
+                assertTrue(otherPlot == null || otherPlot == plot);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(20, newDb.getAllPlots().size());
+        assertEquals(20, newDb.getMetadata().getPlotCount());
+    }
+
+    @Test
+    public void testPlotCache_ConcurrentWritersLoseNoPoints() throws Exception {
+        for(int i = 0; i < 10; i++) {
+            db.addPlot(createPlotWithPoints("ExistingPlot" + i, 1));
+        }
+        db.saveState();
+
+        FileBasedDatabase boundedDb = new FileBasedDatabase(rootDir, testLogger, fileReader, 3);
+        boundedDb.loadState();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for(int i = 0; i < 200; i++) {
+                String name = "ExistingPlot" + (i % 10);
+                PlotTracePoint newPoint = new PlotTracePoint(Integer.toString(i + 100), "1.0");
+                futures.add(executor.submit(() -> {
+                    PlotWindowModel plot = boundedDb.searchAndMakeNewIfMissing(new PlotDatabaseSearchCriteria(name, ""));
+                    synchronized(plot) {
+                        plot.getAllTraceModels().get(0).add(newPoint);
+                        boundedDb.updatePlot(plot, false);
+                    }
+                    return null;
+                }));
+            }
+            for(Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        boundedDb.saveState();
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.loadState();
+        int pointCount = 0;
+        for(PlotWindowModel plot : newDb.getAllPlots()) {
+            pointCount += plot.getPointCount();
+        }
+        assertEquals(210, pointCount);
+    }
+
+    @Test
+    public void testShardedPlotFileLayout() {
+        db.setPlotFileLayout(PlotFileLayout.SHARDED);
+        PlotWindowModel plot = new PlotWindowModel("MyTestPlot1");
+        plot.setCategory("MyCategory");
+        db.addPlot(plot);
+        db.saveState();
+
+        String uuid = plot.getUUID().toString();
+        File shardDir = new File(new File(rootDir, "plots"), uuid.substring(0, 2));
+        assertTrue(new File(shardDir, "plot_" + uuid + ".json").exists());
+        assertFalse(new File(rootDir, "plot_" + uuid + ".json").exists());
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.loadState();
+        assertEquals(PlotFileLayout.SHARDED, newDb.getPlotFileLayout());
+        assertEquals(plot, newDb.searchPlot(new PlotDatabaseSearchCriteria("MyTestPlot1", "MyCategory")));
+        assertEquals(1, newDb.getAllPlots().size());
+    }
+
+    @Test
+    public void testMigratePlotFileLayout() {
+        PlotWindowModel plot1 = new PlotWindowModel("MyTestPlot1");
+        PlotWindowModel plot2 = new PlotWindowModel("MyTestPlot2");
+        db.addPlot(plot1);
+        db.addPlot(plot2);
+        db.saveState();
+        String uuid1 = plot1.getUUID().toString();
+        File flatFile = new File(rootDir, "plot_" + uuid1 + ".json");
+        File shardedFile = new File(new File(new File(rootDir, "plots"), uuid1.substring(0, 2)), "plot_" + uuid1 + ".json");
+        assertTrue(flatFile.exists());
+
+        assertEquals(2, db.migratePlotFileLayout(PlotFileLayout.SHARDED));
+        assertFalse(flatFile.exists());
+        assertTrue(shardedFile.exists());
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.loadState();
+        assertEquals(2, newDb.getAllPlots().size());
+        assertEquals(2, newDb.migratePlotFileLayout(PlotFileLayout.FLAT));
+        assertTrue(flatFile.exists());
+        assertFalse(new File(rootDir, "plots").exists());
+        assertEquals(plot1, newDb.loadPlotUsingUUID(uuid1));
+    }
+
+    @Test
+    public void testShardedPlotFileLayout_ReadsBothLayouts() {
+        PlotWindowModel plot1 = new PlotWindowModel("MyTestPlot1");
+        db.addPlot(plot1);
+        db.saveState();
+
+        db.setPlotFileLayout(PlotFileLayout.SHARDED);
+        PlotWindowModel plot2 = new PlotWindowModel("MyTestPlot2");
+        db.addPlot(plot2);
+        db.saveState();
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.loadState();
+        assertEquals(plot1, newDb.searchPlot(new PlotDatabaseSearchCriteria("MyTestPlot1", "")));
+        assertEquals(plot2, newDb.searchPlot(new PlotDatabaseSearchCriteria("MyTestPlot2", "")));
+
+        // Rewriting a plot moves it into the current layout.
+        String uuid1 = plot1.getUUID().toString();
+        PlotWindowModel readPlot1 = newDb.getPlotByUUID(uuid1);
+        readPlot1.setCategory("NewCategory");
+        newDb.updatePlot(readPlot1, false);
+        newDb.saveState();
+        assertFalse(new File(rootDir, "plot_" + uuid1 + ".json").exists());
+        assertTrue(newDb.getPlotFile(uuid1).exists());
+        assertEquals(2, newDb.getAllPlots().size());
+    }
+
+    @Test
+    public void testSaveState_AppendsNewPointsToPointLog() throws ChartreuseException {
+        PlotWindowModel plot = createPlotWithPoints("MyTestPlot1", 2);
+        db.addPlot(plot);
+        db.saveState();
+
+        File plotFile = new File(rootDir, "plot_" + plot.getUUID().toString() + ".json");
+        File pointLogFile = new File(rootDir, PointLog.FILE_NAME);
+        assertTrue(plotFile.setLastModified(0L));
+        assertFalse(pointLogFile.exists());
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.setPointLogCompactionThreshold(FileBasedDatabase.DEFAULT_POINT_LOG_COMPACTION_THRESHOLD);
+        newDb.loadState();
+        PlotWindowModel readPlot = newDb.searchPlot(new PlotDatabaseSearchCriteria("MyTestPlot1", ""));
+        PlotTraceModel readTrace = readPlot.getAllTraceModels().get(0);
+        PlotTracePoint newPoint = new PlotTracePoint("2", "3.0");
+        newPoint.metadata.put("commit", "abc2");
+        readTrace.add(newPoint);
+        newDb.updatePlot(readPlot, false);
+        newDb.saveState();
+
+        assertEquals(0L, plotFile.lastModified());
+        assertTrue(pointLogFile.exists());
+        assertEquals(1, newDb.pointLog.getEntryCount());
+
+        FileBasedDatabase thirdDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        thirdDb.loadState();
+        PlotTraceModel replayedTrace =
+            thirdDb.loadPlotUsingUUID(plot.getUUID().toString()).getAllTraceModels().get(0);
+        assertEquals(3, replayedTrace.getPointCount());
+        assertEquals(newPoint, replayedTrace.getPoints().get(2));
+        assertEquals("abc2", replayedTrace.getPoints().get(2).metadata.get("commit"));
+    }
+
+    @Test
+    public void testSaveState_LogsPointRemovals() throws ChartreuseException {
+        PlotWindowModel plot = createPlotWithPoints("MyTestPlot1", 3);
+        db.addPlot(plot);
+        db.saveState();
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.setPointLogCompactionThreshold(FileBasedDatabase.DEFAULT_POINT_LOG_COMPACTION_THRESHOLD);
+        newDb.loadState();
+        PlotWindowModel readPlot = newDb.loadPlotUsingUUID(plot.getUUID().toString());
+        PlotTraceModel readTrace = readPlot.getAllTraceModels().get(0);
+        readTrace.remove(readTrace.getPoints().get(0));
+        readTrace.add(new PlotTracePoint("3", "4.5"));
+        newDb.updatePlot(readPlot, false);
+        newDb.saveState();
+        assertEquals(2, newDb.pointLog.getEntryCount());
+
+        FileBasedDatabase thirdDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        thirdDb.loadState();
+        List<PlotTracePoint> points =
+            thirdDb.loadPlotUsingUUID(plot.getUUID().toString()).getAllTraceModels().get(0).getPoints();
+        assertEquals(3, points.size());
+        assertEquals("1", points.get(0).x);
+        assertEquals("3", points.get(2).x);
+    }
+
+    @Test
+    public void testSaveState_RewritesPlotWhenMoreThanPointsChange() throws ChartreuseException {
+        db.setPointLogCompactionThreshold(FileBasedDatabase.DEFAULT_POINT_LOG_COMPACTION_THRESHOLD);
+        PlotWindowModel plot = createPlotWithPoints("MyTestPlot1", 2);
+        db.addPlot(plot);
+        db.saveState();
+
+        plot.getAllTraceModels().get(0).add(new PlotTracePoint("2", "3.0"));
+        db.updatePlot(plot, false);
+        db.saveState();
+        assertEquals(1, db.pointLog.getEntryCount());
+
+        plot.setCategory("MyCategory");
+        db.updatePlot(plot, false);
+        db.saveState();
+
+        // The plot file now holds the logged point, so the log records a reset.
+        assertEquals(2, db.pointLog.getEntryCount());
+        assertFalse(db.pointLog.hasPendingEntries(plot.getUUID().toString()));
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.loadState();
+        PlotWindowModel readPlot = newDb.loadPlotUsingUUID(plot.getUUID().toString());
+        assertEquals("MyCategory", readPlot.getCategory());
+        assertEquals(3, readPlot.getPointCount());
+    }
+
+    @Test
+    public void testSaveState_CompactsPointLog() throws ChartreuseException {
+        db.setPointLogCompactionThreshold(2);
+        PlotWindowModel plot = createPlotWithPoints("MyTestPlot1", 1);
+        db.addPlot(plot);
+        db.saveState();
+
+        File pointLogFile = new File(rootDir, PointLog.FILE_NAME);
+        PlotTraceModel trace = plot.getAllTraceModels().get(0);
+        trace.add(new PlotTracePoint("1", "1.5"));
+        db.updatePlot(plot, false);
+        db.saveState();
+        assertTrue(pointLogFile.exists());
+
+        trace.add(new PlotTracePoint("2", "3.0"));
+        db.updatePlot(plot, false);
+        db.saveState();
+        assertFalse(pointLogFile.exists());
+        assertEquals(0, db.pointLog.getEntryCount());
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.loadState();
+        File plotFile = new File(rootDir, "plot_" + plot.getUUID().toString() + ".json");
+        assertEquals(3, newDb.readPlot(plotFile).getPointCount());
+    }
+
+    @Test
+    public void testSaveState_ReplaysPointLogIfRewriteWasInterrupted() throws ChartreuseException, IOException {
+        PlotWindowModel plot = createPlotWithPoints("MyTestPlot1", 2);
+        db.addPlot(plot);
+        db.saveState();
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.setPointLogCompactionThreshold(FileBasedDatabase.DEFAULT_POINT_LOG_COMPACTION_THRESHOLD);
+        newDb.loadState();
+        PlotWindowModel readPlot = newDb.loadPlotUsingUUID(plot.getUUID().toString());
+        PlotTraceModel readTrace = readPlot.getAllTraceModels().get(0);
+        readTrace.remove(readTrace.getPoints().get(0));
+        readTrace.add(new PlotTracePoint("2", "3.0"));
+        newDb.updatePlot(readPlot, false);
+        newDb.saveState();
+
+        // A rewrite that stopped after logging its reset, but before replacing the plot file.
+        newDb.pointLog.reset(plot.getUUID().toString(), "hash-of-a-file-that-never-landed", false);
+
+        FileBasedDatabase thirdDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        thirdDb.loadState();
+        List<PlotTracePoint> points =
+            thirdDb.loadPlotUsingUUID(plot.getUUID().toString()).getAllTraceModels().get(0).getPoints();
+        assertEquals(2, points.size());
+        assertEquals("1", points.get(0).x);
+        assertEquals("2", points.get(1).x);
+    }
+
+    @Test
+    public void testSaveState_PointLogDisabledByDefault() throws ChartreuseException {
+        assertEquals(FileBasedDatabase.POINT_LOG_DISABLED, db.getPointLogCompactionThreshold());
+        PlotWindowModel plot = createPlotWithPoints("MyTestPlot1", 1);
+        db.addPlot(plot);
+        db.saveState();
+
+        plot.getAllTraceModels().get(0).add(new PlotTracePoint("1", "1.5"));
+        db.updatePlot(plot, false);
+        db.saveState();
+        assertFalse(new File(rootDir, PointLog.FILE_NAME).exists());
+    }
+
+    @Test
+    public void testSaveState_OnlyPointLogGrowsWhenEnabled() throws ChartreuseException, IOException {
+        db.setPointLogCompactionThreshold(FileBasedDatabase.DEFAULT_POINT_LOG_COMPACTION_THRESHOLD);
+        PlotWindowModel plot = createPlotWithPoints("MyTestPlot1", 2);
+        db.addPlot(plot);
+        db.saveState();
+
+        File pointLogFile = new File(rootDir, PointLog.FILE_NAME);
+        Map<String, byte[]> savedFiles = new HashMap<>();
+        for(String fileName : listFileNames(rootDir)) {
+            savedFiles.put(fileName, Files.readAllBytes(new File(rootDir, fileName).toPath()));
+        }
+
+        long pointLogLength = 0L;
+        for(int i = 2; i < 5; i++) {
+            plot.getAllTraceModels().get(0).add(new PlotTracePoint(Integer.toString(i), Double.toString(i * 1.5)));
+            db.updatePlot(plot, false);
+            db.saveState();
+
+            assertTrue(pointLogFile.length() > pointLogLength);
+            pointLogLength = pointLogFile.length();
+            List<String> fileNames = listFileNames(rootDir);
+            fileNames.remove(PointLog.FILE_NAME);
+            assertEquals(savedFiles.keySet(), new HashSet<>(fileNames));
+            for(String fileName : fileNames) {
+                assertArrayEquals(fileName, savedFiles.get(fileName), Files.readAllBytes(new File(rootDir, fileName).toPath()));
+            }
+        }
+        assertEquals(3, db.pointLog.getEntryCount());
+    }
+
+    @Test
+    public void testPointLog_ReplayMatchesTraceSemantics() throws ChartreuseException, IOException {
+        PlotWindowModel plot = createPlotWithPoints("MyTestPlot1", 2);
+        PlotTraceModel trace = plot.getAllTraceModels().get(0);
+        // Restored points are not checked for duplicates, so a trace can hold equal points.
+        trace.restorePoints(Collections.singletonList(new PlotTracePoint("0", "0.0")));
+        PlotWindowModel expectedPlot = new PlotWindowModel(plot);
+        PlotTraceModel expectedTrace = expectedPlot.getAllTraceModels().get(0);
+
+        PlotTracePoint relabeledPoint = new PlotTracePoint("1", "1.5");
+        relabeledPoint.metadata.put("commit", "abc2");
+        PlotTracePoint newPoint = new PlotTracePoint("2", "3.0");
+        PlotTracePoint duplicatePoint = new PlotTracePoint("0", "0.0");
+
+        PointLog pointLog = new PointLog(rootDir);
+        List<PointLog.PointLogEntry> entries = new ArrayList<>();
+        entries.add(PointLog.PointLogEntry.add(plot.getUUID(), trace.getUUID(), relabeledPoint));
+        entries.add(PointLog.PointLogEntry.remove(plot.getUUID(), trace.getUUID(), duplicatePoint));
+        entries.add(PointLog.PointLogEntry.add(plot.getUUID(), trace.getUUID(), newPoint));
+        entries.add(PointLog.PointLogEntry.remove(plot.getUUID(), trace.getUUID(), newPoint));
+        entries.add(PointLog.PointLogEntry.add(plot.getUUID(), trace.getUUID(), newPoint));
+        pointLog.append(entries, false);
+        assertEquals(5, pointLog.replay(plot, "hash"));
+
+        expectedTrace.add(relabeledPoint);
+        expectedTrace.remove(duplicatePoint);
+        expectedTrace.add(newPoint);
+        expectedTrace.remove(newPoint);
+        expectedTrace.add(newPoint);
+        assertEquals(expectedTrace.getPoints(), trace.getPoints());
+        assertEquals(3, trace.getPointCount());
+        assertEquals("0", trace.getPoints().get(1).x);
+        assertNull(trace.getPoints().get(0).metadata.get("commit"));
+    }
+
+    @Test
+    public void testDatabaseImage_LoadStateReadsImage() throws ChartreuseException, IOException {
+        PlotWindowModel rootPlot = new PlotWindowModel(CommonConstants.ROOT_PATH_ALIAS);
+        PlotWindowModel childPlot = createPlotWithPoints("Child", 3);
+        db.addPlot(rootPlot);
+        db.addPlot(childPlot);
+        db.setPlotsAsChildren(rootPlot, Collections.singletonList(childPlot));
+        db.setDatabaseImageEnabled(true);
+        db.saveState();
+        assertTrue(new File(rootDir, DatabaseImage.FILE_NAME).exists());
+
+        // The image holds copies of these files, so they are not read while it is up to date.
+        assertTrue(new File(rootDir, "parentChildPlots.json").delete());
+        assertTrue(new File(rootDir, "plotIndex.json").delete());
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.loadState();
+        assertTrue(newDb.isDatabaseImageEnabled());
+        assertTrue(newDb.plotIndex.contains(childPlot.getUUID().toString()));
+        assertTrue(newDb.parentChildPlots.get(rootPlot.getUUID().toString()).contains(childPlot.getUUID().toString()));
+        assertEquals(rootPlot.getUUID(), newDb.getRootPlot().getUUID());
+
+        // Plots are decoded from the image when they are first needed, not while it is read.
+        assertEquals(1, newDb.plots.size());
+        File childPlotFile = newDb.getPlotFile(childPlot.getUUID().toString());
+        Files.write(childPlotFile.toPath(), "not a plot".getBytes(StandardCharsets.UTF_8));
+        PlotWindowModel readChildPlot = newDb.getPlotByUUID(childPlot.getUUID().toString());
+        assertEquals(3, readChildPlot.getAllTraceModels().get(0).getPointCount());
+    }
+
+    @Test
+    public void testDatabaseImage_IgnoredWhenOutOfDate() {
+        PlotWindowModel rootPlot = new PlotWindowModel(CommonConstants.ROOT_PATH_ALIAS);
+        db.addPlot(rootPlot);
+        db.addPlot(new PlotWindowModel("Plot1"));
+        db.setDatabaseImageEnabled(true);
+        db.saveState();
+
+        File metadataFile = new File(rootDir, "metadata.json");
+        assertTrue(metadataFile.setLastModified(metadataFile.lastModified() - 1000));
+
+        // Only the root plot is loaded when the image is not read.
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.loadState();
+        assertEquals(1, newDb.plots.size());
+        assertNotNull(newDb.searchPlot(new PlotDatabaseSearchCriteria("Plot1", "")));
+    }
+
+    @Test
+    public void testDatabaseImage_DeletedBeforeFilesChange() {
+        PlotWindowModel plot1 = new PlotWindowModel("Plot1");
+        db.addPlot(new PlotWindowModel(CommonConstants.ROOT_PATH_ALIAS));
+        db.addPlot(plot1);
+        db.setDatabaseImageEnabled(true);
+        db.saveState();
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.loadState();
+        newDb.deletePlot(plot1.getUUID().toString());
+        assertFalse(new File(rootDir, DatabaseImage.FILE_NAME).exists());
+
+        FileBasedDatabase thirdDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        thirdDb.loadState();
+        assertNull(thirdDb.getPlotByUUID(plot1.getUUID().toString()));
+    }
+
+    @Test
+    public void testWriteBehind_WritesIdlePlots() throws InterruptedException {
+        PlotWindowModel plot = new PlotWindowModel("Plot1");
+        db.addPlot(plot);
+        File plotFile = db.getPlotFile(plot.getUUID().toString());
+
+        db.startWriteBehind(20, FileBasedDatabase.UNBOUNDED_DIRTY_WEIGHT);
+        try {
+            assertTrue(waitForFile(plotFile));
+            assertFalse(db.dirtyPlotUUIDs.contains(plot.getUUID().toString()));
+        } finally {
+            db.stopWriteBehind();
+        }
+        assertFalse(db.isWriteBehindRunning());
+    }
+
+    @Test
+    public void testWriteBehind_WritesBusyPlotsOverThreshold() throws ChartreuseException, InterruptedException {
+        PlotWindowModel plot = createPlotWithPoints("Plot1", 3);
+        db.addPlot(plot);
+        File plotFile = db.getPlotFile(plot.getUUID().toString());
+
+        // The plot never goes idle, but it holds more unsaved points than allowed.
+        db.startWriteBehind(60 * 60 * 1000, 2);
+        try {
+            assertTrue(waitForFile(plotFile));
+        } finally {
+            db.stopWriteBehind();
+        }
+    }
+
     @Test
     public void testLoadChildPlots() {
         PlotWindowModel plotWindow1 = new PlotWindowModel("MyTestPlot1");
@@ -208,6 +954,37 @@ public class FileBasedDatabaseTest {
         assertTrue(expectedValues.contains(plot3.getUUID().toString()));
     }
 
+    @Test
+    public void testReadChildParentRelationships() {
+        PlotWindowModel plot = new PlotWindowModel("MyTestPlot1");
+        db.addPlot(plot);
+        PlotWindowModel plot2 = new PlotWindowModel("MyTestPlot2");
+        db.addPlot(plot2);
+        db.setPlotsAsChildren(plot, Collections.singletonList(plot2));
+        db.saveState();
+        assertTrue(new File(rootDir, "childParentPlots.json").exists());
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.loadState();
+        assertEquals(plot.getUUID().toString(), newDb.childParentPlots.get(plot2.getUUID().toString()));
+        assertEquals(plot, newDb.getParent(new PlotDatabaseSearchCriteria("MyTestPlot2", "")));
+    }
+
+    @Test
+    public void testReadChildParentRelationships_RebuildIfMissing() {
+        PlotWindowModel plot = new PlotWindowModel("MyTestPlot1");
+        db.addPlot(plot);
+        PlotWindowModel plot2 = new PlotWindowModel("MyTestPlot2");
+        db.addPlot(plot2);
+        db.setPlotsAsChildren(plot, Collections.singletonList(plot2));
+        db.saveState();
+        assertTrue(new File(rootDir, "childParentPlots.json").delete());
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.loadState();
+        assertEquals(plot.getUUID().toString(), newDb.childParentPlots.get(plot2.getUUID().toString()));
+    }
+
     
     @Test
     public void testReadFileCache() {
@@ -224,6 +1001,101 @@ public class FileBasedDatabaseTest {
         assertTrue(newDb.hasSeenFile("FilePath2"));
     }
 
+    @Test
+    public void testReadFileCache_RewrittenFileIsUnseen() throws IOException {
+        File report = new File(rootDir, "report.xml");
+        FileUtils.write(report, "<report/>", StandardCharsets.UTF_8);
+        assertTrue(report.setLastModified(1000000L));
+        db.addFileToCache(report.getAbsolutePath());
+        db.saveState();
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.readFileCache();
+        assertTrue(newDb.hasSeenFile(report.getAbsolutePath()));
+        assertFalse(newDb.hasSeenFile(new File(rootDir, "renamed.xml").getAbsolutePath()));
+
+        FileUtils.write(report, "<report><data/></report>", StandardCharsets.UTF_8);
+        assertTrue(report.setLastModified(2000000L));
+        assertFalse(newDb.hasSeenFile(report.getAbsolutePath()));
+    }
+
+    @Test
+    public void testReadFileCache_HashingContents() throws IOException {
+        File report = new File(rootDir, "report.xml");
+        FileUtils.write(report, "<report/>", StandardCharsets.UTF_8);
+        assertTrue(report.setLastModified(1000000L));
+        db.setHashingFileContents(true);
+        db.addFileToCache(report.getAbsolutePath());
+
+        assertTrue(report.setLastModified(2000000L));
+        assertTrue(db.hasSeenFile(report.getAbsolutePath()));
+
+        FileUtils.write(report, "<report>!</report>", StandardCharsets.UTF_8);
+        assertFalse(db.hasSeenFile(report.getAbsolutePath()));
+    }
+
+    @Test
+    public void testReadFileCache_HashingUnreadableFile() throws IOException {
+        File report = new File(rootDir, "report.xml");
+        FileUtils.write(report, "<report/>", StandardCharsets.UTF_8);
+        IFileReader failingReader = new DefaultFileReader(testLogger) {
+            @Override
+            public InputStream openInputStream(String absolutePath) throws IOException {
+                throw new IOException("Unreadable");
+            }
+        };
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, failingReader);
+        newDb.setHashingFileContents(true);
+
+        // A file that cannot be read has no fingerprint, so it is never remembered.
+        newDb.addFileToCache(report.getAbsolutePath());
+        assertFalse(newDb.hasSeenFile(report.getAbsolutePath()));
+    }
+
+    @Test
+    public void testReadFileCache_LegacyFileNames() throws IOException {
+        File legacyFile = new File(rootDir, "fileCache.json");
+        FileUtils.write(legacyFile, "[\"report1.xml\",\"report2.xml\"]", StandardCharsets.UTF_8);
+
+        db.loadState();
+        assertTrue(db.hasSeenFile("/some/dir/report1.xml"));
+        assertFalse(db.hasSeenFile("/some/dir/report3.xml"));
+
+        db.removeFileFromCache("/some/dir/report2.xml");
+        assertFalse(db.hasSeenFile("/some/dir/report2.xml"));
+        db.saveState();
+        assertFalse(legacyFile.exists());
+        assertTrue(new File(rootDir, FileFingerprintStore.FILE_NAME).exists());
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.loadState();
+        assertTrue(newDb.hasSeenFile("/other/dir/report1.xml"));
+        assertFalse(newDb.hasSeenFile("/other/dir/report2.xml"));
+        assertEquals(1, newDb.getFilenameCache().size());
+    }
+
+    @Test
+    public void testReadFileCache_CompactsRemovedFiles() throws IOException {
+        for(int i = 0; i < 1500; i++) {
+            db.addFileToCache("FilePath" + i);
+        }
+        db.saveState();
+        for(int i = 0; i < 1000; i++) {
+            db.removeFileFromCache("FilePath" + i);
+        }
+        db.saveState();
+
+        File cacheFile = new File(rootDir, FileFingerprintStore.FILE_NAME);
+        assertEquals(500, FileUtils.readLines(cacheFile, StandardCharsets.UTF_8).size());
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.readFileCache();
+        assertFalse(newDb.hasSeenFile("FilePath999"));
+        assertTrue(newDb.hasSeenFile("FilePath1000"));
+        assertTrue(newDb.hasSeenFile("FilePath1499"));
+        assertEquals(500, newDb.getFilenameCache().size());
+    }
+
     @Test
     public void testReadMetadata() {
         db.getMetadata().setPlotCount(100);
@@ -239,6 +1111,157 @@ public class FileBasedDatabaseTest {
         assertEquals(25, newDb.getMetadata().getFailedPlotCount());
     }
 
+    @Test
+    public void testMetadataCounts_LoadedPlotsAreNotNewPlots() {
+        PlotWindowModel plot = new PlotWindowModel("MyTestPlot1");
+        plot.setBackgroundColor(RulePlotTraceModelFailActor.FAIL_COLOR);
+        db.addPlot(plot);
+        db.saveState();
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.loadState();
+        newDb.loadPlotUsingUUID(plot.getUUID().toString());
+        assertEquals(1, newDb.getMetadata().getPlotCount());
+        assertEquals(1, newDb.getMetadata().getFailedPlotCount());
+    }
+
+    @Test
+    public void testReadMetadata_RecountIfFailedPlotsUntracked() throws IOException {
+        PlotWindowModel plot1 = new PlotWindowModel("MyTestPlot1");
+        PlotWindowModel plot2 = new PlotWindowModel("MyTestPlot2");
+        plot2.setBackgroundColor(RulePlotTraceModelFailActor.FAIL_COLOR);
+        db.addPlot(plot1);
+        db.addPlot(plot2);
+        db.saveState();
+
+        // Simulate metadata written before failed plots were tracked individually.
+        File metadataFile = new File(rootDir, "metadata.json");
+        FileUtils.writeStringToFile(metadataFile, "{\"plotCount\":7,\"failedPlotCount\":3}", StandardCharsets.UTF_8);
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.loadState();
+        assertEquals(2, newDb.getMetadata().getPlotCount());
+        assertEquals(1, newDb.getMetadata().getFailedPlotCount());
+        assertNotNull(newDb.getMetadata().getFailedPlotUUIDs());
+    }
+
+    @Test
+    public void testReadPlotIndex() {
+        PlotWindowModel plot1 = new PlotWindowModel("Plot1");
+        plot1.setCategory("MyCategory");
+        PlotWindowModel plot2 = new PlotWindowModel("Plot2");
+        db.addPlot(plot1);
+        db.addPlot(plot2);
+        db.saveState();
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.readPlotIndex();
+        assertTrue(newDb.plotIndexLoaded);
+        assertEquals(2, newDb.plotIndex.size());
+        assertEquals(plot1.getUUID().toString(), newDb.plotIndex.find("Plot1", "mycategory"));
+        assertEquals(plot2.getUUID().toString(), newDb.plotIndex.find("Plot2", ""));
+        assertNull(newDb.plotIndex.find("Plot1", "OtherCategory"));
+    }
+
+    @Test
+    public void testReadPlotIndex_RebuildIfMissing() {
+        PlotWindowModel plot = new PlotWindowModel("Plot1");
+        plot.setCategory("MyCategory");
+        db.addPlot(plot);
+        db.saveState();
+        assertTrue(new File(rootDir, "plotIndex.json").delete());
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.readPlotIndex();
+        assertEquals(1, newDb.plotIndex.size());
+        assertEquals(plot.getUUID().toString(), newDb.plotIndex.find("Plot1", "MyCategory"));
+    }
+
+    @Test
+    public void testLoadPlotUsingInnerFields_UsesPlotIndex() {
+        PlotWindowModel plot1 = new PlotWindowModel("Plot1");
+        plot1.setCategory("MyCategory");
+        PlotWindowModel plot2 = new PlotWindowModel("Plot2");
+        plot2.setCategory("MyCategory");
+        db.addPlot(plot1);
+        db.addPlot(plot2);
+        db.saveState();
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.readPlotIndex();
+        assertEquals(plot2, newDb.loadPlotUsingInnerFields("Plot2", "MyCategory"));
+        assertNull(newDb.loadPlotUsingInnerFields("Plot3", "MyCategory"));
+        assertEquals(1, newDb.plots.size());
+    }
+
+    @Test
+    public void testLoadPlotUsingInnerFields_StaleIndexFallsBackToSearch() {
+        PlotWindowModel plot = new PlotWindowModel("Plot1");
+        plot.setCategory("MyCategory");
+        db.addPlot(plot);
+        db.saveState();
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.readPlotIndex();
+        newDb.plotIndex.put("00000000-0000-0000-0000-000000000000", "Plot1", "MyCategory");
+
+        assertEquals(plot, newDb.loadPlotUsingInnerFields("Plot1", "MyCategory"));
+        assertTrue(newDb.plotIndexLoaded);
+        assertFalse(newDb.plotIndex.contains("00000000-0000-0000-0000-000000000000"));
+        assertEquals(plot.getUUID().toString(), newDb.plotIndex.find("Plot1", "MyCategory"));
+    }
+
+    @Test
+    public void testLoadPlotUsingInnerFields_StaleIndexCategoryIsRepaired() {
+        PlotWindowModel plot = new PlotWindowModel("Plot1");
+        plot.setCategory("MyCategory");
+        db.addPlot(plot);
+        db.saveState();
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.readPlotIndex();
+        newDb.plotIndex.put(plot.getUUID().toString(), "Plot1", "OtherCategory");
+
+        assertNull(newDb.loadPlotUsingInnerFields("Plot1", "OtherCategory"));
+        assertTrue(newDb.plotIndexLoaded);
+        assertNull(newDb.plotIndex.find("Plot1", "OtherCategory"));
+        assertEquals(plot.getUUID().toString(), newDb.plotIndex.find("Plot1", "MyCategory"));
+    }
+
+    @Test
+    public void testReadPlotIndex_RebuildIfPlotFileCreatedAfterSave() {
+        PlotWindowModel plot1 = new PlotWindowModel("Plot1");
+        db.addPlot(plot1);
+        db.saveState();
+        assertTrue(new File(rootDir, "plotIndex.json").exists());
+
+        PlotWindowModel plot2 = new PlotWindowModel("Plot2");
+        db.addPlot(plot2);
+        assertTrue(db.writePlotWindowModel(plot2));
+        assertFalse(new File(rootDir, "plotIndex.json").exists());
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.readPlotIndex();
+        assertEquals(2, newDb.plotIndex.size());
+        assertEquals(plot2.getUUID().toString(), newDb.plotIndex.find("Plot2", ""));
+    }
+
+    @Test
+    public void testDeletePlot_RemovedFromPlotIndex() {
+        PlotWindowModel plot = new PlotWindowModel("Plot1");
+        db.addPlot(plot);
+        db.saveState();
+        assertEquals(1, db.plotIndex.size());
+
+        db.deletePlot(plot.getUUID().toString());
+        db.saveState();
+        assertEquals(0, db.plotIndex.size());
+
+        FileBasedDatabase newDb = new FileBasedDatabase(rootDir, testLogger, fileReader);
+        newDb.readPlotIndex();
+        assertEquals(0, newDb.plotIndex.size());
+    }
+
     @Test
     public void testReadLastConfiguration() {
         GraphDisplayConfig graphDisplayConfig = new GraphDisplayConfig("", testLogger);
@@ -270,4 +1293,34 @@ public class FileBasedDatabaseTest {
         newDb.readLastConfiguration();
         assertNotNull(newDb.getLastConfig().getFilterConfig());
     }
+
+    /////////////
+    // PRIVATE //
+    /////////////
+
+    private PlotWindowModel createPlotWithPoints(String name, int pointCount) throws ChartreuseException {
+        PlotWindowModel plot = new PlotWindowModel(name);
+        PlotCanvasModel canvas = new PlotCanvasModel(plot.getUUID());
+        PlotTraceModel trace = new PlotTraceModel(canvas.getUUID());
+        for(int i = 0; i < pointCount; i++) {
+            trace.add(new PlotTracePoint(Integer.toString(i), Double.toString(i * 1.5)));
+        }
+        return plot;
+    }
+
+    private boolean waitForFile(File file) throws InterruptedException {
+        for(int i = 0; i < 500 && !file.exists(); i++) {
+            Thread.sleep(10);
+        }
+        return file.exists();
+    }
+
+    private List<String> listFileNames(File dir) {
+        List<String> fileNames = new ArrayList<>();
+        for(File file : FileUtils.listFiles(dir, null, true)) {
+            fileNames.add(dir.toPath().relativize(file.toPath()).toString());
+        }
+        Collections.sort(fileNames);
+        return fileNames;
+    }
 }
\ No newline at end of file
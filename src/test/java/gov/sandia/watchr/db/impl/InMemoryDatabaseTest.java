@@ -0,0 +1,61 @@
+package gov.sandia.watchr.db.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import gov.sandia.watchr.config.file.DefaultFileReader;
+import gov.sandia.watchr.db.PlotDatabaseSearchCriteria;
+import gov.sandia.watchr.graph.chartreuse.model.PlotWindowModel;
+import gov.sandia.watchr.log.StringOutputLogger;
+import gov.sandia.watchr.util.CommonConstants;
+
+public class InMemoryDatabaseTest {
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    private InMemoryDatabase db;
+
+    ///////////
+    // SETUP //
+    ///////////
+
+    @Before
+    public void setup() {
+        StringOutputLogger testLogger = new StringOutputLogger();
+        db = new InMemoryDatabase(testLogger, new DefaultFileReader(testLogger));
+    }
+
+    //////////
+    // TEST //
+    //////////
+
+    @Test
+    public void testPlotsSurviveSaveAndCacheClear() {
+        PlotWindowModel rootPlot = new PlotWindowModel(CommonConstants.ROOT_PATH_ALIAS);
+        PlotWindowModel plot = new PlotWindowModel("Plot1");
+        plot.setCategory("Category");
+        db.addPlot(rootPlot);
+        db.addPlot(plot);
+        db.saveState();
+        db.clearPlotCache();
+
+        assertSame(rootPlot, db.getRootPlot());
+        assertSame(plot, db.getPlotByUUID(plot.getUUID().toString()));
+        assertSame(plot, db.searchPlot(new PlotDatabaseSearchCriteria("Plot1", "Category")));
+        assertEquals(0, db.dirtyPlotUUIDs.size());
+    }
+
+    @Test
+    public void testMissingPlotIsNotFound() {
+        db.loadState();
+        assertNull(db.searchPlot(new PlotDatabaseSearchCriteria("Missing", "Category")));
+        assertNotNull(db.getMetadata());
+    }
+}
@@ -3,6 +3,8 @@ package gov.sandia.watchr.graph.chartreuse.model;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -11,7 +13,11 @@ import java.util.Random;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
 import gov.sandia.watchr.TestFileUtils;
+import gov.sandia.watchr.db.impl.bc.PlotCanvasModelMarshaller;
 import gov.sandia.watchr.graph.chartreuse.ChartreuseException;
 import gov.sandia.watchr.graph.chartreuse.ChartreuseTestsUtil;
 import gov.sandia.watchr.graph.chartreuse.PlotToken;
@@ -297,4 +303,45 @@ public class PlotWindowModelTest {
             fail(e.getMessage());
         }
 	}
+
+	@Test
+	public void testGetParent_AfterRemovingFromRelationshipManager() {
+		try {
+			PlotWindowModel windowModel = new PlotWindowModel("Test Window Model");
+			PlotCanvasModel canvasModel = new PlotCanvasModel(windowModel.getUUID());
+			PlotTraceModel traceModel = new PlotTraceModel(canvasModel.getUUID());
+			assertSame(windowModel, PlotRelationshipManager.getWindowModel(windowModel.getUUID()));
+			assertSame(canvasModel, PlotRelationshipManager.getCanvasModel(canvasModel.getUUID()));
+
+			PlotRelationshipManager.removeWindowModelHierarchy(windowModel);
+			assertNull(PlotRelationshipManager.getWindowModel(windowModel.getUUID()));
+			assertNull(PlotRelationshipManager.getCanvasModel(canvasModel.getUUID()));
+
+			// Models that were added to their parents keep resolving them directly.
+			assertSame(canvasModel, traceModel.getParent());
+			assertSame(windowModel, canvasModel.getParent());
+		} catch(ChartreuseException e) {
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testLinkChildModels_DeserializedPlot() {
+		try {
+			PlotWindowModel windowModel = new PlotWindowModel("Test Window Model");
+			PlotCanvasModel canvasModel = new PlotCanvasModel(windowModel.getUUID());
+			new PlotTraceModel(canvasModel.getUUID());
+
+			Gson reader = new GsonBuilder().registerTypeAdapter(PlotCanvasModel.class, new PlotCanvasModelMarshaller()).create();
+			PlotWindowModel copy = reader.fromJson(new Gson().toJson(windowModel), PlotWindowModel.class);
+			copy.linkChildModels();
+
+			PlotCanvasModel copyCanvasModel = copy.getCanvasModels().get(0);
+			assertSame(copy, copyCanvasModel.getParent());
+			assertSame(copyCanvasModel, copyCanvasModel.getTraceModels().get(0).getParent());
+			assertSame(windowModel, PlotRelationshipManager.getWindowModel(windowModel.getUUID()));
+		} catch(ChartreuseException e) {
+			fail(e.getMessage());
+		}
+	}
 }
@@ -0,0 +1,79 @@
+package gov.sandia.watchr.parse.generators.line.extractors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import gov.sandia.watchr.config.FileConfig;
+import gov.sandia.watchr.config.HierarchicalExtractor;
+import gov.sandia.watchr.config.file.DefaultFileReader;
+import gov.sandia.watchr.config.file.IFileReader;
+import gov.sandia.watchr.log.StringOutputLogger;
+import gov.sandia.watchr.parse.WatchrParseException;
+
+public class ExtractionResultCacheTest {
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    private File reportFile;
+    private FileConfig fileConfig;
+
+    ///////////
+    // SETUP //
+    ///////////
+
+    @Before
+    public void setup() throws IOException {
+        File originalReportFile = FileUtils.toFile(
+            ExtractionResultCacheTest.class.getClassLoader().getResource("system_tests/reports/json_reports_basic/basic_report.json"));
+        reportFile = Files.createTempFile("ExtractionResultCacheTest", ".json").toFile();
+        FileUtils.copyFile(originalReportFile, reportFile);
+
+        StringOutputLogger testLogger = new StringOutputLogger();
+        IFileReader fileReader = new DefaultFileReader(testLogger);
+        fileConfig = new FileConfig("", testLogger, fileReader);
+        fileConfig.setFileExtension("json");
+    }
+
+    ///////////
+    // TESTS //
+    ///////////
+
+    @Test
+    public void testExtract_EvaluatesEqualExtractorsOnce() throws WatchrParseException {
+        ExtractionResultCache extractionCache = new ExtractionResultCache();
+        List<ExtractionResult> results = extractionCache.extract(newNameExtractor("/plot1/x"), reportFile.getAbsolutePath());
+        assertEquals("my_test_performance_report", results.get(0).getValue());
+
+        // An extractor with the same configuration, from another plot, gets the
+        // same results without the report being read again.
+        assertTrue(reportFile.delete());
+        List<ExtractionResult> sharedResults = extractionCache.extract(newNameExtractor("/plot2/x"), reportFile.getAbsolutePath());
+        assertEquals(results, sharedResults);
+        assertNotSame(results, sharedResults);
+        assertEquals(1, extractionCache.size());
+        assertEquals(1, extractionCache.getDocumentCache().size());
+    }
+
+    /////////////
+    // PRIVATE //
+    /////////////
+
+    private HierarchicalExtractor newNameExtractor(String configPath) {
+        HierarchicalExtractor extractor = new HierarchicalExtractor(fileConfig, configPath);
+        extractor.setPath("performanceReport");
+        extractor.setKey("name");
+        return extractor;
+    }
+}
@@ -2,15 +2,19 @@ package gov.sandia.watchr.parse.generators.line.extractors.strategy;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Files;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -294,5 +298,28 @@ public class JsonExtractionStrategyTest {
         } else {
             fail("File was not loaded.");
         }
-    }    
+    }
+
+    @Test
+    public void testExtract_SharesParsedDocumentThroughCache() throws IOException, WatchrParseException {
+        File reportCopy = Files.createTempFile("JsonExtractionStrategyTest", ".json").toFile();
+        FileUtils.copyFile(jsonReportFile, reportCopy);
+        ParsedDocumentCache documentCache = new ParsedDocumentCache();
+
+        AmbiguityStrategy strategy = new AmbiguityStrategy("");
+        Map<String, String> nameProperties = new HashMap<>();
+        nameProperties.put(Keywords.GET_PATH, "performanceReport");
+        nameProperties.put(Keywords.GET_KEY, "name");
+        JsonExtractionStrategy nameExtractor = new JsonExtractionStrategy(nameProperties, strategy, testLogger, fileReader);
+        assertEquals("my_test_performance_report", nameExtractor.extract(reportCopy.getAbsolutePath(), documentCache).get(0).getValue());
+
+        // The second extractor reads the parsed report from the cache, not from disk.
+        assertTrue(reportCopy.delete());
+        Map<String, String> metadataProperties = new HashMap<>();
+        metadataProperties.put(Keywords.GET_PATH, "performanceReport/metadata");
+        metadataProperties.put(Keywords.GET_KEY, "abc");
+        JsonExtractionStrategy metadataExtractor = new JsonExtractionStrategy(metadataProperties, strategy, testLogger, fileReader);
+        assertEquals("def", metadataExtractor.extract(reportCopy.getAbsolutePath(), documentCache).get(0).getValue());
+        assertEquals(1, documentCache.size());
+    }
 }
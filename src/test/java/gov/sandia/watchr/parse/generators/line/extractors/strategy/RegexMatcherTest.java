@@ -0,0 +1,70 @@
+package gov.sandia.watchr.parse.generators.line.extractors.strategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.Test;
+
+public class RegexMatcherTest {
+
+    @Test
+    public void testLiteral() {
+        RegexMatcher matcher = new RegexMatcher("Procedure myProcedure-1_a");
+        assertTrue(matcher.isLiteral());
+        assertTrue(matcher.matches("Procedure myProcedure-1_a"));
+        assertFalse(matcher.matches("Procedure myProcedure-1_ab"));
+        assertFalse(matcher.matches("procedure myProcedure-1_a"));
+    }
+
+    @Test
+    public void testEmpty() {
+        RegexMatcher matcher = new RegexMatcher("");
+        assertTrue(matcher.isLiteral());
+        assertTrue(matcher.matches(""));
+        assertFalse(matcher.matches("a"));
+    }
+
+    @Test
+    public void testRegex() {
+        String[] regexes = new String[] { ".*", "nightly_run.*", "performance-report|timing", "a.b", "\\{0\\}", "[0-9]+" };
+        String[] values = new String[] { "", "nightly_run_2018", "timing", "performance-report", "a.b", "axb", "{0}", "123", "12a" };
+        for(String regex : regexes) {
+            RegexMatcher matcher = new RegexMatcher(regex);
+            assertFalse(matcher.isLiteral());
+            assertEquals(regex, matcher.getRegex());
+            for(String value : values) {
+                assertEquals(regex + ", " + value, value.matches(regex), matcher.matches(value));
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidRegex_OnlyFailsWhenMatched() {
+        RegexMatcher matcher = new RegexMatcher("{1-4}");
+        assertFalse(matcher.isLiteral());
+        assertEquals("{1-4}", matcher.getRegex());
+        try {
+            matcher.matches("1");
+            fail("Expected the expression to be rejected.");
+        } catch(PatternSyntaxException e) {
+            assertEquals("{1-4}", e.getPattern());
+        }
+    }
+
+    @Test
+    public void testCache_CompilesOnce() {
+        RegexMatcherCache cache = new RegexMatcherCache();
+        RegexMatcher matcher = cache.getMatcher("nightly_run.*");
+        assertSame(matcher, cache.getMatcher("nightly_run.*"));
+
+        RegexMatcher stopMatcher = cache.getStopMatcher("nightly_run*");
+        assertSame(matcher, stopMatcher);
+        assertSame(stopMatcher, cache.getStopMatcher("nightly_run*"));
+        assertTrue(stopMatcher.matches("nightly_run_2018"));
+    }
+}
@@ -0,0 +1,220 @@
+package gov.sandia.watchr.parse.generators.line.extractors.strategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import gov.sandia.watchr.config.file.DefaultFileReader;
+import gov.sandia.watchr.config.file.IFileReader;
+import gov.sandia.watchr.config.schema.Keywords;
+import gov.sandia.watchr.log.StringOutputLogger;
+import gov.sandia.watchr.parse.WatchrParseException;
+import gov.sandia.watchr.parse.generators.line.extractors.ExtractionResult;
+
+public class StreamingJsonExtractionStrategyTest {
+    
+    ////////////
+    // FIELDS //
+    ////////////
+
+    private File jsonReportFile;
+    private File bigJsonFile;
+    private StringOutputLogger testLogger;
+    private IFileReader fileReader;
+
+    ///////////
+    // SETUP //
+    ///////////
+
+    @Before
+    public void setup() {
+        try {            
+            ClassLoader classLoader = StreamingJsonExtractionStrategyTest.class.getClassLoader();
+            URL jsonReportUrl = classLoader.getResource("system_tests/reports/json_reports_basic/basic_report.json");
+            jsonReportFile = new File(jsonReportUrl.toURI());
+            URL bigJsonUrl = classLoader.getResource("system_tests/reports/json_reports_basic/basic_report_2.json");
+            bigJsonFile = new File(bigJsonUrl.toURI());
+
+            testLogger = new StringOutputLogger();
+            fileReader = new DefaultFileReader(testLogger);
+        } catch(URISyntaxException e) {
+            fail(e.getMessage());
+        } 
+    }
+
+    ///////////
+    // TESTS //
+    ///////////
+
+    @Test
+    public void testGetPropertyValue_ThreeLevels() {
+        try {
+            AmbiguityStrategy strategy = new AmbiguityStrategy("");
+            Map<String, String> properties = new HashMap<>();
+            properties.put(Keywords.GET_PATH, "performanceReport/timings/{0}/metrics/{1}");
+            properties.put(Keywords.GET_KEY, "max");
+            StreamingJsonExtractionStrategy jsonExtractor =
+                new StreamingJsonExtractionStrategy(properties, strategy, testLogger, fileReader);
+
+            List<ExtractionResult> results = jsonExtractor.extract(jsonReportFile.getAbsolutePath());
+            assertEquals(1, results.size());
+            assertEquals("/performanceReport/timings/metrics", results.get(0).getPath());
+            assertEquals("2.2726171875000000e+02", results.get(0).getValue());
+        } catch (WatchrParseException e1) {
+            e1.getOriginalException().printStackTrace();
+            fail(e1.getOriginalException().getMessage());
+        } 
+    }
+
+    @Test
+    public void testMatchesTreeExtraction() {
+        String[] paths = new String[] {
+            "performanceReport",
+            "performanceReport/metadata",
+            "performanceReport/timings/{0}",
+            "performanceReport/timings/{0}/metrics/{1}",
+            "performanceReport/timings/{0}/metrics/*",
+            "performanceReport/timings/*/metrics/*"
+        };
+        String[] keys = new String[] { "name", "units", "max" };
+        for(String path : paths) {
+            for(String key : keys) {
+                assertSameResults(jsonReportFile, path, key, newStrategy(true, false));
+                assertSameResults(jsonReportFile, path, key, newStrategy(false, false));
+                assertSameResults(jsonReportFile, path, key, newStrategy(false, true));
+            }
+        }
+
+        paths = new String[] { "*/metrics/{1}", "*/metrics/{1-4}", "*/metrics/{1-N}", "*/metrics/*", "*" };
+        for(String path : paths) {
+            assertSameResults(bigJsonFile, path, "value", newStrategy(true, false));
+            assertSameResults(bigJsonFile, path, "value", newStrategy(false, false));
+            assertSameResults(bigJsonFile, path, "value", newStrategy(false, true));
+        }
+    }
+
+    @Test
+    public void testFirstMatchOnly_StopsReadingOnceFound() throws IOException {
+        // Everything after the matched value is malformed, so the file can
+        // only be extracted from if it is not read to the end.
+        File truncatedFile = Files.createTempFile("truncated", ".json").toFile();
+        try {
+            FileUtils.writeStringToFile(
+                truncatedFile, "{\"a\": {\"skipped\": [1, 2, {\"x\": 3}], \"b\": [{\"x\": \"found\"}, {\"x\": ", "UTF-8");
+
+            Map<String, String> properties = new HashMap<>();
+            properties.put(Keywords.GET_PATH, "a/b/{0}");
+            properties.put(Keywords.GET_KEY, "x");
+            StreamingJsonExtractionStrategy jsonExtractor =
+                new StreamingJsonExtractionStrategy(properties, newStrategy(true, false), testLogger, fileReader);
+
+            List<ExtractionResult> results = jsonExtractor.extract(truncatedFile.getAbsolutePath());
+            assertEquals(1, results.size());
+            assertEquals("/a/b", results.get(0).getPath());
+            assertEquals("found", results.get(0).getValue());
+        } catch (WatchrParseException e1) {
+            e1.getOriginalException().printStackTrace();
+            fail(e1.getOriginalException().getMessage());
+        } finally {
+            Files.delete(truncatedFile.toPath());
+        }
+    }
+
+    @Test
+    public void testIndexPastEndOfArray_MatchesNothing() {
+        try {
+            Map<String, String> properties = new HashMap<>();
+            properties.put(Keywords.GET_PATH, "performanceReport/timings/{100}");
+            properties.put(Keywords.GET_KEY, "name");
+            StreamingJsonExtractionStrategy jsonExtractor =
+                new StreamingJsonExtractionStrategy(properties, newStrategy(true, false), testLogger, fileReader);
+
+            List<ExtractionResult> results = jsonExtractor.extract(jsonReportFile.getAbsolutePath());
+            assertTrue(results.isEmpty());
+        } catch (WatchrParseException e1) {
+            e1.getOriginalException().printStackTrace();
+            fail(e1.getOriginalException().getMessage());
+        }
+    }
+
+    @Test
+    public void testFactory_StreamsLargeFiles() {
+        ExtractionStrategyFactory factory = ExtractionStrategyFactory.getInstance();
+        long originalThreshold = factory.getStreamingThreshold();
+        try {
+            Map<String, String> properties = new HashMap<>();
+            String filePath = jsonReportFile.getAbsolutePath();
+
+            factory.setStreamingThreshold(jsonReportFile.length() + 1);
+            ExtractionStrategy<?> extractionStrategy = factory.create(
+                ExtractionStrategyType.JSON, properties, newStrategy(true, false), testLogger, fileReader, filePath);
+            assertTrue(extractionStrategy instanceof JsonExtractionStrategy);
+
+            factory.setStreamingThreshold(jsonReportFile.length());
+            extractionStrategy = factory.create(
+                ExtractionStrategyType.JSON, properties, newStrategy(true, false), testLogger, fileReader, filePath);
+            assertTrue(extractionStrategy instanceof StreamingJsonExtractionStrategy);
+
+            factory.setStreamingThreshold(ExtractionStrategyFactory.STREAMING_DISABLED);
+            extractionStrategy = factory.create(
+                ExtractionStrategyType.JSON, properties, newStrategy(true, false), testLogger, fileReader, filePath);
+            assertTrue(extractionStrategy instanceof JsonExtractionStrategy);
+        } finally {
+            factory.setStreamingThreshold(originalThreshold);
+        }
+    }
+
+    /////////////
+    // UTILITY //
+    /////////////
+
+    private AmbiguityStrategy newStrategy(boolean firstMatchOnly, boolean iterate) {
+        AmbiguityStrategy strategy = new AmbiguityStrategy("");
+        strategy.setShouldGetFirstMatchOnly(firstMatchOnly);
+        if(iterate) {
+            strategy.setIterateWithOtherExtractor("x");
+        }
+        return strategy;
+    }
+
+    private void assertSameResults(File file, String path, String key, AmbiguityStrategy strategy) {
+        Map<String, String> properties = new HashMap<>();
+        properties.put(Keywords.GET_PATH, path);
+        properties.put(Keywords.GET_KEY, key);
+        try {
+            List<ExtractionResult> expected =
+                new JsonExtractionStrategy(properties, strategy, testLogger, fileReader).extract(file.getAbsolutePath());
+            List<ExtractionResult> actual =
+                new StreamingJsonExtractionStrategy(properties, strategy, testLogger, fileReader).extract(file.getAbsolutePath());
+
+            String message = path + ", " + key;
+            assertEquals(message, expected.size(), actual.size());
+            for(int i = 0; i < expected.size(); i++) {
+                if(expected.get(i) == null) {
+                    assertNull(message, actual.get(i));
+                } else {
+                    assertEquals(message, expected.get(i).getPath(), actual.get(i).getPath());
+                    assertEquals(message, expected.get(i).getKey(), actual.get(i).getKey());
+                    assertEquals(message, expected.get(i).getValue(), actual.get(i).getValue());
+                }
+            }
+        } catch (WatchrParseException e1) {
+            e1.getOriginalException().printStackTrace();
+            fail(e1.getOriginalException().getMessage());
+        }
+    }
+}
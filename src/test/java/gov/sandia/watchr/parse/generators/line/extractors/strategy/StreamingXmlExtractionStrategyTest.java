@@ -0,0 +1,231 @@
+package gov.sandia.watchr.parse.generators.line.extractors.strategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import gov.sandia.watchr.config.file.DefaultFileReader;
+import gov.sandia.watchr.config.file.IFileReader;
+import gov.sandia.watchr.config.schema.Keywords;
+import gov.sandia.watchr.log.StringOutputLogger;
+import gov.sandia.watchr.parse.WatchrParseException;
+import gov.sandia.watchr.parse.generators.line.extractors.ExtractionResult;
+
+public class StreamingXmlExtractionStrategyTest {
+    
+    ////////////
+    // FIELDS //
+    ////////////
+
+    private File xmlReportFile;
+    private StringOutputLogger testLogger;
+    private IFileReader fileReader;
+
+    ///////////
+    // SETUP //
+    ///////////
+
+    @Before
+    public void setup() {
+        try {            
+            ClassLoader classLoader = StreamingXmlExtractionStrategyTest.class.getClassLoader();
+            URL xmlReportUrl = classLoader.getResource("system_tests/reports/xml_reports_basic/basic_report_2.xml");
+            xmlReportFile = new File(xmlReportUrl.toURI());
+
+            testLogger = new StringOutputLogger();
+            fileReader = new DefaultFileReader(testLogger);
+        } catch(URISyntaxException e) {
+            fail(e.getMessage());
+        } 
+    }
+
+    ///////////
+    // TESTS //
+    ///////////
+
+    @Test
+    public void testExtract_NestedElement() {
+        try {
+            Map<String, String> properties = newProperties(
+                "nightly_run_2018_01_08/TestTiming/Test", "cpu-time-max", "performance-report|timing", "name");
+            StreamingXmlExtractionStrategy xmlExtractor =
+                new StreamingXmlExtractionStrategy(properties, newStrategy(true, false), testLogger, fileReader);
+
+            List<ExtractionResult> results = xmlExtractor.extract(xmlReportFile.getAbsolutePath());
+            assertEquals(1, results.size());
+            assertEquals("/nightly_run_2018_01_08/TestTiming/Test", results.get(0).getPath());
+            assertEquals("cpu-time-max", results.get(0).getKey());
+            assertEquals("100.286", results.get(0).getValue());
+        } catch (WatchrParseException e1) {
+            e1.getOriginalException().printStackTrace();
+            fail(e1.getOriginalException().getMessage());
+        } 
+    }
+
+    @Test
+    public void testMatchesTreeExtraction() {
+        String[][] extractors = new String[][] {
+            { "nightly_run_2018_01_08", "date", "performance-report", "name" },
+            { "nightly_run_2018_01_08/TestTiming/Test", "cpu-time-max", "performance-report|timing", "name" },
+            { "nightly_run_2018_01_08/*/Test", "cpu-time-max", "performance-report|timing", "name" },
+            { "nightly_run_2018_01_08/TestTiming/*", "value", "performance-report|timing|metadata", "name|key" },
+            { "nightly_run*/*/*/*/*/Mesh output", "cpu-time-max", "performance-report|timing", "name" },
+            { "nightly_run*/*/*/*/*/*", "cpu-time-max", "performance-report|timing", "name" },
+            { "nightly_run*", "cpu-time-max", "performance-report|timing", "name" },
+            { "nightly_run*/TestTiming", "cpu-time-max", ".*", "name|key" }
+        };
+        for(String[] extractor : extractors) {
+            Map<String, String> properties = newProperties(extractor[0], extractor[1], extractor[2], extractor[3]);
+            assertSameResults(xmlReportFile, properties, newStrategy(true, false));
+            assertSameResults(xmlReportFile, properties, newStrategy(false, false));
+            assertSameResults(xmlReportFile, properties, newStrategy(true, true));
+            assertSameResults(xmlReportFile, properties, newStrategy(false, true));
+        }
+    }
+
+    @Test
+    public void testMatchesTreeExtraction_AttributeOrderAndPrefixes() throws IOException {
+        File xmlFile = Files.createTempFile("attributes", ".xml").toFile();
+        try {
+            FileUtils.writeStringToFile(xmlFile,
+                "<r:report xmlns:r=\"urn:report\" zname=\"z\" name=\"root\">\n" +
+                "  <r:timing r:value=\"1\" value=\"2\" name=\"a\"><!-- comment --></r:timing>\n" +
+                "  <r:timing name=\"b\"></r:timing>\n" +
+                "</r:report>", "UTF-8");
+
+            String[] keys = new String[] { "value", "r:value", ".*value" };
+            for(String key : keys) {
+                Map<String, String> properties = newProperties("root/*", key, "r:.*", ".*name");
+                assertSameResults(xmlFile, properties, newStrategy(true, false));
+                assertSameResults(xmlFile, properties, newStrategy(false, false));
+                assertSameResults(xmlFile, properties, newStrategy(false, true));
+            }
+
+            // The DOM lists attributes by name, so "r:value" comes before "value".
+            Map<String, String> properties = newProperties("root/*", ".*value", "r:.*", ".*name");
+            StreamingXmlExtractionStrategy xmlExtractor =
+                new StreamingXmlExtractionStrategy(properties, newStrategy(false, false), testLogger, fileReader);
+            List<ExtractionResult> results = xmlExtractor.extract(xmlFile.getAbsolutePath());
+            assertEquals(1, results.size());
+            assertEquals("/root/a", results.get(0).getPath());
+            assertEquals("1", results.get(0).getValue());
+        } catch (WatchrParseException e1) {
+            e1.getOriginalException().printStackTrace();
+            fail(e1.getOriginalException().getMessage());
+        } finally {
+            Files.delete(xmlFile.toPath());
+        }
+    }
+
+    @Test
+    public void testFirstMatchOnly_StopsReadingOnceFound() throws IOException {
+        // Everything after the matched element is malformed, so the file can
+        // only be extracted from if it is not read to the end.
+        File truncatedFile = Files.createTempFile("truncated", ".xml").toFile();
+        try {
+            FileUtils.writeStringToFile(truncatedFile,
+                "<report name=\"root\"><timing name=\"a\" value=\"1\"/><timing name=\"b\" value=\"2\"/><timing name=", "UTF-8");
+
+            Map<String, String> properties = newProperties("root/*", "value", "report|timing", "name");
+            StreamingXmlExtractionStrategy xmlExtractor =
+                new StreamingXmlExtractionStrategy(properties, newStrategy(true, false), testLogger, fileReader);
+
+            List<ExtractionResult> results = xmlExtractor.extract(truncatedFile.getAbsolutePath());
+            assertEquals(1, results.size());
+            assertEquals("/root/a", results.get(0).getPath());
+            assertEquals("1", results.get(0).getValue());
+        } catch (WatchrParseException e1) {
+            e1.getOriginalException().printStackTrace();
+            fail(e1.getOriginalException().getMessage());
+        } finally {
+            Files.delete(truncatedFile.toPath());
+        }
+    }
+
+    @Test
+    public void testDoctypeIsRejected() throws IOException {
+        File doctypeFile = Files.createTempFile("doctype", ".xml").toFile();
+        try {
+            FileUtils.writeStringToFile(doctypeFile,
+                "<!DOCTYPE report [<!ENTITY name \"root\">]><report name=\"&name;\"/>", "UTF-8");
+
+            Map<String, String> properties = newProperties("root", "name", "report", "name");
+            StreamingXmlExtractionStrategy xmlExtractor =
+                new StreamingXmlExtractionStrategy(properties, newStrategy(true, false), testLogger, fileReader);
+            xmlExtractor.extract(doctypeFile.getAbsolutePath());
+            fail("Expected the DOCTYPE to be rejected.");
+        } catch (WatchrParseException e1) {
+            assertTrue(e1.getOriginalException() != null);
+        } finally {
+            Files.delete(doctypeFile.toPath());
+        }
+    }
+
+    @Test
+    public void testFactory_StreamsLargeFiles() {
+        ExtractionStrategyFactory factory = ExtractionStrategyFactory.getInstance();
+        long originalThreshold = factory.getStreamingThreshold();
+        try {
+            Map<String, String> properties = new HashMap<>();
+            String filePath = xmlReportFile.getAbsolutePath();
+
+            factory.setStreamingThreshold(xmlReportFile.length() + 1);
+            ExtractionStrategy<?> extractionStrategy = factory.create(
+                ExtractionStrategyType.XML, properties, newStrategy(true, false), testLogger, fileReader, filePath);
+            assertTrue(extractionStrategy instanceof XmlExtractionStrategy);
+
+            factory.setStreamingThreshold(xmlReportFile.length());
+            extractionStrategy = factory.create(
+                ExtractionStrategyType.XML, properties, newStrategy(true, false), testLogger, fileReader, filePath);
+            assertTrue(extractionStrategy instanceof StreamingXmlExtractionStrategy);
+        } finally {
+            factory.setStreamingThreshold(originalThreshold);
+        }
+    }
+
+    /////////////
+    // UTILITY //
+    /////////////
+
+    private Map<String, String> newProperties(String path, String key, String element, String pathAttribute) {
+        Map<String, String> properties = new HashMap<>();
+        properties.put(Keywords.GET_PATH, path);
+        properties.put(Keywords.GET_KEY, key);
+        properties.put(Keywords.GET_ELEMENT, element);
+        properties.put(Keywords.GET_PATH_ATTRIBUTE, pathAttribute);
+        return properties;
+    }
+
+    private AmbiguityStrategy newStrategy(boolean firstMatchOnly, boolean recurseToChildGraphs) {
+        AmbiguityStrategy strategy = new AmbiguityStrategy("");
+        strategy.setShouldGetFirstMatchOnly(firstMatchOnly);
+        strategy.setShouldRecurseToChildGraphs(recurseToChildGraphs);
+        return strategy;
+    }
+
+    private void assertSameResults(File file, Map<String, String> properties, AmbiguityStrategy strategy) {
+        try {
+            List<ExtractionResult> expected =
+                new XmlExtractionStrategy(properties, strategy, testLogger, fileReader).extract(file.getAbsolutePath());
+            List<ExtractionResult> actual =
+                new StreamingXmlExtractionStrategy(properties, strategy, testLogger, fileReader).extract(file.getAbsolutePath());
+            assertEquals(properties.toString(), expected, actual);
+        } catch (WatchrParseException e1) {
+            e1.getOriginalException().printStackTrace();
+            fail(e1.getOriginalException().getMessage());
+        }
+    }
+}